@@ -0,0 +1,88 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Resource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.topbraid.shacl.benchmarks.SyntheticData.ConstraintKind;
+import org.topbraid.shacl.engine.CompiledShapesGraph;
+import org.topbraid.shacl.validation.ValidationEngineConfiguration;
+import org.topbraid.shacl.validation.ValidationUtil;
+
+/**
+ * Compares the execution paths for semantically equivalent constraints:
+ * core constraints (native or SPARQL executors), SPARQL-based components and
+ * JavaScript-based components.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExecutionPathBenchmark {
+	
+	@Param({"CORE", "SPARQL", "JS"})
+	public ConstraintKind kind;
+	
+	@Param({"true", "false"})
+	public boolean nativeExecutors;
+	
+	@Param({"1", "64"})
+	public int sparqlBatchSize;
+	
+	@Param({"1000"})
+	public int focusNodes;
+	
+	@Param({"5"})
+	public int properties;
+	
+	private Model dataModel;
+	
+	private CompiledShapesGraph shapesGraph;
+	
+	private ValidationEngineConfiguration configuration;
+
+	
+	@Setup
+	public void setup() {
+		dataModel = SyntheticData.createDataModel(focusNodes, properties);
+		shapesGraph = ValidationUtil.compileShapesGraph(SyntheticData.createShapesModel(1, properties, kind), false);
+		configuration = new ValidationEngineConfiguration().
+				setNativeExecutors(nativeExecutors).
+				setSPARQLBatchSize(sparqlBatchSize);
+	}
+	
+	
+	@Benchmark
+	public Resource validate() {
+		return ValidationUtil.validateModel(dataModel, shapesGraph, configuration);
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.benchmarks;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.engine.Shape;
+import org.topbraid.shacl.validation.ValidationEngine;
+import org.topbraid.shacl.validation.ValidationEngineConfiguration;
+import org.topbraid.shacl.validation.ValidationUtil;
+
+/**
+ * Measures the per-focus-node cost of validating against a simple property shape
+ * (sh:datatype, sh:minCount, sh:maxCount) with the native executors.
+ * The data conforms, so that no results are produced and all allocations are overhead.
+ * Run with the GC profiler to see the allocations per operation:
+ * <pre>java -jar target/benchmarks.jar HotPathBenchmark -prof gc</pre>
+ * and compare the gc.alloc.rate.norm values.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class HotPathBenchmark {
+	
+	@Param({"1000"})
+	public int focusNodes;
+	
+	@Param({"3"})
+	public int properties;
+	
+	private Constraint constraint;
+	
+	private ValidationEngine engine;
+	
+	private List<List<RDFNode>> focusNodeLists;
+	
+	private int nextNode;
+	
+	private Node shapeNode;
+
+	
+	@Setup
+	public void setup() {
+		Model dataModel = SyntheticData.createDataModel(focusNodes, properties);
+		Model shapesModel = SyntheticData.createSimpleShapesModel(properties);
+		engine = ValidationUtil.createValidationEngine(dataModel, shapesModel, new ValidationEngineConfiguration().setNativeExecutors(true));
+		Resource shape = shapesModel.getResource(SyntheticData.NS + "SimpleShape");
+		shapeNode = shape.asNode();
+		Shape propertyShape = engine.getShapesGraph().getShape(shape.getPropertyResourceValue(shapesModel.getProperty("http://www.w3.org/ns/shacl#property")).asNode());
+		constraint = propertyShape.getConstraints().iterator().next();
+		focusNodeLists = new java.util.ArrayList<>();
+		for(int i = 0; i < focusNodes; i++) {
+			focusNodeLists.add(Collections.singletonList(dataModel.asRDFNode(SyntheticData.getPerson(i).asNode())));
+		}
+	}
+	
+	
+	@Benchmark
+	public List<RDFNode> getValueNodes() {
+		return engine.getValueNodes(constraint, nextFocusNodes().get(0));
+	}
+	
+	
+	@Benchmark
+	public Resource validateFocusNode() {
+		return engine.validateNodesAgainstShape(nextFocusNodes(), shapeNode);
+	}
+	
+	
+	private List<RDFNode> nextFocusNodes() {
+		List<RDFNode> result = focusNodeLists.get(nextNode++);
+		if(nextNode == focusNodes) {
+			nextNode = 0;
+		}
+		return result;
+	}
+}
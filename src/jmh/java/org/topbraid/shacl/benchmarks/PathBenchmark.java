@@ -0,0 +1,135 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.sparql.path.Path;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.topbraid.shacl.arq.SHACLPaths;
+import org.topbraid.shacl.benchmarks.SyntheticData.ConstraintKind;
+import org.topbraid.shacl.expr.PathEvaluator;
+import org.topbraid.shacl.validation.ValidationEngine;
+import org.topbraid.shacl.validation.ValidationUtil;
+
+/**
+ * Benchmarks the evaluation of SHACL paths, both through the PathEvaluator of
+ * node expressions and through SHACLPaths.addValueNodes as used by the validators,
+ * including the Node-level variant that collects into a reused buffer.
+ * Each invocation evaluates the path for a different focus node.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PathBenchmark {
+	
+	@Param({"1000", "10000"})
+	public int focusNodes;
+	
+	@Param({"ex:p_0", "^ex:knows", "ex:knows/ex:knows", "ex:knows|rdfs:label", "ex:knows/ex:knows/ex:p_1"})
+	public String path;
+	
+	private ValidationEngine context;
+	
+	private Model dataModel;
+	
+	private Object jenaPath;
+	
+	private PathEvaluator evaluator;
+	
+	private int nextNode;
+	
+	// Reused by addValueNodesGraph, the benchmarks run on a single thread
+	private List<Node> buffer = new ArrayList<>();
+
+	
+	@Setup
+	public void setup() {
+		dataModel = SyntheticData.createDataModel(focusNodes, 2);
+		dataModel.setNsPrefix("rdfs", "http://www.w3.org/2000/01/rdf-schema#");
+		Model shapesModel = SyntheticData.createShapesModel(1, 2, ConstraintKind.CORE);
+		context = ValidationUtil.createValidationEngine(dataModel, shapesModel, false);
+		jenaPath = SHACLPaths.getJenaPath(path, dataModel);
+		if(jenaPath instanceof Resource) {
+			jenaPath = dataModel.getProperty(((Resource) jenaPath).getURI());
+		}
+		if(jenaPath instanceof Property) {
+			evaluator = new PathEvaluator((Property) jenaPath);
+		}
+		else {
+			evaluator = new PathEvaluator((Path) jenaPath, shapesModel);
+		}
+	}
+	
+	
+	@Benchmark
+	public List<RDFNode> evalPath() {
+		return evaluator.eval(nextFocusNode(), context).toList();
+	}
+	
+	
+	@Benchmark
+	public List<RDFNode> addValueNodes() {
+		List<RDFNode> results = new ArrayList<>();
+		if(jenaPath instanceof Property) {
+			SHACLPaths.addValueNodes(nextFocusNode(), (Property) jenaPath, results);
+		}
+		else {
+			SHACLPaths.addValueNodes(nextFocusNode(), (Path) jenaPath, results);
+		}
+		return results;
+	}
+	
+	
+	@Benchmark
+	public int addValueNodesGraph() {
+		Resource focusNode = nextFocusNode();
+		buffer.clear();
+		if(jenaPath instanceof Property) {
+			SHACLPaths.addValueNodes(dataModel.getGraph(), focusNode.asNode(), ((Property) jenaPath).asNode(), buffer);
+		}
+		else {
+			SHACLPaths.addValueNodes(dataModel.getGraph(), focusNode.asNode(), (Path) jenaPath, buffer);
+		}
+		return buffer.size();
+	}
+	
+	
+	private Resource nextFocusNode() {
+		return dataModel.getResource(SyntheticData.getPerson(nextNode++ % focusNodes).getURI());
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Resource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.topbraid.shacl.arq.SHACLFunctions;
+import org.topbraid.shacl.benchmarks.SyntheticData.ConstraintKind;
+import org.topbraid.shacl.util.SHACLSystemModel;
+import org.topbraid.shacl.validation.ValidationUtil;
+
+/**
+ * Measures the cold-start cost of loading the SHACL system model, each measurement in a fresh JVM.
+ * Compares the precompiled snapshot (the default) with parsing the Turtle files, both for
+ * loading the system model alone and for a first small validation, which includes it.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class StartupBenchmark {
+	
+	@Benchmark
+	public Model loadSystemModel() {
+		return SHACLSystemModel.getSHACLModel();
+	}
+	
+	
+	@Benchmark
+	public Model parseSystemModel() {
+		Model model = SHACLSystemModel.parseSHACLModel();
+		SHACLFunctions.registerFunctions(model);
+		return model;
+	}
+	
+	
+	@Benchmark
+	public Resource firstValidation() {
+		Model dataModel = SyntheticData.createDataModel(10, 2);
+		Model shapesModel = SyntheticData.createShapesModel(1, 2, ConstraintKind.CORE);
+		return ValidationUtil.validateModel(dataModel, shapesModel, false);
+	}
+	
+	
+	// Baseline for firstValidation: as the shapes Model already includes the parsed system triples,
+	// the snapshot is not loaded and all functions are registered eagerly
+	@Benchmark
+	public Resource firstValidationWithParsedSystemModel() {
+		Model dataModel = SyntheticData.createDataModel(10, 2);
+		Model shapesModel = SyntheticData.createShapesModel(1, 2, ConstraintKind.CORE);
+		shapesModel.add(SHACLSystemModel.parseSHACLModel());
+		return ValidationUtil.validateModel(dataModel, shapesModel, false);
+	}
+}
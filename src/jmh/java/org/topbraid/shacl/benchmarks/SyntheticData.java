@@ -0,0 +1,214 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.benchmarks;
+
+import java.io.StringReader;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.util.FileUtils;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+import org.topbraid.jenax.util.JenaUtil;
+
+/**
+ * Generates synthetic data and shapes graphs for the benchmarks.
+ * 
+ * The data graph consists of instances of ex:Person, each with a configurable number of
+ * integer-valued properties ex:p_0 ... ex:p_n plus a label and two ex:knows links, so that
+ * the number of triples scales with focusNodes * properties.
+ * Every 17th instance has a negative value for ex:p_0 so that the reports are not empty.
+ * 
+ * The shapes graphs contain a configurable number of node shapes targeting ex:Person, each with
+ * one property shape per property, using either core constraints or equivalent SPARQL-based
+ * or JavaScript-based constraint components.
+ */
+public class SyntheticData {
+	
+	public static final String NS = "http://example.org/benchmarks#";
+	
+	public static final Resource Person = ResourceFactory.createResource(NS + "Person");
+	
+	public static final Property knows = ResourceFactory.createProperty(NS + "knows");
+	
+	private static final String PREFIXES =
+			"@prefix ex: <" + NS + "> .\n" +
+			"@prefix rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#> .\n" +
+			"@prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> .\n" +
+			"@prefix sh: <http://www.w3.org/ns/shacl#> .\n" +
+			"@prefix xsd: <http://www.w3.org/2001/XMLSchema#> .\n";
+	
+	
+	/**
+	 * The kinds of constraints that may be used by the generated shapes.
+	 */
+	public enum ConstraintKind {
+		
+		/** sh:datatype, sh:minInclusive and sh:maxCount */
+		CORE,
+		
+		/** A constraint component with a sh:SPARQLAskValidator */
+		SPARQL,
+		
+		/** A constraint component with a sh:JSValidator */
+		JS
+	}
+	
+	
+	public static Property getProperty(int index) {
+		return ResourceFactory.createProperty(NS + "p_" + index);
+	}
+	
+	
+	public static Resource getPerson(int index) {
+		return ResourceFactory.createResource(NS + "person_" + index);
+	}
+	
+	
+	/**
+	 * Creates a data graph with a given number of ex:Person instances.
+	 * @param focusNodes  the number of instances
+	 * @param properties  the number of integer-valued properties per instance
+	 * @return a new Model
+	 */
+	public static Model createDataModel(int focusNodes, int properties) {
+		Model model = JenaUtil.createMemoryModel();
+		model.setNsPrefix("ex", NS);
+		Resource agent = model.createResource(NS + "Agent");
+		model.add(Person, RDFS.subClassOf, agent);
+		Property[] ps = new Property[properties];
+		for(int j = 0; j < properties; j++) {
+			ps[j] = getProperty(j);
+		}
+		for(int i = 0; i < focusNodes; i++) {
+			Resource person = getPerson(i);
+			model.add(person, RDF.type, Person);
+			model.add(person, RDFS.label, "Person " + i);
+			model.add(person, knows, getPerson((i + 1) % focusNodes));
+			model.add(person, knows, getPerson((i * 7 + 3) % focusNodes));
+			for(int j = 0; j < properties; j++) {
+				int value = (j == 0 && i % 17 == 0) ? -1 : (i + j) % 100;
+				model.add(person, ps[j], String.valueOf(value), XSDDatatype.XSDinteger);
+			}
+		}
+		return model;
+	}
+	
+	
+	/**
+	 * Creates a shapes graph with a given number of node shapes, each targeting ex:Person.
+	 * @param shapes  the number of node shapes
+	 * @param properties  the number of properties (one property shape per property)
+	 * @param kind  the kind of constraints to use
+	 * @return a new Model
+	 */
+	public static Model createShapesModel(int shapes, int properties, ConstraintKind kind) {
+		StringBuilder sb = new StringBuilder(PREFIXES);
+		appendComponents(sb);
+		for(int k = 0; k < shapes; k++) {
+			sb.append("ex:Shape_" + k + " a sh:NodeShape ;\n");
+			sb.append("  sh:targetClass ex:Person ;\n");
+			sb.append("  sh:property [ sh:path ex:knows ; sh:class ex:Agent ; sh:minCount 1 ] ;\n");
+			for(int j = 0; j < properties; j++) {
+				sb.append("  sh:property [ sh:path ex:p_" + j + " ; ");
+				if(kind == ConstraintKind.CORE) {
+					sb.append("sh:datatype xsd:integer ; sh:minInclusive 0 ; sh:maxCount 1");
+				}
+				else if(kind == ConstraintKind.SPARQL) {
+					sb.append("ex:sparqlNonNegative true");
+				}
+				else {
+					sb.append("ex:jsNonNegative true");
+				}
+				sb.append(" ] ;\n");
+			}
+			sb.append(".\n");
+		}
+		return parse(sb.toString());
+	}
+	
+	
+	/**
+	 * Creates a shapes graph with a single node shape ex:SimpleShape targeting ex:Person, with
+	 * one property shape per property using sh:datatype, sh:minCount and sh:maxCount.
+	 * The data graphs produced by createDataModel conform to this shape.
+	 * @param properties  the number of properties
+	 * @return a new Model
+	 */
+	public static Model createSimpleShapesModel(int properties) {
+		StringBuilder sb = new StringBuilder(PREFIXES);
+		sb.append("ex:SimpleShape a sh:NodeShape ;\n");
+		sb.append("  sh:targetClass ex:Person ;\n");
+		for(int j = 0; j < properties; j++) {
+			sb.append("  sh:property [ sh:path ex:p_" + j + " ; sh:datatype xsd:integer ; sh:minCount 1 ; sh:maxCount 1 ] ;\n");
+		}
+		sb.append(".\n");
+		return parse(sb.toString());
+	}
+	
+	
+	/**
+	 * Creates a shapes graph with a single shape targeting ex:Person that declares a given
+	 * number of rules, alternating between sh:TripleRules and sh:SPARQLRules.
+	 * @param rules  the number of rules
+	 * @param properties  the number of properties in the data graph
+	 * @return a new Model
+	 */
+	public static Model createRulesModel(int rules, int properties) {
+		StringBuilder sb = new StringBuilder(PREFIXES);
+		sb.append("ex:RuleShape a sh:NodeShape ;\n");
+		sb.append("  sh:targetClass ex:Person ;\n");
+		for(int k = 0; k < rules; k++) {
+			if(k % 2 == 0) {
+				sb.append("  sh:rule [ a sh:TripleRule ; sh:subject sh:this ; sh:predicate ex:inferred_" + k +
+						" ; sh:object [ sh:path ex:p_" + (k % properties) + " ] ] ;\n");
+			}
+			else {
+				sb.append("  sh:rule [ a sh:SPARQLRule ; sh:construct \"\"\"CONSTRUCT { $this <" + NS + "inferred_" + k +
+						"> ?other } WHERE { $this <" + NS + "knows>/<" + NS + "knows> ?other }\"\"\" ] ;\n");
+			}
+		}
+		sb.append(".\n");
+		return parse(sb.toString());
+	}
+	
+	
+	private static void appendComponents(StringBuilder sb) {
+		sb.append("ex:SPARQLNonNegativeConstraintComponent a sh:ConstraintComponent ;\n");
+		sb.append("  sh:parameter [ sh:path ex:sparqlNonNegative ; sh:datatype xsd:boolean ] ;\n");
+		sb.append("  sh:message \"Value must be a non-negative number\" ;\n");
+		sb.append("  sh:validator [ a sh:SPARQLAskValidator ; sh:ask \"ASK { FILTER (isNumeric($value) && $value >= 0) }\" ] ;\n");
+		sb.append(".\n");
+		sb.append("ex:JSNonNegativeConstraintComponent a sh:ConstraintComponent ;\n");
+		sb.append("  sh:parameter [ sh:path ex:jsNonNegative ; sh:datatype xsd:boolean ] ;\n");
+		sb.append("  sh:message \"Value must be a non-negative number\" ;\n");
+		sb.append("  sh:validator [ a sh:JSValidator ; sh:jsFunctionName \"nonNegative\" ;\n");
+		sb.append("    sh:jsLibrary [ a sh:JSLibrary ; sh:jsLibraryURL \"" +
+				SyntheticData.class.getResource("/benchmarks/nonNegative.js") + "\"^^xsd:anyURI ] ] ;\n");
+		sb.append(".\n");
+	}
+	
+	
+	private static Model parse(String turtle) {
+		Model model = JenaUtil.createMemoryModel();
+		model.read(new StringReader(turtle), NS, FileUtils.langTurtle);
+		return model;
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Resource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.topbraid.jenax.util.CompactGraph;
+import org.topbraid.shacl.benchmarks.SyntheticData.ConstraintKind;
+import org.topbraid.shacl.engine.CompiledShapesGraph;
+import org.topbraid.shacl.validation.ValidationEngine;
+import org.topbraid.shacl.validation.ValidationEngineConfiguration;
+import org.topbraid.shacl.validation.ValidationUtil;
+
+/**
+ * Benchmarks for whole-graph and single-node validation with core constraints,
+ * scaling the number of focus nodes (and thus triples) and shapes, on a GraphMem
+ * or a CompactGraph.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ValidationBenchmark {
+	
+	@Param({"100", "1000", "10000"})
+	public int focusNodes;
+	
+	@Param({"1", "10"})
+	public int shapes;
+	
+	@Param({"5"})
+	public int properties;
+	
+	// Whether the data graph is copied into a CompactGraph
+	@Param({"false", "true"})
+	public boolean compact;
+	
+	private Model dataModel;
+	
+	private Model shapesModel;
+	
+	private CompiledShapesGraph shapesGraph;
+	
+	private int nextNode;
+
+	
+	@Setup
+	public void setup() {
+		dataModel = SyntheticData.createDataModel(focusNodes, properties);
+		if(compact) {
+			dataModel = ModelFactory.createModelForGraph(CompactGraph.copyOf(dataModel.getGraph()));
+		}
+		shapesModel = SyntheticData.createShapesModel(shapes, properties, ConstraintKind.CORE);
+		shapesGraph = ValidationUtil.compileShapesGraph(shapesModel, false);
+	}
+	
+	
+	@Benchmark
+	public Resource validateModel() {
+		return ValidationUtil.validateModel(dataModel, shapesModel, false);
+	}
+	
+	
+	@Benchmark
+	public Resource validateModelCompiled() {
+		return ValidationUtil.validateModel(dataModel, shapesGraph, new ValidationEngineConfiguration());
+	}
+	
+	
+	@Benchmark
+	public Resource validateNode() throws InterruptedException {
+		ValidationEngine engine = ValidationUtil.createValidationEngine(dataModel, shapesGraph, new ValidationEngineConfiguration());
+		Resource focusNode = SyntheticData.getPerson(nextNode++ % focusNodes);
+		return engine.validateNode(focusNode.asNode());
+	}
+}
@@ -0,0 +1,3 @@
+function nonNegative($value) {
+	return $value.isLiteral() && Number($value.lex) >= 0;
+}
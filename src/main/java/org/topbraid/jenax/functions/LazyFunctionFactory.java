@@ -0,0 +1,97 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.jenax.functions;
+
+import java.util.function.Supplier;
+
+import org.apache.jena.query.QueryBuildException;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.sparql.function.Function;
+import org.apache.jena.sparql.function.FunctionFactory;
+
+/**
+ * A DeclarativeFunctionFactory that creates the actual FunctionFactory when the function
+ * is used for the first time.  This makes it cheap to register many functions of which
+ * only a few are ever called, e.g. the SHACL system functions.
+ */
+public class LazyFunctionFactory implements DeclarativeFunctionFactory {
+	
+	private Resource declaration;
+	
+	private volatile FunctionFactory delegate;
+	
+	private Supplier<FunctionFactory> supplier;
+	
+	private String uri;
+	
+	
+	public LazyFunctionFactory(String uri, Supplier<FunctionFactory> supplier) {
+		this(uri, null, supplier);
+	}
+	
+	
+	/**
+	 * Constructs a new LazyFunctionFactory for a function that is created from a given declaration.
+	 * @param uri  the URI of the function
+	 * @param declaration  the resource declaring the function, see {@link #getDeclaration()}
+	 * @param supplier  creates the actual FunctionFactory
+	 */
+	public LazyFunctionFactory(String uri, Resource declaration, Supplier<FunctionFactory> supplier) {
+		this.declaration = declaration;
+		this.supplier = supplier;
+		this.uri = uri;
+	}
+
+
+	@Override
+	public Function create(String uri) {
+		return getDelegate().create(uri);
+	}
+	
+	
+	/**
+	 * Gets the resource that declares the function, which allows callers to check whether
+	 * another declaration of the same URI is different.
+	 * @return the declaration or null if unknown
+	 */
+	public Resource getDeclaration() {
+		return declaration;
+	}
+	
+	
+	/**
+	 * Gets the actual FunctionFactory, creating it if needed.
+	 * @return the FunctionFactory
+	 */
+	public FunctionFactory getDelegate() {
+		FunctionFactory result = delegate;
+		if(result == null) {
+			synchronized(this) {
+				result = delegate;
+				if(result == null) {
+					result = supplier.get();
+					if(result == null) {
+						throw new QueryBuildException("Function " + uri + " could not be created");
+					}
+					delegate = result;
+					supplier = null;
+				}
+			}
+		}
+		return result;
+	}
+}
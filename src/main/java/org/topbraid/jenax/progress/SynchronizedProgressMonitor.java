@@ -0,0 +1,67 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.jenax.progress;
+
+/**
+ * A ProgressMonitor that forwards all calls to another ProgressMonitor, one at a time.
+ * This allows monitors that are not thread-safe to be shared by multiple threads,
+ * e.g. by the worker engines of a parallel validation.
+ */
+public class SynchronizedProgressMonitor implements ProgressMonitor {
+	
+	private ProgressMonitor delegate;
+	
+	
+	public SynchronizedProgressMonitor(ProgressMonitor delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public synchronized boolean isCanceled() {
+		return delegate.isCanceled();
+	}
+
+	@Override
+	public synchronized void beginTask(String label, int totalWork) {
+		delegate.beginTask(label, totalWork);
+	}
+
+	@Override
+	public synchronized void done() {
+		delegate.done();
+	}
+
+	@Override
+	public synchronized void setCanceled(boolean value) {
+		delegate.setCanceled(value);
+	}
+
+	@Override
+	public synchronized void setTaskName(String value) {
+		delegate.setTaskName(value);
+	}
+
+	@Override
+	public synchronized void subTask(String label) {
+		delegate.subTask(label);
+	}
+
+	@Override
+	public synchronized void worked(int amount) {
+		delegate.worked(amount);
+	}
+}
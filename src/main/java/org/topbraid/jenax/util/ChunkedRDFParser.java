@@ -0,0 +1,225 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.jenax.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.riot.RiotException;
+import org.apache.jena.riot.lang.LabelToNode;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFBase;
+import org.apache.jena.sparql.core.Quad;
+
+/**
+ * Parses line-based RDF formats (N-Triples and N-Quads) in parallel.
+ * The input is split into chunks of complete lines, which are parsed by the tasks of an
+ * ExecutorService while the calling thread reads ahead.  The triples of each chunk are then
+ * added to the target Graph (or sent to the target StreamRDF) by the calling thread, in the
+ * order of the input.
+ * 
+ * Blank node labels are mapped to blank nodes by hashing them with a seed that is shared
+ * by all chunks of the same input, so that the same label produces the same blank node
+ * regardless of the chunk it appears in.
+ * Quads are added as triples, i.e. all named graphs are merged into the target Graph.
+ */
+public class ChunkedRDFParser {
+	
+	/**
+	 * The default number of lines per chunk.
+	 */
+	public final static int DEFAULT_CHUNK_SIZE = 8192;
+	
+	
+	/**
+	 * Checks whether a given language can be parsed by this class.
+	 * @param lang  the Lang to check
+	 * @return true for N-Triples and N-Quads
+	 */
+	public static boolean isSupported(Lang lang) {
+		return Lang.NTRIPLES.equals(lang) || Lang.NQUADS.equals(lang);
+	}
+	
+	
+	/**
+	 * Parses a given N-Triples or N-Quads input into a Graph, using the default chunk size.
+	 * @param in  the InputStream (UTF-8), which is read to its end but not closed
+	 * @param lang  the language of the input, see {@link #isSupported(Lang)}
+	 * @param graph  the Graph to add the triples to
+	 * @param executor  the ExecutorService to parse the chunks
+	 * @param parallelism  the number of threads of the executor
+	 * @return the number of triples that were parsed (including duplicates)
+	 * @throws IOException  if the input could not be read
+	 */
+	public static long parse(InputStream in, Lang lang, Graph graph, ExecutorService executor, int parallelism) throws IOException {
+		return parse(in, lang, graph, executor, parallelism, DEFAULT_CHUNK_SIZE);
+	}
+	
+	
+	/**
+	 * Parses a given N-Triples or N-Quads input into a Graph.
+	 * At most twice as many chunks as there are threads are held in memory at any time.
+	 * @param in  the InputStream (UTF-8), which is read to its end but not closed
+	 * @param lang  the language of the input, see {@link #isSupported(Lang)}
+	 * @param graph  the Graph to add the triples to
+	 * @param executor  the ExecutorService to parse the chunks
+	 * @param parallelism  the number of threads of the executor
+	 * @param chunkSize  the number of lines per chunk
+	 * @return the number of triples that were parsed (including duplicates)
+	 * @throws IOException  if the input could not be read
+	 */
+	public static long parse(InputStream in, Lang lang, Graph graph, ExecutorService executor, int parallelism, int chunkSize) throws IOException {
+		return parse(in, lang, new StreamRDFBase() {
+			
+			@Override
+			public void triple(Triple triple) {
+				graph.add(triple);
+			}
+		}, executor, parallelism, chunkSize);
+	}
+	
+	
+	/**
+	 * Parses a given N-Triples or N-Quads input into a StreamRDF, e.g. to process inputs that
+	 * are too large to be held in a Graph.
+	 * The triples are sent to the stream by the calling thread, in the order of the input.
+	 * Quads are sent as triples.  The start and finish methods of the stream are not called.
+	 * @param in  the InputStream (UTF-8), which is read to its end but not closed
+	 * @param lang  the language of the input, see {@link #isSupported(Lang)}
+	 * @param stream  the StreamRDF to send the triples to
+	 * @param executor  the ExecutorService to parse the chunks
+	 * @param parallelism  the number of threads of the executor
+	 * @param chunkSize  the number of lines per chunk
+	 * @return the number of triples that were parsed (including duplicates)
+	 * @throws IOException  if the input could not be read
+	 */
+	public static long parse(InputStream in, Lang lang, StreamRDF stream, ExecutorService executor, int parallelism, int chunkSize) throws IOException {
+		if(!isSupported(lang)) {
+			throw new IllegalArgumentException("Unsupported language for chunked parsing: " + lang);
+		}
+		UUID scope = UUID.randomUUID();
+		int maxPending = 2 * Math.max(1, parallelism);
+		Deque<Future<List<Triple>>> pending = new ArrayDeque<>();
+		long count = 0;
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+		try {
+			StringBuilder chunk = new StringBuilder();
+			int lines = 0;
+			long firstLine = 1;
+			String line;
+			while((line = reader.readLine()) != null) {
+				chunk.append(line).append('\n');
+				if(++lines == chunkSize) {
+					pending.add(submit(executor, chunk.toString(), lang, scope, firstLine));
+					firstLine += lines;
+					chunk.setLength(0);
+					lines = 0;
+					while(pending.size() >= maxPending) {
+						count += addTriples(pending.removeFirst(), stream);
+					}
+				}
+			}
+			if(lines > 0) {
+				pending.add(submit(executor, chunk.toString(), lang, scope, firstLine));
+			}
+			while(!pending.isEmpty()) {
+				count += addTriples(pending.removeFirst(), stream);
+			}
+		}
+		finally {
+			for(Future<List<Triple>> future : pending) {
+				future.cancel(false);
+			}
+		}
+		return count;
+	}
+	
+	
+	private static long addTriples(Future<List<Triple>> future, StreamRDF stream) throws IOException {
+		try {
+			List<Triple> triples = future.get();
+			for(Triple triple : triples) {
+				stream.triple(triple);
+			}
+			return triples.size();
+		}
+		catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while parsing");
+		}
+		catch(ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if(cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			else if(cause instanceof Error) {
+				throw (Error) cause;
+			}
+			else {
+				throw new IOException(cause);
+			}
+		}
+	}
+	
+	
+	private static Future<List<Triple>> submit(ExecutorService executor, String chunk, Lang lang, UUID scope, long firstLine) {
+		return executor.submit(() -> parseChunk(chunk, lang, scope, firstLine));
+	}
+	
+	
+	private static List<Triple> parseChunk(String chunk, Lang lang, UUID scope, long firstLine) {
+		List<Triple> triples = new ArrayList<>();
+		try {
+			RDFParser.create()
+				.fromString(chunk)
+				.lang(lang)
+				.labelToNode(LabelToNode.createScopeByDocumentHash(scope))
+				.parse(new StreamRDFBase() {
+					
+					@Override
+					public void triple(Triple triple) {
+						triples.add(triple);
+					}
+
+					@Override
+					public void quad(Quad quad) {
+						triples.add(quad.asTriple());
+					}
+				});
+		}
+		catch(RiotException ex) {
+			throw new RiotException("Parse error in chunk starting at line " + firstLine + ": " + ex.getMessage(), ex);
+		}
+		return triples;
+	}
+}
@@ -0,0 +1,491 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.jenax.util;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import org.apache.jena.graph.Capabilities;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.graph.impl.GraphBase;
+import org.apache.jena.shared.PrefixMapping;
+import org.apache.jena.shared.impl.PrefixMappingImpl;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.apache.jena.util.iterator.NiceIterator;
+import org.apache.jena.util.iterator.NullIterator;
+
+/**
+ * An immutable in-memory Graph that is optimized for read-only access such as validation.
+ * 
+ * Each distinct Node is stored once in a {@link NodeDictionary} and the triples are stored as
+ * int IDs in three columns sorted by subject, predicate and object (SPO).  Two permutation arrays
+ * provide the POS and OSP orders, so that every find() pattern becomes a binary search for
+ * a range of rows.  This takes 20 bytes per triple plus the dictionary, while GraphMem needs
+ * several objects per triple in its hash bunches.
+ * 
+ * Unlike GraphMem, literals are matched by term equality, not by value, like in most stores.
+ * For this reason, {@link JenaUtil#isMemoryGraph(Graph)} returns false for it.
+ * Any attempt to modify the graph leads to an AddDeniedException or DeleteDeniedException.
+ * Instances can be shared between threads.
+ * 
+ * The arrays are held in IntBuffers, which are either on the heap (see {@link #copyOf(Graph)})
+ * or mapped from a snapshot file (see {@link GraphSnapshot}).
+ */
+public class CompactGraph extends GraphBase {
+	
+	// Implements the deprecated methods, which Capabilities still declares
+	@SuppressWarnings("deprecation")
+	private final static Capabilities CAPABILITIES = new Capabilities() {
+
+		@Override
+		public boolean sizeAccurate() {
+			return true;
+		}
+
+		@Override
+		public boolean addAllowed() {
+			return false;
+		}
+
+		@Override
+		public boolean deleteAllowed() {
+			return false;
+		}
+
+		@Override
+		public boolean addAllowed(boolean everyTriple) {
+			return false;
+		}
+
+		@Override
+		public boolean deleteAllowed(boolean everyTriple) {
+			return false;
+		}
+
+		@Override
+		public boolean iteratorRemoveAllowed() {
+			return false;
+		}
+
+		@Override
+		public boolean canBeEmpty() {
+			return true;
+		}
+
+		@Override
+		public boolean findContractSafe() {
+			return true;
+		}
+
+		@Override
+		public boolean handlesLiteralTyping() {
+			return false;
+		}
+	};
+	
+	// Ranges below this size are sorted by insertion sort
+	private final static int INSERTION_SORT_LIMIT = 16;
+	
+	
+	/**
+	 * Creates a CompactGraph with the triples and prefixes of a given Graph.
+	 * Returns the given Graph itself if it already is a CompactGraph.
+	 * @param graph  the Graph to copy
+	 * @return the CompactGraph
+	 */
+	public static CompactGraph copyOf(Graph graph) {
+		if(graph instanceof CompactGraph) {
+			return (CompactGraph) graph;
+		}
+		
+		NodeDictionary.Builder dictionary = new NodeDictionary.Builder();
+		int capacity = Math.max(16, graph.size());
+		int[] subjects = new int[capacity];
+		int[] predicates = new int[capacity];
+		int[] objects = new int[capacity];
+		int count = 0;
+		ExtendedIterator<Triple> it = graph.find(Node.ANY, Node.ANY, Node.ANY);
+		try {
+			while(it.hasNext()) {
+				Triple triple = it.next();
+				if(count == subjects.length) {
+					int newCapacity = count * 2;
+					subjects = Arrays.copyOf(subjects, newCapacity);
+					predicates = Arrays.copyOf(predicates, newCapacity);
+					objects = Arrays.copyOf(objects, newCapacity);
+				}
+				subjects[count] = dictionary.intern(triple.getSubject());
+				predicates[count] = dictionary.intern(triple.getPredicate());
+				objects[count] = dictionary.intern(triple.getObject());
+				count++;
+			}
+		}
+		finally {
+			it.close();
+		}
+		
+		// Bring the columns into SPO order and drop duplicates (if the source was not a set)
+		int[] spo = sortedRows(count, subjects, predicates, objects);
+		int[] s = new int[count];
+		int[] p = new int[count];
+		int[] o = new int[count];
+		int size = 0;
+		for(int i = 0; i < count; i++) {
+			int row = spo[i];
+			if(size == 0 || s[size - 1] != subjects[row] || p[size - 1] != predicates[row] || o[size - 1] != objects[row]) {
+				s[size] = subjects[row];
+				p[size] = predicates[row];
+				o[size] = objects[row];
+				size++;
+			}
+		}
+		s = Arrays.copyOf(s, size);
+		p = Arrays.copyOf(p, size);
+		o = Arrays.copyOf(o, size);
+		int[] pos = sortedRows(size, p, o, s);
+		int[] osp = sortedRows(size, o, s, p);
+		
+		return new CompactGraph(dictionary.build(), IntBuffer.wrap(s), IntBuffer.wrap(p), IntBuffer.wrap(o), 
+				IntBuffer.wrap(pos), IntBuffer.wrap(osp), graph.getPrefixMapping());
+	}
+	
+	
+	private NodeDictionary dictionary;
+	
+	// The columns of the triples, sorted by S, P, O
+	private IntBuffer subjects;
+	
+	private IntBuffer predicates;
+	
+	private IntBuffer objects;
+	
+	// The row indices sorted by P, O, S
+	private IntBuffer pos;
+	
+	// The row indices sorted by O, S, P
+	private IntBuffer osp;
+	
+	private int size;
+	
+	
+	/**
+	 * Creates a CompactGraph from its (heap or memory-mapped) parts.
+	 * @param dictionary  the NodeDictionary
+	 * @param subjects  the subject IDs in SPO order
+	 * @param predicates  the predicate IDs in SPO order
+	 * @param objects  the object IDs in SPO order
+	 * @param pos  the row indices in POS order
+	 * @param osp  the row indices in OSP order
+	 * @param prefixes  the prefixes to copy or null
+	 */
+	CompactGraph(NodeDictionary dictionary, IntBuffer subjects, IntBuffer predicates, IntBuffer objects,
+			IntBuffer pos, IntBuffer osp, PrefixMapping prefixes) {
+		this.dictionary = dictionary;
+		this.subjects = subjects;
+		this.predicates = predicates;
+		this.objects = objects;
+		this.pos = pos;
+		this.osp = osp;
+		this.size = subjects.capacity();
+		if(prefixes != null) {
+			getPrefixMapping().setNsPrefixes(prefixes);
+		}
+	}
+	
+	
+	NodeDictionary getDictionary() {
+		return dictionary;
+	}
+	
+	
+	IntBuffer getSubjects() {
+		return subjects;
+	}
+	
+	
+	IntBuffer getPredicates() {
+		return predicates;
+	}
+	
+	
+	IntBuffer getObjects() {
+		return objects;
+	}
+	
+	
+	IntBuffer getPOS() {
+		return pos;
+	}
+	
+	
+	IntBuffer getOSP() {
+		return osp;
+	}
+	
+	
+	/**
+	 * Gets the number of distinct Nodes in this graph.
+	 * @return the size of the dictionary
+	 */
+	public int getNodeCount() {
+		return dictionary.size();
+	}
+	
+	
+	@Override
+	public Capabilities getCapabilities() {
+		return CAPABILITIES;
+	}
+	
+	
+	@Override
+	protected PrefixMapping createPrefixMapping() {
+		return new PrefixMappingImpl();
+	}
+
+
+	@Override
+	protected ExtendedIterator<Triple> graphBaseFind(Triple pattern) {
+		Node sn = pattern.getMatchSubject();
+		Node pn = pattern.getMatchPredicate();
+		Node on = pattern.getMatchObject();
+		int s = sn == null ? -1 : dictionary.getId(sn);
+		int p = pn == null ? -1 : dictionary.getId(pn);
+		int o = on == null ? -1 : dictionary.getId(on);
+		if((sn != null && s < 0) || (pn != null && p < 0) || (on != null && o < 0)) {
+			return NullIterator.instance();
+		}
+		if(sn != null) {
+			if(pn == null && on != null) {
+				return find(osp, objects, subjects, predicates, o, s, -1);
+			}
+			else {
+				return find(null, subjects, predicates, objects, s, p, o);
+			}
+		}
+		else if(pn != null) {
+			return find(pos, predicates, objects, subjects, p, o, -1);
+		}
+		else if(on != null) {
+			return find(osp, objects, subjects, predicates, o, -1, -1);
+		}
+		else {
+			return new RowIterator(null, 0, size);
+		}
+	}
+
+
+	@Override
+	protected boolean graphBaseContains(Triple t) {
+		if(t.isConcrete()) {
+			int s = dictionary.getId(t.getSubject());
+			int p = dictionary.getId(t.getPredicate());
+			int o = dictionary.getId(t.getObject());
+			if(s < 0 || p < 0 || o < 0) {
+				return false;
+			}
+			int start = lowerBound(null, subjects, predicates, objects, s, p, o);
+			return start < size && compare(null, start, subjects, predicates, objects, s, p, o) == 0;
+		}
+		else {
+			return containsByFind(t);
+		}
+	}
+
+
+	@Override
+	protected int graphBaseSize() {
+		return size;
+	}
+	
+	
+	// Finds the rows matching the given key prefix (-1 for unbound positions at the end) in a given order
+	private ExtendedIterator<Triple> find(IntBuffer order, IntBuffer c1, IntBuffer c2, IntBuffer c3, int k1, int k2, int k3) {
+		int start = lowerBound(order, c1, c2, c3, k1, k2, k3);
+		int end = upperBound(order, c1, c2, c3, k1, k2, k3);
+		if(start >= end) {
+			return NullIterator.instance();
+		}
+		else {
+			return new RowIterator(order, start, end);
+		}
+	}
+	
+	
+	private int lowerBound(IntBuffer order, IntBuffer c1, IntBuffer c2, IntBuffer c3, int k1, int k2, int k3) {
+		int low = 0;
+		int high = size;
+		while(low < high) {
+			int mid = (low + high) >>> 1;
+			if(compare(order, mid, c1, c2, c3, k1, k2, k3) < 0) {
+				low = mid + 1;
+			}
+			else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+	
+	
+	private int upperBound(IntBuffer order, IntBuffer c1, IntBuffer c2, IntBuffer c3, int k1, int k2, int k3) {
+		int low = 0;
+		int high = size;
+		while(low < high) {
+			int mid = (low + high) >>> 1;
+			if(compare(order, mid, c1, c2, c3, k1, k2, k3) <= 0) {
+				low = mid + 1;
+			}
+			else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+	
+	
+	// Compares the row at a given index with a key prefix, where -1 ends the key
+	private static int compare(IntBuffer order, int index, IntBuffer c1, IntBuffer c2, IntBuffer c3, int k1, int k2, int k3) {
+		int row = order == null ? index : order.get(index);
+		int c = Integer.compare(c1.get(row), k1);
+		if(c != 0 || k2 < 0) {
+			return c;
+		}
+		c = Integer.compare(c2.get(row), k2);
+		if(c != 0 || k3 < 0) {
+			return c;
+		}
+		return Integer.compare(c3.get(row), k3);
+	}
+	
+	
+	// Returns the row indices 0..count-1 sorted by the given columns
+	private static int[] sortedRows(int count, int[] c1, int[] c2, int[] c3) {
+		int[] rows = new int[count];
+		for(int i = 0; i < count; i++) {
+			rows[i] = i;
+		}
+		sort(rows, 0, count - 1, c1, c2, c3);
+		return rows;
+	}
+	
+	
+	private static int compareRows(int a, int b, int[] c1, int[] c2, int[] c3) {
+		int c = Integer.compare(c1[a], c1[b]);
+		if(c != 0) {
+			return c;
+		}
+		c = Integer.compare(c2[a], c2[b]);
+		if(c != 0) {
+			return c;
+		}
+		return Integer.compare(c3[a], c3[b]);
+	}
+	
+	
+	// Quicksort with median-of-three pivots, recursing into the smaller partition only
+	private static void sort(int[] rows, int low, int high, int[] c1, int[] c2, int[] c3) {
+		while(high - low >= INSERTION_SORT_LIMIT) {
+			int mid = (low + high) >>> 1;
+			if(compareRows(rows[mid], rows[low], c1, c2, c3) < 0) {
+				swap(rows, mid, low);
+			}
+			if(compareRows(rows[high], rows[low], c1, c2, c3) < 0) {
+				swap(rows, high, low);
+			}
+			if(compareRows(rows[high], rows[mid], c1, c2, c3) < 0) {
+				swap(rows, high, mid);
+			}
+			int pivot = rows[mid];
+			int i = low;
+			int j = high;
+			while(i <= j) {
+				while(compareRows(rows[i], pivot, c1, c2, c3) < 0) {
+					i++;
+				}
+				while(compareRows(rows[j], pivot, c1, c2, c3) > 0) {
+					j--;
+				}
+				if(i <= j) {
+					swap(rows, i++, j--);
+				}
+			}
+			if(j - low < high - i) {
+				sort(rows, low, j, c1, c2, c3);
+				low = i;
+			}
+			else {
+				sort(rows, i, high, c1, c2, c3);
+				high = j;
+			}
+		}
+		for(int i = low + 1; i <= high; i++) {
+			int row = rows[i];
+			int j = i - 1;
+			while(j >= low && compareRows(rows[j], row, c1, c2, c3) > 0) {
+				rows[j + 1] = rows[j];
+				j--;
+			}
+			rows[j + 1] = row;
+		}
+	}
+	
+	
+	private static void swap(int[] rows, int a, int b) {
+		int t = rows[a];
+		rows[a] = rows[b];
+		rows[b] = t;
+	}
+	
+	
+	// Iterates over a range of an index, creating the Triples on demand
+	private class RowIterator extends NiceIterator<Triple> {
+		
+		private int end;
+		
+		private int index;
+		
+		private IntBuffer order;
+		
+		
+		RowIterator(IntBuffer order, int start, int end) {
+			this.order = order;
+			this.index = start;
+			this.end = end;
+		}
+
+
+		@Override
+		public boolean hasNext() {
+			return index < end;
+		}
+
+
+		@Override
+		public Triple next() {
+			if(index >= end) {
+				throw new NoSuchElementException();
+			}
+			int row = order == null ? index : order.get(index);
+			index++;
+			return Triple.create(dictionary.getNode(subjects.get(row)), dictionary.getNode(predicates.get(row)), dictionary.getNode(objects.get(row)));
+		}
+	}
+}
@@ -0,0 +1,35 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.jenax.util;
+
+import org.apache.jena.graph.Graph;
+
+/**
+ * A JenaUtilHelper that turns the read-only copies produced by
+ * {@link JenaUtil#deepCloneForReadOnlyThreadSafe(Graph)} into {@link CompactGraph}s.
+ * Install it with {@link JenaUtil#setHelper(JenaUtilHelper)} before the graphs are copied.
+ * 
+ * {@link #createDefaultGraph()} is not affected, because the graphs created by it
+ * are expected to be modifiable.
+ */
+public class CompactJenaUtilHelper extends JenaUtilHelper {
+
+	@Override
+	public Graph deepCloneReadOnlyGraph(Graph g) {
+		return CompactGraph.copyOf(g);
+	}
+}
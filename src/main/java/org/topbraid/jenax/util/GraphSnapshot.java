@@ -0,0 +1,430 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.jenax.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+import org.apache.jena.datatypes.TypeMapper;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.shared.PrefixMapping;
+import org.apache.jena.shared.impl.PrefixMappingImpl;
+
+/**
+ * Reads and writes snapshot files, a binary format for RDF graphs that can be opened
+ * as a read-only {@link CompactGraph} by memory-mapping the file instead of parsing it.
+ * Snapshots can also be read from streams, e.g. if they are class path resources.
+ * Opening a snapshot takes constant time and Nodes are only decoded when used,
+ * while the operating system can share the pages of the file between processes.
+ * 
+ * The file consists of a header followed by sections that are the serialized arrays
+ * of a CompactGraph:
+ * <pre>
+ * int magic, int version, int nodeCount, int tripleCount, int tableLength, int stringsLength, int prefixCount, int reserved
+ * int[tableLength]    the NodeDictionary hash table
+ * int[nodeCount + 1]  the offsets of the Nodes in the strings section
+ * int[tripleCount]    subjects, predicates, objects, POS and OSP (5 sections)
+ * byte[stringsLength] the Nodes
+ * the prefixes as pairs of strings
+ * </pre>
+ * Each Node is encoded as a kind byte followed by one (IRI, blank node) or three strings
+ * (literal lexical form, datatype and language), each string as int length plus UTF-8 bytes.
+ * All numbers are big-endian.  The strings section must be smaller than 2 GB.
+ * The header is checked against the size of the file, so that a truncated or corrupt file
+ * is reported with an IOException instead of failing later while the Graph is used.
+ */
+public class GraphSnapshot {
+	
+	public final static int MAGIC = 0x53485350;  // "SHSP"
+	
+	public final static int VERSION = 1;
+	
+	private final static int HEADER_SIZE = 32;
+	
+	private final static byte KIND_URI = 0;
+	
+	private final static byte KIND_BLANK = 1;
+	
+	private final static byte KIND_LITERAL = 2;
+	
+	
+	/**
+	 * Checks whether a given file starts with the magic number of snapshot files.
+	 * @param file  the file to check
+	 * @return true if file is a snapshot file
+	 * @throws IOException  if the file could not be read
+	 */
+	public static boolean isSnapshot(File file) throws IOException {
+		try(InputStream is = Files.newInputStream(file.toPath())) {
+			byte[] bytes = new byte[4];
+			return is.read(bytes) == 4 && ByteBuffer.wrap(bytes).getInt() == MAGIC;
+		}
+	}
+	
+	
+	/**
+	 * Opens a snapshot file as a read-only Graph.
+	 * The file is memory-mapped and must not be modified while the Graph is in use.
+	 * @param file  the snapshot file
+	 * @return a new CompactGraph
+	 * @throws IOException  if the file could not be read or is not a snapshot file
+	 */
+	public static CompactGraph open(File file) throws IOException {
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			return create((position, size) -> channel.map(MapMode.READ_ONLY, position, size), channel.size(), file.toString());
+		}
+	}
+	
+	
+	/**
+	 * Reads a snapshot from an InputStream into a read-only Graph on the heap.
+	 * This is meant for snapshots that are bundled as class path resources and cannot be memory-mapped.
+	 * It still avoids any parsing.
+	 * @param is  the InputStream to read from (will not be closed)
+	 * @return a new CompactGraph
+	 * @throws IOException  if the stream could not be read or is not in the snapshot format
+	 */
+	public static CompactGraph read(InputStream is) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		byte[] buffer = new byte[1 << 16];
+		int count;
+		while((count = is.read(buffer)) > 0) {
+			bos.write(buffer, 0, count);
+		}
+		ByteBuffer all = ByteBuffer.wrap(bos.toByteArray());
+		return create((position, size) -> {
+			// Cast to Buffer, because the covariant overrides of ByteBuffer do not exist on Java 8
+			ByteBuffer section = all.duplicate();
+			((Buffer) section).position((int) position);
+			((Buffer) section).limit((int) (position + size));
+			return section.slice();
+		}, all.capacity(), "Stream");
+	}
+	
+	
+	// Provides the sections of a snapshot, either by mapping a file or by slicing a heap buffer
+	@FunctionalInterface
+	private interface SectionSource {
+		
+		ByteBuffer get(long position, long size) throws IOException;
+	}
+	
+	
+	private static CompactGraph create(SectionSource source, long totalSize, String label) throws IOException {
+		if(totalSize < HEADER_SIZE) {
+			throw new IOException(label + " is not a snapshot");
+		}
+		ByteBuffer header = source.get(0, HEADER_SIZE);
+		if(header.getInt(0) != MAGIC) {
+			throw new IOException(label + " is not a snapshot");
+		}
+		if(header.getInt(4) != VERSION) {
+			throw new IOException("Unsupported snapshot version " + header.getInt(4) + " in " + label);
+		}
+		int nodeCount = header.getInt(8);
+		int tripleCount = header.getInt(12);
+		int tableLength = header.getInt(16);
+		int stringsLength = header.getInt(20);
+		int prefixCount = header.getInt(24);
+		if(nodeCount < 0 || nodeCount == Integer.MAX_VALUE || tripleCount < 0 || stringsLength < 0 || prefixCount < 0) {
+			throw new IOException("Corrupt snapshot header in " + label + ": negative count");
+		}
+		if(tableLength <= nodeCount || Integer.bitCount(tableLength) != 1) {
+			throw new IOException("Corrupt snapshot header in " + label + ": hash table length " + tableLength + 
+					" is not a power of two greater than the node count " + nodeCount);
+		}
+		long sectionsSize = HEADER_SIZE + 4L * tableLength + 4L * (nodeCount + 1) + 5 * 4L * tripleCount + stringsLength + 8L * prefixCount;
+		if(sectionsSize > totalSize) {
+			throw new IOException("Truncated snapshot " + label + ": the header requires at least " + sectionsSize + 
+					" bytes but the size is " + totalSize);
+		}
+		
+		long position = HEADER_SIZE;
+		IntBuffer table = source.get(position, 4L * tableLength).asIntBuffer();
+		position += 4L * tableLength;
+		IntBuffer offsets = source.get(position, 4L * (nodeCount + 1)).asIntBuffer();
+		position += 4L * (nodeCount + 1);
+		if(offsets.get(0) != 0 || offsets.get(nodeCount) != stringsLength) {
+			throw new IOException("Corrupt snapshot " + label + ": the node offsets do not match the strings length " + stringsLength);
+		}
+		IntBuffer[] columns = new IntBuffer[5];
+		for(int i = 0; i < columns.length; i++) {
+			columns[i] = source.get(position, 4L * tripleCount).asIntBuffer();
+			position += 4L * tripleCount;
+		}
+		ByteBuffer strings = source.get(position, stringsLength);
+		position += stringsLength;
+		
+		PrefixMapping prefixes = new PrefixMappingImpl();
+		ByteBuffer prefixBuffer = source.get(position, totalSize - position);
+		for(int i = 0; i < prefixCount; i++) {
+			String prefix = readString(prefixBuffer, label);
+			prefixes.setNsPrefix(prefix, readString(prefixBuffer, label));
+		}
+		
+		NodeDictionary dictionary = new MappedNodeDictionary(nodeCount, table, offsets, strings);
+		return new CompactGraph(dictionary, columns[0], columns[1], columns[2], columns[3], columns[4], prefixes);
+	}
+	
+	
+	/**
+	 * Writes a given Graph into a snapshot file.
+	 * @param graph  the Graph to write
+	 * @param file  the file to write to (will be overwritten)
+	 * @throws IOException  if the file could not be written
+	 */
+	public static void write(Graph graph, File file) throws IOException {
+		try(OutputStream os = new FileOutputStream(file)) {
+			write(graph, os);
+		}
+	}
+	
+	
+	/**
+	 * Writes a given Graph in the snapshot format into a given OutputStream.
+	 * @param graph  the Graph to write
+	 * @param os  the OutputStream to write to (will not be closed)
+	 * @throws IOException  if the stream could not be written
+	 */
+	public static void write(Graph graph, OutputStream os) throws IOException {
+		CompactGraph compact = CompactGraph.copyOf(graph);
+		NodeDictionary dictionary = compact.getDictionary();
+		int nodeCount = dictionary.size();
+		Map<String,String> prefixes = compact.getPrefixMapping().getNsPrefixMap();
+		
+		int[] offsets = new int[nodeCount + 1];
+		long stringsLength = 0;
+		for(int i = 0; i < nodeCount; i++) {
+			offsets[i] = (int) stringsLength;
+			stringsLength += getEncodedLength(dictionary.getNode(i));
+			if(stringsLength > Integer.MAX_VALUE) {
+				throw new IOException("Too many or too large nodes for a snapshot file");
+			}
+		}
+		offsets[nodeCount] = (int) stringsLength;
+		
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os, 1 << 16));
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(nodeCount);
+		out.writeInt(compact.size());
+		out.writeInt(dictionary.getTable().capacity());
+		out.writeInt((int) stringsLength);
+		out.writeInt(prefixes.size());
+		out.writeInt(0);
+		writeInts(out, dictionary.getTable());
+		for(int offset : offsets) {
+			out.writeInt(offset);
+		}
+		writeInts(out, compact.getSubjects());
+		writeInts(out, compact.getPredicates());
+		writeInts(out, compact.getObjects());
+		writeInts(out, compact.getPOS());
+		writeInts(out, compact.getOSP());
+		for(int i = 0; i < nodeCount; i++) {
+			writeNode(out, dictionary.getNode(i));
+		}
+		for(Map.Entry<String,String> entry : prefixes.entrySet()) {
+			writeString(out, entry.getKey());
+			writeString(out, entry.getValue());
+		}
+		out.flush();
+	}
+	
+	
+	private static int getEncodedLength(Node node) {
+		if(node.isLiteral()) {
+			return 1 + 12 + utf8Length(node.getLiteralLexicalForm()) + utf8Length(node.getLiteralDatatypeURI()) + utf8Length(node.getLiteralLanguage());
+		}
+		else {
+			return 1 + 4 + utf8Length(node.isURI() ? node.getURI() : node.getBlankNodeLabel());
+		}
+	}
+	
+	
+	private static String readString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	
+	// Reads a string of the prefixes section, which is not covered by the offsets of the header
+	private static String readString(ByteBuffer buffer, String label) throws IOException {
+		if(buffer.remaining() < 4 || buffer.getInt(buffer.position()) < 0 || buffer.getInt(buffer.position()) > buffer.remaining() - 4) {
+			throw new IOException("Truncated snapshot " + label + ": the prefixes section ends unexpectedly");
+		}
+		return readString(buffer);
+	}
+	
+	
+	private static int utf8Length(String str) {
+		if(str == null) {
+			return 0;
+		}
+		int length = 0;
+		for(int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+			if(c < 0x80) {
+				length++;
+			}
+			else if(c < 0x800) {
+				length += 2;
+			}
+			else if(Character.isHighSurrogate(c) && i + 1 < str.length() && Character.isLowSurrogate(str.charAt(i + 1))) {
+				length += 4;
+				i++;
+			}
+			else {
+				length += 3;
+			}
+		}
+		return length;
+	}
+	
+	
+	private static void writeInts(DataOutputStream out, IntBuffer buffer) throws IOException {
+		for(int i = 0; i < buffer.capacity(); i++) {
+			out.writeInt(buffer.get(i));
+		}
+	}
+	
+	
+	private static void writeNode(DataOutputStream out, Node node) throws IOException {
+		if(node.isURI()) {
+			out.writeByte(KIND_URI);
+			writeString(out, node.getURI());
+		}
+		else if(node.isBlank()) {
+			out.writeByte(KIND_BLANK);
+			writeString(out, node.getBlankNodeLabel());
+		}
+		else if(node.isLiteral()) {
+			out.writeByte(KIND_LITERAL);
+			writeString(out, node.getLiteralLexicalForm());
+			writeString(out, node.getLiteralDatatypeURI());
+			writeString(out, node.getLiteralLanguage());
+		}
+		else {
+			throw new IllegalArgumentException("Cannot write " + node + " into a snapshot");
+		}
+	}
+	
+	
+	private static void writeString(DataOutputStream out, String str) throws IOException {
+		byte[] bytes = str == null ? new byte[0] : str.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+	
+	
+	// A NodeDictionary that decodes the Nodes from the mapped strings section on demand
+	private static class MappedNodeDictionary extends NodeDictionary {
+		
+		// The maximum number of slots in the cache of decoded Nodes
+		private final static int MAX_CACHE_SIZE = 1 << 18;
+		
+		// A direct-mapped cache of decoded Nodes, indexed by the lower bits of the ID.
+		// The entries are immutable, so that concurrent access can at worst decode a Node twice.
+		private CacheEntry[] cache;
+		
+		private IntBuffer offsets;
+		
+		private ByteBuffer strings;
+		
+		
+		MappedNodeDictionary(int size, IntBuffer table, IntBuffer offsets, ByteBuffer strings) {
+			super(null, size, table);
+			int cacheSize = 16;
+			while(cacheSize < size && cacheSize < MAX_CACHE_SIZE) {
+				cacheSize *= 2;
+			}
+			this.cache = new CacheEntry[cacheSize];
+			this.offsets = offsets;
+			this.strings = strings;
+		}
+
+
+		@Override
+		Node getNode(int id) {
+			int slot = id & (cache.length - 1);
+			CacheEntry entry = cache[slot];
+			if(entry == null || entry.id != id) {
+				entry = new CacheEntry(id, decode(offsets.get(id)));
+				cache[slot] = entry;
+			}
+			return entry.node;
+		}
+		
+		
+		private Node decode(int offset) {
+			// Each call works on its own duplicate, as the position of a ByteBuffer is not thread-safe
+			ByteBuffer buffer = strings.duplicate();
+			((Buffer) buffer).position(offset);
+			byte kind = buffer.get();
+			if(kind == KIND_URI) {
+				return NodeFactory.createURI(readString(buffer));
+			}
+			else if(kind == KIND_BLANK) {
+				return NodeFactory.createBlankNode(readString(buffer));
+			}
+			else {
+				String lex = readString(buffer);
+				String datatypeURI = readString(buffer);
+				String lang = readString(buffer);
+				if(!lang.isEmpty()) {
+					return NodeFactory.createLiteral(lex, lang);
+				}
+				else {
+					return NodeFactory.createLiteral(lex, TypeMapper.getInstance().getSafeTypeByName(datatypeURI));
+				}
+			}
+		}
+	}
+	
+	
+	private static class CacheEntry {
+		
+		final int id;
+		
+		final Node node;
+		
+		
+		CacheEntry(int id, Node node) {
+			this.id = id;
+			this.node = node;
+		}
+	}
+}
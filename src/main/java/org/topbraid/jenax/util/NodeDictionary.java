@@ -0,0 +1,160 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.jenax.util;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+import org.apache.jena.graph.Node;
+
+/**
+ * The dictionary of a {@link CompactGraph}, mapping between Nodes and int IDs.
+ * 
+ * The IDs are found through an open addressing hash table that holds ID + 1 in each used slot.
+ * The hash function only depends on the strings of each Node, so that the table can be stored
+ * in a snapshot file and used by another process, see {@link GraphSnapshot}.
+ */
+class NodeDictionary {
+	
+	/**
+	 * Computes the hash code of a Node as used in the table, based on its lexical parts only.
+	 * @param node  the Node
+	 * @return the hash code
+	 */
+	static int hash(Node node) {
+		int h;
+		if(node.isURI()) {
+			h = node.getURI().hashCode();
+		}
+		else if(node.isBlank()) {
+			h = 31 * node.getBlankNodeLabel().hashCode() + 1;
+		}
+		else if(node.isLiteral()) {
+			h = 31 * node.getLiteralLexicalForm().hashCode() + Objects.hashCode(node.getLiteralDatatypeURI());
+			h = 31 * h + node.getLiteralLanguage().hashCode();
+		}
+		else {
+			h = node.hashCode();
+		}
+		return h ^ (h >>> 16);
+	}
+	
+	
+	private Node[] nodes;
+	
+	private int size;
+	
+	private IntBuffer table;
+	
+	
+	NodeDictionary(Node[] nodes, int size, IntBuffer table) {
+		this.nodes = nodes;
+		this.size = size;
+		this.table = table;
+	}
+	
+	
+	/**
+	 * Gets the ID of a given Node.
+	 * @param node  the Node
+	 * @return the ID or -1 if the Node is not in the dictionary
+	 */
+	int getId(Node node) {
+		int mask = table.capacity() - 1;
+		int slot = hash(node) & mask;
+		int entry;
+		while((entry = table.get(slot)) != 0) {
+			if(getNode(entry - 1).equals(node)) {
+				return entry - 1;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+	
+	
+	Node getNode(int id) {
+		return nodes[id];
+	}
+	
+	
+	IntBuffer getTable() {
+		return table;
+	}
+	
+	
+	int size() {
+		return size;
+	}
+	
+	
+	/**
+	 * Collects the distinct Nodes of a graph and assigns them consecutive IDs.
+	 */
+	static class Builder {
+		
+		private Node[] nodes = new Node[16];
+		
+		private int size;
+		
+		// The hash table, kept at a load factor of at most 1/2
+		private int[] table = new int[32];
+		
+		
+		NodeDictionary build() {
+			return new NodeDictionary(Arrays.copyOf(nodes, size), size, IntBuffer.wrap(table));
+		}
+		
+		
+		/**
+		 * Gets the ID of a given Node, adding it to the dictionary if needed.
+		 * @param node  the Node
+		 * @return the ID
+		 */
+		int intern(Node node) {
+			int mask = table.length - 1;
+			int slot = hash(node) & mask;
+			while(table[slot] != 0) {
+				int id = table[slot] - 1;
+				if(nodes[id].equals(node)) {
+					return id;
+				}
+				slot = (slot + 1) & mask;
+			}
+			if(size == nodes.length) {
+				nodes = Arrays.copyOf(nodes, size * 2);
+			}
+			int id = size++;
+			nodes[id] = node;
+			table[slot] = id + 1;
+			if(size * 2 > table.length) {
+				int[] newTable = new int[table.length * 2];
+				int newMask = newTable.length - 1;
+				for(int i = 0; i < size; i++) {
+					int newSlot = hash(nodes[i]) & newMask;
+					while(newTable[newSlot] != 0) {
+						newSlot = (newSlot + 1) & newMask;
+					}
+					newTable[newSlot] = i + 1;
+				}
+				table = newTable;
+			}
+			return id;
+		}
+	}
+}
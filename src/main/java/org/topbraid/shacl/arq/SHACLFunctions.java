@@ -16,13 +16,24 @@
  */
 package org.topbraid.shacl.arq;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.Property;
 import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.sparql.function.FunctionFactory;
 import org.apache.jena.sparql.function.FunctionRegistry;
+import org.apache.jena.util.iterator.ExtendedIterator;
 import org.topbraid.jenax.functions.DeclarativeFunctionDrivers;
 import org.topbraid.jenax.functions.DeclarativeFunctionFactory;
+import org.topbraid.jenax.functions.LazyFunctionFactory;
 import org.topbraid.jenax.util.JenaUtil;
 import org.topbraid.shacl.model.SHConstraintComponent;
 import org.topbraid.shacl.model.SHFactory;
@@ -37,19 +48,43 @@ public class SHACLFunctions {
 	
 	/**
 	 * Registers a single SHACL function declared as a sh:Function.
+	 * Functions that have been registered lazily (such as those of the SHACL system model)
+	 * are only replaced if the given declaration has triples that the lazy declaration does not have,
+	 * so that shapes graphs that include the system graphs do not create all system functions.
 	 * @param resource  the function resource
 	 */
 	public static void registerFunction(Resource resource) {
-		FunctionFactory arqFunction = DeclarativeFunctionDrivers.get().create(resource);
-		if(arqFunction != null) {
-			FunctionFactory oldFF = FunctionRegistry.get().get(resource.getURI());
-			if(oldFF == null || oldFF instanceof DeclarativeFunctionFactory) {
+		FunctionFactory oldFF = FunctionRegistry.get().get(resource.getURI());
+		if(oldFF == null || (oldFF instanceof DeclarativeFunctionFactory && !isLazilyDeclaredAs(oldFF, resource))) {
+			FunctionFactory arqFunction = DeclarativeFunctionDrivers.get().create(resource);
+			if(arqFunction != null) {
 				FunctionRegistry.get().put(resource.getURI(), arqFunction);
 			}
 		}
 	}
 
 	
+	// Checks whether a FunctionFactory has been registered lazily from a declaration that has all triples of a given resource
+	private static boolean isLazilyDeclaredAs(FunctionFactory ff, Resource resource) {
+		if(ff instanceof LazyFunctionFactory && ((LazyFunctionFactory)ff).getDeclaration() != null) {
+			Graph declarations = ((LazyFunctionFactory)ff).getDeclaration().getModel().getGraph();
+			ExtendedIterator<Triple> it = resource.getModel().getGraph().find(resource.asNode(), Node.ANY, Node.ANY);
+			try {
+				while(it.hasNext()) {
+					if(!declarations.contains(it.next())) {
+						return false;
+					}
+				}
+			}
+			finally {
+				it.close();
+			}
+			return true;
+		}
+		return false;
+	}
+
+	
 	/**
 	 * Registers all SHACL functions from a given Model.
 	 * @param model  the Model to register the functions from
@@ -72,6 +107,77 @@ public class SHACLFunctions {
 	}
 	
 	
+	/**
+	 * Registers SHACL functions and SPARQL-based validators of a given Model so that their ARQ functions
+	 * are only created on first use, see {@link LazyFunctionFactory}.
+	 * The URIs to register are typically precomputed using {@link #getFunctionURIs(Model)} and
+	 * {@link #getAskValidatorURIs(Model)}, so that the Model does not need to be scanned.
+	 * @param model  the Model containing the declarations
+	 * @param functionURIs  the URIs of the sh:Functions to register
+	 * @param askValidatorURIs  the URIs of the sh:SPARQLAskValidators, mapped to the URIs of their constraint components
+	 */
+	public static void registerFunctionsLazily(Model model, Collection<String> functionURIs, Map<String,String> askValidatorURIs) {
+		
+		SHFactory.ensureInited();
+		
+		for(String uri : functionURIs) {
+			FunctionFactory oldFF = FunctionRegistry.get().get(uri);
+			if(oldFF == null || oldFF instanceof DeclarativeFunctionFactory) {
+				Resource function = model.getResource(uri);
+				FunctionRegistry.get().put(uri, new LazyFunctionFactory(uri, function, () -> DeclarativeFunctionDrivers.get().create(function)));
+			}
+		}
+		
+		for(Map.Entry<String,String> entry : askValidatorURIs.entrySet()) {
+			String uri = entry.getKey();
+			if(!FunctionRegistry.get().isRegistered(uri)) {
+				SHConstraintComponent component = model.getResource(entry.getValue()).as(SHConstraintComponent.class);
+				Resource validator = model.getResource(uri);
+				FunctionRegistry.get().put(uri, new LazyFunctionFactory(uri, () -> new SHACLSPARQLARQFunction(component, validator)));
+			}
+		}
+	}
+	
+	
+	/**
+	 * Gets the URIs of the sh:Functions that {@link #registerFunctions(Model)} would register.
+	 * @param model  the Model to get the functions from
+	 * @return the function URIs
+	 */
+	public static List<String> getFunctionURIs(Model model) {
+		List<String> results = new ArrayList<>();
+		Resource shaclFunctionClass = SH.Function.inModel(model);
+		for(Resource resource : JenaUtil.getAllInstances(shaclFunctionClass)) {
+			if(resource.isURIResource() && DeclarativeFunctionDrivers.get().create(resource) != null) {
+				results.add(resource.getURI());
+			}
+		}
+		return results;
+	}
+	
+	
+	/**
+	 * Gets the URIs of the sh:SPARQLAskValidators that {@link #registerFunctions(Model)} would register as
+	 * functions, unless functions with the same URIs already exist.
+	 * @param model  the Model to get the validators from
+	 * @return a Map from validator URIs to the URIs of their constraint components
+	 */
+	public static Map<String,String> getAskValidatorURIs(Model model) {
+		Map<String,String> results = new LinkedHashMap<>();
+		Resource ccClass = SH.ConstraintComponent.inModel(model);
+		for(Resource component : JenaUtil.getAllInstances(ccClass)) {
+			if(component.isURIResource()) {
+				for(Resource validator : JenaUtil.getResourceProperties(component, SH.validator)) {
+					if(validator.isURIResource() && JenaUtil.hasIndirectType(validator, SH.SPARQLAskValidator)) {
+						results.putIfAbsent(validator.getURI(), component.getURI());
+					}
+				}
+			}
+		}
+		return results;
+	}
+	
+	
 	private static void perhapsRegisterFunction(SHConstraintComponent component, Property predicate) {
 		for(Resource validator : JenaUtil.getResourceProperties(component, predicate)) {
 			if(validator.isURIResource() && 
@@ -20,9 +20,13 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
 import java.util.Set;
 
+import org.apache.jena.graph.Graph;
 import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
 import org.apache.jena.query.Query;
 import org.apache.jena.query.QueryParseException;
 import org.apache.jena.rdf.model.Model;
@@ -31,7 +35,6 @@ import org.apache.jena.rdf.model.RDFList;
 import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.rdf.model.Statement;
-import org.apache.jena.rdf.model.StmtIterator;
 import org.apache.jena.sparql.path.P_Alt;
 import org.apache.jena.sparql.path.P_Inverse;
 import org.apache.jena.sparql.path.P_Link;
@@ -50,6 +53,7 @@ import org.apache.jena.sparql.syntax.ElementPathBlock;
 import org.apache.jena.sparql.syntax.ElementTriplesBlock;
 import org.apache.jena.sparql.util.Context;
 import org.apache.jena.sparql.util.FmtUtils;
+import org.apache.jena.util.iterator.ExtendedIterator;
 import org.apache.jena.vocabulary.RDF;
 import org.topbraid.jenax.util.ARQFactory;
 import org.topbraid.jenax.util.JenaUtil;
@@ -66,15 +70,31 @@ public class SHACLPaths {
 	
 	private final static String SEQUENCE_PATH_SEPARATOR = "/";
 	
+	// Up to this number of values, duplicates are detected by a linear scan instead of a HashSet
+	private final static int DISTINCT_SCAN_LIMIT = 8;
+	
 	
 	public static void addValueNodes(RDFNode focusNode, Path path, Collection<RDFNode> results) {
-		Set<Node> seen = new HashSet<>();
-		Iterator<Node> it = PathEval.eval(focusNode.getModel().getGraph(), focusNode.asNode(), path, Context.emptyContext);
+		Model model = focusNode.getModel();
+		Iterator<Node> it = PathEval.eval(model.getGraph(), focusNode.asNode(), path, Context.emptyContext);
+		Set<Node> seen = null;
+		int start = results.size();
 		while(it.hasNext()) {
 			Node node = it.next();
-			if(!seen.contains(node)) {
-				seen.add(node);
-				results.add(focusNode.getModel().asRDFNode(node));
+			RDFNode rdfNode = model.asRDFNode(node);
+			if(seen == null && results.size() - start < DISTINCT_SCAN_LIMIT) {
+				if(!containsFrom(results, start, rdfNode)) {
+					results.add(rdfNode);
+				}
+			}
+			else {
+				if(seen == null) {
+					seen = new HashSet<>();
+					addAllFrom(results, start, seen, true);
+				}
+				if(seen.add(node)) {
+					results.add(rdfNode);
+				}
 			}
 		}
 	}
@@ -82,12 +102,100 @@ public class SHACLPaths {
 	
 	public static void addValueNodes(RDFNode focusNode, Property predicate, Collection<RDFNode> results) {
 		if(focusNode instanceof Resource) {
-			StmtIterator it = ((Resource)focusNode).listProperties(predicate);
+			Model model = focusNode.getModel();
+			ExtendedIterator<Triple> it = model.getGraph().find(focusNode.asNode(), predicate.asNode(), Node.ANY);
+			while(it.hasNext()) {
+				results.add(model.asRDFNode(it.next().getObject()));
+			}
+		}
+	}
+	
+	
+	/**
+	 * Adds the distinct values of a given path for a given focus node to a collection of Nodes,
+	 * without creating any RDFNodes.  The duplicate check only creates a HashSet if the
+	 * path produces more than a handful of values.
+	 * @param graph  the data graph
+	 * @param focusNode  the focus node
+	 * @param path  the (complex) path
+	 * @param results  the collection to add the value nodes to (at the end)
+	 */
+	public static void addValueNodes(Graph graph, Node focusNode, Path path, Collection<Node> results) {
+		Iterator<Node> it = PathEval.eval(graph, focusNode, path, Context.emptyContext);
+		Set<Node> seen = null;
+		int start = results.size();
+		while(it.hasNext()) {
+			Node node = it.next();
+			if(seen == null && results.size() - start < DISTINCT_SCAN_LIMIT) {
+				if(!containsFrom(results, start, node)) {
+					results.add(node);
+				}
+			}
+			else {
+				if(seen == null) {
+					seen = new HashSet<>();
+					addAllFrom(results, start, seen, false);
+				}
+				if(seen.add(node)) {
+					results.add(node);
+				}
+			}
+		}
+	}
+	
+	
+	/**
+	 * Adds the values of a given predicate for a given focus node to a collection of Nodes.
+	 * The values are distinct because the graph does not contain duplicate triples.
+	 * @param graph  the data graph
+	 * @param focusNode  the focus node
+	 * @param predicate  the predicate
+	 * @param results  the collection to add the value nodes to
+	 */
+	public static void addValueNodes(Graph graph, Node focusNode, Node predicate, Collection<Node> results) {
+		if(!focusNode.isLiteral()) {
+			ExtendedIterator<Triple> it = graph.find(focusNode, predicate, Node.ANY);
 			while(it.hasNext()) {
 				results.add(it.next().getObject());
 			}
 		}
 	}
+	
+	
+	// Checks whether the elements of results starting at a given index include a given value
+	private static boolean containsFrom(Collection<?> results, int start, Object value) {
+		if(results instanceof List && results instanceof RandomAccess) {
+			List<?> list = (List<?>) results;
+			for(int i = start; i < list.size(); i++) {
+				if(list.get(i).equals(value)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		else if(start == 0) {
+			return results.contains(value);
+		}
+		else {
+			int index = 0;
+			for(Object result : results) {
+				if(index++ >= start && result.equals(value)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+	
+	
+	private static void addAllFrom(Collection<?> results, int start, Set<Node> seen, boolean rdfNodes) {
+		int index = 0;
+		for(Object result : results) {
+			if(index++ >= start) {
+				seen.add(rdfNodes ? ((RDFNode)result).asNode() : (Node)result);
+			}
+		}
+	}
 
 	
 	/**
@@ -36,6 +36,7 @@ import org.topbraid.jenax.util.JenaDatatypes;
 import org.topbraid.shacl.engine.ShapesGraph;
 import org.topbraid.shacl.util.FailureLog;
 import org.topbraid.shacl.util.RecursionGuard;
+import org.topbraid.shacl.validation.ConformanceMemo;
 import org.topbraid.shacl.validation.DefaultShapesGraphProvider;
 import org.topbraid.shacl.validation.ValidationEngine;
 import org.topbraid.shacl.validation.ValidationEngineFactory;
@@ -85,60 +86,90 @@ public class HasShapeFunction extends AbstractFunction3 {
 	
 	@Override
 	protected NodeValue exec(Node focusNode, Node shapeNode, Node recursionIsError, FunctionEnv env) {
+		Model model = ModelFactory.createModelForGraph(env.getActiveGraph());
+		Dataset dataset = DatasetImpl.wrap(env.getDataset());
+		Boolean result = hasShape(model.asRDFNode(focusNode), shapeNode, JenaDatatypes.TRUE.asNode().equals(recursionIsError), dataset);
+		if(result == null) {
+			throw new ExprEvalException("Propagating failure from nested shapes");
+		}
+		return NodeValue.makeBoolean(result);
+	}
+	
+	
+	/**
+	 * Checks whether a given focus node conforms to a given shape, following the same rules
+	 * as tosh:hasShape.  Native constraint executors can use this to evaluate nested shapes
+	 * without going through SPARQL.
+	 * @param focusNode  the node to validate
+	 * @param shapeNode  the shape to validate against
+	 * @param recursionIsError  true to treat recursive calls as failures
+	 * @param dataset  the Dataset to operate on
+	 * @return true if the node conforms, false if not, or null if a failure was produced
+	 */
+	public static Boolean hasShape(RDFNode focusNode, Node shapeNode, boolean recursionIsError, Dataset dataset) {
 
 		Boolean oldFlag = recursionIsErrorFlag.get();
-		if(JenaDatatypes.TRUE.asNode().equals(recursionIsError)) {
+		if(recursionIsError) {
 			recursionIsErrorFlag.set(true);
 		}
 		try {
-			if(RecursionGuard.start(focusNode, shapeNode)) {
-				RecursionGuard.end(focusNode, shapeNode);
-				if(JenaDatatypes.TRUE.asNode().equals(recursionIsError) || (oldFlag != null && oldFlag)) {
+			if(RecursionGuard.start(focusNode.asNode(), shapeNode)) {
+				RecursionGuard.end(focusNode.asNode(), shapeNode);
+				if(recursionIsError || (oldFlag != null && oldFlag)) {
 					String message = "Unsupported recursion";
 					Model resultsModel = resultsModelTL.get();
-					Resource failure = resultsModel.createResource(DASH.FailureResult);
-					failure.addProperty(SH.resultMessage, message);
-					failure.addProperty(SH.focusNode, resultsModel.asRDFNode(focusNode));
-					failure.addProperty(SH.sourceShape, resultsModel.asRDFNode(shapeNode));
+					if(resultsModel != null) {
+						Resource failure = resultsModel.createResource(DASH.FailureResult);
+						failure.addProperty(SH.resultMessage, message);
+						failure.addProperty(SH.focusNode, resultsModel.asRDFNode(focusNode.asNode()));
+						failure.addProperty(SH.sourceShape, resultsModel.asRDFNode(shapeNode));
+					}
 					FailureLog.get().logFailure(message);
-					throw new ExprEvalException("Unsupported recursion");
+					return null;
 				}
 				else {
-					return NodeValue.TRUE;
+					return true;
 				}
 			}
 			else {
 				
 				try {
-					Model model = ModelFactory.createModelForGraph(env.getActiveGraph());
-					RDFNode resource = model.asRDFNode(focusNode);
-					Dataset dataset = DatasetImpl.wrap(env.getDataset());
+					ValidationEngine current = ValidationEngine.getCurrent();
+					if(current == null || !current.getConfiguration().getReportDetails()) {
+						ConformanceMemo memo = current != null ? current.getRun().getConformanceMemo() : null;
+						if(memo != null) {
+							Boolean known = memo.get(focusNode.asNode(), shapeNode);
+							if(known != null) {
+								return known;
+							}
+						}
+						// Only the boolean outcome matters, so stop at the first result
+						int recursions = RecursionGuard.getRecursionCount();
+						Boolean result = createEngine(dataset).conformsToShape(Collections.singletonList(focusNode), shapeNode);
+						if(memo != null && result != null && recursions == RecursionGuard.getRecursionCount()) {
+							memo.put(focusNode.asNode(), shapeNode, result);
+						}
+						return result;
+					}
+					
 					Resource shape = (Resource) dataset.getDefaultModel().asRDFNode(shapeNode);
-					Model results = doRun(resource, shape, dataset);
+					Model results = doRun(focusNode, shape, dataset);
 					if(resultsModelTL.get() != null) {
 						resultsModelTL.get().add(results);
 					}
 					if(results.contains(null, RDF.type, DASH.FailureResult)) {
-						throw new ExprEvalException("Propagating failure from nested shapes");
+						return null;
 					}
 
-					if(ValidationEngine.getCurrent() != null && ValidationEngine.getCurrent().getConfiguration().getReportDetails()) {
-						boolean result = true;
-						for(Resource r : results.listSubjectsWithProperty(RDF.type, SH.ValidationResult).toList()) {
-							if(!results.contains(null, SH.detail, r)) {
-								result = false;
-								break;
-							}
+					for(Resource r : results.listSubjectsWithProperty(RDF.type, SH.ValidationResult).toList()) {
+						if(!results.contains(null, SH.detail, r)) {
+							return false;
 						}
-						return NodeValue.makeBoolean(result);
-					}
-					else {
-						boolean result = !results.contains(null, RDF.type, SH.ValidationResult);
-						return NodeValue.makeBoolean(result);
 					}
+					return true;
 				}
 				finally {
-					RecursionGuard.end(focusNode, shapeNode);
+					RecursionGuard.end(focusNode.asNode(), shapeNode);
 				}
 			}
 		}
@@ -148,7 +179,7 @@ public class HasShapeFunction extends AbstractFunction3 {
 	}
 
 
-	private Model doRun(RDFNode focusNode, Resource shape, Dataset dataset) {
+	private static ValidationEngine createEngine(Dataset dataset) {
 		URI sgURI = shapesGraphURI.get();
 		ShapesGraph sg = shapesGraph.get();
 		if(sgURI == null) {
@@ -164,8 +195,14 @@ public class HasShapeFunction extends AbstractFunction3 {
 		ValidationEngine engine = ValidationEngineFactory.get().create(dataset, sgURI, sg, null);
 		if(ValidationEngine.getCurrent() != null) {
 			engine.setConfiguration(ValidationEngine.getCurrent().getConfiguration());
+			engine.setRun(ValidationEngine.getCurrent().getRun());
 		}
-		return engine.
+		return engine;
+	}
+
+
+	private static Model doRun(RDFNode focusNode, Resource shape, Dataset dataset) {
+		return createEngine(dataset).
 				validateNodesAgainstShape(Collections.singletonList(focusNode), shape.asNode()).
 				getModel();
 	}
@@ -0,0 +1,220 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.engine;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.RDFList;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.topbraid.jenax.util.JenaUtil;
+import org.topbraid.shacl.model.SHShape;
+import org.topbraid.shacl.vocabulary.SH;
+
+/**
+ * A ShapesGraph that eagerly resolves all shapes, constraints, paths and executors (including their
+ * parsed SPARQL queries) when it is constructed.  Afterwards it does not change, so that a single
+ * instance can be shared by any number of ValidationEngines, also concurrently.
+ * 
+ * The shape and constraint filters are fixed at construction time, and the shapes Model must not
+ * be modified while the compiled graph is in use.  Use ValidationUtil.compileShapesGraph to
+ * create instances with the system triples and SHACL functions in place.
+ */
+public class CompiledShapesGraph extends ShapesGraph {
+	
+	// The properties that link shapes to other shapes that they reference
+	private static final Property[] SHAPE_PROPERTIES = {
+		SH.node,
+		SH.not,
+		SH.property,
+		SH.qualifiedValueShape
+	};
+	
+	// The properties that link shapes to rdf:Lists of other shapes
+	private static final Property[] SHAPE_LIST_PROPERTIES = {
+		SH.and,
+		SH.or,
+		SH.xone
+	};
+	
+	private long compileTime;
+	
+	private boolean compiled;
+	
+	private int constraintCount;
+	
+	private Map<Node,Boolean> ignored = new HashMap<>();
+	
+	private List<Shape> rootShapes;
+	
+	private List<Shape> shapes;
+	
+	private URI shapesGraphURI = URI.create("urn:x-shacl-shapes-graph:" + UUID.randomUUID().toString());
+	
+	
+	/**
+	 * Constructs and compiles a new CompiledShapesGraph.
+	 * @param shapesModel  the Model containing the shape definitions
+	 * @param shapeFilter  an optional filter for shapes (see {@link ShapesGraph#setShapeFilter(Predicate)}) or null
+	 * @param constraintFilter  an optional filter for constraints (see {@link ShapesGraph#setConstraintFilter(Predicate)}) or null
+	 */
+	public CompiledShapesGraph(Model shapesModel, Predicate<SHShape> shapeFilter, Predicate<Constraint> constraintFilter) {
+		super(shapesModel);
+		super.setShapeFilter(shapeFilter);
+		super.setConstraintFilter(constraintFilter);
+		long startTime = System.currentTimeMillis();
+		compile(shapesModel);
+		compileTime = System.currentTimeMillis() - startTime;
+		compiled = true;
+	}
+	
+	
+	private void compile(Model shapesModel) {
+		
+		this.rootShapes = Collections.unmodifiableList(new ArrayList<>(super.getRootShapes()));
+		
+		// Walk all shapes reachable from the root shapes and from the shape type declarations
+		Set<Node> reached = new HashSet<>();
+		LinkedList<Resource> queue = new LinkedList<>();
+		for(Shape rootShape : rootShapes) {
+			queue.add(rootShape.getShapeResource());
+		}
+		queue.addAll(JenaUtil.getAllInstances(shapesModel.getResource(SH.NodeShape.getURI())));
+		queue.addAll(JenaUtil.getAllInstances(shapesModel.getResource(SH.PropertyShape.getURI())));
+		List<Shape> shapes = new ArrayList<>();
+		while(!queue.isEmpty()) {
+			Resource shapeResource = queue.removeFirst();
+			if(reached.add(shapeResource.asNode())) {
+				Shape shape = getShape(shapeResource.asNode());
+				shapes.add(shape);
+				ignored.put(shapeResource.asNode(), super.isIgnored(shapeResource.asNode()));
+				for(Constraint constraint : shape.getConstraints()) {
+					try {
+						constraint.getExecutor();
+						constraint.getDeclarativeExecutor();
+					}
+					catch(RuntimeException ex) {
+						// Invalid constraints (e.g. with syntax errors) are reported when they are used
+					}
+					constraintCount++;
+				}
+				for(Property property : SHAPE_PROPERTIES) {
+					for(Resource nested : JenaUtil.getResourceProperties(shapeResource, property)) {
+						queue.add(nested);
+					}
+				}
+				for(Property property : SHAPE_LIST_PROPERTIES) {
+					for(Resource list : JenaUtil.getResourceProperties(shapeResource, property)) {
+						if(list.canAs(RDFList.class)) {
+							for(RDFNode member : list.as(RDFList.class).iterator().toList()) {
+								if(member.isResource()) {
+									queue.add((Resource)member);
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+		this.shapes = Collections.unmodifiableList(shapes);
+	}
+	
+	
+	/**
+	 * Gets the number of milliseconds that it took to compile this shapes graph.
+	 * @return the compile time in milliseconds
+	 */
+	public long getCompileTime() {
+		return compileTime;
+	}
+	
+	
+	/**
+	 * Gets the total number of constraints of all compiled shapes.
+	 * @return the number of constraints
+	 */
+	public int getConstraintCount() {
+		return constraintCount;
+	}
+	
+	
+	@Override
+	public List<Shape> getRootShapes() {
+		return rootShapes;
+	}
+	
+	
+	/**
+	 * Gets all shapes that have been compiled, including nested shapes such as property shapes.
+	 * @return an unmodifiable List of Shapes
+	 */
+	public List<Shape> getShapes() {
+		return shapes;
+	}
+	
+	
+	/**
+	 * Gets the URI that ValidationEngines shall use for this shapes graph in their Datasets.
+	 * @return the URI of the shapes graph
+	 */
+	public URI getShapesGraphURI() {
+		return shapesGraphURI;
+	}
+
+
+	@Override
+	public boolean isIgnored(Node shapeNode) {
+		Boolean result = ignored.get(shapeNode);
+		if(result != null) {
+			return result;
+		}
+		else {
+			return super.isIgnored(shapeNode);
+		}
+	}
+
+
+	@Override
+	public void setConstraintFilter(Predicate<Constraint> value) {
+		if(compiled) {
+			throw new UnsupportedOperationException("The filters of a compiled shapes graph cannot be changed");
+		}
+		super.setConstraintFilter(value);
+	}
+
+
+	@Override
+	public void setShapeFilter(Predicate<SHShape> value) {
+		if(compiled) {
+			throw new UnsupportedOperationException("The filters of a compiled shapes graph cannot be changed");
+		}
+		super.setShapeFilter(value);
+	}
+}
@@ -40,7 +40,9 @@ public class Constraint {
 	
 	private SHConstraintComponent component;
 	
-	private ConstraintExecutor executor;
+	private volatile ConstraintExecutor declarativeExecutor;
+	
+	private volatile ConstraintExecutor executor;
 	
 	private RDFNode parameterValue;
 	
@@ -93,6 +95,19 @@ public class Constraint {
 	}
 	
 	
+	/**
+	 * Gets the executor that uses the SPARQL or JavaScript validators of the constraint component,
+	 * even if a native executor has been registered for it.
+	 * @return the declarative executor or null
+	 */
+	public ConstraintExecutor getDeclarativeExecutor() {
+		if(declarativeExecutor == null) {
+			declarativeExecutor = ConstraintExecutors.get().getDeclarativeExecutor(this);
+		}
+		return declarativeExecutor;
+	}
+	
+	
 	public ConstraintExecutor getExecutor() {
 		if(executor == null) {
 			executor = ConstraintExecutors.get().getExecutor(this);
@@ -16,11 +16,13 @@
  */
 package org.topbraid.shacl.engine;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
+import org.apache.jena.graph.Node;
 import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.rdf.model.Statement;
 import org.apache.jena.sparql.path.Path;
@@ -39,9 +41,13 @@ import org.topbraid.jenax.util.RDFLabels;
  */
 public class Shape {
 	
-	private List<Constraint> constraints;
+	// Built lazily, but published only when complete so that Shapes can be shared between threads
+	private volatile List<Constraint> constraints;
 	
 	private Path jenaPath;
+	
+	// The predicate if the sh:path is a single IRI
+	private Node predicate;
 
 	private SHShape shape;
 	
@@ -55,12 +61,15 @@ public class Shape {
 		if(path != null && path.isAnon()) {
 			jenaPath = (Path) SHACLPaths.getJenaPath(SHACLPaths.getPathString(path), path.getModel());
 		}
+		else if(path != null && path.isURIResource()) {
+			predicate = path.asNode();
+		}
 	}
 	
 	
 	public Iterable<Constraint> getConstraints() {
 		if(constraints == null) {
-			constraints = new LinkedList<>();
+			List<Constraint> constraints = new ArrayList<>();
 			Set<SHConstraintComponent> handled = new HashSet<>();
 			for(Statement s : shape.listProperties().toList()) {
 				SHConstraintComponent component = shapesGraph.getComponentWithParameter(s.getPredicate());
@@ -81,6 +90,7 @@ public class Shape {
 					}
 				}
 			}
+			this.constraints = Collections.unmodifiableList(constraints);
 		}
 		return constraints;
 	}
@@ -91,6 +101,15 @@ public class Shape {
 	}
 	
 	
+	/**
+	 * Gets the predicate of the sh:path if the path is a single IRI.
+	 * @return the predicate or null for node shapes and complex paths
+	 */
+	public Node getPredicate() {
+		return predicate;
+	}
+	
+	
 	public Double getOrder() {
 		Statement s = shape.getProperty(SH.order);
 		if(s != null && s.getObject().isLiteral()) {
@@ -57,7 +57,7 @@ public class ShapesGraph {
 	
 	private Map<Property,SHConstraintComponent> parametersMap = new ConcurrentHashMap<>();
 	
-	private List<Shape> rootShapes;
+	private volatile List<Shape> rootShapes;
 	
 	private Predicate<SHShape> shapeFilter;
 	
@@ -126,18 +126,24 @@ public class ShapesGraph {
 			}
 
 			// Turn the shape Resource objects into Shape instances
-			this.rootShapes = new LinkedList<Shape>();
+			List<Shape> rootShapes = new LinkedList<Shape>();
 			for(Resource candidate : candidates) {
 				SHShape shape = SHFactory.asShape(candidate);
 				if(!shape.isDeactivated() && (shapeFilter == null || shapeFilter.test(shape))) {
-					this.rootShapes.add(getShape(shape.asNode()));
+					rootShapes.add(getShape(shape.asNode()));
 				}
 			}
+			this.rootShapes = rootShapes;
 		}
 		return rootShapes;
 	}
 	
 	
+	public Model getShapesModel() {
+		return shapesModel;
+	}
+	
+	
 	public Shape getShape(Node node) {
 		return shapesMap.computeIfAbsent(node, n -> new Shape(this, SHFactory.asShape(shapesModel.asRDFNode(node))));
 	}
@@ -42,4 +42,13 @@ public interface JSScriptEngine {
 	Object invokeFunctionOrdered(String functionName, Object[] args) throws javax.script.ScriptException, java.lang.NoSuchMethodException;
 
 	void put(String varName, Object value);
+	
+	/**
+	 * Prepares this engine to be reused by another request, see {@link SHACLScriptEngineManager}.
+	 * Implementations must remove any state that is specific to the previous request.
+	 * @return true if the engine can be reused, false to discard it
+	 */
+	default boolean reset() {
+		return false;
+	}
 }
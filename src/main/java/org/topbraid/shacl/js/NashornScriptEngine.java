@@ -20,17 +20,26 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.Invocable;
+import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
+import javax.script.SimpleScriptContext;
 
 import org.apache.jena.query.QuerySolution;
 import org.apache.jena.rdf.model.RDFNode;
@@ -45,6 +54,13 @@ import org.topbraid.shacl.vocabulary.SH;
 /**
  * Default implementation of JSScriptEngine, based on Nashorn.
  * 
+ * Each instance has its own Nashorn engine, unless it is created while
+ * {@link SHACLScriptEngineManager} keeps a pool of engines and the Nashorn factory declares
+ * that its engines can be used by multiple threads.
+ * In that case all instances share a single Nashorn engine but each has its own global object,
+ * so that the scripts loaded from URLs are compiled only once and the resulting CompiledScripts
+ * are evaluated in the global of each instance.
+ * 
  * @author Holger Knublauch
  */
 public class NashornScriptEngine implements JSScriptEngine {
@@ -65,30 +81,101 @@ public class NashornScriptEngine implements JSScriptEngine {
 	public static final String DASH_JS = "http://datashapes.org/js/dash.js";
 
 	public static final String RDFQUERY_JS = "http://datashapes.org/js/rdfquery.js";
+	
+	// The libraries that never change and therefore remain loaded when the engine is reused
+	private final static Set<String> STATIC_URLS = new HashSet<>(Arrays.asList(DASH_JS, RDFQUERY_JS));
+	
+	// The maximum number of entries in compiledScripts
+	private final static int MAX_COMPILED_SCRIPTS = 100;
+	
+	// The maximum number of entries in functionParametersCache
+	private final static int MAX_FUNCTION_PARAMETERS = 10000;
+	
+	// The compiled scripts of sharedEngine by URL, together with the source code that they have been compiled from
+	private static Map<String,CachedScript> sharedCompiledScripts = createLRUMap(MAX_COMPILED_SCRIPTS);
+	
+	// The parameter names of JavaScript functions, by the source code of the function
+	private static Map<String,List<String>> functionParametersCache = createLRUMap(MAX_FUNCTION_PARAMETERS);
+	
+	private static ScriptEngine sharedEngine;
+	
+	// Null until the first pooled instance has checked whether the engine can be shared
+	private static Boolean sharedEngineSupported;
+	
+	// Either sharedCompiledScripts or the compiled scripts of a private engine
+	private Map<String,CachedScript> compiledScripts;
+
+	private ScriptContext context;
 
 	private ScriptEngine engine;
 	
 	private Map<String,List<String>> functionParametersMap = new HashMap<>();
 	
+	private Bindings globals;
+	
 	// Remembers which sh:libraries executables were already handled so that they are
 	// not installed twice
 	private Set<Resource> visitedLibraries = new HashSet<>();
 	
-	private Set<String> loadedURLs = new HashSet<>();
+	// In the order in which they have been executed
+	private Set<String> loadedURLs = new LinkedHashSet<>();
 	
 	
 	public NashornScriptEngine() {
-		engine = findNashorn();
-		engine.put("TermFactory", new TermFactory());
+		if(SHACLScriptEngineManager.getPoolSize() > 0) {
+			engine = getSharedEngine();
+		}
+		if(engine != null) {
+			compiledScripts = sharedCompiledScripts;
+		}
+		else {
+			engine = findNashorn();
+			compiledScripts = createLRUMap(MAX_COMPILED_SCRIPTS);
+		}
+		context = new SimpleScriptContext();
 		try {
-			engine.eval(ARGS_FUNCTION);
+			initGlobals();
 		}
 		catch(ScriptException ex) {
 			ExceptionUtil.throwUnchecked(ex);
 		}
 	}
+	
+	
+	private static <V> Map<String,V> createLRUMap(int maxSize) {
+		return Collections.synchronizedMap(new LinkedHashMap<String,V>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String,V> eldest) {
+				return size() > maxSize;
+			}
+		});
+	}
+	
+	
+	// Installs a new global object with the built-in variables and functions
+	private void initGlobals() throws ScriptException {
+		globals = engine.createBindings();
+		context.setBindings(globals, ScriptContext.ENGINE_SCOPE);
+		globals.put("TermFactory", new TermFactory());
+		getCompiledScript(ARGS_FUNCTION_NAME, ARGS_FUNCTION).eval(context);
+	}
+	
+	
+	// Returns null if the Nashorn engine does not declare that it can be used by multiple threads
+	private static synchronized ScriptEngine getSharedEngine() {
+		if(sharedEngineSupported == null) {
+			ScriptEngine nashorn = findNashorn();
+			sharedEngineSupported = nashorn.getFactory().getParameter("THREADING") != null;
+			if(sharedEngineSupported) {
+				sharedEngine = nashorn;
+			}
+		}
+		return sharedEngine;
+	}
+	
 
-	private ScriptEngine findNashorn() {
+	private static ScriptEngine findNashorn() {
 		ScriptEngine nashorn = new ScriptEngineManager().getEngineByName("nashorn");
 		if (nashorn == null) {
 			nashorn = new ScriptEngineManager(null).getEngineByName("nashorn");
@@ -102,7 +189,7 @@ public class NashornScriptEngine implements JSScriptEngine {
 	
 	@Override
 	public Object eval(String expr) throws ScriptException {
-		return engine.eval(expr);
+		return engine.eval(expr, context);
 	}
 
 
@@ -127,9 +214,14 @@ public class NashornScriptEngine implements JSScriptEngine {
     public final void executeScriptFromURL(String url) throws Exception {
 		if(!loadedURLs.contains(url)) {
 			loadedURLs.add(url);
+			StringBuilder sb = new StringBuilder();
 			try ( Reader reader = createScriptReader(url) ) {
-			    engine.eval(reader);
+				char[] buffer = new char[8192];
+				for(int n = reader.read(buffer); n >= 0; n = reader.read(buffer)) {
+					sb.append(buffer, 0, n);
+				}
 			}
+			getCompiledScript(url, sb.toString()).eval(context);
 		}
 	}
 
@@ -149,10 +241,37 @@ public class NashornScriptEngine implements JSScriptEngine {
 	
 	@Override
 	public Object get(String varName) {
-		return engine.get(varName);
+		return globals.get(varName);
+	}
+	
+	
+	// Returns the cached CompiledScript for a given key unless the source code has changed
+	private CompiledScript getCompiledScript(String key, String source) throws ScriptException {
+		CachedScript cached = compiledScripts.get(key);
+		if(cached == null || !cached.source.equals(source)) {
+			synchronized(compiledScripts) {
+				cached = new CachedScript(source, ((Compilable) engine).compile(source));
+			}
+			compiledScripts.put(key, cached);
+		}
+		return cached.script;
+	}
+	
+	
+	/**
+	 * Gets the ScriptContext holding the global object of this engine, which needs to be
+	 * used for any direct calls against {@link #getEngine()}.
+	 * @return the ScriptContext
+	 */
+	public final ScriptContext getContext() {
+		return context;
 	}
 
 
+	/**
+	 * Gets the underlying Nashorn engine, which may be shared with other (pooled) instances of this class.
+	 * @return the ScriptEngine
+	 */
 	public final ScriptEngine getEngine() {
 		return engine;
 	}
@@ -163,17 +282,21 @@ public class NashornScriptEngine implements JSScriptEngine {
 		if(cached != null) {
 			return cached;
 		}
-		Object what = engine.get(functionName);
+		Object what = globals.get(functionName);
 		if(what == null) {
 			throw new ScriptException("Cannot find JavaScript function \"" + functionName + "\"");
 		}
 		try {
 			String funcString = what.toString();
-			Object result = ((Invocable) engine).invokeFunction(ARGS_FUNCTION_NAME, funcString);
-			Object[] params = NashornUtil.asArray(result);
-			List<String> results = new ArrayList<String>(params.length);
-			for(Object param : params) {
-				results.add((String)param);
+			List<String> results = functionParametersCache.get(funcString);
+			if(results == null) {
+				Object result = ((Invocable) engine).invokeMethod(globals, ARGS_FUNCTION_NAME, funcString);
+				Object[] params = NashornUtil.asArray(result);
+				results = new ArrayList<String>(params.length);
+				for(Object param : params) {
+					results.add((String)param);
+				}
+				functionParametersCache.put(funcString, results);
 			}
 			functionParametersMap.put(functionName, results);
 			return results;
@@ -209,12 +332,52 @@ public class NashornScriptEngine implements JSScriptEngine {
 	@Override
 	public Object invokeFunctionOrdered(String functionName, Object[] params)
 			throws ScriptException, NoSuchMethodException {
-		return ((Invocable) engine).invokeFunction(functionName, params);
+		return ((Invocable) engine).invokeMethod(globals, functionName, params);
 	}
 
 
 	@Override
     public void put(String varName, Object value) {
-		engine.put(varName, value);
+		globals.put(varName, value);
+	}
+	
+	
+	/**
+	 * Replaces the global object so that no variables of the previous request remain,
+	 * including those created by the scripts of sh:jsLibrary.
+	 * Of the previously loaded libraries, only dash.js and rdfquery.js are evaluated again,
+	 * from their cached CompiledScripts.
+	 * The other libraries are evaluated again when the next request needs them.
+	 */
+	@Override
+	public boolean reset() {
+		List<String> staticURLs = new ArrayList<>(loadedURLs);
+		staticURLs.retainAll(STATIC_URLS);
+		functionParametersMap.clear();
+		visitedLibraries.clear();
+		loadedURLs.clear();
+		try {
+			initGlobals();
+			for(String url : staticURLs) {
+				executeScriptFromURL(url);
+			}
+			return true;
+		}
+		catch(Exception ex) {
+			return false;
+		}
+	}
+	
+	
+	private static class CachedScript {
+		
+		CompiledScript script;
+		
+		String source;
+		
+		CachedScript(String source, CompiledScript script) {
+			this.script = script;
+			this.source = source;
+		}
 	}
 }
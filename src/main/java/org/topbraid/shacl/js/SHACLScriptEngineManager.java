@@ -16,6 +16,9 @@
  */
 package org.topbraid.shacl.js;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+
 /**
  * A singleton that uses a ThreadLocal to manage the life cycle of a JSScriptEngine
  * that can be shared for all JavaScript evaluated as part of a SHACL validation.
@@ -24,6 +27,9 @@ package org.topbraid.shacl.js;
  * 
  * It is the responsibility of the caller to make sure that, once the validation has
  * completed, the engine is uninstalled.
+ * If a pool size has been set, uninstalled engines are reset (see {@link JSScriptEngine#reset()})
+ * and kept in a pool of that size, so that the next validation can reuse an engine that has
+ * already loaded its libraries.
  * 
  * @author Holger Knublauch
  */
@@ -33,6 +39,15 @@ public class SHACLScriptEngineManager {
 
 	private static ThreadLocal<JSScriptEngine> engines = new ThreadLocal<>();
 	
+	// The most recently used engines first
+	private static Deque<JSScriptEngine> pool = new ArrayDeque<>();
+	
+	// The factory that has created the engines in the pool
+	private static JSScriptEngineFactory poolFactory;
+	
+	// By default create a new engine for each validation
+	private static int poolSize = 0;
+	
 	
 	public static boolean begin() {
 		if(actives.get() != null) {
@@ -45,20 +60,115 @@ public class SHACLScriptEngineManager {
 	}
 	
 	
+	/**
+	 * Removes all engines from the pool.
+	 */
+	public static void clearPool() {
+		synchronized(pool) {
+			pool.clear();
+		}
+	}
+	
+	
 	public static JSScriptEngine getCurrentEngine() {
 		JSScriptEngine engine = engines.get();
 		if(engine == null) {
-			engine = JSScriptEngineFactory.get().createScriptEngine();
+			engine = acquire();
 			engines.set(engine);
 		}
 		return engine;
 	}
 	
 	
+	/**
+	 * Gets the maximum number of engines that are kept for reuse.
+	 * @return the pool size (0 is default)
+	 */
+	public static int getPoolSize() {
+		return poolSize;
+	}
+	
+	
+	/**
+	 * Creates engines that have executed the scripts from some given URLs and adds them
+	 * to the pool, so that the first validations do not need to load those scripts.
+	 * Has no effect unless a pool size has been set.
+	 * @param count  the number of engines to create, at most the pool size
+	 * @param urls  the URLs of the scripts to execute, e.g. NashornScriptEngine.RDFQUERY_JS
+	 * @throws Exception  if a script could not be executed
+	 */
+	public static void prewarm(int count, String... urls) throws Exception {
+		for(int i = 0; i < count && hasPoolCapacity(); i++) {
+			JSScriptEngine engine = JSScriptEngineFactory.get().createScriptEngine();
+			for(String url : urls) {
+				engine.executeScriptFromURL(url);
+			}
+			release(engine);
+		}
+	}
+	
+	
+	/**
+	 * Sets the maximum number of engines that are kept for reuse.
+	 * @param value  the new pool size or 0 to create a new engine for each validation
+	 */
+	public static void setPoolSize(int value) {
+		synchronized(pool) {
+			poolSize = value;
+			while(pool.size() > value) {
+				pool.removeLast();
+			}
+		}
+	}
+	
+	
 	public static void end(boolean nested) {
 		if(!nested) {
+			JSScriptEngine engine = engines.get();
 			engines.remove();
 			actives.remove();
+			if(engine != null) {
+				release(engine);
+			}
+		}
+	}
+	
+	
+	private static JSScriptEngine acquire() {
+		JSScriptEngineFactory factory = JSScriptEngineFactory.get();
+		synchronized(pool) {
+			if(poolFactory != factory) {
+				pool.clear();
+				poolFactory = factory;
+			}
+			JSScriptEngine engine = pool.pollFirst();
+			if(engine != null) {
+				return engine;
+			}
+		}
+		return factory.createScriptEngine();
+	}
+	
+	
+	// Checks whether another engine can be added to the pool, before the cost of creating or resetting it
+	private static boolean hasPoolCapacity() {
+		synchronized(pool) {
+			if(poolFactory != JSScriptEngineFactory.get()) {
+				pool.clear();
+				poolFactory = JSScriptEngineFactory.get();
+			}
+			return pool.size() < poolSize;
+		}
+	}
+	
+	
+	private static void release(JSScriptEngine engine) {
+		if(hasPoolCapacity() && engine.reset()) {
+			synchronized(pool) {
+				if(poolFactory == JSScriptEngineFactory.get() && pool.size() < poolSize) {
+					pool.addFirst(engine);
+				}
+			}
 		}
 	}
 }
@@ -26,28 +26,42 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
 import org.apache.jena.graph.Triple;
 import org.apache.jena.query.Dataset;
+import org.apache.jena.query.Query;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.rdf.model.Statement;
 import org.topbraid.jenax.progress.ProgressMonitor;
+import org.topbraid.jenax.progress.SynchronizedProgressMonitor;
 import org.topbraid.jenax.statistics.ExecStatistics;
 import org.topbraid.jenax.statistics.ExecStatisticsManager;
 import org.topbraid.jenax.util.JenaDatatypes;
 import org.topbraid.jenax.util.JenaUtil;
 import org.topbraid.jenax.util.RDFLabels;
+import org.topbraid.shacl.arq.functions.HasShapeFunction;
 import org.topbraid.shacl.engine.AbstractEngine;
 import org.topbraid.shacl.engine.Shape;
 import org.topbraid.shacl.engine.ShapesGraph;
 import org.topbraid.shacl.expr.NodeExpression;
 import org.topbraid.shacl.expr.NodeExpressionFactory;
+import org.topbraid.shacl.js.SHACLScriptEngineManager;
 import org.topbraid.shacl.util.OrderComparator;
 import org.topbraid.shacl.util.SHACLUtil;
 import org.topbraid.shacl.validation.ValidationEngine;
 import org.topbraid.shacl.validation.ValidationEngineFactory;
+import org.topbraid.shacl.validation.ValidationRun;
+import org.topbraid.shacl.validation.sparql.QueryCopies;
 import org.topbraid.shacl.vocabulary.SH;
 
 /**
@@ -61,9 +75,30 @@ import org.topbraid.shacl.vocabulary.SH;
  */
 public class RuleEngine extends AbstractEngine {
 	
+	// The new triples of the current round if executed by executeAllToFixpoint, otherwise null
+	private Set<Triple> delta;
+	
+	private ExecutorService executorService;
+	
+	// If not null, only target nodes from this set are processed
+	private Set<Node> focusNodeFilter;
+	
+	private int focusNodeChunkSize = 1000;
+	
 	private Model inferences;
 	
-	private Set<Triple> pending = new HashSet<>();
+	private boolean parallel;
+	
+	// Filled concurrently in parallel mode
+	private Set<Triple> pending = ConcurrentHashMap.newKeySet();
+	
+	// Created for each parallel execution, because the workers must not share the ARQ syntax trees
+	private QueryCopies queryCopies;
+	
+	private List<RuleRoundStatistics> roundStatistics = new ArrayList<>();
+	
+	// The tasks of the current flush segment in parallel mode
+	private List<Future<?>> runningTasks = new ArrayList<>();
 	
 	private Map<Rule,List<Resource>> rule2Conditions = new HashMap<>();
 	
@@ -95,6 +130,51 @@ public class RuleEngine extends AbstractEngine {
 	}
 	
 	
+	/**
+	 * Repeatedly executes all rules until no new triples are inferred, or the maximum number of rounds
+	 * has been reached.
+	 * This uses a semi-naive evaluation: the first round processes all target nodes, while each following
+	 * round only processes the target nodes that were touched by the triples inferred in the previous round,
+	 * i.e. the subjects and objects of those triples and the subjects of triples pointing at them.
+	 * Since rules may also depend on triples further away from their focus nodes, a full round is executed
+	 * once the delta rounds have converged, and the iteration continues if that round infers new triples.
+	 * Statistics about each round can be queried using {@link #getRoundStatistics()}.
+	 * @param maxRounds  the maximum number of rounds
+	 * @return true if a fixpoint has been reached, false if the round limit stopped the execution
+	 * @throws InterruptedException
+	 */
+	public boolean executeAllToFixpoint(int maxRounds) throws InterruptedException {
+		roundStatistics.clear();
+		Set<Node> touched = null;
+		for(int round = 1; round <= maxRounds; round++) {
+			long startTime = System.currentTimeMillis();
+			delta = new HashSet<>();
+			focusNodeFilter = touched;
+			try {
+				executeAll();
+			}
+			finally {
+				focusNodeFilter = null;
+			}
+			Set<Triple> newTriples = delta;
+			delta = null;
+			boolean full = touched == null;
+			roundStatistics.add(new RuleRoundStatistics(round, full, full ? 0 : touched.size(), newTriples.size(), System.currentTimeMillis() - startTime));
+			if(newTriples.isEmpty()) {
+				if(full) {
+					return true;
+				}
+				// Confirm with a full round
+				touched = null;
+			}
+			else {
+				touched = getTouchedNodes(newTriples);
+			}
+		}
+		return false;
+	}
+	
+	
 	/**
 	 * Executes the rules attached to a given list of shapes, either for a dedicated
 	 * focus node or all target nodes of the shapes.
@@ -115,6 +195,30 @@ public class RuleEngine extends AbstractEngine {
 			}
 		});
 		
+		// In parallel mode the workers report the completion of each rule
+		ProgressMonitor oldMonitor = monitor;
+		if(parallel && monitor != null) {
+			monitor = new SynchronizedProgressMonitor(monitor);
+		}
+		if(parallel) {
+			queryCopies = new QueryCopies();
+		}
+		boolean completed = false;
+		try {
+			executeShapesHelper(ruleShapes, focusNode);
+			completed = true;
+		}
+		finally {
+			if(!completed) {
+				discardRunningTasks();
+			}
+			monitor = oldMonitor;
+			queryCopies = null;
+		}
+	}
+	
+	
+	private void executeShapesHelper(List<Shape> ruleShapes, RDFNode focusNode) throws InterruptedException {
 		String baseMessage = null;
 		if(monitor != null) {
 			int rules = 0;
@@ -155,6 +259,15 @@ public class RuleEngine extends AbstractEngine {
 		else {
 			targetNodes = SHACLUtil.getTargetNodes(shape.getShapeResource(), dataset);
 		}
+		if(focusNodeFilter != null) {
+			List<RDFNode> filtered = new ArrayList<>();
+			for(RDFNode targetNode : targetNodes) {
+				if(focusNodeFilter.contains(targetNode.asNode())) {
+					filtered.add(targetNode);
+				}
+			}
+			targetNodes = filtered;
+		}
 		
 		if(!targetNodes.isEmpty()) {
 			Number oldOrder = rules.get(0).getOrder();
@@ -171,7 +284,10 @@ public class RuleEngine extends AbstractEngine {
 					flushPending();
 				}
 				List<Resource> conditions = rule2Conditions.get(rule);
-				if(conditions != null && !conditions.isEmpty()) {
+				if(parallel) {
+					submitRule(rule, targetNodes, conditions, shape);
+				}
+				else if(conditions != null && !conditions.isEmpty()) {
 					List<RDFNode> filtered = new LinkedList<>();
 					for(RDFNode targetNode : targetNodes) {
 						if(nodeConformsToAllShapes(targetNode, conditions)) {
@@ -183,7 +299,7 @@ public class RuleEngine extends AbstractEngine {
 				else {
 					executeRule(rule, targetNodes, shape);
 				}
-				if(monitor != null) {
+				if(monitor != null && !parallel) {
 					monitor.worked(1);
 				}
 			}
@@ -213,18 +329,167 @@ public class RuleEngine extends AbstractEngine {
 	}
 	
 	
-	private void flushPending() {
+	private void submitRule(Rule rule, List<RDFNode> focusNodes, List<Resource> conditions, Shape shape) {
+		
+		// Workers inherit the thread-local state of the calling thread
+		ShapesGraph callerShapesGraph = HasShapeFunction.getShapesGraph();
+		URI callerShapesGraphURI = HasShapeFunction.getShapesGraphURI();
+		ExecutorService executor = executorService != null ? executorService : ForkJoinPool.commonPool();
+		int chunkSize = Math.max(1, focusNodeChunkSize);
+		
+		// The rule counts as worked when its last chunk has finished
+		AtomicInteger remainingChunks = new AtomicInteger((focusNodes.size() + chunkSize - 1) / chunkSize);
+		ProgressMonitor taskMonitor = monitor;
+		for(int start = 0; start < focusNodes.size(); start += chunkSize) {
+			List<RDFNode> chunk = focusNodes.subList(start, Math.min(start + chunkSize, focusNodes.size()));
+			runningTasks.add(executor.submit(() -> {
+				try {
+					executeRuleInWorker(rule, chunk, conditions, shape, callerShapesGraph, callerShapesGraphURI);
+				}
+				finally {
+					if(remainingChunks.decrementAndGet() == 0 && taskMonitor != null) {
+						taskMonitor.worked(1);
+					}
+				}
+			}));
+		}
+	}
+	
+	
+	private void executeRuleInWorker(Rule rule, List<RDFNode> focusNodes, List<Resource> conditions, Shape shape,
+				ShapesGraph callerShapesGraph, URI callerShapesGraphURI) {
+		if(monitor != null && monitor.isCanceled()) {
+			return;
+		}
+		ShapesGraph oldShapesGraph = HasShapeFunction.getShapesGraph();
+		URI oldShapesGraphURI = HasShapeFunction.getShapesGraphURI();
+		HasShapeFunction.setShapesGraph(callerShapesGraph, callerShapesGraphURI);
+		boolean nested = SHACLScriptEngineManager.begin();
+		try {
+			if(conditions != null && !conditions.isEmpty()) {
+				List<RDFNode> filtered = new ArrayList<>();
+				for(RDFNode focusNode : focusNodes) {
+					if(nodeConformsToAllShapes(focusNode, conditions)) {
+						filtered.add(focusNode);
+					}
+				}
+				executeRule(rule, filtered, shape);
+			}
+			else {
+				executeRule(rule, focusNodes, shape);
+			}
+		}
+		finally {
+			SHACLScriptEngineManager.end(nested);
+			HasShapeFunction.setShapesGraph(oldShapesGraph, oldShapesGraphURI);
+		}
+	}
+	
+	
+	// Waits until all tasks of the current flush segment have finished
+	private void awaitRunningTasks() throws InterruptedException {
+		try {
+			for(Future<?> future : runningTasks) {
+				future.get();
+			}
+		}
+		catch(ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if(cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			else if(cause instanceof Error) {
+				throw (Error) cause;
+			}
+			else {
+				throw new IllegalStateException(cause);
+			}
+		}
+		runningTasks.clear();
+		if(monitor != null && monitor.isCanceled()) {
+			throw new InterruptedException();
+		}
+	}
+	
+	
+	// Stops the tasks of an aborted execution and drops their inferences, so that they cannot leak into the next one
+	private void discardRunningTasks() {
+		for(Future<?> future : runningTasks) {
+			future.cancel(false);
+		}
+		try {
+			for(Future<?> future : runningTasks) {
+				if(!future.isCancelled()) {
+					try {
+						future.get();
+					}
+					catch(ExecutionException ex) {
+						// Ignored since the execution has already been aborted
+					}
+				}
+			}
+		}
+		catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		runningTasks.clear();
+		pending.clear();
+	}
+	
+	
+	private void flushPending() throws InterruptedException {
+		awaitRunningTasks();
+		Graph dataGraph = dataset.getDefaultModel().getGraph();
 		for(Triple triple : pending) {
+			if(delta != null && !dataGraph.contains(triple) && !inferences.getGraph().contains(triple)) {
+				delta.add(triple);
+			}
 			inferences.add(inferences.asStatement(triple));
 		}
 		pending.clear();
 	}
+	
+	
+	/**
+	 * Gets the ExecutorService that runs the tasks of parallel rule execution.
+	 * @return the ExecutorService or null if the common ForkJoinPool is used (default)
+	 */
+	public ExecutorService getExecutorService() {
+		return executorService;
+	}
+	
+	
+	/**
+	 * Gets the maximum number of focus nodes that a single task of parallel rule execution processes.
+	 * @return the chunk size (1000 is default)
+	 */
+	public int getFocusNodeChunkSize() {
+		return focusNodeChunkSize;
+	}
+	
+	
+	public List<RuleRoundStatistics> getRoundStatistics() {
+		return roundStatistics;
+	}
 
 
+	private Set<Node> getTouchedNodes(Set<Triple> triples) {
+		Set<Node> results = new HashSet<>();
+		for(Triple triple : triples) {
+			results.add(triple.getSubject());
+			results.add(triple.getObject());
+		}
+		Graph dataGraph = dataset.getDefaultModel().getGraph();
+		for(Node node : new ArrayList<>(results)) {
+			dataGraph.find(Node.ANY, Node.ANY, node).forEachRemaining(t -> results.add(t.getSubject()));
+		}
+		return results;
+	}
+	
+	
 	private List<Rule> getShapeRules(Shape shape) {
 		return shape2Rules.computeIfAbsent(shape, s2 -> {
 			List<Rule> rules = new LinkedList<>();
-			shape2Rules.put(shape, rules);
 			List<Resource> raws = new LinkedList<>();
 			for(Statement s : shape.getShapeResource().listProperties(SH.rule).toList()) {
 				if(s.getObject().isResource() && !s.getResource().hasProperty(SH.deactivated, JenaDatatypes.TRUE)) {
@@ -277,6 +542,7 @@ public class RuleEngine extends AbstractEngine {
 	private boolean nodeConformsToAllShapes(RDFNode focusNode, Iterable<Resource> shapes) {
 		for(Resource shape : shapes) {
 			ValidationEngine engine = ValidationEngineFactory.get().create(dataset, shapesGraphURI, shapesGraph, null);
+			engine.setRun(new ValidationRun(engine.getConfiguration(), queryCopies));
 			if(!engine.nodesConformToShape(Collections.singletonList(focusNode), shape.asNode())) {
 				return false;
 			}
@@ -285,6 +551,58 @@ public class RuleEngine extends AbstractEngine {
 	}
 	
 	
+	/**
+	 * Gets the version of a shared query that the current thread may execute, i.e. the query itself
+	 * unless other threads of a parallel execution may execute it at the same time.
+	 * @param query  the shared query
+	 * @return query or a copy of it for the current thread
+	 */
+	public Query getLocalQuery(Query query) {
+		return queryCopies != null ? queryCopies.get(query) : query;
+	}
+	
+	
+	/**
+	 * Checks whether the rules are executed by multiple threads, see {@link #setParallel(boolean)}.
+	 * @return true for parallel execution (false is default)
+	 */
+	public boolean isParallel() {
+		return parallel;
+	}
+	
+	
+	/**
+	 * Sets the ExecutorService that shall run the tasks of parallel rule execution.
+	 * The engine does not shut down the ExecutorService.
+	 * @param executorService  the ExecutorService or null to use the common ForkJoinPool
+	 */
+	public void setExecutorService(ExecutorService executorService) {
+		this.executorService = executorService;
+	}
+	
+	
+	/**
+	 * Sets the maximum number of focus nodes that a single task of parallel rule execution processes.
+	 * @param focusNodeChunkSize  the chunk size (1000 is default)
+	 */
+	public void setFocusNodeChunkSize(int focusNodeChunkSize) {
+		this.focusNodeChunkSize = focusNodeChunkSize;
+	}
+	
+	
+	/**
+	 * Specifies whether the rules shall be executed by multiple threads.
+	 * In parallel mode, all rules between two sh:order boundaries are split into tasks for chunks of
+	 * their focus nodes.  Since inferred triples are only added to the inferences Model at those boundaries,
+	 * these tasks are independent from each other, and the engine waits for all of them to finish before
+	 * it flushes the inferences and moves on.  The results are therefore the same as for sequential execution.
+	 * @param parallel  true for parallel execution
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+	
+	
 	@Override
     public void setProgressMonitor(ProgressMonitor value) {
 		this.monitor = value;
@@ -0,0 +1,96 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.rules;
+
+/**
+ * Statistics about a single round of fixpoint rule execution, see
+ * {@link RuleEngine#executeAllToFixpoint(int)}.
+ */
+public class RuleRoundStatistics {
+	
+	private long duration;
+	
+	private boolean full;
+	
+	private int inferredTriples;
+	
+	private int round;
+	
+	private int touchedNodes;
+	
+	
+	public RuleRoundStatistics(int round, boolean full, int touchedNodes, int inferredTriples, long duration) {
+		this.duration = duration;
+		this.full = full;
+		this.inferredTriples = inferredTriples;
+		this.round = round;
+		this.touchedNodes = touchedNodes;
+	}
+	
+	
+	/**
+	 * Gets the duration of the round in milliseconds.
+	 * @return the duration
+	 */
+	public long getDuration() {
+		return duration;
+	}
+	
+	
+	/**
+	 * Gets the number of triples that were inferred in this round and did not exist before.
+	 * @return the number of new triples
+	 */
+	public int getInferredTripleCount() {
+		return inferredTriples;
+	}
+	
+	
+	/**
+	 * Gets the number of the round, starting with 1.
+	 * @return the round number
+	 */
+	public int getRound() {
+		return round;
+	}
+	
+	
+	/**
+	 * Gets the number of nodes that the rules were restricted to in a delta round.
+	 * @return the number of touched nodes or 0 for full rounds
+	 */
+	public int getTouchedNodeCount() {
+		return touchedNodes;
+	}
+	
+	
+	/**
+	 * Checks whether this round has executed the rules for all target nodes,
+	 * as opposed to only those touched by the previous round's delta.
+	 * @return true for full rounds
+	 */
+	public boolean isFullRound() {
+		return full;
+	}
+	
+	
+	@Override
+	public String toString() {
+		return "Round " + round + (full ? " (full)" : " (" + touchedNodes + " touched nodes)") +
+				": " + inferredTriples + " new triples in " + duration + " ms";
+	}
+}
@@ -60,7 +60,30 @@ public class RuleUtil {
 	 * @return the Model of inferred triples (i.e. inferencesModel if not null, or a new Model)
 	 */
 	public static Model executeRules(Model dataModel, Model shapesModel, Model inferencesModel, ProgressMonitor monitor) {
-		return executeRulesHelper(dataModel, null, shapesModel, inferencesModel, monitor);
+		return executeRulesHelper(dataModel, null, shapesModel, inferencesModel, monitor, 0);
+	}
+	
+	
+	/**
+	 * Executes all rules from a given shapes Model on a given data Model, repeating the execution
+	 * until no new triples are inferred (or the round limit has been reached).
+	 * This makes sure that rules also see the inferences of rules with the same (or a higher)
+	 * sh:order, including recursive rules.
+	 * If inferencesModel is not null then it must be part of the dataModel (e.g. a sub-graph)
+	 * of a Jena MultiUnion object, because otherwise later rounds do not see the inferences
+	 * of earlier rounds and the execution stops before the fixpoint has been reached.
+	 * Otherwise, the function will create a new inferences Model which is merged with the
+	 * dataModel for the duration of the execution.
+	 * See {@link RuleEngine#executeAllToFixpoint(int)} for details on the semi-naive evaluation.
+	 * @param dataModel  the data Model
+	 * @param shapesModel  the shapes Model
+	 * @param inferencesModel  the Model for the inferred triples or null
+	 * @param monitor  an optional progress monitor
+	 * @param maxRounds  the maximum number of rounds
+	 * @return the Model of inferred triples (i.e. inferencesModel if not null, or a new Model)
+	 */
+	public static Model executeRulesToFixpoint(Model dataModel, Model shapesModel, Model inferencesModel, ProgressMonitor monitor, int maxRounds) {
+		return executeRulesHelper(dataModel, null, shapesModel, inferencesModel, monitor, maxRounds);
 	}
 
 
@@ -79,11 +102,11 @@ public class RuleUtil {
 	 * @return the Model of inferred triples (i.e. inferencesModel if not null, or a new Model)
 	 */	
 	public static Model executeRules(RDFNode focusNode, Model shapesModel, Model inferencesModel, ProgressMonitor monitor) {
-		return executeRulesHelper(focusNode.getModel(), focusNode, shapesModel, inferencesModel, monitor);
+		return executeRulesHelper(focusNode.getModel(), focusNode, shapesModel, inferencesModel, monitor, 0);
 	}
 	
 	
-	private static Model executeRulesHelper(Model dataModel, RDFNode focusNode, Model shapesModel, Model inferencesModel, ProgressMonitor monitor) {
+	private static Model executeRulesHelper(Model dataModel, RDFNode focusNode, Model shapesModel, Model inferencesModel, ProgressMonitor monitor, int maxRounds) {
 
 		// Ensure that the SHACL, DASH and TOSH graphs are present in the shapes Model
 		if(!shapesModel.contains(TOSH.hasShape, RDF.type, (RDFNode)null)) { // Heuristic
@@ -121,7 +144,12 @@ public class RuleUtil {
 		try {
 			engine.applyEntailments();
 			if(focusNode == null) {
-				engine.executeAll();
+				if(maxRounds > 0) {
+					engine.executeAllToFixpoint(maxRounds);
+				}
+				else {
+					engine.executeAll();
+				}
 			}
 			else {
 				List<Shape> shapes = getShapesWithTargetNode(focusNode, shapesGraph);
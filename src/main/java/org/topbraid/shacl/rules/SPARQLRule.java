@@ -61,7 +61,7 @@ public class SPARQLRule extends AbstractRule {
 
 			QuerySolutionMap bindings = new QuerySolutionMap();
 			bindings.add(SH.thisVar.getVarName(), focusNode);
-			try(QueryExecution qexec = ARQFactory.get().createQueryExecution(query, ruleEngine.getDataset(), bindings)) {
+			try(QueryExecution qexec = ARQFactory.get().createQueryExecution(ruleEngine.getLocalQuery(query), ruleEngine.getDataset(), bindings)) {
 				Iterator<Triple> it = qexec.execConstructTriples();
 				while(it.hasNext()) {
 					Triple triple = it.next();
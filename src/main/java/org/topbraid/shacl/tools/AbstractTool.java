@@ -16,84 +16,377 @@
  */
 package org.topbraid.shacl.tools;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.GZIPInputStream;
 
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.GraphUtil;
+import org.apache.jena.graph.Triple;
 import org.apache.jena.ontology.OntDocumentManager;
 import org.apache.jena.ontology.OntModel;
 import org.apache.jena.ontology.OntModelSpec;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
-import org.apache.jena.util.FileUtils;
-import org.topbraid.jenax.util.JenaUtil;
-import org.topbraid.jenax.util.SystemTriples;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFLanguages;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.riot.system.StreamOps;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFBase;
+import org.apache.jena.sparql.core.Quad;
+import org.topbraid.jenax.util.ChunkedRDFParser;
+import org.topbraid.jenax.util.GraphSnapshot;
 import org.topbraid.shacl.util.SHACLSystemModel;
-import org.topbraid.shacl.vocabulary.DASH;
-import org.topbraid.shacl.vocabulary.SH;
-import org.topbraid.shacl.vocabulary.TOSH;
 
+/**
+ * Base class of the command line tools, with support for the shared arguments:
+ * 
+ * 		-datafile  a data file, may be repeated to merge multiple files
+ * 		-shapesfile  an optional shapes file, may be repeated
+ * 		-threads  the number of threads for parsing and processing (default: 1)
+ * 		-stats  to print statistics and a timing breakdown to stderr
+ * 
+ * Files are parsed based on their extension (defaulting to Turtle) and may be gzip compressed
+ * (.gz).  N-Triples and N-Quads files are parsed in parallel chunks if more than one thread is used.
+ * Snapshot files (see {@link GraphSnapshot}) are memory-mapped.
+ * 
+ * @author Holger Knublauch
+ */
 class AbstractTool {
 
+	private final static String BASE_URI = "urn:x-base";
+
 	private final static String DATA_FILE = "-datafile";
 	
 	private final static String SHAPES_FILE = "-shapesfile";
+	
+	private final static String STATS = "-stats";
+	
+	private final static String THREADS = "-threads";
+	
+	private final static String GZIP_SUFFIX = ".gz";
 
 	
 	private OntDocumentManager dm = new OntDocumentManager();
 	
 	private OntModelSpec spec = new OntModelSpec(OntModelSpec.OWL_MEM);
 	
+	// Created on demand if more than one thread shall be used
+	private ExecutorService executorService;
+	
+	// The entries printed by printStatistics, in insertion order
+	private Map<String,Object> statistics = new LinkedHashMap<>();
+	
+	// The durations of the phases in nanoseconds, in insertion order
+	private Map<String,Long> times = new LinkedHashMap<>();
+	
+	private int threads = 1;
+	
 	
 	AbstractTool() {
-		
-		InputStream shaclTTL = SHACLSystemModel.class.getResourceAsStream("/rdf/shacl.ttl");
-		Model shacl = JenaUtil.createMemoryModel();
-		shacl.read(shaclTTL, SH.BASE_URI, FileUtils.langTurtle);
-		shacl.add(SystemTriples.getVocabularyModel());
-		dm.addModel(SH.BASE_URI, shacl);
-		
-		InputStream dashTTL = SHACLSystemModel.class.getResourceAsStream("/rdf/dash.ttl");
-		Model dash = JenaUtil.createMemoryModel();
-		dash.read(dashTTL, SH.BASE_URI, FileUtils.langTurtle);
-		dm.addModel(DASH.BASE_URI, dash);
-		
-		InputStream toshTTL = SHACLSystemModel.class.getResourceAsStream("/rdf/tosh.ttl");
-		Model tosh = JenaUtil.createMemoryModel();
-		tosh.read(toshTTL, SH.BASE_URI, FileUtils.langTurtle);
-		dm.addModel(TOSH.BASE_URI, tosh);
-		
+		for(Map.Entry<String,Model> entry : SHACLSystemModel.getDocumentModels().entrySet()) {
+			dm.addModel(entry.getKey(), entry.getValue());
+		}
 		spec.setDocumentManager(dm);
 	}
 	
 	
+	/**
+	 * Adds a duration to the given phase of the timing breakdown.
+	 * @param phase  the name of the phase, e.g. "parse"
+	 * @param nanos  the duration in nanoseconds
+	 */
+	protected void addTime(String phase, long nanos) {
+		times.merge(phase, nanos, Long::sum);
+	}
+	
+	
+	/**
+	 * Sets a value that shall be printed by {@link #printStatistics(String[])}.
+	 * @param name  the name of the statistic
+	 * @param value  the value
+	 */
+	protected void addStatistic(String name, Object value) {
+		statistics.put(name, value);
+	}
+	
+	
 	protected Model getDataModel(String[] args) throws IOException {
+		List<String> fileNames = getOptionValues(args, DATA_FILE);
+		if(fileNames.isEmpty()) {
+			System.err.println("Missing -datafile, e.g.: -datafile myfile.ttl");
+			System.exit(0);
+			return null;
+		}
+		initThreads(args);
+		long startTime = System.nanoTime();
+		OntModel model = readModel(fileNames);
+		addTime("parse", System.nanoTime() - startTime);
+		addStatistic("data files", fileNames.size());
+		addStatistic("data triples", model.getBaseModel().size());
+		return model;
+	}
+	
+	
+	/**
+	 * Sends the triples of all data files to a given StreamRDF instead of loading them into a Model,
+	 * e.g. to process data that does not fit into memory.
+	 * Unlike {@link #getDataModel(String[])}, this does not load the owl:imports.
+	 * @param args  the command line arguments
+	 * @param stream  the StreamRDF to send the triples to (start and finish are not called)
+	 * @throws IOException  if a file could not be read
+	 */
+	protected void sendData(String[] args, StreamRDF stream) throws IOException {
+		List<String> fileNames = getOptionValues(args, DATA_FILE);
+		if(fileNames.isEmpty()) {
+			System.err.println("Missing -datafile, e.g.: -datafile myfile.ttl");
+			System.exit(0);
+			return;
+		}
+		initThreads(args);
+		for(String fileName : fileNames) {
+			File file = new File(fileName);
+			if(GraphSnapshot.isSnapshot(file)) {
+				StreamOps.sendTriplesToStream(GraphSnapshot.open(file), stream);
+			}
+			else {
+				readFile(file, stream);
+			}
+		}
+		addStatistic("data files", fileNames.size());
+	}
+	
+	
+	/**
+	 * Gets an ExecutorService with the number of threads specified by the -threads argument.
+	 * @param args  the command line arguments
+	 * @return the ExecutorService or null if only a single thread shall be used
+	 */
+	protected ExecutorService getExecutorService(String[] args) {
+		initThreads(args);
+		return getExecutorService();
+	}
+	
+	
+	private ExecutorService getExecutorService() {
+		if(threads > 1 && executorService == null) {
+			executorService = new ForkJoinPool(threads);
+		}
+		return executorService;
+	}
+	
+	
+	/**
+	 * Gets the value of a given argument, e.g. "-format".
+	 * @param args  the command line arguments
+	 * @param name  the name of the argument
+	 * @param defaultValue  the value to return if the argument is not present
+	 * @return the (last) value of the argument or defaultValue
+	 */
+	protected String getOptionValue(String[] args, String name, String defaultValue) {
+		List<String> values = getOptionValues(args, name);
+		return values.isEmpty() ? defaultValue : values.get(values.size() - 1);
+	}
+	
+	
+	/**
+	 * Gets all values of a given argument that may be repeated, e.g. "-datafile".
+	 * @param args  the command line arguments
+	 * @param name  the name of the argument
+	 * @return the values in the order of the arguments
+	 */
+	protected List<String> getOptionValues(String[] args, String name) {
+		List<String> values = new ArrayList<>();
 		for(int i = 0; i < args.length - 1; i++) {
-			if(DATA_FILE.equals(args[i])) {
-				String dataFileName = args[i + 1];
-				OntModel dataModel = ModelFactory.createOntologyModel(spec);
-				File dataFile = new File(dataFileName);
-				dataModel.read(new FileInputStream(dataFile), "urn:x-base", FileUtils.langTurtle);
-				return dataModel;
+			if(name.equals(args[i])) {
+				values.add(args[++i]);
 			}
 		}
-		System.err.println("Missing -datafile, e.g.: -datafile myfile.ttl");
-		System.exit(0);
-		return null;
+		return values;
 	}
 	
 	
 	protected Model getShapesModel(String[] args) throws IOException {
-		for(int i = 0; i < args.length - 1; i++) {
-			if(SHAPES_FILE.equals(args[i])) {
-				String fileName = args[i + 1];
-				OntModel model = ModelFactory.createOntologyModel(spec);
-				File dataFile = new File(fileName);
-				model.read(new FileInputStream(dataFile), "urn:x-base", FileUtils.langTurtle);
-				return model;
+		List<String> fileNames = getOptionValues(args, SHAPES_FILE);
+		if(fileNames.isEmpty()) {
+			return null;
+		}
+		initThreads(args);
+		long startTime = System.nanoTime();
+		OntModel model = readModel(fileNames);
+		addTime("parse", System.nanoTime() - startTime);
+		addStatistic("shapes triples", model.getBaseModel().size());
+		return model;
+	}
+	
+	
+	protected boolean hasOption(String[] args, String name) {
+		for(String arg : args) {
+			if(name.equals(arg)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	
+	private void initThreads(String[] args) {
+		threads = Math.max(1, getIntOptionValue(args, THREADS, threads));
+	}
+	
+	
+	/**
+	 * Gets the integer value of a given argument, e.g. "-threads".
+	 * Exits with a message if the value is not an integer.
+	 * @param args  the command line arguments
+	 * @param name  the name of the argument
+	 * @param defaultValue  the value to return if the argument is not present
+	 * @return the (last) value of the argument or defaultValue
+	 */
+	protected int getIntOptionValue(String[] args, String name, int defaultValue) {
+		String value = getOptionValue(args, name, null);
+		if(value != null) {
+			try {
+				return Integer.parseInt(value);
+			}
+			catch(NumberFormatException ex) {
+				System.err.println("Invalid " + name + ", e.g.: " + name + " 4");
+				System.exit(0);
+			}
+		}
+		return defaultValue;
+	}
+	
+	
+	/**
+	 * Prints the statistics and the timing breakdown to stderr, if the -stats argument is present.
+	 * @param args  the command line arguments
+	 */
+	protected void printStatistics(String[] args) {
+		if(hasOption(args, STATS)) {
+			addStatistic("threads", threads);
+			for(Map.Entry<String,Object> entry : statistics.entrySet()) {
+				System.err.println(String.format("%-24s %12s", entry.getKey() + ":", entry.getValue()));
+			}
+			long total = 0;
+			for(Map.Entry<String,Long> entry : times.entrySet()) {
+				System.err.println(String.format("%-24s %9d ms", entry.getKey() + " time:", entry.getValue() / 1000000));
+				total += entry.getValue();
+			}
+			System.err.println(String.format("%-24s %9d ms", "total time:", total / 1000000));
+		}
+	}
+	
+	
+	/**
+	 * Reads a file into an OntModel that also includes the owl:imports.
+	 * See {@link #readModel(List)} for the supported file types.
+	 * @param fileName  the name of the file
+	 * @return a new OntModel with the file as its base Model
+	 * @throws IOException  if the file could not be read
+	 */
+	protected OntModel readModel(String fileName) throws IOException {
+		List<String> fileNames = new ArrayList<>();
+		fileNames.add(fileName);
+		return readModel(fileNames);
+	}
+	
+	
+	/**
+	 * Reads one or more files into an OntModel that also includes the owl:imports.
+	 * Snapshot files (see {@link GraphSnapshot}) are memory-mapped instead of parsed, and if
+	 * a snapshot is the only file then the Model is read-only.
+	 * Other files are parsed based on their file extension, defaulting to Turtle, and may be
+	 * compressed with gzip.
+	 * @param fileNames  the names of the files
+	 * @return a new OntModel with the (merged) files as its base Model
+	 * @throws IOException  if a file could not be read
+	 */
+	protected OntModel readModel(List<String> fileNames) throws IOException {
+		if(fileNames.size() == 1) {
+			File file = new File(fileNames.get(0));
+			if(GraphSnapshot.isSnapshot(file)) {
+				Model base = ModelFactory.createModelForGraph(GraphSnapshot.open(file));
+				return ModelFactory.createOntologyModel(spec, base);
+			}
+		}
+		OntModel model = ModelFactory.createOntologyModel(spec);
+		Model base = model.getBaseModel();
+		for(String fileName : fileNames) {
+			File file = new File(fileName);
+			if(GraphSnapshot.isSnapshot(file)) {
+				GraphUtil.addInto(base.getGraph(), GraphSnapshot.open(file));
+			}
+			else {
+				readFile(file, base);
+			}
+		}
+		model.loadImports();
+		return model;
+	}
+	
+	
+	private void readFile(File file, Model base) throws IOException {
+		Graph graph = base.getGraph();
+		readFile(file, new StreamRDFBase() {
+
+			@Override
+			public void prefix(String prefix, String iri) {
+				graph.getPrefixMapping().setNsPrefix(prefix, iri);
+			}
+
+			@Override
+			public void triple(Triple triple) {
+				graph.add(triple);
+			}
+		});
+	}
+	
+	
+	private void readFile(File file, StreamRDF stream) throws IOException {
+		String name = file.getName();
+		boolean gzip = name.endsWith(GZIP_SUFFIX);
+		if(gzip) {
+			name = name.substring(0, name.length() - GZIP_SUFFIX.length());
+		}
+		Lang lang = RDFLanguages.filenameToLang(name, Lang.TURTLE);
+		try(InputStream in = gzip ? 
+				new GZIPInputStream(new FileInputStream(file), 1 << 16) : 
+				new BufferedInputStream(new FileInputStream(file), 1 << 16)) {
+			ExecutorService executor = ChunkedRDFParser.isSupported(lang) ? getExecutorService() : null;
+			if(executor != null) {
+				ChunkedRDFParser.parse(in, lang, stream, executor, threads, ChunkedRDFParser.DEFAULT_CHUNK_SIZE);
+			}
+			else {
+				RDFParser.create().source(in).lang(lang).base(BASE_URI).parse(new StreamRDFBase() {
+
+					@Override
+					public void prefix(String prefix, String iri) {
+						stream.prefix(prefix, iri);
+					}
+
+					@Override
+					public void triple(Triple triple) {
+						stream.triple(triple);
+					}
+
+					// Named graphs are merged, like in ChunkedRDFParser
+					@Override
+					public void quad(Quad quad) {
+						stream.triple(quad.asTriple());
+					}
+				});
 			}
 		}
-		return null;
 	}
 }
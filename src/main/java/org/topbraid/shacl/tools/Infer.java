@@ -16,10 +16,14 @@
  */
 package org.topbraid.shacl.tools;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 
 import org.apache.jena.rdf.model.Model;
-import org.apache.jena.util.FileUtils;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFLanguages;
 import org.topbraid.shacl.rules.RuleUtil;
 
 /**
@@ -29,10 +33,16 @@ import org.topbraid.shacl.rules.RuleUtil;
  * 
  * 		-datafile my.ttl
  * 
+ * In addition to the arguments described in {@link AbstractTool}, the output format
+ * of the inferences can be selected using -format (default: turtle).
+ * 
  * @author Holger Knublauch
  */
 public class Infer extends AbstractTool {
 	
+	private final static String FORMAT = "-format";
+	
+	
 	public static void main(String[] args) throws IOException {
 		new Infer().run(args);
 	}
@@ -44,7 +54,23 @@ public class Infer extends AbstractTool {
 		if(shapesModel == null) {
 			shapesModel = dataModel;
 		}
+		Lang lang = RDFLanguages.nameToLang(getOptionValue(args, FORMAT, "turtle"));
+		if(lang == null) {
+			System.err.println("Unsupported -format, e.g.: -format turtle");
+			System.exit(0);
+		}
+		
+		long startTime = System.nanoTime();
 		Model results = RuleUtil.executeRules(dataModel, shapesModel, null, null);
-		results.write(System.out, FileUtils.langTurtle);
+		addTime("inference", System.nanoTime() - startTime);
+		
+		startTime = System.nanoTime();
+		OutputStream out = new BufferedOutputStream(System.out, 1 << 16);
+		RDFDataMgr.write(out, results, lang);
+		out.flush();
+		addTime("serialization", System.nanoTime() - startTime);
+		
+		addStatistic("inferred triples", results.size());
+		printStatistics(args);
 	}
 }
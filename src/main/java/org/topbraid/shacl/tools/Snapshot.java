@@ -0,0 +1,55 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.tools;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.jena.ontology.OntModel;
+import org.topbraid.jenax.util.GraphSnapshot;
+
+/**
+ * Stand-alone utility to convert a Turtle file into a snapshot file, which can then be
+ * used instead of the Turtle file as -datafile or -shapesfile of the other tools.
+ * The snapshot only contains the triples of the file itself, not its owl:imports.
+ *
+ * Example arguments:
+ * 
+ * 		-datafile my.ttl -snapshotfile my.snapshot
+ */
+public class Snapshot extends AbstractTool {
+	
+	private final static String SNAPSHOT_FILE = "-snapshotfile";
+	
+	
+	public static void main(String[] args) throws IOException {
+		new Snapshot().run(args);
+	}
+	
+	
+	private void run(String[] args) throws IOException {
+		OntModel dataModel = (OntModel) getDataModel(args);
+		for(int i = 0; i < args.length - 1; i++) {
+			if(SNAPSHOT_FILE.equals(args[i])) {
+				GraphSnapshot.write(dataModel.getBaseModel().getGraph(), new File(args[i + 1]));
+				return;
+			}
+		}
+		System.err.println("Missing -snapshotfile, e.g.: -snapshotfile my.snapshot");
+		System.exit(0);
+	}
+}
@@ -16,13 +16,29 @@
  */
 package org.topbraid.shacl.tools;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.Resource;
-import org.apache.jena.util.FileUtils;
+import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.RDFLanguages;
 import org.topbraid.jenax.util.JenaDatatypes;
+import org.topbraid.jenax.util.JenaUtil;
+import org.topbraid.shacl.validation.PartitionedValidator;
+import org.topbraid.shacl.validation.ValidationEngine;
+import org.topbraid.shacl.validation.ValidationEngineConfiguration;
+import org.topbraid.shacl.validation.ValidationResultSink;
 import org.topbraid.shacl.validation.ValidationUtil;
+import org.topbraid.shacl.validation.sinks.JSONLinesResultSink;
+import org.topbraid.shacl.validation.sinks.RDFStreamResultSink;
 import org.topbraid.shacl.vocabulary.SH;
 
 /**
@@ -32,27 +48,202 @@ import org.topbraid.shacl.vocabulary.SH;
  * 
  * 		-datafile my.ttl
  * 
+ * In addition to the arguments described in {@link AbstractTool}, the output format can be
+ * selected using -format.  The formats ntriples, turtle-blocks and jsonl stream each result
+ * as soon as it has been produced, while any other RDF format (default: turtle) writes the
+ * complete report at the end.
+ * With -partitions N, the data is validated in N partitions, see {@link PartitionedValidator}.
+ * In this mode the data files are partitioned while they are parsed, without loading them
+ * into a Model.  The shapes must then be provided with -shapesfile, and the owl:imports of
+ * the data files are not loaded.
+ * 
+ * The exit code is 1 if the data does not conform, and 2 if the validation has been interrupted.
+ * 
  * @author Holger Knublauch
  */
 public class Validate extends AbstractTool {
 	
+	private final static String FORMAT = "-format";
+	
+	private final static String JSONL = "jsonl";
+	
+	private final static String NTRIPLES = "ntriples";
+	
+	private final static String PARTITIONS = "-partitions";
+	
+	private final static String TURTLE_BLOCKS = "turtle-blocks";
+	
+	
+	// The number of results for each severity
+	private Map<Resource,Integer> severityCounts = new LinkedHashMap<>();
+	
+	
 	public static void main(String[] args) throws IOException {
 		new Validate().run(args);
 	}
 	
 	
 	private void run(String[] args) throws IOException {
-		Model dataModel = getDataModel(args);
+		int partitions = getIntOptionValue(args, PARTITIONS, 0);
+		Model dataModel = partitions > 0 ? null : getDataModel(args);
 		Model shapesModel = getShapesModel(args);
 		if(shapesModel == null) {
+			if(dataModel == null) {
+				System.err.println("Missing -shapesfile, which is required with " + PARTITIONS);
+				System.exit(0);
+			}
 			shapesModel = dataModel;
 		}
-		Resource report = ValidationUtil.validateModel(dataModel, shapesModel, true);
-		report.getModel().write(System.out, FileUtils.langTurtle);
+		
+		ValidationEngineConfiguration configuration = new ValidationEngineConfiguration().setValidateShapes(true);
+		ExecutorService executor = getExecutorService(args);
+		if(executor != null) {
+			configuration.setParallelValidation(true).setExecutorService(executor);
+		}
+		
+		OutputStream out = new BufferedOutputStream(System.out, 1 << 16);
+		String format = getOptionValue(args, FORMAT, "turtle");
+		ValidationResultSink streamingSink = createStreamingSink(format, out, dataModel != null ? dataModel : shapesModel);
+		Lang lang = null;
+		if(streamingSink == null) {
+			lang = RDFLanguages.nameToLang(format);
+			if(lang == null) {
+				System.err.println("Unsupported -format, e.g.: -format turtle, " + NTRIPLES + ", " + TURTLE_BLOCKS + " or " + JSONL);
+				System.exit(0);
+			}
+		}
+		TimingResultSink sink = streamingSink != null ? new TimingResultSink(streamingSink) : null;
+
+		long startTime = System.nanoTime();
+		long targetResolutionTime = 0;
+		long parseTime = 0;
+		Resource report;
+		try {
+			if(partitions > 0) {
+				PartitionedValidator validator = new PartitionedValidator(ValidationUtil.compileShapesGraph(shapesModel, true), configuration, partitions);
+				validator.setResultSink(sink);
+				long[] partitionTime = new long[1];
+				report = validator.validate(stream -> {
+					long parseStartTime = System.nanoTime();
+					sendData(args, stream);
+					partitionTime[0] = System.nanoTime() - parseStartTime;
+				});
+				// Includes writing the partition files
+				parseTime = partitionTime[0];
+				addTime("parse", parseTime);
+				addStatistic("data triples", validator.getTripleCount());
+				addStatistic("global triples", validator.getGlobalTripleCount());
+				addStatistic("partitions", partitions);
+				addStatistic("local constraints", validator.getLocalConstraintCount());
+			}
+			else {
+				ValidationEngine engine = ValidationUtil.createValidationEngine(dataModel, shapesModel, configuration);
+				engine.setResultSink(sink);
+				engine.applyEntailments();
+				report = engine.validateAll();
+				targetResolutionTime = engine.getTargetResolutionTime();
+			}
+		}
+		catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			out.flush();
+			System.err.println("Validation has been interrupted");
+			System.exit(2);
+			return;
+		}
+		long validationTime = System.nanoTime() - startTime - parseTime;
+		long serializationTime;
+		if(sink != null) {
+			serializationTime = sink.time;
+		}
+		else {
+			for(Statement s : report.listProperties(SH.result).toList()) {
+				countResult(s.getResource());
+			}
+			startTime = System.nanoTime();
+			RDFDataMgr.write(out, report.getModel(), lang);
+			out.flush();
+			serializationTime = System.nanoTime() - startTime;
+		}
+		addTime("target resolution", targetResolutionTime);
+		// With a streaming sink, the results are serialized during validation
+		addTime("validation", validationTime - targetResolutionTime - (sink != null ? serializationTime : 0));
+		addTime("serialization", serializationTime);
+		
+		int results = 0;
+		for(Integer count : severityCounts.values()) {
+			results += count;
+		}
+		addStatistic("results", results);
+		for(Map.Entry<Resource,Integer> entry : severityCounts.entrySet()) {
+			addStatistic(entry.getKey().getLocalName() + " results", entry.getValue());
+		}
+		boolean conforms = !report.hasProperty(SH.conforms, JenaDatatypes.FALSE);
+		addStatistic("conforms", conforms);
+		printStatistics(args);
 
-		if(report.hasProperty(SH.conforms, JenaDatatypes.FALSE)) {
+		if(!conforms) {
 			// See https://github.com/TopQuadrant/shacl/issues/56
 			System.exit(1);
 		}
 	}
+	
+	
+	private void countResult(Resource result) {
+		Resource severity = JenaUtil.getResourceProperty(result, SH.resultSeverity);
+		severityCounts.merge(severity != null ? severity : SH.Violation, 1, Integer::sum);
+	}
+	
+	
+	private ValidationResultSink createStreamingSink(String format, OutputStream out, Model prefixes) {
+		if(NTRIPLES.equals(format)) {
+			return new RDFStreamResultSink(out, RDFFormat.NTRIPLES, null);
+		}
+		else if(TURTLE_BLOCKS.equals(format)) {
+			return new RDFStreamResultSink(out, RDFFormat.TURTLE_BLOCKS, prefixes);
+		}
+		else if(JSONL.equals(format)) {
+			return new JSONLinesResultSink(out);
+		}
+		else {
+			return null;
+		}
+	}
+	
+	
+	// Measures the time spent in a delegate sink (i.e. for serialization) and counts the results
+	private class TimingResultSink implements ValidationResultSink {
+		
+		private ValidationResultSink delegate;
+		
+		private long time;
+		
+		
+		TimingResultSink(ValidationResultSink delegate) {
+			this.delegate = delegate;
+		}
+		
+
+		@Override
+		public void addResult(Resource result) {
+			countResult(result);
+			long startTime = System.nanoTime();
+			delegate.addResult(result);
+			time += System.nanoTime() - startTime;
+		}
+
+
+		@Override
+		public boolean conforms() {
+			return delegate.conforms();
+		}
+
+
+		@Override
+		public void finish(Resource report) {
+			long startTime = System.nanoTime();
+			delegate.finish(report);
+			time += System.nanoTime() - startTime;
+		}
+	}
 }
@@ -28,28 +28,54 @@ import org.apache.jena.graph.Node;
  */
 public class RecursionGuard {
 	
-	private static ThreadLocal<Set<Call>> sets = new ThreadLocal<Set<Call>>();
+	private static ThreadLocal<State> states = ThreadLocal.withInitial(State::new);
+	
+	
+	/**
+	 * Gets the number of recursions that have been detected by start() on the current thread so far.
+	 * Callers can compare the values before and after an evaluation to find out whether its result
+	 * depends on an assumption made for a recursive call, and may therefore not be reused elsewhere.
+	 * @return the number of detected recursions
+	 */
+	public static int getRecursionCount() {
+		return states.get().recursionCount;
+	}
 	
 	
 	public static boolean start(Node focusNode, Node shape) {
-		Set<Call> set = sets.get();
-		if(set == null) {
-			set = new HashSet<Call>();
-			sets.set(set);
-		}
-		Call call = new Call(focusNode, shape);
-		if(set.contains(call)) {
+		State state = states.get();
+		if(state.calls.contains(state.probe(focusNode, shape))) {
+			state.recursionCount++;
 			return true;
 		}
 		else {
-			set.add(call);
+			state.calls.add(new Call(focusNode, shape));
 			return false;
 		}
 	}
 	
 	
 	public static void end(Node focusNode, Node shape) {
-		sets.get().remove(new Call(focusNode, shape));
+		State state = states.get();
+		state.calls.remove(state.probe(focusNode, shape));
+	}
+	
+	
+	// The per-thread data, including a mutable Call that is reused for lookups
+	private static class State {
+		
+		private Set<Call> calls = new HashSet<>();
+		
+		private Call probe = new Call(null, null);
+		
+		private int recursionCount;
+		
+		
+		Call probe(Node focusNode, Node shape) {
+			probe.focusNode = focusNode;
+			probe.shape = shape;
+			return probe;
+		}
 	}
 	
 	
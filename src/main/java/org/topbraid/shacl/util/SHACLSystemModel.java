@@ -16,45 +16,182 @@
  */
 package org.topbraid.shacl.util;
 
+import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
+import org.apache.jena.graph.compose.Delta;
 import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.util.FileUtils;
+import org.topbraid.jenax.util.GraphSnapshot;
 import org.topbraid.jenax.util.JenaUtil;
 import org.topbraid.jenax.util.SystemTriples;
 import org.topbraid.shacl.arq.SHACLFunctions;
+import org.topbraid.shacl.vocabulary.DASH;
 import org.topbraid.shacl.vocabulary.SH;
+import org.topbraid.shacl.vocabulary.TOSH;
 
 /**
  * Provides API access to the system graphs needed by SHACL.
  * 
  * This is used by the stand-alone API only, which bundles these files in an etc folder.
  * 
+ * The build precompiles the Turtle files into snapshots (see {@link GraphSnapshot} and
+ * {@link SHACLSystemModelCompiler}), together with an index of the functions to register.
+ * If these resources are present, they are loaded instead of parsing the Turtle files, and the
+ * functions are only created on first use.  Otherwise the Turtle files are parsed.
+ * 
  * @author Holger Knublauch
  */
 public class SHACLSystemModel {
+	
+	final static String FUNCTIONS_INDEX = "system-functions.txt";
+	
+	final static String SNAPSHOT_SUFFIX = ".snapshot";
+	
+	final static String SYSTEM = "system";
+	
+	// The names of the system files, in the order in which they are read
+	final static String[] FILES = { "shacl", "dash", "tosh" };
+	
+	private final static String[] FILE_URIS = { SH.BASE_URI, DASH.BASE_URI, TOSH.BASE_URI };
 
 	private static Model shaclModel;
 	
+	private static Map<String,Model> documentModels;
 	
+	
+	/**
+	 * Gets the union of the SHACL system graphs, and makes sure that their functions are registered.
+	 * If the precompiled snapshot is used, the changes to the returned Model are recorded on top
+	 * of the (read-only) snapshot.
+	 * @return the shared system Model
+	 */
 	public static synchronized Model getSHACLModel() {
 		if(shaclModel == null) {
-			
-			shaclModel = JenaUtil.createDefaultModel();
-			
-			InputStream shaclTTL = SHACLSystemModel.class.getResourceAsStream("/rdf/shacl.ttl");
-			shaclModel.read(shaclTTL, SH.BASE_URI, FileUtils.langTurtle);
-			
-			InputStream dashTTL = SHACLSystemModel.class.getResourceAsStream("/rdf/dash.ttl");
-			shaclModel.read(dashTTL, SH.BASE_URI, FileUtils.langTurtle);
-			
-			InputStream toshTTL = SHACLSystemModel.class.getResourceAsStream("/rdf/tosh.ttl");
-			shaclModel.read(toshTTL, SH.BASE_URI, FileUtils.langTurtle);
-			
-			shaclModel.add(SystemTriples.getVocabularyModel());
-			
-			SHACLFunctions.registerFunctions(shaclModel);
+			try {
+				Model snapshot = readSnapshot(SYSTEM);
+				if(snapshot != null) {
+					Delta delta = new Delta(snapshot.getGraph());
+					delta.getPrefixMapping().setNsPrefixes(snapshot);
+					shaclModel = ModelFactory.createModelForGraph(delta);
+					registerFunctionsLazily(shaclModel);
+				}
+			}
+			catch(IOException ex) {
+				FailureLog.get().logWarning("Failed to read precompiled SHACL system model: " + ex);
+				shaclModel = null;
+			}
+			if(shaclModel == null) {
+				shaclModel = parseSHACLModel();
+				SHACLFunctions.registerFunctions(shaclModel);
+			}
 		}
 		return shaclModel;
 	}
+	
+	
+	/**
+	 * Gets Models for each of the SHACL system graphs, e.g. to install them into an OntDocumentManager.
+	 * The Model for the SHACL namespace also includes the triples from {@link SystemTriples}.
+	 * The Models must not be modified.
+	 * @return a Map from the base URIs of the graphs to the Models
+	 */
+	public static synchronized Map<String,Model> getDocumentModels() {
+		if(documentModels == null) {
+			Map<String,Model> map = new LinkedHashMap<>();
+			for(int i = 0; i < FILES.length; i++) {
+				Model model = null;
+				try {
+					model = readSnapshot(FILES[i]);
+				}
+				catch(IOException ex) {
+					FailureLog.get().logWarning("Failed to read precompiled SHACL system model: " + ex);
+				}
+				if(model == null) {
+					model = parseDocumentModel(FILES[i]);
+				}
+				map.put(FILE_URIS[i], model);
+			}
+			documentModels = map;
+		}
+		return documentModels;
+	}
+	
+	
+	/**
+	 * Parses one of the Turtle files of the SHACL system graphs.
+	 * For the SHACL file, the triples from {@link SystemTriples} are added.
+	 * @param file  the name of the file without extension, e.g. "dash"
+	 * @return a new Model
+	 */
+	static Model parseDocumentModel(String file) {
+		Model model = JenaUtil.createMemoryModel();
+		InputStream ttl = SHACLSystemModel.class.getResourceAsStream("/rdf/" + file + ".ttl");
+		model.read(ttl, SH.BASE_URI, FileUtils.langTurtle);
+		if(FILES[0].equals(file)) {
+			model.add(SystemTriples.getVocabularyModel());
+		}
+		return model;
+	}
+	
+	
+	/**
+	 * Parses the SHACL system graphs from the Turtle files, without using any precompiled
+	 * snapshot and without registering any functions.
+	 * @return a new Model
+	 */
+	public static Model parseSHACLModel() {
+		Model model = JenaUtil.createDefaultModel();
+		for(String file : FILES) {
+			InputStream ttl = SHACLSystemModel.class.getResourceAsStream("/rdf/" + file + ".ttl");
+			model.read(ttl, SH.BASE_URI, FileUtils.langTurtle);
+		}
+		model.add(SystemTriples.getVocabularyModel());
+		return model;
+	}
+	
+	
+	private static Model readSnapshot(String name) throws IOException {
+		InputStream is = SHACLSystemModel.class.getResourceAsStream("/rdf/" + name + SNAPSHOT_SUFFIX);
+		if(is == null) {
+			return null;
+		}
+		try {
+			return ModelFactory.createModelForGraph(GraphSnapshot.read(is));
+		}
+		finally {
+			is.close();
+		}
+	}
+	
+	
+	private static void registerFunctionsLazily(Model model) throws IOException {
+		List<String> functionURIs = new ArrayList<>();
+		Map<String,String> askValidatorURIs = new LinkedHashMap<>();
+		InputStream is = SHACLSystemModel.class.getResourceAsStream("/rdf/" + FUNCTIONS_INDEX);
+		if(is == null) {
+			throw new IOException("Missing " + FUNCTIONS_INDEX);
+		}
+		try(BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
+			String line;
+			while((line = reader.readLine()) != null) {
+				String[] parts = line.split(" ");
+				if(parts.length == 2 && SHACLSystemModelCompiler.FUNCTION.equals(parts[0])) {
+					functionURIs.add(parts[1]);
+				}
+				else if(parts.length == 3 && SHACLSystemModelCompiler.ASK_VALIDATOR.equals(parts[0])) {
+					askValidatorURIs.put(parts[1], parts[2]);
+				}
+			}
+		}
+		SHACLFunctions.registerFunctionsLazily(model, functionURIs, askValidatorURIs);
+	}
 }
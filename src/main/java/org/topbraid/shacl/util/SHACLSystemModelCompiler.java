@@ -0,0 +1,119 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.jena.rdf.model.Model;
+import org.topbraid.jenax.util.GraphSnapshot;
+import org.topbraid.shacl.arq.SHACLFunctions;
+import org.topbraid.shacl.model.SHFactory;
+
+/**
+ * Precompiles the SHACL system graphs for {@link SHACLSystemModel}.  This is called by the build
+ * (see pom.xml) with the output folder for the class path resources as argument, and writes
+ * a snapshot of the whole system model, snapshots of the individual files and the index of the
+ * functions to register.
+ * If all of these files are newer than the Turtle files in the output folder and the classes that
+ * produce them (such as this class and {@link GraphSnapshot}), nothing is done.
+ */
+public class SHACLSystemModelCompiler {
+	
+	final static String ASK_VALIDATOR = "askValidator";
+	
+	final static String FUNCTION = "function";
+	
+	// The class files that determine the content and format of the outputs, in addition to the Turtle files
+	private final static String[] INPUT_CLASSES = {
+		"org/topbraid/jenax/util/CompactGraph.class",
+		"org/topbraid/jenax/util/GraphSnapshot.class",
+		"org/topbraid/jenax/util/NodeDictionary.class",
+		"org/topbraid/jenax/util/SystemTriples.class",
+		"org/topbraid/shacl/arq/SHACLFunctions.class",
+		"org/topbraid/shacl/util/SHACLSystemModel.class",
+		"org/topbraid/shacl/util/SHACLSystemModelCompiler.class"
+	};
+	
+	
+	public static void main(String[] args) throws IOException {
+		File folder = new File(args[0]);
+		folder.mkdirs();
+		if(isUpToDate(folder)) {
+			return;
+		}
+		
+		for(String file : SHACLSystemModel.FILES) {
+			Model model = SHACLSystemModel.parseDocumentModel(file);
+			GraphSnapshot.write(model.getGraph(), new File(folder, file + SHACLSystemModel.SNAPSHOT_SUFFIX));
+		}
+		
+		Model model = SHACLSystemModel.parseSHACLModel();
+		GraphSnapshot.write(model.getGraph(), new File(folder, SHACLSystemModel.SYSTEM + SHACLSystemModel.SNAPSHOT_SUFFIX));
+		
+		SHFactory.ensureInited();
+		try(Writer writer = new OutputStreamWriter(new FileOutputStream(new File(folder, SHACLSystemModel.FUNCTIONS_INDEX)), StandardCharsets.UTF_8)) {
+			for(String uri : SHACLFunctions.getFunctionURIs(model)) {
+				writer.write(FUNCTION + " " + uri + "\n");
+			}
+			for(Map.Entry<String,String> entry : SHACLFunctions.getAskValidatorURIs(model).entrySet()) {
+				writer.write(ASK_VALIDATOR + " " + entry.getKey() + " " + entry.getValue() + "\n");
+			}
+		}
+	}
+	
+	
+	private static boolean isUpToDate(File folder) {
+		long sourceTime = 0;
+		for(File ttl : folder.listFiles((dir, name) -> name.endsWith(".ttl"))) {
+			sourceTime = Math.max(sourceTime, ttl.lastModified());
+		}
+		for(String name : INPUT_CLASSES) {
+			URL url = SHACLSystemModelCompiler.class.getClassLoader().getResource(name);
+			if(url == null || !"file".equals(url.getProtocol())) {
+				return false; // Cannot tell, e.g. if running from a jar
+			}
+			try {
+				sourceTime = Math.max(sourceTime, new File(url.toURI()).lastModified());
+			}
+			catch(URISyntaxException ex) {
+				return false;
+			}
+		}
+		List<File> outputs = new ArrayList<>();
+		for(String file : SHACLSystemModel.FILES) {
+			outputs.add(new File(folder, file + SHACLSystemModel.SNAPSHOT_SUFFIX));
+		}
+		outputs.add(new File(folder, SHACLSystemModel.SYSTEM + SHACLSystemModel.SNAPSHOT_SUFFIX));
+		outputs.add(new File(folder, SHACLSystemModel.FUNCTIONS_INDEX));
+		for(File output : outputs) {
+			if(!output.exists() || output.lastModified() < sourceTime) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
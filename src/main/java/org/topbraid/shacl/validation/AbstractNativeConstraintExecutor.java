@@ -1,10 +1,44 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
 package org.topbraid.shacl.validation;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
+import org.apache.jena.graph.Graph;
+import org.apache.jena.query.QuerySolutionMap;
+import org.apache.jena.rdf.model.Literal;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.vocabulary.RDF;
 import org.topbraid.jenax.statistics.ExecStatistics;
 import org.topbraid.jenax.statistics.ExecStatisticsManager;
+import org.topbraid.jenax.util.JenaUtil;
+import org.topbraid.shacl.arq.SHACLPaths;
 import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.util.FailureLog;
+import org.topbraid.shacl.vocabulary.DASH;
+import org.topbraid.shacl.vocabulary.SH;
 
 public abstract class AbstractNativeConstraintExecutor implements ConstraintExecutor {
 
@@ -16,4 +50,132 @@ public abstract class AbstractNativeConstraintExecutor implements ConstraintExec
 			ExecStatisticsManager.get().add(Collections.singletonList(stats));
 		}
 	}
+
+
+	/**
+	 * Creates a dash:FailureResult for a given focus node, e.g. if a nested shape could not be validated.
+	 * @param engine  the ValidationEngine
+	 * @param constraint  the Constraint being validated
+	 * @param focusNode  the focus node
+	 * @param value  the value node or null
+	 * @return the new result
+	 */
+	protected Resource createFailureResult(ValidationEngine engine, Constraint constraint, RDFNode focusNode, RDFNode value) {
+		FailureLog.get().logFailure(constraint + " has produced a failure for focus node " + focusNode);
+		Resource result = engine.createResult(DASH.FailureResult, constraint, focusNode);
+		result.addProperty(SH.resultMessage, "Validation Failure: Could not validate shape");
+		addPathAndValue(constraint, result, focusNode, value);
+		return result;
+	}
+
+
+	/**
+	 * Creates a sh:ValidationResult with the same structure as the one produced by the SPARQL-based
+	 * validators of the same constraint component.
+	 * Messages are taken from the shape if present, then from the constraint component, and finally
+	 * from the provided default message.  Messages may reference the parameters of the constraint,
+	 * {$this} and {$value}, plus any additional bindings.
+	 * @param engine  the ValidationEngine
+	 * @param constraint  the Constraint being validated
+	 * @param focusNode  the focus node
+	 * @param value  the value node, or null to not produce sh:value (for property shapes)
+	 * @param defaultMessage  the message to use if neither the shape nor the component declares one
+	 * @param extraBindings  additional variable bindings for the message template or null
+	 * @return the new result
+	 */
+	protected Resource createValidationResult(ValidationEngine engine, Constraint constraint, RDFNode focusNode, RDFNode value,
+			String defaultMessage, QuerySolutionMap extraBindings) {
+		Resource result = engine.createResult(SH.ValidationResult, constraint, focusNode);
+		if(constraint.getShapeResource().hasProperty(SH.message)) {
+			for(Statement s : constraint.getShapeResource().listProperties(SH.message).toList()) {
+				result.addProperty(SH.resultMessage, s.getObject());
+			}
+		}
+		else {
+			QuerySolutionMap bindings = new QuerySolutionMap();
+			constraint.addBindings(bindings);
+			bindings.add(SH.thisVar.getVarName(), focusNode);
+			if(value != null) {
+				bindings.add(SH.valueVar.getVarName(), value);
+			}
+			if(extraBindings != null) {
+				bindings.addAll(extraBindings);
+			}
+			boolean found = false;
+			for(Statement s : constraint.getComponent().listProperties(SH.message).toList()) {
+				if(s.getObject().isLiteral()) {
+					engine.addResultMessage(result, s.getLiteral(), bindings);
+					found = true;
+				}
+			}
+			if(!found && defaultMessage != null) {
+				Literal message = ResourceFactory.createStringLiteral(defaultMessage);
+				engine.addResultMessage(result, message, bindings);
+			}
+		}
+		addPathAndValue(constraint, result, focusNode, value);
+		return result;
+	}
+
+
+	private void addPathAndValue(Constraint constraint, Resource result, RDFNode focusNode, RDFNode value) {
+		if(constraint.getShapeResource().isPropertyShape()) {
+			Resource basePath = JenaUtil.getResourceProperty(constraint.getShapeResource(), SH.path);
+			result.addProperty(SH.resultPath, SHACLPaths.clonePath(basePath, result.getModel()));
+		}
+		if(value != null) {
+			result.addProperty(SH.value, value);
+		}
+		else if(SH.NodeShape.equals(constraint.getContext())) {
+			result.addProperty(SH.value, focusNode);
+		}
+	}
+
+
+	/**
+	 * Gets the data graph (the default graph of the engine's Dataset).
+	 * @param engine  the ValidationEngine
+	 * @return the data graph
+	 */
+	protected Graph getDataGraph(ValidationEngine engine) {
+		return engine.getDataset().getDefaultModel().getGraph();
+	}
+
+
+	/**
+	 * Gets the members of an rdf:List, equivalent to the SPARQL path (rdf:rest*)/rdf:first.
+	 * @param list  the head of the list
+	 * @return the members of the list (empty if list is not a resource)
+	 */
+	protected List<RDFNode> getListMembers(RDFNode list) {
+		List<RDFNode> results = new ArrayList<>();
+		if(list != null && list.isResource()) {
+			Set<Resource> visited = new HashSet<>();
+			Resource current = (Resource) list;
+			while(current != null && !RDF.nil.equals(current) && visited.add(current)) {
+				for(Statement s : current.listProperties(RDF.first).toList()) {
+					results.add(s.getObject());
+				}
+				current = JenaUtil.getResourceProperty(current, RDF.rest);
+			}
+		}
+		return results;
+	}
+
+
+	/**
+	 * Gets the value of a given parameter, either from the constraint itself (for components
+	 * with a single parameter) or from the shape (for components with multiple parameters).
+	 * @param constraint  the Constraint
+	 * @param predicate  the parameter's predicate
+	 * @return the parameter value or null
+	 */
+	protected RDFNode getParameterValue(Constraint constraint, Property predicate) {
+		if(constraint.getParameterValue() != null) {
+			return constraint.getParameterValue();
+		}
+		else {
+			return JenaUtil.getProperty(constraint.getShapeResource(), predicate);
+		}
+	}
 }
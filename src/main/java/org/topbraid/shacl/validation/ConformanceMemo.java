@@ -0,0 +1,136 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.jena.graph.Node;
+
+/**
+ * A bounded, thread-safe cache of the conformance of (focus node, shape) pairs, as computed
+ * for nested shapes (sh:node, sh:and etc) during a single validation run.
+ * Since the data graph may change between runs, a ValidationEngine starts each run with a
+ * fresh memo, which is shared with the nested and parallel worker engines of that run.
+ * 
+ * Only definitive results are stored: failures and results that depended on a recursive
+ * call (see RecursionGuard) are evaluated each time.
+ * When the maximum size is reached, the least recently used entries are evicted.
+ */
+public class ConformanceMemo {
+	
+	private AtomicLong hits = new AtomicLong();
+	
+	private Map<Key,Boolean> map;
+	
+	private AtomicLong misses = new AtomicLong();
+	
+	
+	public ConformanceMemo(int maxSize) {
+		this.map = new LinkedHashMap<Key,Boolean>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key,Boolean> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+	
+	
+	public synchronized void clear() {
+		map.clear();
+	}
+	
+	
+	/**
+	 * Gets the previously computed conformance of a given node against a given shape.
+	 * @param focusNode  the focus node
+	 * @param shape  the shape
+	 * @return true or false if known, otherwise null
+	 */
+	public Boolean get(Node focusNode, Node shape) {
+		Boolean result;
+		synchronized(this) {
+			result = map.get(new Key(focusNode, shape));
+		}
+		if(result != null) {
+			hits.incrementAndGet();
+		}
+		else {
+			misses.incrementAndGet();
+		}
+		return result;
+	}
+	
+	
+	public long getHitCount() {
+		return hits.get();
+	}
+	
+	
+	public long getMissCount() {
+		return misses.get();
+	}
+	
+	
+	public synchronized void put(Node focusNode, Node shape, boolean conforms) {
+		map.put(new Key(focusNode, shape), conforms);
+	}
+	
+	
+	public synchronized int size() {
+		return map.size();
+	}
+	
+	
+	@Override
+	public String toString() {
+		return "ConformanceMemo (" + size() + " entries, " + getHitCount() + " hits, " + getMissCount() + " misses)";
+	}
+	
+	
+	private static class Key {
+		
+		private Node focusNode;
+		
+		private Node shape;
+		
+		
+		Key(Node focusNode, Node shape) {
+			this.focusNode = focusNode;
+			this.shape = shape;
+		}
+		
+		
+		@Override
+		public boolean equals(Object other) {
+			if(other instanceof Key) {
+				return ((Key)other).focusNode.equals(focusNode) && ((Key)other).shape.equals(shape);
+			}
+			else {
+				return false;
+			}
+		}
+		
+		
+		@Override
+		public int hashCode() {
+			return 31 * focusNode.hashCode() + shape.hashCode();
+		}
+	}
+}
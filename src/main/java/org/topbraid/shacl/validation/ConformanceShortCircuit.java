@@ -0,0 +1,50 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation;
+
+/**
+ * Thrown by ValidationEngine.createResult while the engine is running in conforms-only mode
+ * (see {@link ValidationEngine#conformsToShape(java.util.List, org.apache.jena.graph.Node)}),
+ * to abort the validation as soon as its outcome is known.
+ * 
+ * The two instances are preallocated and have no stack trace, so throwing them is cheap.
+ * Code that catches all exceptions around constraint executors must re-throw these.
+ */
+@SuppressWarnings("serial")
+public class ConformanceShortCircuit extends RuntimeException {
+	
+	public final static ConformanceShortCircuit FAILURE = new ConformanceShortCircuit(true);
+	
+	public final static ConformanceShortCircuit VIOLATION = new ConformanceShortCircuit(false);
+	
+	private boolean failure;
+	
+	
+	private ConformanceShortCircuit(boolean failure) {
+		super(failure ? "Failure" : "Validation result", null, false, false);
+		this.failure = failure;
+	}
+	
+	
+	/**
+	 * Checks whether the result that caused this was a dash:FailureResult.
+	 * @return true for failures, false for validation results
+	 */
+	public boolean isFailure() {
+		return failure;
+	}
+}
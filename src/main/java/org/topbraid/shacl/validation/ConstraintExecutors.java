@@ -18,11 +18,36 @@ package org.topbraid.shacl.validation;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.jena.rdf.model.Resource;
 import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.validation.java.AndConstraintExecutor;
+import org.topbraid.shacl.validation.java.ClassConstraintExecutor;
+import org.topbraid.shacl.validation.java.ClosedConstraintExecutor;
+import org.topbraid.shacl.validation.java.CountConstraintExecutor;
+import org.topbraid.shacl.validation.java.DatatypeConstraintExecutor;
+import org.topbraid.shacl.validation.java.DisjointConstraintExecutor;
+import org.topbraid.shacl.validation.java.EqualsConstraintExecutor;
+import org.topbraid.shacl.validation.java.HasValueConstraintExecutor;
+import org.topbraid.shacl.validation.java.InConstraintExecutor;
+import org.topbraid.shacl.validation.java.LanguageInConstraintExecutor;
+import org.topbraid.shacl.validation.java.LengthConstraintExecutor;
+import org.topbraid.shacl.validation.java.LessThanConstraintExecutor;
+import org.topbraid.shacl.validation.java.NativeConstraintExecutorFactory;
+import org.topbraid.shacl.validation.java.NodeConstraintExecutor;
+import org.topbraid.shacl.validation.java.NodeKindConstraintExecutor;
+import org.topbraid.shacl.validation.java.NotConstraintExecutor;
+import org.topbraid.shacl.validation.java.OrConstraintExecutor;
+import org.topbraid.shacl.validation.java.PatternConstraintExecutor;
+import org.topbraid.shacl.validation.java.QualifiedValueShapeConstraintExecutor;
+import org.topbraid.shacl.validation.java.RangeConstraintExecutor;
+import org.topbraid.shacl.validation.java.UniqueLangConstraintExecutor;
+import org.topbraid.shacl.validation.java.UniqueValueForClassConstraintExecutor;
+import org.topbraid.shacl.validation.java.XoneConstraintExecutor;
 import org.topbraid.shacl.validation.js.JSConstraintExecutor;
 import org.topbraid.shacl.validation.js.JSValidationLanguage;
 import org.topbraid.shacl.validation.sparql.SPARQLConstraintExecutor;
@@ -46,6 +71,9 @@ public class ConstraintExecutors {
 	private List<ValidationLanguage> languages = new ArrayList<>();
 	
 	private Map<Resource,SpecialConstraintExecutorFactory> specialExecutors = new HashMap<>();
+	
+	// The constraint components that are currently handled by native (Java) executors
+	private Set<Resource> nativeComponents = new HashSet<>();
 
 	
 	public ConstraintExecutors() {
@@ -80,6 +108,36 @@ public class ConstraintExecutors {
 			}
 		});
 		
+		addNativeExecutor(SH.AndConstraintComponent, new NativeConstraintExecutorFactory(AndConstraintExecutor::new));
+		addNativeExecutor(SH.ClassConstraintComponent, new NativeConstraintExecutorFactory(ClassConstraintExecutor::new));
+		addNativeExecutor(SH.ClosedConstraintComponent, new NativeConstraintExecutorFactory(ClosedConstraintExecutor::new, SH.NodeShape));
+		addNativeExecutor(SH.DatatypeConstraintComponent, new NativeConstraintExecutorFactory(DatatypeConstraintExecutor::new));
+		addNativeExecutor(SH.DisjointConstraintComponent, new NativeConstraintExecutorFactory(DisjointConstraintExecutor::new));
+		addNativeExecutor(SH.EqualsConstraintComponent, new NativeConstraintExecutorFactory(constraint -> new EqualsConstraintExecutor()));
+		addNativeExecutor(SH.HasValueConstraintComponent, new NativeConstraintExecutorFactory(constraint -> new HasValueConstraintExecutor()));
+		addNativeExecutor(SH.InConstraintComponent, new NativeConstraintExecutorFactory(InConstraintExecutor::new));
+		addNativeExecutor(SH.LanguageInConstraintComponent, new NativeConstraintExecutorFactory(LanguageInConstraintExecutor::new));
+		addNativeExecutor(SH.LessThanConstraintComponent, new NativeConstraintExecutorFactory(LessThanConstraintExecutor::new, SH.PropertyShape));
+		addNativeExecutor(SH.LessThanOrEqualsConstraintComponent, new NativeConstraintExecutorFactory(LessThanConstraintExecutor::new, SH.PropertyShape));
+		addNativeExecutor(SH.MaxCountConstraintComponent, new NativeConstraintExecutorFactory(CountConstraintExecutor::new, SH.PropertyShape));
+		addNativeExecutor(SH.MaxExclusiveConstraintComponent, new NativeConstraintExecutorFactory(RangeConstraintExecutor::new));
+		addNativeExecutor(SH.MaxInclusiveConstraintComponent, new NativeConstraintExecutorFactory(RangeConstraintExecutor::new));
+		addNativeExecutor(SH.MaxLengthConstraintComponent, new NativeConstraintExecutorFactory(LengthConstraintExecutor::new));
+		addNativeExecutor(SH.MinCountConstraintComponent, new NativeConstraintExecutorFactory(CountConstraintExecutor::new, SH.PropertyShape));
+		addNativeExecutor(SH.MinExclusiveConstraintComponent, new NativeConstraintExecutorFactory(RangeConstraintExecutor::new));
+		addNativeExecutor(SH.MinInclusiveConstraintComponent, new NativeConstraintExecutorFactory(RangeConstraintExecutor::new));
+		addNativeExecutor(SH.MinLengthConstraintComponent, new NativeConstraintExecutorFactory(LengthConstraintExecutor::new));
+		addNativeExecutor(SH.NodeConstraintComponent, new NativeConstraintExecutorFactory(NodeConstraintExecutor::new));
+		addNativeExecutor(SH.NodeKindConstraintComponent, new NativeConstraintExecutorFactory(NodeKindConstraintExecutor::new));
+		addNativeExecutor(SH.NotConstraintComponent, new NativeConstraintExecutorFactory(NotConstraintExecutor::new));
+		addNativeExecutor(SH.OrConstraintComponent, new NativeConstraintExecutorFactory(OrConstraintExecutor::new));
+		addNativeExecutor(SH.PatternConstraintComponent, new NativeConstraintExecutorFactory(PatternConstraintExecutor::new));
+		addNativeExecutor(SH.QualifiedMaxCountConstraintComponent, new NativeConstraintExecutorFactory(QualifiedValueShapeConstraintExecutor::new, SH.PropertyShape));
+		addNativeExecutor(SH.QualifiedMinCountConstraintComponent, new NativeConstraintExecutorFactory(QualifiedValueShapeConstraintExecutor::new, SH.PropertyShape));
+		addNativeExecutor(SH.UniqueLangConstraintComponent, new NativeConstraintExecutorFactory(constraint -> new UniqueLangConstraintExecutor(), SH.PropertyShape));
+		addNativeExecutor(SH.XoneConstraintComponent, new NativeConstraintExecutorFactory(XoneConstraintExecutor::new));
+		addNativeExecutor(DASH.UniqueValueForClassConstraintComponent, new NativeConstraintExecutorFactory(UniqueValueForClassConstraintExecutor::new, SH.PropertyShape));
+		
 		addLanguage(SPARQLValidationLanguage.get());
 		addLanguage(JSValidationLanguage.get());
 	}
@@ -90,8 +148,38 @@ public class ConstraintExecutors {
 	}
 	
 	
+	/**
+	 * Registers a native (Java) executor for a constraint component that also has SPARQL or JavaScript
+	 * validators.  Engines only use the native executors if enabled with
+	 * ValidationEngineConfiguration.setNativeExecutors(true), and otherwise use the declarative validators.
+	 * @param constraintComponent  the constraint component
+	 * @param executor  the factory of the native executors
+	 */
+	public void addNativeExecutor(Resource constraintComponent, SpecialConstraintExecutorFactory executor) {
+		addSpecialExecutor(constraintComponent, executor);
+		nativeComponents.add(constraintComponent);
+	}
+	
+	
 	public void addSpecialExecutor(Resource constraintComponent, SpecialConstraintExecutorFactory executor) {
 		specialExecutors.put(constraintComponent, executor);
+		nativeComponents.remove(constraintComponent);
+	}
+	
+	
+	/**
+	 * Gets an executor for a given constraint that ignores any native executors, i.e. uses
+	 * the SPARQL or JavaScript validators of the constraint component.
+	 * @param constraint  the Constraint to get an executor for
+	 * @return the executor or null
+	 */
+	public ConstraintExecutor getDeclarativeExecutor(Constraint constraint) {
+		if(nativeComponents.contains(constraint.getComponent())) {
+			return getLanguageExecutor(constraint);
+		}
+		else {
+			return getExecutor(constraint);
+		}
 	}
 	
 	
@@ -102,6 +190,11 @@ public class ConstraintExecutors {
 			return special.create(constraint);
 		}
 		
+		return getLanguageExecutor(constraint);
+	}
+	
+	
+	private ConstraintExecutor getLanguageExecutor(Constraint constraint) {
 		for(ValidationLanguage language : languages) {
 			if(language.canExecute(constraint)) {
 				return language.createExecutor(constraint);
@@ -112,8 +205,19 @@ public class ConstraintExecutors {
 	}
 	
 	
+	/**
+	 * Checks whether the JavaScript validators are preferred over the SPARQL validators,
+	 * see {@link #setJSPreferred(boolean)}.
+	 * @return true if JS is preferred
+	 */
+	public boolean isJSPreferred() {
+		return languages.get(0) == JSValidationLanguage.get();
+	}
+	
+	
 	public void removeSpecialExecutor(Resource constraintComponent) {
 		specialExecutors.remove(constraintComponent);
+		nativeComponents.remove(constraintComponent);
 	}
 
 	
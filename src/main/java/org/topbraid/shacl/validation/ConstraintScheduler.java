@@ -0,0 +1,179 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.vocabulary.RDFS;
+import org.topbraid.jenax.util.JenaUtil;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.engine.Shape;
+import org.topbraid.shacl.vocabulary.SH;
+
+/**
+ * Determines the order in which a ValidationEngine validates shapes and constraints, based on
+ * the estimates of a {@link ValidationStatistics}.
+ * Constraints are ordered by their expected cost per validation result, i.e. the time per focus
+ * node divided by the failure rate, so that cheap and selective constraints come first.
+ * Shapes are ordered by the summed cost of their constraints divided by the summed failure rates
+ * of their constraints, i.e. the expected cost per result of the shape as a whole, with the
+ * estimated number of focus nodes as tie breaker.
+ * This does not change which results are reported, but their order and, if the validation stops
+ * early (in conforms-only mode or with a maximum number of violations), how much work is done
+ * before stopping.
+ *
+ * Instances are thread-safe and may be shared by several validation runs on the same data,
+ * by installing them with {@link ValidationEngineConfiguration#setConstraintScheduler(ConstraintScheduler)}.
+ */
+public class ConstraintScheduler {
+
+	// Keyed by shape node so that only the Shapes of the most recent ShapesGraph are kept
+	private Map<Node,Schedule> schedules = new ConcurrentHashMap<>();
+
+	private ValidationStatistics statistics;
+
+
+	public ConstraintScheduler(ValidationStatistics statistics) {
+		this.statistics = statistics;
+	}
+
+
+	/**
+	 * Gets the constraints of a shape in the order in which they shall be validated.
+	 * The order is remembered and only re-computed after the number of observations
+	 * has doubled, so that the overhead for shapes validated many times is small.
+	 * @param shape  the Shape
+	 * @param declarative  true if the engine uses the declarative executors, see {@link Constraint#getDeclarativeExecutor()}
+	 * @return the ordered constraints
+	 */
+	public List<Constraint> getConstraints(Shape shape, boolean declarative) {
+		long updates = statistics.getUpdateCount();
+		Schedule schedule = schedules.get(shape.getShapeResource().asNode());
+		if(schedule == null || schedule.shape != shape || schedule.declarative != declarative || updates >= 2 * Math.max(1, schedule.updates)) {
+			List<Constraint> constraints = new ArrayList<>();
+			for(Constraint constraint : shape.getConstraints()) {
+				constraints.add(constraint);
+			}
+			Map<Constraint,Double> ranks = new HashMap<>();
+			for(Constraint constraint : constraints) {
+				ranks.put(constraint, getRank(constraint, declarative));
+			}
+			constraints.sort(Comparator.comparing(ranks::get));
+			schedule = new Schedule(shape, declarative, Collections.unmodifiableList(constraints), updates);
+			schedules.put(shape.getShapeResource().asNode(), schedule);
+		}
+		return schedule.constraints;
+	}
+
+
+	/**
+	 * Estimates the number of focus nodes of a shape from the size of its targets in the data graph.
+	 * @param shape  the Shape
+	 * @return the estimated number of focus nodes
+	 */
+	public long getEstimatedFocusNodeCount(Shape shape) {
+		Resource resource = shape.getShapeResource();
+		long count = 0;
+		for(Statement s : resource.listProperties(SH.targetClass).toList()) {
+			count += statistics.getClassSize(s.getObject().asNode());
+		}
+		if(JenaUtil.hasIndirectType(resource, RDFS.Class)) {
+			count += statistics.getClassSize(resource.asNode());
+		}
+		count += resource.listProperties(SH.targetNode).toList().size();
+		for(Statement s : resource.listProperties(SH.targetSubjectsOf).toList()) {
+			count += statistics.getSubjectCount(s.getObject().asNode());
+		}
+		for(Statement s : resource.listProperties(SH.targetObjectsOf).toList()) {
+			count += statistics.getPredicateCount(s.getObject().asNode());
+		}
+		if(resource.hasProperty(SH.target)) {
+			// Custom targets could select anything
+			count += statistics.getDataGraph().size();
+		}
+		return count;
+	}
+
+
+	/**
+	 * Gets the expected time per validation result of a given constraint.
+	 * @param constraint  the Constraint
+	 * @param declarative  true if the engine uses the declarative executors
+	 * @return the rank, where smaller values shall be validated first
+	 */
+	public double getRank(Constraint constraint, boolean declarative) {
+		return statistics.getCost(constraint, declarative) / statistics.getFailureRate(constraint);
+	}
+
+
+	/**
+	 * Gets a copy of a given list of shapes, in the order in which they shall be validated.
+	 * The rank of a shape is the sum of the costs of its constraints divided by the sum of
+	 * their failure rates.
+	 * @param shapes  the shapes to order
+	 * @param declarative  true if the engine uses the declarative executors
+	 * @return a new List
+	 */
+	public List<Shape> getShapes(List<Shape> shapes, boolean declarative) {
+		Map<Shape,double[]> ranks = new HashMap<>();
+		for(Shape shape : shapes) {
+			double cost = 0;
+			double failureRate = 0;
+			for(Constraint constraint : shape.getConstraints()) {
+				cost += statistics.getCost(constraint, declarative);
+				failureRate += statistics.getFailureRate(constraint);
+			}
+			ranks.put(shape, new double[] { failureRate > 0 ? cost / failureRate : 0, getEstimatedFocusNodeCount(shape) });
+		}
+		List<Shape> results = new ArrayList<>(shapes);
+		results.sort(Comparator.comparingDouble((Shape shape) -> ranks.get(shape)[0]).thenComparingDouble(shape -> ranks.get(shape)[1]));
+		return results;
+	}
+
+
+	public ValidationStatistics getStatistics() {
+		return statistics;
+	}
+
+
+	private static class Schedule {
+
+		List<Constraint> constraints;
+
+		boolean declarative;
+
+		Shape shape;
+
+		long updates;
+
+		Schedule(Shape shape, boolean declarative, List<Constraint> constraints, long updates) {
+			this.shape = shape;
+			this.declarative = declarative;
+			this.constraints = constraints;
+			this.updates = updates;
+		}
+	}
+}
@@ -21,6 +21,7 @@ import java.util.List;
 import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.util.iterator.ExtendedIterator;
 import org.topbraid.jenax.util.JenaDatatypes;
 import org.topbraid.shacl.engine.Constraint;
 import org.topbraid.shacl.expr.NodeExpression;
@@ -36,8 +37,16 @@ public class ExpressionConstraintExecutor implements ConstraintExecutor {
 		for(RDFNode focusNode : focusNodes) {
 			engine.checkCanceled();
 			for(RDFNode valueNode : engine.getValueNodes(constraint, focusNode)) {
-				List<RDFNode> results = expr.eval(valueNode, engine).toList();
-				if(results.size() != 1 || !JenaDatatypes.TRUE.equals(results.get(0))) {
+				// Valid if the expression produces exactly one value, true
+				boolean valid;
+				ExtendedIterator<RDFNode> it = expr.eval(valueNode, engine);
+				try {
+					valid = it.hasNext() && JenaDatatypes.TRUE.equals(it.next()) && !it.hasNext();
+				}
+				finally {
+					it.close();
+				}
+				if(!valid) {
 					Resource result = engine.createResult(SH.ValidationResult, constraint, focusNode);
 					result.addProperty(SH.value, valueNode);
 					result.addProperty(SH.sourceConstraint, constraint.getParameterValue());
@@ -0,0 +1,46 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.topbraid.shacl.engine.Shape;
+import org.topbraid.shacl.validation.sparql.SPARQLFusedExecutor;
+
+/**
+ * Holds the SPARQLFusedExecutors of the shapes that a ValidationEngine has validated, so that the
+ * fused query of each shape is built only once.
+ * An engine shares its instance with its worker and nested engines.
+ */
+public class FusedExecutors {
+	
+	private Map<Shape,SPARQLFusedExecutor> declarativeExecutors = new ConcurrentHashMap<>();
+	
+	private Map<Shape,SPARQLFusedExecutor> executors = new ConcurrentHashMap<>();
+	
+	
+	/**
+	 * Gets the SPARQLFusedExecutor that validates the SPARQL-based constraints of a given shape with a single query.
+	 * @param shape  the Shape
+	 * @param declarative  true to use the declarative executors of the constraints, see {@link org.topbraid.shacl.engine.Constraint#getDeclarativeExecutor()}
+	 * @return the SPARQLFusedExecutor
+	 */
+	public SPARQLFusedExecutor get(Shape shape, boolean declarative) {
+		return (declarative ? declarativeExecutors : executors).computeIfAbsent(shape, s -> new SPARQLFusedExecutor(s, declarative));
+	}
+}
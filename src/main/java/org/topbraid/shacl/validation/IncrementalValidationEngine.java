@@ -0,0 +1,454 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+import org.topbraid.jenax.util.DiffGraph;
+import org.topbraid.jenax.util.JenaDatatypes;
+import org.topbraid.jenax.util.JenaUtil;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.engine.Shape;
+import org.topbraid.shacl.engine.ShapesGraph;
+import org.topbraid.shacl.js.SHACLScriptEngineManager;
+import org.topbraid.shacl.util.SHACLUtil;
+import org.topbraid.shacl.vocabulary.SH;
+
+/**
+ * A validator that maintains a validation report across changes to the data graph.
+ * After an initial call to {@link #validateAll()}, clients can call {@link #validateDelta(Graph, Collection)}
+ * with the triples that have been added to or deleted from the data graph since the last call.
+ * The engine then determines which focus nodes may be affected by the changes, based on the
+ * targets of the shapes and the predicates used by their paths, and only re-validates those.
+ * The results for those focus nodes are removed from the report and replaced with new ones.
+ * 
+ * The shapes graph must not change between calls.  Shapes that use constraints with unknown
+ * dependencies on the data (such as SPARQL-based constraints) are fully re-validated whenever
+ * the data changes.
+ */
+public class IncrementalValidationEngine {
+	
+	private ValidationEngineConfiguration configuration = new ValidationEngineConfiguration();
+	
+	private Dataset dataset;
+	
+	private Map<Node,ShapeDependencies> dependencies = new HashMap<>();
+	
+	private Resource report;
+	
+	// The results of each root shape, by the focus nodes that they were produced for.
+	// Results that cannot be attributed to a single focus node use null as key.
+	private Map<Node,Map<Node,List<Resource>>> results = new HashMap<>();
+	
+	private Node currentShape;
+	
+	// True if the results of the current shape cannot be attributed to focus nodes
+	private boolean currentShapeInline;
+	
+	private ShapesGraph shapesGraph;
+	
+	private URI shapesGraphURI;
+	
+	
+	/**
+	 * Constructs a new IncrementalValidationEngine.
+	 * @param dataset  the Dataset to operate on, with the data graph as default graph
+	 * @param shapesGraphURI  the URI of the shapes graph (must be in the dataset)
+	 * @param shapesGraph  the ShapesGraph with the shapes to validate against
+	 */
+	public IncrementalValidationEngine(Dataset dataset, URI shapesGraphURI, ShapesGraph shapesGraph) {
+		this.dataset = dataset;
+		this.shapesGraph = shapesGraph;
+		this.shapesGraphURI = shapesGraphURI;
+	}
+	
+	
+	public ValidationEngineConfiguration getConfiguration() {
+		return configuration;
+	}
+	
+	
+	/**
+	 * Sets the configuration of the underlying validation engines.
+	 * Reports are always complete, so a maximum number of violations is not supported.
+	 * Parallel validation is also ignored.
+	 * @param configuration  the new configuration
+	 */
+	public void setConfiguration(ValidationEngineConfiguration configuration) {
+		if(configuration.getValidationErrorBatch() != -1) {
+			throw new IllegalArgumentException("Incremental validation does not support a maximum number of violations");
+		}
+		this.configuration = configuration;
+	}
+	
+	
+	/**
+	 * Gets the current validation report.
+	 * @return the report or null if validateAll has not been called yet
+	 */
+	public Resource getReport() {
+		return report;
+	}
+	
+	
+	/**
+	 * Validates all target nodes against all of their shapes, starting a new report.
+	 * @return an instance of sh:ValidationReport in the results Model
+	 */
+	public Resource validateAll() {
+		Model reportModel = JenaUtil.createMemoryModel();
+		reportModel.setNsPrefixes(dataset.getDefaultModel());
+		report = reportModel.createResource(SH.ValidationReport);
+		results.clear();
+		ValidationEngine engine = createEngine();
+		boolean nested = SHACLScriptEngineManager.begin();
+		try {
+			for(Shape shape : shapesGraph.getRootShapes()) {
+				validateFocusNodes(engine, shape, SHACLUtil.getTargetNodes(shape.getShapeResource(), dataset));
+			}
+		}
+		finally {
+			SHACLScriptEngineManager.end(nested);
+		}
+		updateConforms();
+		return report;
+	}
+	
+	
+	/**
+	 * Updates the report after the data graph has been changed according to a given DiffGraph.
+	 * The Dataset must already include the changes, e.g. by having the DiffGraph as its default graph.
+	 * The DiffGraph must only contain the changes since the last validation.
+	 * @param diff  the DiffGraph with the added and deleted triples
+	 * @return the updated sh:ValidationReport
+	 */
+	public Resource validateDelta(DiffGraph diff) {
+		return validateDelta(diff.getAddedGraph(), diff.getDeletedTriples());
+	}
+	
+	
+	/**
+	 * Updates the report after triples have been added to or deleted from the data graph.
+	 * The Dataset must already include the changes.
+	 * If validateAll has not been called yet then this performs a full validation.
+	 * @param added  the triples that have been added since the last validation
+	 * @param deleted  the triples that have been deleted since the last validation
+	 * @return the updated sh:ValidationReport
+	 */
+	public Resource validateDelta(Graph added, Collection<Triple> deleted) {
+		if(report == null) {
+			return validateAll();
+		}
+		
+		List<Triple> delta = new ArrayList<>(deleted);
+		delta.addAll(added.find(Node.ANY, Node.ANY, Node.ANY).toList());
+		if(delta.isEmpty()) {
+			return report;
+		}
+		Graph deletedGraph = GraphFactory.createGraphMem();
+		for(Triple triple : deleted) {
+			deletedGraph.add(triple);
+		}
+		boolean hierarchyChanged = false;
+		for(Triple triple : delta) {
+			if(RDFS.subClassOf.asNode().equals(triple.getPredicate())) {
+				hierarchyChanged = true;
+				break;
+			}
+		}
+		
+		ValidationEngine engine = createEngine();
+		boolean nested = SHACLScriptEngineManager.begin();
+		try {
+			for(Shape shape : shapesGraph.getRootShapes()) {
+				Resource shapeResource = shape.getShapeResource();
+				if(shapesGraph.isIgnored(shapeResource.asNode())) {
+					continue;
+				}
+				ShapeDependencies deps = getDependencies(shape);
+				boolean all = deps.isGlobal() || deps.hasInlineNesting() || shapeResource.hasProperty(SH.target) ||
+						(hierarchyChanged && (deps.isClassSensitive() || hasClassTargets(shapeResource)));
+				if(all) {
+					removeResults(shapeResource.asNode(), null);
+					results.remove(shapeResource.asNode());
+					validateFocusNodes(engine, shape, SHACLUtil.getTargetNodes(shapeResource, dataset));
+				}
+				else {
+					Set<Node> candidates = getAffectedNodes(shapeResource, deps, delta, deletedGraph);
+					List<RDFNode> focusNodes = new LinkedList<>();
+					for(Node candidate : candidates) {
+						removeResults(shapeResource.asNode(), candidate);
+						RDFNode focusNode = dataset.getDefaultModel().asRDFNode(candidate);
+						if(isTarget(shapeResource, focusNode)) {
+							focusNodes.add(focusNode);
+						}
+					}
+					validateFocusNodes(engine, shape, focusNodes);
+				}
+			}
+		}
+		finally {
+			SHACLScriptEngineManager.end(nested);
+		}
+		updateConforms();
+		return report;
+	}
+	
+	
+	// Collects the nodes that are within reach of the changed triples, plus those whose target status may have changed
+	private Set<Node> getAffectedNodes(Resource shape, ShapeDependencies deps, List<Triple> delta, Graph deletedGraph) {
+		Set<Node> targetSubjectsOf = getObjects(shape, SH.targetSubjectsOf);
+		Set<Node> targetObjectsOf = getObjects(shape, SH.targetObjectsOf);
+		boolean classTargets = hasClassTargets(shape);
+		Set<Node> seeds = new HashSet<>();
+		Set<Node> results = new HashSet<>();
+		for(Triple triple : delta) {
+			Node predicate = triple.getPredicate();
+			if(deps.affectsSubject(predicate)) {
+				seeds.add(triple.getSubject());
+			}
+			if(deps.affectsObject(predicate)) {
+				seeds.add(triple.getObject());
+			}
+			if((classTargets && RDF.type.asNode().equals(predicate)) || targetSubjectsOf.contains(predicate)) {
+				results.add(triple.getSubject());
+			}
+			if(targetObjectsOf.contains(predicate)) {
+				results.add(triple.getObject());
+			}
+		}
+		
+		// Walk backwards along the paths, in the current and in the old graph
+		Graph dataGraph = dataset.getDefaultModel().getGraph();
+		Set<Node> reached = new HashSet<>(seeds);
+		Set<Node> frontier = seeds;
+		for(int depth = 0; depth < deps.getMaxDepth() && !frontier.isEmpty(); depth++) {
+			Set<Node> next = new HashSet<>();
+			for(Node node : frontier) {
+				for(Graph graph : new Graph[] { dataGraph, deletedGraph }) {
+					for(Node predicate : deps.getTraverseForward()) {
+						for(Triple triple : graph.find(Node.ANY, predicate, node).toList()) {
+							if(reached.add(triple.getSubject())) {
+								next.add(triple.getSubject());
+							}
+						}
+					}
+					if(!node.isLiteral()) {
+						for(Node predicate : deps.getTraverseInverse()) {
+							for(Triple triple : graph.find(node, predicate, Node.ANY).toList()) {
+								if(reached.add(triple.getObject())) {
+									next.add(triple.getObject());
+								}
+							}
+						}
+					}
+				}
+			}
+			frontier = next;
+		}
+		results.addAll(reached);
+		return results;
+	}
+	
+	
+	private ShapeDependencies getDependencies(Shape shape) {
+		return dependencies.computeIfAbsent(shape.getShapeResource().asNode(), n -> new ShapeDependencies(shapesGraph, shape));
+	}
+	
+	
+	private static Set<Node> getObjects(Resource shape, Property predicate) {
+		Set<Node> results = new HashSet<>();
+		for(Statement s : shape.listProperties(predicate).toList()) {
+			results.add(s.getObject().asNode());
+		}
+		return results;
+	}
+	
+	
+	private static boolean hasClassTargets(Resource shape) {
+		return shape.hasProperty(SH.targetClass) || JenaUtil.hasIndirectType(shape, RDFS.Class);
+	}
+	
+	
+	// Checks whether a node is (still) a target of a given shape, equivalent to SHACLUtil.getTargetNodes
+	private boolean isTarget(Resource shape, RDFNode node) {
+		Model dataModel = dataset.getDefaultModel();
+		if(shape.getModel().contains(shape, SH.targetNode, node)) {
+			return true;
+		}
+		if(node.isResource()) {
+			Resource resource = (Resource) node;
+			if(JenaUtil.hasIndirectType(shape, RDFS.Class) && JenaUtil.hasIndirectType(resource, shape.inModel(dataModel))) {
+				return true;
+			}
+			for(Resource targetClass : JenaUtil.getResourceProperties(shape, SH.targetClass)) {
+				if(JenaUtil.hasIndirectType(resource, targetClass.inModel(dataModel))) {
+					return true;
+				}
+			}
+			for(Resource predicate : JenaUtil.getResourceProperties(shape, SH.targetSubjectsOf)) {
+				if(resource.hasProperty(JenaUtil.asProperty(predicate))) {
+					return true;
+				}
+			}
+		}
+		for(Resource predicate : JenaUtil.getResourceProperties(shape, SH.targetObjectsOf)) {
+			if(dataModel.contains(null, JenaUtil.asProperty(predicate), node)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	
+	private ValidationEngine createEngine() {
+		ValidationEngine engine = ValidationEngineFactory.get().create(dataset, shapesGraphURI, shapesGraph, null);
+		engine.setConfiguration(configuration);
+		engine.setResultSink(new ValidationResultSink() {
+			
+			@Override
+			public void addResult(Resource result) {
+				Resource copy = copyResult(result, new HashMap<>());
+				report.addProperty(SH.result, copy);
+				Node focusNode = null;
+				if(!currentShapeInline) {
+					RDFNode value = JenaUtil.getProperty(result, SH.focusNode);
+					focusNode = value != null ? value.asNode() : null;
+				}
+				results.computeIfAbsent(currentShape, s -> new HashMap<>()).computeIfAbsent(focusNode, f -> new LinkedList<>()).add(copy);
+			}
+			
+			@Override
+			public boolean conforms() {
+				return true;
+			}
+			
+			@Override
+			public void finish(Resource report) {
+			}
+		});
+		return engine;
+	}
+	
+	
+	// Copies a result into the report, using new blank nodes for those that belong to the result (such as paths)
+	private Resource copyResult(Resource resource, Map<Resource,Resource> copies) {
+		Resource copy = copies.get(resource);
+		if(copy == null) {
+			copy = report.getModel().createResource();
+			copies.put(resource, copy);
+			for(Statement s : resource.listProperties().toList()) {
+				RDFNode object = s.getObject();
+				if(isOwned(object)) {
+					object = copyResult((Resource)object, copies);
+				}
+				copy.addProperty(s.getPredicate(), object);
+			}
+		}
+		return copy;
+	}
+	
+	
+	// Blank nodes with properties in the result model are part of the result, others (e.g. focus nodes) are not
+	private static boolean isOwned(RDFNode node) {
+		return node.isAnon() && node.getModel().contains((Resource)node, null);
+	}
+	
+	
+	private void removeClosure(Resource resource) {
+		for(Statement s : resource.listProperties().toList()) {
+			if(isOwned(s.getObject())) {
+				removeClosure(s.getResource());
+			}
+		}
+		resource.removeProperties();
+	}
+	
+	
+	// Removes the results for a given focus node or, if null, all results of the shape
+	private void removeResults(Node shape, Node focusNode) {
+		Map<Node,List<Resource>> map = results.get(shape);
+		if(map != null) {
+			Collection<List<Resource>> lists = new ArrayList<>();
+			if(focusNode == null) {
+				lists.addAll(map.values());
+			}
+			else if(map.containsKey(focusNode)) {
+				lists.add(map.remove(focusNode));
+			}
+			for(List<Resource> list : lists) {
+				for(Resource result : list) {
+					report.getModel().remove(report, SH.result, result);
+					removeClosure(result);
+				}
+			}
+		}
+	}
+	
+	
+	private void validateFocusNodes(ValidationEngine engine, Shape shape, List<RDFNode> focusNodes) {
+		if(!focusNodes.isEmpty() && !shapesGraph.isIgnored(shape.getShapeResource().asNode())) {
+			currentShape = shape.getShapeResource().asNode();
+			currentShapeInline = getDependencies(shape).hasInlineNesting();
+			// Functions such as tosh:hasShape find the engine through ValidationEngine.getCurrent()
+			ValidationEngine oldEngine = ValidationEngine.getCurrent();
+			ValidationEngine.setCurrent(engine);
+			try {
+				for(Constraint constraint : shape.getConstraints()) {
+					engine.validateNodesAgainstConstraint(focusNodes, constraint);
+					engine.flushPendingResult();
+				}
+			}
+			finally {
+				ValidationEngine.setCurrent(oldEngine);
+			}
+		}
+	}
+	
+	
+	private void updateConforms() {
+		boolean conforms = true;
+		for(Statement s : report.listProperties(SH.result).toList()) {
+			if(s.getResource().hasProperty(RDF.type, SH.ValidationResult)) {
+				conforms = false;
+				break;
+			}
+		}
+		report.removeAll(SH.conforms);
+		report.addProperty(SH.conforms, conforms ? JenaDatatypes.TRUE : JenaDatatypes.FALSE);
+	}
+}
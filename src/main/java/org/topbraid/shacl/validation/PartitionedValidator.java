@@ -0,0 +1,764 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.graph.compose.MultiUnion;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.RDFList;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.riot.lang.LabelToNode;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFBase;
+import org.apache.jena.riot.system.StreamRDFWriter;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+import org.topbraid.jenax.util.JenaDatatypes;
+import org.topbraid.jenax.util.JenaUtil;
+import org.topbraid.shacl.engine.CompiledShapesGraph;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.engine.Shape;
+import org.topbraid.shacl.js.SHACLScriptEngineManager;
+import org.topbraid.shacl.model.SHConstraintComponent;
+import org.topbraid.shacl.validation.sparql.QueryCopies;
+import org.topbraid.shacl.vocabulary.DASH;
+import org.topbraid.shacl.vocabulary.SH;
+
+/**
+ * Validates a data graph that may be larger than the available memory, by splitting it into
+ * partitions while it is being read.
+ * 
+ * Before the data is read, the predicates of all triples that are needed by the non-local
+ * constraints (see {@link #isLocalConstraint(Constraint)}) and to resolve the targets are
+ * derived from the shapes graph.  For example, sh:class needs rdf:type and rdfs:subClassOf,
+ * and any constraint needs the predicates of the path of its property shape.  Triples with
+ * these predicates are kept in an in-memory global graph.  All other triples are spilled to
+ * N-Triples files, partitioned by subject.
+ * The non-local constraints are validated against the global graph.  Then each partition is
+ * loaded into memory on its own, and the local constraints of the focus nodes in the partition
+ * are validated against the union of the partition and the global graph.  Finally the results
+ * of all partitions are merged into a single report.
+ * Only the global graph and one partition per thread are therefore held in memory at any time.
+ * 
+ * The triples needed by some shapes cannot be determined from the shapes graph, e.g. if they use
+ * SPARQL-based constraints.  The targets of these shapes are resolved against the global graph,
+ * and only if they have any focus nodes are the partitions merged back into the global graph
+ * to validate all shapes against the complete data.  This is typically not the case for the
+ * shapes from the SHACL system graph, which only target shape definitions.
+ * If any shape uses custom targets (sh:target) then all triples are kept in the global graph.
+ * Entailments (sh:entailment) are not supported.
+ * 
+ * If the configuration has parallel validation enabled then the partitions are validated by the
+ * executor, each on a single thread.
+ * The maximum number of violations of the configuration applies to all partitions together.
+ */
+public class PartitionedValidator {
+	
+	/**
+	 * Sends the data to be validated to a StreamRDF, e.g. by parsing the data files.
+	 */
+	@FunctionalInterface
+	public interface Input {
+		
+		/**
+		 * Sends all triples of the data graph to a given stream.
+		 * @param stream  the StreamRDF to send the triples to
+		 * @throws IOException  if the data could not be read
+		 */
+		void send(StreamRDF stream) throws IOException;
+	}
+	
+	
+	// Components that only need the value nodes
+	private final static Set<Resource> VALUE_COMPONENTS = new HashSet<>(Arrays.asList(
+			SH.DatatypeConstraintComponent, SH.HasValueConstraintComponent, SH.InConstraintComponent,
+			SH.LanguageInConstraintComponent, SH.MaxCountConstraintComponent, SH.MaxExclusiveConstraintComponent,
+			SH.MaxInclusiveConstraintComponent, SH.MaxLengthConstraintComponent, SH.MinCountConstraintComponent,
+			SH.MinExclusiveConstraintComponent, SH.MinInclusiveConstraintComponent, SH.MinLengthConstraintComponent,
+			SH.NodeKindConstraintComponent, SH.PatternConstraintComponent, SH.UniqueLangConstraintComponent));
+	
+	// Components that compare the value nodes with the values of the predicate that is their parameter
+	private final static Set<Resource> PROPERTY_PAIR_COMPONENTS = new HashSet<>(Arrays.asList(
+			SH.DisjointConstraintComponent, SH.EqualsConstraintComponent, 
+			SH.LessThanConstraintComponent, SH.LessThanOrEqualsConstraintComponent));
+	
+	// Components that validate the value nodes against the shape that is their parameter
+	private final static Set<Resource> SHAPE_COMPONENTS = new HashSet<>(Arrays.asList(
+			SH.NodeConstraintComponent, SH.NotConstraintComponent, SH.PropertyConstraintComponent));
+	
+	// Components that validate the value nodes against the list of shapes that is their parameter
+	private final static Set<Resource> SHAPE_LIST_COMPONENTS = new HashSet<>(Arrays.asList(
+			SH.AndConstraintComponent, SH.OrConstraintComponent, SH.XoneConstraintComponent));
+	
+	private final static List<Property> PATH_PROPERTIES = Arrays.asList(
+			SH.alternativePath, SH.inversePath, SH.oneOrMorePath, SH.zeroOrMorePath, SH.zeroOrOnePath);
+	
+	private ValidationEngineConfiguration configuration;
+	
+	private long globalTripleCount;
+	
+	// Computed lazily for each top-level Constraint
+	private Map<Constraint,Boolean> local = new ConcurrentHashMap<>();
+	
+	private int localConstraintCount;
+	
+	private ValidationResultSink resultSink;
+	
+	private int partitionCount;
+	
+	private CompiledShapesGraph shapesGraph;
+	
+	private File spillDirectory;
+	
+	private long tripleCount;
+	
+	// The shapes that may need any triple, computed by getGlobalPredicates
+	private List<Shape> unboundedShapes = new ArrayList<>();
+	
+	
+	/**
+	 * Constructs a new PartitionedValidator.
+	 * @param shapesGraph  the compiled shapes graph, see {@link ValidationUtil#compileShapesGraph(Model, boolean)}
+	 * @param configuration  the configuration for the validation engines
+	 * @param partitionCount  the number of partitions (at least 1)
+	 */
+	public PartitionedValidator(CompiledShapesGraph shapesGraph, ValidationEngineConfiguration configuration, int partitionCount) {
+		this.configuration = configuration;
+		this.shapesGraph = shapesGraph;
+		this.partitionCount = Math.max(1, partitionCount);
+	}
+	
+	
+	/**
+	 * Gets the number of triples that were kept in the global graph in the most recent call to
+	 * {@link #validate(Input)}, i.e. that were not spilled to the partitions.
+	 * @return the number of global triples
+	 */
+	public long getGlobalTripleCount() {
+		return globalTripleCount;
+	}
+	
+	
+	/**
+	 * Gets the number of top-level constraints that were validated partition-by-partition in the
+	 * most recent call to {@link #validate(Input)}.
+	 * @return the number of local constraints
+	 */
+	public int getLocalConstraintCount() {
+		return localConstraintCount;
+	}
+	
+	
+	public ValidationResultSink getResultSink() {
+		return resultSink;
+	}
+	
+	
+	public int getPartitionCount() {
+		return partitionCount;
+	}
+	
+	
+	/**
+	 * Gets the directory that the partition files are spilled to.
+	 * @return the directory or null to use a new temporary directory (default)
+	 */
+	public File getSpillDirectory() {
+		return spillDirectory;
+	}
+	
+	
+	/**
+	 * Gets the number of triples (including duplicates) that were sent by the input of the
+	 * most recent call to {@link #validate(Input)}.
+	 * @return the number of triples
+	 */
+	public long getTripleCount() {
+		return tripleCount;
+	}
+	
+	
+	/**
+	 * Installs a ValidationResultSink that shall receive the results of all partitions instead
+	 * of the report Model, see {@link ValidationEngine#setResultSink(ValidationResultSink)}.
+	 * @param value  the new sink or null to collect the results in the report Model (default)
+	 */
+	public void setResultSink(ValidationResultSink value) {
+		this.resultSink = value;
+	}
+	
+	
+	public void setSpillDirectory(File value) {
+		this.spillDirectory = value;
+	}
+	
+	
+	/**
+	 * Checks whether a given constraint of a root shape only needs the triples that have the
+	 * focus node as their subject, which is the case if its component is a dash:localConstraint
+	 * or a dash:staticConstraint, and the constraint is either at a node shape or at a property
+	 * shape with a simple predicate path.
+	 * sh:property constraints at node shapes are local if the property shape has a predicate
+	 * path and only local constraints other than sh:property itself.
+	 * @param constraint  the Constraint to check
+	 * @return true if the constraint can be validated against the partition of the focus node
+	 */
+	public boolean isLocalConstraint(Constraint constraint) {
+		return local.computeIfAbsent(constraint, c -> isLocalConstraintHelper(c));
+	}
+	
+	
+	private boolean isLocalConstraintHelper(Constraint constraint) {
+		Shape shape = constraint.getShape();
+		boolean propertyShape = shape.getShapeResource().isPropertyShape();
+		if(propertyShape && shape.getPredicate() == null) {
+			return false;
+		}
+		if(SH.PropertyConstraintComponent.equals(constraint.getComponent())) {
+			if(propertyShape || !constraint.getParameterValue().isResource()) {
+				return false;
+			}
+			Shape nested = shapesGraph.getShape(constraint.getParameterValue().asNode());
+			if(nested.getPredicate() == null) {
+				return nested.getShapeResource().isDeactivated();
+			}
+			for(Constraint c : nested.getConstraints()) {
+				if(SH.PropertyConstraintComponent.equals(c.getComponent()) || !isLocalComponent(c.getComponent())) {
+					return false;
+				}
+			}
+			return true;
+		}
+		return isLocalComponent(constraint.getComponent());
+	}
+	
+	
+	private static boolean isLocalComponent(SHConstraintComponent component) {
+		return component.hasProperty(DASH.localConstraint, JenaDatatypes.TRUE) || 
+				component.hasProperty(DASH.staticConstraint, JenaDatatypes.TRUE);
+	}
+	
+	
+	/**
+	 * Validates the data sent by a given Input against all root shapes of the shapes graph.
+	 * @param input  the Input providing the triples of the data graph
+	 * @return an instance of sh:ValidationReport in a results Model
+	 * @throws IOException  if the input could not be read or the partition files could not be written or read
+	 * @throws InterruptedException  if the validation has been interrupted
+	 * @throws UnsupportedOperationException  if the shapes graph declares sh:entailment
+	 */
+	public Resource validate(Input input) throws IOException, InterruptedException {
+		
+		if(shapesGraph.getShapesModel().contains(null, SH.entailment, (RDFNode)null)) {
+			throw new UnsupportedOperationException("Entailments are not supported for partitioned validation");
+		}
+		
+		tripleCount = 0;
+		localConstraintCount = 0;
+		Graph globalGraph = JenaUtil.createMemoryGraph();
+		Model globalModel = ModelFactory.createModelForGraph(globalGraph);
+		Set<Node> globalPredicates = getGlobalPredicates();
+		if(globalPredicates == null) {
+			// Any constraint may need any triple
+			input.send(new StreamRDFBase() {
+				
+				@Override
+				public void triple(Triple triple) {
+					tripleCount++;
+					globalGraph.add(triple);
+				}
+				
+				@Override
+				public void quad(Quad quad) {
+					triple(quad.asTriple());
+				}
+			});
+			globalTripleCount = globalGraph.size();
+			ValidationEngine engine = ValidationUtil.createValidationEngine(globalModel, shapesGraph, configuration);
+			engine.setResultSink(resultSink);
+			return engine.validateAll();
+		}
+		
+		boolean tempDirectory = spillDirectory == null;
+		File directory = tempDirectory ? Files.createTempDirectory("shacl-partitions").toFile() : spillDirectory;
+		try {
+			List<File> files = writePartitions(input, globalPredicates, globalGraph, directory);
+			globalTripleCount = globalGraph.size();
+			ValidationEngine engine = ValidationUtil.createValidationEngine(globalModel, shapesGraph, configuration);
+			engine.setResultSink(resultSink);
+			if(configuration.getParallelValidation()) {
+				// The partitions are validated by multiple threads, which must not share the queries
+				engine.setRun(new ValidationRun(configuration, new QueryCopies()));
+			}
+			for(Shape shape : unboundedShapes) {
+				if(!engine.getTargetIndex().getTargetNodes(shape).isEmpty()) {
+					for(File file : files) {
+						readPartition(file, globalGraph);
+					}
+					localConstraintCount = 0;
+					return engine.validateAll();
+				}
+			}
+			
+			// Validate the non-local constraints against the global graph
+			Map<Shape,List<RDFNode>> globalFocusNodes = new LinkedHashMap<>();
+			for(Shape shape : getValidatedShapes()) {
+				if(hasConstraints(shape, false)) {
+					List<RDFNode> focusNodes = engine.getTargetIndex().getTargetNodes(shape);
+					if(!focusNodes.isEmpty()) {
+						globalFocusNodes.put(shape, focusNodes);
+					}
+				}
+			}
+			AtomicBoolean stopped = new AtomicBoolean(validateConstraints(engine, globalFocusNodes, false));
+			if(engine.getResultSink() != null) {
+				engine.flushPendingResult();
+			}
+			if(stopped.get()) {
+				return finish(engine);
+			}
+			
+			// Validate the local constraints against each partition.
+			// The partition engines share the violations count with the main engine, so that the
+			// maximum number of violations applies to all partitions together
+			int violations = engine.getViolationsCount();
+			ExecutorService executor = configuration.getParallelValidation() ? 
+					(configuration.getExecutorService() != null ? configuration.getExecutorService() : ForkJoinPool.commonPool()) : null;
+			if(executor == null) {
+				for(int i = 0; i < partitionCount; i++) {
+					violations = mergeResults(engine, validatePartition(i, files.get(i), globalGraph, engine, stopped), violations);
+				}
+			}
+			else {
+				List<Future<Resource>> futures = new ArrayList<>(partitionCount);
+				for(int i = 0; i < partitionCount; i++) {
+					int partition = i;
+					File file = files.get(i);
+					futures.add(executor.submit(() -> validatePartition(partition, file, globalGraph, engine, stopped)));
+				}
+				try {
+					for(Future<Resource> future : futures) {
+						violations = mergeResults(engine, future.get(), violations);
+					}
+				}
+				catch(ExecutionException ex) {
+					Throwable cause = ex.getCause();
+					if(cause instanceof RuntimeException) {
+						throw (RuntimeException) cause;
+					}
+					else if(cause instanceof Error) {
+						throw (Error) cause;
+					}
+					else if(cause instanceof IOException) {
+						throw (IOException) cause;
+					}
+					else {
+						throw new IllegalStateException(cause);
+					}
+				}
+				finally {
+					stopped.set(true);
+					for(Future<Resource> future : futures) {
+						future.cancel(false);
+					}
+				}
+			}
+			return finish(engine);
+		}
+		finally {
+			if(tempDirectory) {
+				for(File file : directory.listFiles()) {
+					file.delete();
+				}
+				directory.delete();
+			}
+		}
+	}
+	
+	
+	private Resource finish(ValidationEngine engine) {
+		engine.updateConforms();
+		if(engine.getResultSink() != null) {
+			engine.getResultSink().finish(engine.getReport());
+		}
+		return engine.getReport();
+	}
+	
+	
+	// Collects the predicates of the triples that are needed to validate the non-local constraints
+	// and to resolve the targets, or returns null if the targets cannot be determined.
+	// Also collects the unbounded shapes and counts the local constraints
+	private Set<Node> getGlobalPredicates() {
+		unboundedShapes.clear();
+		Set<Node> predicates = new HashSet<>();
+		predicates.add(RDFS.subClassOf.asNode());
+		Map<Node,Boolean> visited = new HashMap<>();
+		for(Shape shape : getValidatedShapes()) {
+			Resource shapeResource = shape.getShapeResource();
+			if(shapeResource.hasProperty(SH.target)) {
+				return null;
+			}
+			
+			// The objects of a predicate may be in any partition
+			for(Statement s : shapeResource.listProperties(SH.targetObjectsOf).toList()) {
+				predicates.add(s.getObject().asNode());
+			}
+			
+			boolean hasGlobal = false;
+			for(Constraint constraint : shape.getConstraints()) {
+				if(isLocalConstraint(constraint)) {
+					localConstraintCount++;
+				}
+				else {
+					hasGlobal = true;
+					if(!unboundedShapes.contains(shape) && 
+							(!addPathPredicates(constraint.getShape(), predicates) || !addComponentPredicates(constraint, predicates, visited))) {
+						unboundedShapes.add(shape);
+					}
+				}
+			}
+			if(hasGlobal) {
+				if(JenaUtil.hasIndirectType(shapeResource, RDFS.Class) || shapeResource.hasProperty(SH.targetClass)) {
+					predicates.add(RDF.type.asNode());
+				}
+				for(Statement s : shapeResource.listProperties(SH.targetSubjectsOf).toList()) {
+					predicates.add(s.getObject().asNode());
+				}
+			}
+		}
+		return predicates;
+	}
+	
+	
+	// Adds the predicates needed by a constraint (except for the path of its shape), returns false if unknown
+	private boolean addComponentPredicates(Constraint constraint, Set<Node> predicates, Map<Node,Boolean> visited) {
+		SHConstraintComponent component = constraint.getComponent();
+		RDFNode value = constraint.getParameterValue();
+		if(VALUE_COMPONENTS.contains(component)) {
+			return true;
+		}
+		else if(PROPERTY_PAIR_COMPONENTS.contains(component)) {
+			if(value == null || !value.isURIResource()) {
+				return false;
+			}
+			predicates.add(value.asNode());
+			return true;
+		}
+		else if(SH.ClassConstraintComponent.equals(component)) {
+			predicates.add(RDF.type.asNode());
+			return true;
+		}
+		else if(SHAPE_COMPONENTS.contains(component)) {
+			return value != null && value.isResource() && addShapePredicates(value.asNode(), predicates, visited);
+		}
+		else if(SHAPE_LIST_COMPONENTS.contains(component)) {
+			if(value == null || !value.canAs(RDFList.class)) {
+				return false;
+			}
+			for(RDFNode member : value.as(RDFList.class).iterator().toList()) {
+				if(!member.isResource() || !addShapePredicates(member.asNode(), predicates, visited)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		else if(SH.QualifiedMinCountConstraintComponent.equals(component) || SH.QualifiedMaxCountConstraintComponent.equals(component)) {
+			// Includes the sibling shapes, which are only needed if the shapes are disjoint
+			Resource shape = constraint.getShapeResource();
+			for(Resource parentShape : shape.getModel().listSubjectsWithProperty(SH.property, shape).toList()) {
+				for(Resource siblingShape : JenaUtil.getResourceProperties(parentShape, SH.property)) {
+					for(Statement s : siblingShape.listProperties(SH.qualifiedValueShape).toList()) {
+						if(!s.getObject().isResource() || !addShapePredicates(s.getObject().asNode(), predicates, visited)) {
+							return false;
+						}
+					}
+				}
+			}
+			for(Statement s : shape.listProperties(SH.qualifiedValueShape).toList()) {
+				if(!s.getObject().isResource() || !addShapePredicates(s.getObject().asNode(), predicates, visited)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		else {
+			// SPARQL-based, JavaScript-based and other components may query any triple
+			return false;
+		}
+	}
+	
+	
+	// Adds the predicates needed to validate a value node against a nested shape, returns false if unknown.
+	// The visited Map holds the result for each shape, which is assumed to be true during recursion
+	private boolean addShapePredicates(Node shapeNode, Set<Node> predicates, Map<Node,Boolean> visited) {
+		Boolean known = visited.get(shapeNode);
+		if(known != null) {
+			return known;
+		}
+		visited.put(shapeNode, true);
+		Shape shape = shapesGraph.getShape(shapeNode);
+		boolean result = shape.getShapeResource().isDeactivated() || addPathPredicates(shape, predicates);
+		if(result && !shape.getShapeResource().isDeactivated()) {
+			for(Constraint constraint : shape.getConstraints()) {
+				if(!addComponentPredicates(constraint, predicates, visited)) {
+					result = false;
+					break;
+				}
+			}
+		}
+		visited.put(shapeNode, result);
+		return result;
+	}
+	
+	
+	private static boolean addPathPredicates(Shape shape, Set<Node> predicates) {
+		Resource path = JenaUtil.getResourceProperty(shape.getShapeResource(), SH.path);
+		return path == null || addPathPredicates(path, predicates);
+	}
+	
+	
+	// Adds the predicates of a SHACL property path, returns false for unknown path syntax
+	private static boolean addPathPredicates(RDFNode path, Set<Node> predicates) {
+		if(path.isURIResource()) {
+			predicates.add(path.asNode());
+			return true;
+		}
+		else if(path.isAnon()) {
+			Resource resource = path.asResource();
+			if(resource.hasProperty(RDF.first)) {
+				for(RDFNode member : resource.as(RDFList.class).iterator().toList()) {
+					if(!addPathPredicates(member, predicates)) {
+						return false;
+					}
+				}
+				return true;
+			}
+			for(Property property : PATH_PROPERTIES) {
+				Statement s = resource.getProperty(property);
+				if(s != null) {
+					return addPathPredicates(s.getObject(), predicates);
+				}
+			}
+		}
+		return false;
+	}
+	
+	
+	private int getPartition(Node subject) {
+		return Math.floorMod(subject.hashCode(), partitionCount);
+	}
+	
+	
+	// The root shapes that are not ignored
+	private List<Shape> getValidatedShapes() {
+		List<Shape> shapes = new ArrayList<>();
+		for(Shape shape : shapesGraph.getRootShapes()) {
+			if(!shapesGraph.isIgnored(shape.getShapeResource().asNode())) {
+				shapes.add(shape);
+			}
+		}
+		return shapes;
+	}
+	
+	
+	private boolean hasConstraints(Shape shape, boolean localOnly) {
+		for(Constraint constraint : shape.getConstraints()) {
+			if(isLocalConstraint(constraint) == localOnly) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	
+	// Adds the results of a partition to the report, up to the maximum number of violations
+	private int mergeResults(ValidationEngine engine, Resource partitionReport, int violations) {
+		if(partitionReport == null) {
+			return violations;
+		}
+		Resource report = engine.getReport();
+		ValidationResultSink sink = engine.getResultSink();
+		int maxViolations = configuration.getValidationErrorBatch();
+		for(Statement s : partitionReport.listProperties(SH.result).toList()) {
+			Resource result = s.getResource();
+			if(result.hasProperty(SH.resultSeverity, SH.Violation)) {
+				if(maxViolations != -1 && violations >= maxViolations) {
+					continue;
+				}
+				violations++;
+			}
+			if(sink != null) {
+				sink.addResult(result);
+			}
+			else {
+				ValidationEngine.addClosure(result, report.getModel(), new HashSet<>());
+				report.addProperty(SH.result, result);
+			}
+		}
+		return violations;
+	}
+	
+	
+	// Validates the local (or non-local) constraints of the given shapes against their focus nodes
+	// and returns true if the maximum number of violations has been reached
+	private boolean validateConstraints(ValidationEngine engine, Map<Shape,List<RDFNode>> focusNodes, boolean localOnly) {
+		boolean nested = SHACLScriptEngineManager.begin();
+		ValidationEngine oldEngine = ValidationEngine.getCurrent();
+		ValidationEngine.setCurrent(engine);
+		try {
+			for(Map.Entry<Shape,List<RDFNode>> entry : focusNodes.entrySet()) {
+				for(Constraint constraint : entry.getKey().getConstraints()) {
+					if(isLocalConstraint(constraint) == localOnly) {
+						engine.validateNodesAgainstConstraint(entry.getValue(), constraint);
+					}
+				}
+			}
+		}
+		catch(MaximumNumberViolations ex) {
+			return true;
+		}
+		finally {
+			ValidationEngine.setCurrent(oldEngine);
+			SHACLScriptEngineManager.end(nested);
+		}
+		return false;
+	}
+	
+	
+	private Resource validatePartition(int partition, File file, Graph globalGraph, ValidationEngine mainEngine, AtomicBoolean stopped) throws IOException {
+		if(stopped.get()) {
+			file.delete();
+			return null;
+		}
+		Graph graph = JenaUtil.createMemoryGraph();
+		readPartition(file, graph);
+		
+		// The partition and the global graph are disjoint, and together hold all triples of the
+		// focus nodes in the partition
+		Model partitionModel = ModelFactory.createModelForGraph(new MultiUnion(new Graph[] { graph, globalGraph }));
+		ValidationEngine engine = ValidationUtil.createValidationEngine(partitionModel, shapesGraph, configuration);
+		engine.setRun(mainEngine.getRun().createRunForOtherData(configuration));
+		engine.shareViolationsCount(mainEngine);
+		Map<Shape,List<RDFNode>> focusNodes = new LinkedHashMap<>();
+		for(Shape shape : getValidatedShapes()) {
+			if(hasConstraints(shape, true)) {
+				List<RDFNode> nodes = new ArrayList<>();
+				for(RDFNode focusNode : engine.getTargetIndex().getTargetNodes(shape)) {
+					if(getPartition(focusNode.asNode()) == partition) {
+						nodes.add(focusNode);
+					}
+				}
+				if(!nodes.isEmpty()) {
+					focusNodes.put(shape, nodes);
+				}
+			}
+		}
+		if(validateConstraints(engine, focusNodes, true)) {
+			stopped.set(true);
+		}
+		return engine.getReport();
+	}
+	
+	
+	private static void readPartition(File file, Graph graph) throws IOException {
+		try(InputStream in = new BufferedInputStream(new FileInputStream(file), 1 << 16)) {
+			// The labels of blank nodes are preserved, so that they match the nodes of the global graph
+			RDFParser.create().source(in).lang(Lang.NTRIPLES).labelToNode(LabelToNode.createUseLabelEncoded()).parse(graph);
+		}
+		file.delete();
+	}
+	
+	
+	// Sends the triples of the input to the global graph or to the partition files
+	private List<File> writePartitions(Input input, Set<Node> globalPredicates, Graph globalGraph, File directory) throws IOException {
+		List<File> files = new ArrayList<>(partitionCount);
+		List<OutputStream> outs = new ArrayList<>(partitionCount);
+		List<StreamRDF> streams = new ArrayList<>(partitionCount);
+		try {
+			for(int i = 0; i < partitionCount; i++) {
+				File file = new File(directory, "partition-" + i + ".nt");
+				OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 1 << 16);
+				StreamRDF stream = StreamRDFWriter.getWriterStream(out, RDFFormat.NTRIPLES);
+				stream.start();
+				files.add(file);
+				outs.add(out);
+				streams.add(stream);
+			}
+			input.send(new StreamRDFBase() {
+				
+				@Override
+				public void triple(Triple triple) {
+					tripleCount++;
+					if(globalPredicates.contains(triple.getPredicate())) {
+						globalGraph.add(triple);
+					}
+					else {
+						streams.get(getPartition(triple.getSubject())).triple(triple);
+					}
+				}
+				
+				@Override
+				public void quad(Quad quad) {
+					triple(quad.asTriple());
+				}
+			});
+			for(StreamRDF stream : streams) {
+				stream.finish();
+			}
+		}
+		finally {
+			for(OutputStream out : outs) {
+				out.close();
+			}
+		}
+		return files;
+	}
+}
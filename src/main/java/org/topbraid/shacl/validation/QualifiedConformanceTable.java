@@ -0,0 +1,173 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.jena.graph.Node;
+
+/**
+ * A bounded, thread-safe table of the value nodes that are counted by sh:qualifiedMinCount and
+ * sh:qualifiedMaxCount, i.e. that conform to a qualified value shape but (if the shapes are disjoint)
+ * to none of its sibling shapes.
+ * The entries are keyed by the qualified value shape and its sibling shapes, so that the
+ * qualifiedMinCount and qualifiedMaxCount constraints of a property shape, and all chunks of
+ * focus nodes, look up each value node only once.
+ * Since the data graph may change between runs, a ValidationEngine starts each run with a
+ * fresh table, which is shared with the nested and parallel worker engines of that run.
+ *
+ * Only definitive results are stored: failures and results that depended on a recursive
+ * call (see RecursionGuard) are evaluated each time.
+ * When the maximum size is reached, the least recently used entries are evicted.
+ */
+public class QualifiedConformanceTable {
+	
+	private AtomicLong evictions = new AtomicLong();
+	
+	private AtomicLong hits = new AtomicLong();
+	
+	private Map<Key,Boolean> map;
+	
+	private AtomicLong misses = new AtomicLong();
+	
+	
+	public QualifiedConformanceTable(int maxSize) {
+		this.map = new LinkedHashMap<Key,Boolean>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key,Boolean> eldest) {
+				if(size() > maxSize) {
+					evictions.incrementAndGet();
+					return true;
+				}
+				else {
+					return false;
+				}
+			}
+		};
+	}
+
+
+	public synchronized void clear() {
+		map.clear();
+	}
+
+
+	/**
+	 * Gets the previously computed result for a given value node.
+	 * @param qualifiedValueShape  the qualified value shape
+	 * @param siblingShapes  the sibling shapes
+	 * @param valueNode  the value node
+	 * @return true if the value node is counted, false if not, null if unknown
+	 */
+	public Boolean get(Node qualifiedValueShape, List<Node> siblingShapes, Node valueNode) {
+		Boolean result;
+		synchronized(this) {
+			result = map.get(new Key(qualifiedValueShape, siblingShapes, valueNode));
+		}
+		if(result != null) {
+			hits.incrementAndGet();
+		}
+		else {
+			misses.incrementAndGet();
+		}
+		return result;
+	}
+	
+	
+	public long getEvictionCount() {
+		return evictions.get();
+	}
+	
+	
+	public long getHitCount() {
+		return hits.get();
+	}
+	
+	
+	/**
+	 * Gets the fraction of lookups that have found an entry.
+	 * @return the hit rate between 0 and 1, or 0 if there were no lookups
+	 */
+	public double getHitRate() {
+		long hitCount = getHitCount();
+		long total = hitCount + getMissCount();
+		return total == 0 ? 0 : (double) hitCount / total;
+	}
+	
+	
+	public long getMissCount() {
+		return misses.get();
+	}
+
+
+	public synchronized void put(Node qualifiedValueShape, List<Node> siblingShapes, Node valueNode, boolean value) {
+		map.put(new Key(qualifiedValueShape, siblingShapes, valueNode), value);
+	}
+
+
+	public synchronized int size() {
+		return map.size();
+	}
+
+
+	@Override
+	public String toString() {
+		return "QualifiedConformanceTable (" + size() + " value nodes, " + getHitCount() + " hits, " + getMissCount() + " misses, " + getEvictionCount() + " evictions)";
+	}
+	
+	
+	private static class Key {
+		
+		private int hashCode;
+		
+		private List<Node> shapes;
+		
+		private Node valueNode;
+		
+		
+		Key(Node qualifiedValueShape, List<Node> siblingShapes, Node valueNode) {
+			this.shapes = new ArrayList<>(siblingShapes.size() + 1);
+			shapes.add(qualifiedValueShape);
+			shapes.addAll(siblingShapes);
+			this.valueNode = valueNode;
+			this.hashCode = 31 * shapes.hashCode() + valueNode.hashCode();
+		}
+		
+		
+		@Override
+		public boolean equals(Object other) {
+			if(other instanceof Key) {
+				Key key = (Key) other;
+				return key.hashCode == hashCode && key.valueNode.equals(valueNode) && key.shapes.equals(shapes);
+			}
+			else {
+				return false;
+			}
+		}
+		
+		
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+	}
+}
@@ -0,0 +1,348 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.rdf.model.RDFList;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.vocabulary.RDF;
+import org.topbraid.jenax.util.JenaDatatypes;
+import org.topbraid.jenax.util.JenaUtil;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.engine.Shape;
+import org.topbraid.shacl.engine.ShapesGraph;
+import org.topbraid.shacl.vocabulary.SH;
+
+/**
+ * Describes which triples of the data graph the validation of a focus node against a given
+ * (root) shape may depend on.  This is derived from the paths of the shape and its nested shapes,
+ * and from the constraint components that they use.  Used by the IncrementalValidationEngine.
+ * 
+ * Shapes that use constraint components with unknown dependencies (such as SPARQL-based
+ * constraints) are marked as global, meaning that any change may affect any focus node.
+ */
+class ShapeDependencies {
+	
+	static final int UNBOUNDED = Integer.MAX_VALUE;
+	
+	// Components that only look at the value nodes themselves or at the path
+	private static final Set<Resource> LOCAL_COMPONENTS = new HashSet<>(Arrays.asList(
+			SH.DatatypeConstraintComponent,
+			SH.HasValueConstraintComponent,
+			SH.InConstraintComponent,
+			SH.LanguageInConstraintComponent,
+			SH.MaxCountConstraintComponent,
+			SH.MaxExclusiveConstraintComponent,
+			SH.MaxInclusiveConstraintComponent,
+			SH.MaxLengthConstraintComponent,
+			SH.MinCountConstraintComponent,
+			SH.MinExclusiveConstraintComponent,
+			SH.MinInclusiveConstraintComponent,
+			SH.MinLengthConstraintComponent,
+			SH.NodeKindConstraintComponent,
+			SH.PatternConstraintComponent,
+			SH.UniqueLangConstraintComponent));
+	
+	// Components that compare the values with those of another property of the focus node
+	private static final Set<Resource> PAIR_COMPONENTS = new HashSet<>(Arrays.asList(
+			SH.DisjointConstraintComponent,
+			SH.EqualsConstraintComponent,
+			SH.LessThanConstraintComponent,
+			SH.LessThanOrEqualsConstraintComponent));
+	
+	private boolean anyForwardRead;
+	
+	private boolean classSensitive;
+	
+	private boolean global;
+	
+	private boolean inlineNesting;
+	
+	private int maxDepth;
+	
+	private Set<Node> readForward = new HashSet<>();
+	
+	private Set<Node> readInverse = new HashSet<>();
+	
+	private ShapesGraph shapesGraph;
+	
+	private Set<Node> traverseForward = new HashSet<>();
+	
+	private Set<Node> traverseInverse = new HashSet<>();
+	
+	private Map<Node,Integer> visitedDepths = new HashMap<>();
+	
+	private Set<Node> visiting = new HashSet<>();
+	
+	
+	ShapeDependencies(ShapesGraph shapesGraph, Shape rootShape) {
+		this.shapesGraph = shapesGraph;
+		analyzeShape(rootShape, 0, true);
+	}
+	
+	
+	/**
+	 * Checks whether the results of a focus node may depend on a triple with a given predicate
+	 * where the focus node (or one of the nodes reachable from it) is the subject.
+	 * @param predicate  the predicate
+	 * @return true if a triple may affect the subject
+	 */
+	boolean affectsSubject(Node predicate) {
+		return anyForwardRead || readForward.contains(predicate);
+	}
+	
+	
+	boolean affectsObject(Node predicate) {
+		return readInverse.contains(predicate);
+	}
+	
+	
+	/**
+	 * Gets the maximum number of steps between a focus node and a node whose triples
+	 * may affect the results of the focus node.
+	 * @return the max depth or UNBOUNDED
+	 */
+	int getMaxDepth() {
+		return maxDepth;
+	}
+	
+	
+	/**
+	 * Gets the predicates that paths traverse from subject to object.
+	 * @return the forward predicates
+	 */
+	Set<Node> getTraverseForward() {
+		return traverseForward;
+	}
+	
+	
+	Set<Node> getTraverseInverse() {
+		return traverseInverse;
+	}
+	
+	
+	/**
+	 * Checks whether changes to the class hierarchy may affect the results.
+	 * @return true if sh:class is used
+	 */
+	boolean isClassSensitive() {
+		return classSensitive;
+	}
+	
+	
+	/**
+	 * Checks whether the dependencies could not be determined, so that any change
+	 * may affect the results of any focus node.
+	 * @return true if global
+	 */
+	boolean isGlobal() {
+		return global;
+	}
+	
+	
+	/**
+	 * Checks whether the shape has sh:property constraints at property shapes that are
+	 * executed as part of the root shape.  In those cases the sh:focusNode of the results
+	 * are value nodes and not the focus nodes of the root shape.
+	 * @return true if results cannot be attributed to the focus nodes of the root shape
+	 */
+	boolean hasInlineNesting() {
+		return inlineNesting;
+	}
+	
+	
+	private void analyzeShape(Shape shape, int focusDepth, boolean inline) {
+		Node shapeNode = shape.getShapeResource().asNode();
+		if(visiting.contains(shapeNode)) {
+			// Recursive shapes may walk arbitrarily deep into the data
+			addDepth(UNBOUNDED);
+			return;
+		}
+		Integer oldDepth = visitedDepths.get(shapeNode);
+		if(oldDepth != null && oldDepth >= focusDepth && !inline) {
+			return;
+		}
+		visitedDepths.put(shapeNode, focusDepth);
+		visiting.add(shapeNode);
+		try {
+			Resource shapeResource = shape.getShapeResource();
+			int valueDepth = focusDepth;
+			Resource path = JenaUtil.getResourceProperty(shapeResource, SH.path);
+			if(path != null) {
+				valueDepth = add(focusDepth, analyzePath(path, false));
+			}
+			addDepth(valueDepth);
+			for(Constraint constraint : shape.getConstraints()) {
+				analyzeConstraint(constraint, focusDepth, valueDepth, inline);
+			}
+		}
+		finally {
+			visiting.remove(shapeNode);
+		}
+	}
+	
+	
+	private void analyzeConstraint(Constraint constraint, int focusDepth, int valueDepth, boolean inline) {
+		Resource component = constraint.getComponent();
+		Resource shapeResource = constraint.getShapeResource();
+		if(LOCAL_COMPONENTS.contains(component)) {
+			// Nothing beyond the path
+		}
+		else if(SH.ClassConstraintComponent.equals(component)) {
+			readForward.add(RDF.type.asNode());
+			classSensitive = true;
+		}
+		else if(PAIR_COMPONENTS.contains(component)) {
+			RDFNode predicate = constraint.getParameterValue();
+			if(predicate != null && predicate.isURIResource()) {
+				readForward.add(predicate.asNode());
+				addDepth(focusDepth);
+			}
+			else {
+				global = true;
+			}
+		}
+		else if(SH.ClosedConstraintComponent.equals(component)) {
+			anyForwardRead = true;
+			addDepth(focusDepth);
+		}
+		else if(SH.NodeConstraintComponent.equals(component) || SH.NotConstraintComponent.equals(component)) {
+			analyzeNestedShape(constraint.getParameterValue(), valueDepth, false);
+		}
+		else if(SH.AndConstraintComponent.equals(component) || SH.OrConstraintComponent.equals(component) || SH.XoneConstraintComponent.equals(component)) {
+			RDFNode list = constraint.getParameterValue();
+			if(list != null && list.canAs(RDFList.class)) {
+				for(RDFNode member : list.as(RDFList.class).iterator().toList()) {
+					analyzeNestedShape(member, valueDepth, false);
+				}
+			}
+			else {
+				global = true;
+			}
+		}
+		else if(SH.PropertyConstraintComponent.equals(component)) {
+			if(inline && shapeResource.hasProperty(SH.path)) {
+				inlineNesting = true;
+			}
+			analyzeNestedShape(constraint.getParameterValue(), valueDepth, inline);
+		}
+		else if(SH.QualifiedMinCountConstraintComponent.equals(component) || SH.QualifiedMaxCountConstraintComponent.equals(component)) {
+			analyzeNestedShape(JenaUtil.getProperty(shapeResource, SH.qualifiedValueShape), valueDepth, false);
+			if(shapeResource.hasProperty(SH.qualifiedValueShapesDisjoint, JenaDatatypes.TRUE)) {
+				// The sibling shapes are also evaluated against the value nodes
+				for(Resource parent : shapeResource.getModel().listSubjectsWithProperty(SH.property, shapeResource).toList()) {
+					for(Resource sibling : JenaUtil.getResourceProperties(parent, SH.property)) {
+						analyzeNestedShape(JenaUtil.getProperty(sibling, SH.qualifiedValueShape), valueDepth, false);
+					}
+				}
+			}
+		}
+		else {
+			global = true;
+		}
+	}
+	
+	
+	private void analyzeNestedShape(RDFNode shape, int focusDepth, boolean inline) {
+		if(shape != null && shape.isResource()) {
+			analyzeShape(shapesGraph.getShape(shape.asNode()), focusDepth, inline);
+		}
+		else if(shape != null) {
+			global = true;
+		}
+	}
+	
+	
+	// Returns the number of steps of the path, registering its predicates
+	private int analyzePath(Resource path, boolean inverse) {
+		if(path.isURIResource()) {
+			Node predicate = path.asNode();
+			if(inverse) {
+				traverseInverse.add(predicate);
+				readInverse.add(predicate);
+			}
+			else {
+				traverseForward.add(predicate);
+				readForward.add(predicate);
+			}
+			return 1;
+		}
+		else if(path.canAs(RDFList.class) && (RDF.nil.equals(path) || path.hasProperty(RDF.first))) {
+			int length = 0;
+			for(RDFNode member : path.as(RDFList.class).iterator().toList()) {
+				if(!member.isResource()) {
+					global = true;
+					return 0;
+				}
+				length = add(length, analyzePath((Resource)member, inverse));
+			}
+			return length;
+		}
+		else if(path.hasProperty(SH.inversePath)) {
+			return analyzePath(JenaUtil.getResourceProperty(path, SH.inversePath), !inverse);
+		}
+		else if(path.hasProperty(SH.alternativePath)) {
+			int length = 0;
+			RDFNode list = JenaUtil.getProperty(path, SH.alternativePath);
+			if(list.canAs(RDFList.class)) {
+				for(RDFNode member : list.as(RDFList.class).iterator().toList()) {
+					if(member.isResource()) {
+						length = Math.max(length, analyzePath((Resource)member, inverse));
+					}
+				}
+			}
+			return length;
+		}
+		else if(path.hasProperty(SH.zeroOrOnePath)) {
+			return analyzePath(JenaUtil.getResourceProperty(path, SH.zeroOrOnePath), inverse);
+		}
+		else if(path.hasProperty(SH.zeroOrMorePath)) {
+			analyzePath(JenaUtil.getResourceProperty(path, SH.zeroOrMorePath), inverse);
+			return UNBOUNDED;
+		}
+		else if(path.hasProperty(SH.oneOrMorePath)) {
+			analyzePath(JenaUtil.getResourceProperty(path, SH.oneOrMorePath), inverse);
+			return UNBOUNDED;
+		}
+		else {
+			global = true;
+			return 0;
+		}
+	}
+	
+	
+	private void addDepth(int depth) {
+		maxDepth = Math.max(maxDepth, depth);
+	}
+	
+	
+	private static int add(int a, int b) {
+		if(a == UNBOUNDED || b == UNBOUNDED) {
+			return UNBOUNDED;
+		}
+		else {
+			return a + b;
+		}
+	}
+}
@@ -0,0 +1,228 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.QuerySolutionMap;
+import org.apache.jena.rdf.model.RDFNode;
+import org.topbraid.jenax.util.JenaDatatypes;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.model.SHParameter;
+import org.topbraid.shacl.vocabulary.DASH;
+
+/**
+ * A bounded, thread-safe cache of the outcome of constraints from components marked with
+ * dash:staticConstraint true, such as sh:datatype and sh:pattern.
+ * Since these only depend on the value node and the parameter values, the outcome is shared
+ * by all constraints with the same component and parameters, e.g. all sh:datatype xsd:date
+ * constraints, for each distinct value node.
+ * A ValidationEngine starts each run with a fresh cache, which is shared with the nested and
+ * parallel worker engines of that run.
+ * When the maximum size is reached, the least recently used entries are evicted.
+ */
+public class StaticConstraintCache {
+	
+	// Marks constraints of components that are not static
+	private static final List<Node> NOT_STATIC = Collections.emptyList();
+	
+	private Map<Constraint,List<Node>> constraintKeys = new ConcurrentHashMap<>();
+	
+	private AtomicLong evictions = new AtomicLong();
+	
+	private AtomicLong hits = new AtomicLong();
+	
+	private Map<Key,Boolean> map;
+	
+	private AtomicLong misses = new AtomicLong();
+	
+	
+	public StaticConstraintCache(int maxSize) {
+		this.map = new LinkedHashMap<Key,Boolean>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key,Boolean> eldest) {
+				if(size() > maxSize) {
+					evictions.incrementAndGet();
+					return true;
+				}
+				else {
+					return false;
+				}
+			}
+		};
+	}
+	
+	
+	public synchronized void clear() {
+		map.clear();
+	}
+	
+	
+	/**
+	 * Gets the previously computed outcome of a static constraint for a given value node.
+	 * @param constraintKey  the key of the constraint, see {@link #getConstraintKey(Constraint)}
+	 * @param valueNode  the value node
+	 * @return true or false if known, otherwise null
+	 */
+	public Boolean get(List<Node> constraintKey, Node valueNode) {
+		Boolean result;
+		synchronized(this) {
+			result = map.get(new Key(constraintKey, valueNode));
+		}
+		if(result != null) {
+			hits.incrementAndGet();
+		}
+		else {
+			misses.incrementAndGet();
+		}
+		return result;
+	}
+	
+	
+	/**
+	 * Gets the outcome of a static constraint for a given value node, computing and remembering
+	 * it if it is not known yet.
+	 * @param constraintKey  the key of the constraint, see {@link #getConstraintKey(Constraint)}
+	 * @param valueNode  the value node
+	 * @param conforms  computes the outcome if not cached
+	 * @return true if the value node conforms
+	 */
+	public boolean getOrCompute(List<Node> constraintKey, Node valueNode, BooleanSupplier conforms) {
+		Boolean cached = get(constraintKey, valueNode);
+		if(cached != null) {
+			return cached;
+		}
+		boolean result = conforms.getAsBoolean();
+		put(constraintKey, valueNode, result);
+		return result;
+	}
+	
+	
+	/**
+	 * Gets the key under which the outcomes of a given constraint are stored, consisting of
+	 * the constraint component and its parameter values.
+	 * @param constraint  the Constraint
+	 * @return the key or null if the component is not a dash:staticConstraint
+	 */
+	public List<Node> getConstraintKey(Constraint constraint) {
+		List<Node> key = constraintKeys.computeIfAbsent(constraint, c -> createConstraintKey(c));
+		return key == NOT_STATIC ? null : key;
+	}
+	
+	
+	private static List<Node> createConstraintKey(Constraint constraint) {
+		if(!constraint.getComponent().hasProperty(DASH.staticConstraint, JenaDatatypes.TRUE)) {
+			return NOT_STATIC;
+		}
+		QuerySolutionMap bindings = new QuerySolutionMap();
+		constraint.addBindings(bindings);
+		List<Node> key = new ArrayList<>();
+		key.add(constraint.getComponent().asNode());
+		for(SHParameter param : constraint.getComponent().getParameters()) {
+			RDFNode value = bindings.get(param.getVarName());
+			key.add(value != null ? value.asNode() : null);
+		}
+		return key;
+	}
+	
+	
+	public long getEvictionCount() {
+		return evictions.get();
+	}
+	
+	
+	public long getHitCount() {
+		return hits.get();
+	}
+	
+	
+	/**
+	 * Gets the fraction of lookups that have found an entry.
+	 * @return the hit rate between 0 and 1, or 0 if there were no lookups
+	 */
+	public double getHitRate() {
+		long hitCount = getHitCount();
+		long total = hitCount + getMissCount();
+		return total == 0 ? 0 : (double) hitCount / total;
+	}
+	
+	
+	public long getMissCount() {
+		return misses.get();
+	}
+	
+	
+	public synchronized void put(List<Node> constraintKey, Node valueNode, boolean conforms) {
+		map.put(new Key(constraintKey, valueNode), conforms);
+	}
+	
+	
+	public synchronized int size() {
+		return map.size();
+	}
+	
+	
+	@Override
+	public String toString() {
+		return "StaticConstraintCache (" + size() + " entries, " + getHitCount() + " hits, " + getMissCount() + " misses, " + getEvictionCount() + " evictions)";
+	}
+	
+	
+	private static class Key {
+		
+		private List<Node> constraintKey;
+		
+		private int hashCode;
+		
+		private Node valueNode;
+		
+		
+		Key(List<Node> constraintKey, Node valueNode) {
+			this.constraintKey = constraintKey;
+			this.valueNode = valueNode;
+			this.hashCode = 31 * constraintKey.hashCode() + valueNode.hashCode();
+		}
+		
+		
+		@Override
+		public boolean equals(Object other) {
+			if(other instanceof Key) {
+				Key key = (Key) other;
+				return key.hashCode == hashCode && key.valueNode.equals(valueNode) && 
+						(key.constraintKey == constraintKey || key.constraintKey.equals(constraintKey));
+			}
+			else {
+				return false;
+			}
+		}
+		
+		
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+	}
+}
@@ -0,0 +1,269 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+import org.topbraid.jenax.util.JenaUtil;
+import org.topbraid.shacl.engine.Shape;
+import org.topbraid.shacl.engine.ShapesGraph;
+import org.topbraid.shacl.util.SHACLUtil;
+import org.topbraid.shacl.vocabulary.SH;
+
+/**
+ * An index of the targets of the root shapes of a shapes graph, for a given data graph.
+ * Resolves both the focus nodes of a shape and the shapes that apply to a given node
+ * without scanning all target declarations.  The transitive closures of the subclass
+ * hierarchy of the data graph are computed on demand and then cached.
+ * getShapesForNode only looks at the triples around the given node, so that an index
+ * can also be used to validate a single node.
+ * 
+ * The index assumes that the data graph does not change while it is in use.
+ */
+public class TargetIndex {
+	
+	// Shapes by target class (including implicit class targets)
+	private Map<Node,List<Shape>> classShapes = new HashMap<>();
+	
+	// Shapes using sh:target, which need to be evaluated for each node
+	private List<Shape> customTargetShapes = new ArrayList<>();
+	
+	private Dataset dataset;
+	
+	private Graph dataGraph;
+	
+	private Map<Node,List<Shape>> nodeShapes = new HashMap<>();
+	
+	private Map<Node,List<Shape>> objectsOfShapes = new HashMap<>();
+	
+	private Map<Node,List<Shape>> subjectsOfShapes = new HashMap<>();
+	
+	private Map<Node,Set<Node>> subClasses = new HashMap<>();
+	
+	private Map<Node,Set<Node>> superClasses = new HashMap<>();
+	
+	
+	/**
+	 * Constructs a new TargetIndex for the root shapes of a given shapes graph.
+	 * @param shapesGraph  the shapes graph
+	 * @param dataset  the Dataset with the data graph as its default graph
+	 */
+	public TargetIndex(ShapesGraph shapesGraph, Dataset dataset) {
+		this.dataset = dataset;
+		this.dataGraph = dataset.getDefaultModel().getGraph();
+		
+		for(Shape shape : shapesGraph.getRootShapes()) {
+			Resource shapeResource = shape.getShapeResource();
+			if(JenaUtil.hasIndirectType(shapeResource, RDFS.Class)) {
+				add(classShapes, shapeResource.asNode(), shape);
+			}
+			for(Statement s : shapeResource.listProperties(SH.targetClass).toList()) {
+				add(classShapes, s.getObject().asNode(), shape);
+			}
+			for(Statement s : shapeResource.listProperties(SH.targetNode).toList()) {
+				add(nodeShapes, s.getObject().asNode(), shape);
+			}
+			for(Statement s : shapeResource.listProperties(SH.targetSubjectsOf).toList()) {
+				add(subjectsOfShapes, s.getObject().asNode(), shape);
+			}
+			for(Statement s : shapeResource.listProperties(SH.targetObjectsOf).toList()) {
+				add(objectsOfShapes, s.getObject().asNode(), shape);
+			}
+			if(shapeResource.hasProperty(SH.target)) {
+				customTargetShapes.add(shape);
+			}
+		}
+	}
+	
+	
+	private static void add(Map<Node,List<Shape>> map, Node key, Shape shape) {
+		List<Shape> list = map.computeIfAbsent(key, k -> new LinkedList<>());
+		if(!list.contains(shape)) {
+			list.add(shape);
+		}
+	}
+	
+	
+	// Computes the transitive closure of a class in a given direction, including the class itself
+	private Set<Node> getClosure(Node cls, boolean up, Map<Node,Set<Node>> cache) {
+		Set<Node> result = cache.get(cls);
+		if(result == null) {
+			result = new HashSet<>();
+			LinkedList<Node> queue = new LinkedList<>();
+			queue.add(cls);
+			while(!queue.isEmpty()) {
+				Node next = queue.removeFirst();
+				if(result.add(next)) {
+					if(up) {
+						for(Triple triple : dataGraph.find(next, RDFS.subClassOf.asNode(), Node.ANY).toList()) {
+							if(!triple.getObject().isLiteral()) {
+								queue.add(triple.getObject());
+							}
+						}
+					}
+					else {
+						for(Triple triple : dataGraph.find(Node.ANY, RDFS.subClassOf.asNode(), next).toList()) {
+							queue.add(triple.getSubject());
+						}
+					}
+				}
+			}
+			cache.put(cls, result);
+		}
+		return result;
+	}
+	
+	
+	/**
+	 * Gets a given class and all its (transitive) subclasses in the data graph.
+	 * @param cls  the class
+	 * @return the subclasses including cls itself
+	 */
+	public Set<Node> getSubClasses(Node cls) {
+		return getClosure(cls, false, subClasses);
+	}
+	
+	
+	/**
+	 * Gets a given class and all its (transitive) superclasses in the data graph.
+	 * @param cls  the class
+	 * @return the superclasses including cls itself
+	 */
+	public Set<Node> getSuperClasses(Node cls) {
+		return getClosure(cls, true, superClasses);
+	}
+	
+	
+	/**
+	 * Gets the root shapes that have a given node as a target.
+	 * @param focusNode  the node (in the data graph)
+	 * @return the applicable shapes
+	 */
+	public Set<Shape> getShapesForNode(RDFNode focusNode) {
+		Set<Shape> results = new LinkedHashSet<>();
+		Node node = focusNode.asNode();
+		
+		results.addAll(nodeShapes.getOrDefault(node, Collections.emptyList()));
+		
+		if(!node.isLiteral()) {
+			if(!classShapes.isEmpty()) {
+				for(Triple triple : dataGraph.find(node, RDF.type.asNode(), Node.ANY).toList()) {
+					for(Node type : getSuperClasses(triple.getObject())) {
+						results.addAll(classShapes.getOrDefault(type, Collections.emptyList()));
+					}
+				}
+			}
+		}
+		
+		if(!node.isLiteral()) {
+			for(Map.Entry<Node,List<Shape>> entry : subjectsOfShapes.entrySet()) {
+				if(dataGraph.contains(node, entry.getKey(), Node.ANY)) {
+					results.addAll(entry.getValue());
+				}
+			}
+		}
+		for(Map.Entry<Node,List<Shape>> entry : objectsOfShapes.entrySet()) {
+			if(dataGraph.contains(Node.ANY, entry.getKey(), node)) {
+				results.addAll(entry.getValue());
+			}
+		}
+		
+		for(Shape shape : customTargetShapes) {
+			for(Resource target : JenaUtil.getResourceProperties(shape.getShapeResource(), SH.target)) {
+				if(SHACLUtil.isInTarget(focusNode, dataset, target)) {
+					results.add(shape);
+					break;
+				}
+			}
+		}
+		
+		return results;
+	}
+	
+	
+	/**
+	 * Gets the focus nodes of a given shape, equivalent to SHACLUtil.getTargetNodes.
+	 * @param shape  the shape to get the focus nodes of
+	 * @return the focus nodes (without duplicates)
+	 */
+	public List<RDFNode> getTargetNodes(Shape shape) {
+		Resource shapeResource = shape.getShapeResource();
+		Model dataModel = dataset.getDefaultModel();
+		Set<Node> results = new LinkedHashSet<>();
+		
+		List<Node> classes = new LinkedList<>();
+		if(JenaUtil.hasIndirectType(shapeResource, RDFS.Class)) {
+			classes.add(shapeResource.asNode());
+		}
+		for(Statement s : shapeResource.listProperties(SH.targetClass).toList()) {
+			classes.add(s.getObject().asNode());
+		}
+		for(Node cls : classes) {
+			for(Node subClass : getSubClasses(cls)) {
+				for(Triple triple : dataGraph.find(Node.ANY, RDF.type.asNode(), subClass).toList()) {
+					results.add(triple.getSubject());
+				}
+			}
+		}
+		
+		for(Statement s : shapeResource.listProperties(SH.targetNode).toList()) {
+			results.add(s.getObject().asNode());
+		}
+		
+		for(Statement s : shapeResource.listProperties(SH.targetSubjectsOf).toList()) {
+			for(Triple triple : dataGraph.find(Node.ANY, s.getObject().asNode(), Node.ANY).toList()) {
+				results.add(triple.getSubject());
+			}
+		}
+		
+		for(Statement s : shapeResource.listProperties(SH.targetObjectsOf).toList()) {
+			for(Triple triple : dataGraph.find(Node.ANY, s.getObject().asNode(), Node.ANY).toList()) {
+				results.add(triple.getObject());
+			}
+		}
+		
+		for(Resource target : JenaUtil.getResourceProperties(shapeResource, SH.target)) {
+			for(RDFNode targetNode : SHACLUtil.getResourcesInTarget(target, dataset)) {
+				results.add(targetNode.asNode());
+			}
+		}
+		
+		List<RDFNode> nodes = new ArrayList<>(results.size());
+		for(Node node : results) {
+			nodes.add(dataModel.asRDFNode(node));
+		}
+		return nodes;
+	}
+}
@@ -17,27 +17,41 @@
 package org.topbraid.shacl.validation;
 
 import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
 import org.apache.jena.query.Dataset;
+import org.apache.jena.query.Query;
 import org.apache.jena.query.QuerySolution;
 import org.apache.jena.rdf.model.*;
-import org.apache.jena.sparql.path.Path;
+import org.apache.jena.util.iterator.ExtendedIterator;
 import org.apache.jena.vocabulary.RDF;
+import org.topbraid.jenax.progress.NullProgressMonitor;
+import org.topbraid.jenax.progress.ProgressMonitor;
+import org.topbraid.jenax.progress.SynchronizedProgressMonitor;
 import org.topbraid.jenax.util.ExceptionUtil;
 import org.topbraid.jenax.util.JenaDatatypes;
 import org.topbraid.jenax.util.JenaUtil;
 import org.topbraid.shacl.arq.SHACLPaths;
+import org.topbraid.shacl.arq.functions.HasShapeFunction;
 import org.topbraid.shacl.engine.*;
 import org.topbraid.shacl.engine.filters.ExcludeMetaShapesFilter;
 import org.topbraid.shacl.js.SHACLScriptEngineManager;
 import org.topbraid.shacl.util.FailureLog;
 import org.topbraid.shacl.util.SHACLPreferences;
-import org.topbraid.shacl.util.SHACLUtil;
+import org.topbraid.shacl.validation.sparql.AbstractSPARQLExecutor;
+import org.topbraid.shacl.validation.sparql.QueryCopies;
+import org.topbraid.shacl.validation.sparql.SPARQLFusedExecutor;
 import org.topbraid.shacl.validation.sparql.SPARQLSubstitutions;
 import org.topbraid.shacl.vocabulary.DASH;
 import org.topbraid.shacl.vocabulary.SH;
 
 import java.net.URI;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
@@ -65,13 +79,46 @@ public class ValidationEngine extends AbstractEngine implements ConfigurableEngi
 	
 	private ValidationEngineConfiguration configuration;
 	
+	// Created for each validation run (or on demand), shared with nested and worker engines
+	private ValidationRun run;
+	
+	// True while conformsToShape is running: the first result aborts the validation
+	private boolean conformsOnly;
+	
 	private Predicate<RDFNode> focusNodeFilter;
 	
 	private Function<RDFNode,String> labelFunction = (node -> node.toString());
 	
 	private Resource report;
+	
+	// Receives the results instead of the report Model, if set
+	private ValidationResultSink resultSink;
+	
+	// Holds the most recent result until it is complete and can be passed into the resultSink
+	private Model pendingResults;
+	
+	private Resource pendingResult;
+	
+	// The number of results other than dash:SuccessResults created by this engine, for the ConstraintScheduler
+	private int resultCount;
+	
+	// Built on demand and reused until the next call to validateAll
+	private TargetIndex targetIndex;
+	
+	// Nanoseconds spent by validateAll to find the focus nodes of the root shapes
+	private long targetResolutionTime;
 
-	private int violationsCount = 0;
+	// The shape whose constraints are currently validated with shared value nodes, see validateNodesAgainstShapeConstraints
+	private Shape valueNodesShape;
+	
+	// The (unmodifiable) value nodes of each focus node of the current chunk of valueNodesShape
+	private Map<RDFNode,List<RDFNode>> valueNodes;
+
+	// Reused by countValueNodes to collect the values of complex paths
+	private List<Node> valueNodesBuffer = new ArrayList<>();
+
+	// Shared with the worker engines of parallel validation
+	private AtomicInteger violationsCount = new AtomicInteger();
 
 
 	/**
@@ -111,8 +158,23 @@ public class ValidationEngine extends AbstractEngine implements ConfigurableEngi
 	
 	
 	public Resource createResult(Resource type, Constraint constraint, RDFNode focusNode) {
-		Resource result = report.getModel().createResource(type);
-		report.addProperty(SH.result, result);
+		if(!DASH.SuccessResult.equals(type)) {
+			resultCount++;
+			if(conformsOnly) {
+				throw DASH.FailureResult.equals(type) ? ConformanceShortCircuit.FAILURE : ConformanceShortCircuit.VIOLATION;
+			}
+		}
+		Resource result;
+		if(resultSink != null) {
+			// Executors add further triples to a result until they create the next one
+			flushPendingResult();
+			result = pendingResults.createResource(type);
+			pendingResult = result;
+		}
+		else {
+			result = report.getModel().createResource(type);
+			report.addProperty(SH.result, result);
+		}
 		result.addProperty(SH.resultSeverity, constraint.getShapeResource().getSeverity());
 		result.addProperty(SH.sourceConstraintComponent, constraint.getComponent());
 		result.addProperty(SH.sourceShape, constraint.getShapeResource());
@@ -125,94 +187,205 @@ public class ValidationEngine extends AbstractEngine implements ConfigurableEngi
 		return result;
 	}
 
+	/**
+	 * Gets the number of violations that have been produced so far, including those of
+	 * the engines that share the count with this engine.
+	 * @return the number of violations
+	 */
+	int getViolationsCount() {
+		return violationsCount.get();
+	}
+
+	/**
+	 * Lets this engine count its violations together with a given other engine, so that
+	 * {@link ValidationEngineConfiguration#getValidationErrorBatch()} applies to both of them.
+	 * @param other  the engine to share the count with
+	 */
+	void shareViolationsCount(ValidationEngine other) {
+		this.violationsCount = other.violationsCount;
+	}
+
 	private void checkMaximumNumberFailures(Constraint constraint) {
 		if (constraint.getShapeResource().getSeverity() == SH.Violation) {
-			this.violationsCount++;
-			if (configuration.getValidationErrorBatch() != -1 && violationsCount == configuration.getValidationErrorBatch()) {
-				throw new MaximumNumberViolations(violationsCount);
+			int count = violationsCount.incrementAndGet();
+			if (configuration.getValidationErrorBatch() != -1 && count >= configuration.getValidationErrorBatch()) {
+				throw new MaximumNumberViolations(count);
 			}
 		}
 	}
 
 
+	// Passes the most recent result into the resultSink, once it is known to be complete
+	void flushPendingResult() {
+		if(pendingResult != null) {
+			resultSink.addResult(pendingResult);
+			pendingResult = null;
+			pendingResults.removeAll();
+		}
+	}
+
+
 	/**
 	 * Gets the validation report as a Resource in the report Model.
+	 * If a ValidationResultSink is installed then the report does not contain the results.
 	 * @return the report Resource
 	 */
 	public Resource getReport() {
 		return report;
 	}
+	
+	
+	public ValidationResultSink getResultSink() {
+		return resultSink;
+	}
+	
+	
+	/**
+	 * Installs a ValidationResultSink that shall receive all results instead of the report Model.
+	 * validateAll() calls {@link ValidationResultSink#finish(Resource)} when done.
+	 * When using other validation methods, call {@link #updateConforms()} followed by finish.
+	 * @param value  the new sink or null to collect the results in the report Model (default)
+	 */
+	public void setResultSink(ValidationResultSink value) {
+		this.resultSink = value;
+		this.pendingResult = null;
+		this.pendingResults = value != null ? JenaUtil.createMemoryModel() : null;
+	}
 
 
 	/**
-	 * Gets a Set of all Shapes that should be evaluated for a given resource.
-	 * @param focusNode  the resource to get the shapes for
-	 * @param dataset  the Dataset containing the resource
-	 * @param shapesModel  the shapes Model
-	 * @return a Set of shape resources
+	 * Gets the TargetIndex used to find focus nodes and the shapes of a given node,
+	 * creating it if needed.  The index assumes that the data graph does not change.
+	 * validateAll and validateNode always start with a new index.
+	 * @return the TargetIndex
 	 */
-	private Set<Resource> getShapesForNode(RDFNode focusNode, Dataset dataset, Model shapesModel) {
-		Set<Resource> shapes = new HashSet<Resource>();
+	public TargetIndex getTargetIndex() {
+		if(targetIndex == null) {
+			targetIndex = new TargetIndex(shapesGraph, dataset);
+		}
+		return targetIndex;
+	}
+	
+	
+	/**
+	 * Gets the time that the most recent call to validateAll has spent to find the focus nodes
+	 * of the shapes, i.e. to evaluate their targets.  This time is included in the overall
+	 * duration of validateAll.
+	 * @return the time in nanoseconds
+	 */
+	public long getTargetResolutionTime() {
+		return targetResolutionTime;
+	}
 
-		// sh:targetNode
-		shapes.addAll(shapesModel.listSubjectsWithProperty(SH.targetNode, focusNode).toList());
-		
-		// property targets
-		if(focusNode instanceof Resource) {
-			for(Statement s : shapesModel.listStatements(null, SH.targetSubjectsOf, (RDFNode)null).toList()) {
-				if(((Resource)focusNode).hasProperty(JenaUtil.asProperty(s.getResource()))) {
-					shapes.add(s.getSubject());
-				}
+	
+	/**
+	 * Gets the (distinct) value nodes of a given focus node for the shape of a given constraint.
+	 * For node shapes this is the focus node itself.
+	 * The returned List must not be modified.
+	 * @param constraint  the Constraint being validated
+	 * @param focusNode  the focus node
+	 * @return the value nodes
+	 */
+	public List<RDFNode> getValueNodes(Constraint constraint, RDFNode focusNode) {
+		Shape shape = constraint.getShape();
+		if(shape == valueNodesShape) {
+			List<RDFNode> shared = valueNodes.get(focusNode);
+			if(shared != null) {
+				return shared;
 			}
 		}
-		for(Statement s : shapesModel.listStatements(null, SH.targetObjectsOf, (RDFNode)null).toList()) {
-			if(focusNode.getModel().contains(null, JenaUtil.asProperty(s.getResource()), focusNode)) {
-				shapes.add(s.getSubject());
+		return computeValueNodes(shape, focusNode);
+	}
+	
+	
+	private List<RDFNode> computeValueNodes(Shape shape, RDFNode focusNode) {
+		Node predicate = shape.getPredicate();
+		if(predicate != null) {
+			if(focusNode.isLiteral()) {
+				return Collections.emptyList();
 			}
-		}
-		
-		// rdf:type / sh:targetClass
-		if(focusNode instanceof Resource) {
-			for(Resource type : JenaUtil.getAllTypes((Resource)focusNode)) {
-				if(JenaUtil.hasIndirectType(type.inModel(shapesModel), SH.Shape)) {
-					shapes.add(type);
-				}
-				for(Statement s : shapesModel.listStatements(null, SH.targetClass, type).toList()) {
-					shapes.add(s.getSubject());
-				}
+			Model model = focusNode.getModel();
+			ExtendedIterator<Triple> it = model.getGraph().find(focusNode.asNode(), predicate, Node.ANY);
+			if(!it.hasNext()) {
+				return Collections.emptyList();
 			}
-		}
-		
-		// sh:target
-		for(Statement s : shapesModel.listStatements(null, SH.target, (RDFNode)null).toList()) {
-			if(SHACLUtil.isInTarget(focusNode, dataset, s.getResource())) {
-				shapes.add(s.getSubject());
+			RDFNode first = model.asRDFNode(it.next().getObject());
+			if(!it.hasNext()) {
+				return Collections.singletonList(first);
 			}
+			List<RDFNode> results = new ArrayList<>();
+			results.add(first);
+			while(it.hasNext()) {
+				results.add(model.asRDFNode(it.next().getObject()));
+			}
+			return results;
+		}
+		else if(shape.getJenaPath() != null) {
+			List<RDFNode> results = new ArrayList<>();
+			SHACLPaths.addValueNodes(focusNode, shape.getJenaPath(), results);
+			return results;
+		}
+		else {
+			return Collections.singletonList(focusNode);
 		}
-		
-		return shapes;
 	}
-
 	
-	public List<RDFNode> getValueNodes(Constraint constraint, RDFNode focusNode) {
-		Resource path = JenaUtil.getResourceProperty(constraint.getShapeResource(), SH.path);
-		if(path == null) {
-			return Collections.singletonList(focusNode);
+	
+	/**
+	 * Counts the distinct value nodes of a given focus node for the shape of a given constraint,
+	 * without creating a List or RDFNodes for them.
+	 * @param constraint  the Constraint being validated
+	 * @param focusNode  the focus node
+	 * @return the number of value nodes
+	 */
+	public int countValueNodes(Constraint constraint, RDFNode focusNode) {
+		Shape shape = constraint.getShape();
+		if(shape == valueNodesShape) {
+			List<RDFNode> shared = valueNodes.get(focusNode);
+			if(shared != null) {
+				return shared.size();
+			}
 		}
-		else {
-			List<RDFNode> results = new LinkedList<>();
-			Path jenaPath = constraint.getShape().getJenaPath();
-			if(jenaPath != null) {
-				SHACLPaths.addValueNodes(focusNode, jenaPath, results);
+		Node predicate = shape.getPredicate();
+		if(predicate != null) {
+			if(focusNode.isLiteral()) {
+				return 0;
 			}
-			else {
-				SHACLPaths.addValueNodes(focusNode, JenaUtil.asProperty(path), results);
+			int count = 0;
+			ExtendedIterator<Triple> it = focusNode.getModel().getGraph().find(focusNode.asNode(), predicate, Node.ANY);
+			while(it.hasNext()) {
+				it.next();
+				count++;
 			}
-			return results;
+			return count;
+		}
+		else if(shape.getJenaPath() != null) {
+			valueNodesBuffer.clear();
+			SHACLPaths.addValueNodes(focusNode.getModel().getGraph(), focusNode.asNode(), shape.getJenaPath(), valueNodesBuffer);
+			int count = valueNodesBuffer.size();
+			valueNodesBuffer.clear();
+			return count;
+		}
+		else {
+			return 1;
 		}
 	}
 
 	
+	/**
+	 * Checks whether the value nodes of the focus nodes that are currently validated against the
+	 * constraints of a given shape have been computed in advance, see
+	 * {@link ValidationEngineConfiguration#setValueNodeChunkSize(int)}.
+	 * In that case, {@link #getValueNodes(Constraint, RDFNode)} is cheap and executors may use it
+	 * instead of evaluating the path themselves.
+	 * @param shape  the Shape of the constraint being validated
+	 * @return true if the value nodes are shared
+	 */
+	public boolean isSharingValueNodes(Shape shape) {
+		return shape == valueNodesShape;
+	}
+	
+	
 	/**
 	 * Sets a filter that can be used to skip certain focus node from validation.
 	 * The filter must return true if the given candidate focus node shall be validated,
@@ -226,13 +399,19 @@ public class ValidationEngine extends AbstractEngine implements ConfigurableEngi
 	
 	public void updateConforms() {
 		boolean conforms = true;
-		StmtIterator it = report.listProperties(SH.result);
-		while(it.hasNext()) {
-			Statement s = it.next();
-			if(s.getResource().hasProperty(RDF.type, SH.ValidationResult)) {
-				conforms = false;
-				it.close();
-				break;
+		if(resultSink != null) {
+			flushPendingResult();
+			conforms = resultSink.conforms();
+		}
+		else {
+			StmtIterator it = report.listProperties(SH.result);
+			while(it.hasNext()) {
+				Statement s = it.next();
+				if(s.getResource().hasProperty(RDF.type, SH.ValidationResult)) {
+					conforms = false;
+					it.close();
+					break;
+				}
 			}
 		}
 		report.removeAll(SH.conforms);
@@ -243,12 +422,22 @@ public class ValidationEngine extends AbstractEngine implements ConfigurableEngi
 	/**
 	 * Validates all target nodes against all of their shapes.
 	 * To further narrow down which nodes to validate, use {{@link #setFocusNodeFilter(Predicate)}.
+	 * If the configuration has parallel validation enabled, the work is distributed over multiple threads.
 	 * @return an instance of sh:ValidationReport in the results Model
 	 */
 	public Resource validateAll() throws InterruptedException {
+		targetIndex = new TargetIndex(shapesGraph, dataset);
+		targetResolutionTime = 0;
+		if(configuration.getParallelValidation()) {
+			run = new ValidationRun(configuration, new QueryCopies());
+			return validateAllParallel();
+		}
+		run = new ValidationRun(configuration, null);
 		boolean nested = SHACLScriptEngineManager.begin();
+		ValidationEngine oldEngine = current.get();
+		current.set(this);
 		try {
-			List<Shape> rootShapes = shapesGraph.getRootShapes();
+			List<Shape> rootShapes = getRootShapes();
 			if(monitor != null) {
 				monitor.beginTask("Validating " + rootShapes.size() + " shapes", rootShapes.size());
 			}
@@ -259,21 +448,10 @@ public class ValidationEngine extends AbstractEngine implements ConfigurableEngi
 					monitor.subTask("Shape " + (++i) + ": " + getLabelFunction().apply(shape.getShapeResource()));
 				}
 				
-				List<RDFNode> focusNodes = SHACLUtil.getTargetNodes(shape.getShapeResource(), dataset);
-				if(focusNodeFilter != null) {
-					List<RDFNode> filteredFocusNodes = new LinkedList<RDFNode>();
-					for(RDFNode focusNode : focusNodes) {
-						if(focusNodeFilter.test(focusNode)) {
-							filteredFocusNodes.add(focusNode);
-						}
-					}
-					focusNodes = filteredFocusNodes;
-				}
+				List<RDFNode> focusNodes = getFocusNodes(shape);
 				if(!focusNodes.isEmpty()) {
 					if(!shapesGraph.isIgnored(shape.getShapeResource().asNode())) {
-						for(Constraint constraint : shape.getConstraints()) {
-							validateNodesAgainstConstraint(focusNodes, constraint);
-						}
+						validateNodesAgainstShapeConstraints(focusNodes, shape);
 					}
 				}
 				if(monitor != null) {
@@ -288,31 +466,228 @@ public class ValidationEngine extends AbstractEngine implements ConfigurableEngi
 			// ignore
 		}
 		finally {
+			current.set(oldEngine);
 			SHACLScriptEngineManager.end(nested);
 		}
 		updateConforms();
+		if(resultSink != null) {
+			resultSink.finish(report);
+		}
 		return report;
 	}
 	
 	
+	/**
+	 * Parallel version of validateAll, splitting the work into tasks for each combination of
+	 * shape and chunk of focus nodes.  Each task runs with its own worker engine and report,
+	 * validating the constraints of the shape in the same way as validateAll, and the worker
+	 * reports are merged in task order (or passed into the result sink).
+	 */
+	private Resource validateAllParallel() throws InterruptedException {
+		
+		// Collect tasks on this thread, which also initializes the (lazy) constraints and executors
+		List<Shape> rootShapes = getRootShapes();
+		List<Shape> taskShapes = new ArrayList<>();
+		List<List<RDFNode>> taskFocusNodes = new ArrayList<>();
+		int chunkSize = Math.max(1, configuration.getFocusNodeChunkSize());
+		for(Shape shape : rootShapes) {
+			List<RDFNode> focusNodes = getFocusNodes(shape);
+			if(!focusNodes.isEmpty() && !shapesGraph.isIgnored(shape.getShapeResource().asNode())) {
+				focusNodes = new ArrayList<>(focusNodes);
+				for(Constraint constraint : getConstraints(shape)) {
+					getExecutor(constraint);
+				}
+				if(configuration.getFuseSPARQLValidators()) {
+					run.getFusedExecutors().get(shape, isDeclarative());
+				}
+				for(int start = 0; start < focusNodes.size(); start += chunkSize) {
+					taskShapes.add(shape);
+					taskFocusNodes.add(focusNodes.subList(start, Math.min(start + chunkSize, focusNodes.size())));
+				}
+			}
+		}
+		
+		// The workers stop at their next focus node once the validation has stopped
+		AtomicBoolean stopped = new AtomicBoolean();
+		ProgressMonitor sharedMonitor = new SynchronizedProgressMonitor(monitor != null ? monitor : new NullProgressMonitor()) {
+			@Override
+			public boolean isCanceled() {
+				return stopped.get() || super.isCanceled();
+			}
+		};
+		if(monitor != null) {
+			sharedMonitor.beginTask("Validating " + rootShapes.size() + " shapes (" + taskShapes.size() + " tasks)", taskShapes.size());
+		}
+
+		// Workers inherit the thread-local state of the calling thread and share the run
+		ShapesGraph callerShapesGraph = HasShapeFunction.getShapesGraph();
+		URI callerShapesGraphURI = HasShapeFunction.getShapesGraphURI();
+		ExecutorService executor = configuration.getExecutorService() != null ? configuration.getExecutorService() : ForkJoinPool.commonPool();
+		List<Future<ValidationEngine>> futures = new ArrayList<>(taskShapes.size());
+		for(int t = 0; t < taskShapes.size(); t++) {
+			Shape shape = taskShapes.get(t);
+			List<RDFNode> focusNodes = taskFocusNodes.get(t);
+			futures.add(executor.submit(() -> validateInWorker(focusNodes, shape, callerShapesGraph, callerShapesGraphURI, sharedMonitor, stopped)));
+		}
+		
+		try {
+			int maxViolations = configuration.getValidationErrorBatch();
+			int violations = 0;
+			for(Future<ValidationEngine> future : futures) {
+				ValidationEngine worker = future.get();
+				if(worker != null) {
+					for(Statement s : worker.report.listProperties(SH.result).toList()) {
+						Resource result = s.getResource();
+						if(result.hasProperty(SH.resultSeverity, SH.Violation)) {
+							if(maxViolations != -1 && violations >= maxViolations) {
+								continue;
+							}
+							violations++;
+						}
+						if(resultSink != null) {
+							resultSink.addResult(result);
+						}
+						else {
+							addClosure(result, report.getModel(), new HashSet<>());
+							report.addProperty(SH.result, result);
+						}
+					}
+				}
+				if(monitor != null) {
+					sharedMonitor.worked(1);
+					if(monitor.isCanceled()) {
+						throw new InterruptedException();
+					}
+				}
+			}
+		}
+		catch(ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if(cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			else if(cause instanceof Error) {
+				throw (Error) cause;
+			}
+			else {
+				throw new IllegalStateException(cause);
+			}
+		}
+		finally {
+			stopped.set(true);
+			for(Future<ValidationEngine> future : futures) {
+				future.cancel(false);
+			}
+		}
+		updateConforms();
+		if(resultSink != null) {
+			resultSink.finish(report);
+		}
+		return report;
+	}
+	
+	
+	private ValidationEngine validateInWorker(List<RDFNode> focusNodes, Shape shape, 
+				ShapesGraph callerShapesGraph, URI callerShapesGraphURI, ProgressMonitor sharedMonitor, AtomicBoolean stopped) {
+		if(stopped.get()) {
+			return null;
+		}
+		ValidationEngine worker = ValidationEngineFactory.get().create(dataset, shapesGraphURI, shapesGraph, null);
+		worker.configuration = configuration;
+		worker.labelFunction = labelFunction;
+		worker.violationsCount = violationsCount;
+		worker.run = run;
+		worker.setProgressMonitor(sharedMonitor);
+		
+		ValidationEngine oldEngine = current.get();
+		ShapesGraph oldShapesGraph = HasShapeFunction.getShapesGraph();
+		URI oldShapesGraphURI = HasShapeFunction.getShapesGraphURI();
+		current.set(worker);
+		HasShapeFunction.setShapesGraph(callerShapesGraph, callerShapesGraphURI);
+		boolean nested = SHACLScriptEngineManager.begin();
+		try {
+			worker.validateNodesAgainstShapeConstraints(focusNodes, shape);
+		}
+		catch(MaximumNumberViolations ex) {
+			stopped.set(true);
+		}
+		catch(SHACLCanceledException ex) {
+			// Keep the results so far if another worker has reached the maximum number of violations
+			if(!stopped.get()) {
+				throw ex;
+			}
+		}
+		finally {
+			SHACLScriptEngineManager.end(nested);
+			HasShapeFunction.setShapesGraph(oldShapesGraph, oldShapesGraphURI);
+			current.set(oldEngine);
+		}
+		return worker;
+	}
+	
+	
+	// Copies a result including its blank node values (such as paths and details) into a target Model
+	static void addClosure(Resource resource, Model target, Set<Resource> visited) {
+		if(visited.add(resource)) {
+			for(Statement s : resource.listProperties().toList()) {
+				target.add(s);
+				if(s.getObject().isAnon()) {
+					addClosure(s.getResource(), target, visited);
+				}
+			}
+		}
+	}
+	
+	
+	// Gets the constraints of a shape in the order of the ConstraintScheduler, if present
+	private Iterable<Constraint> getConstraints(Shape shape) {
+		ConstraintScheduler scheduler = configuration.getConstraintScheduler();
+		return scheduler != null ? scheduler.getConstraints(shape, isDeclarative()) : shape.getConstraints();
+	}
+	
+	
+	private List<RDFNode> getFocusNodes(Shape shape) {
+		long startTime = System.nanoTime();
+		List<RDFNode> focusNodes = getTargetIndex().getTargetNodes(shape);
+		targetResolutionTime += System.nanoTime() - startTime;
+		if(focusNodeFilter != null) {
+			List<RDFNode> filteredFocusNodes = new LinkedList<RDFNode>();
+			for(RDFNode focusNode : focusNodes) {
+				if(focusNodeFilter.test(focusNode)) {
+					filteredFocusNodes.add(focusNode);
+				}
+			}
+			focusNodes = filteredFocusNodes;
+		}
+		return focusNodes;
+	}
+	
+	
+	// Gets the root shapes in the order of the ConstraintScheduler, if present
+	private List<Shape> getRootShapes() {
+		ConstraintScheduler scheduler = configuration.getConstraintScheduler();
+		return scheduler != null ? scheduler.getShapes(shapesGraph.getRootShapes(), isDeclarative()) : shapesGraph.getRootShapes();
+	}
+	
+	
 	/**
 	 * Validates a given focus node against all of the shapes that have matching targets.
 	 * @param focusNode  the node to validate
 	 * @return an instance of sh:ValidationReport in the results Model
 	 */
 	public Resource validateNode(Node focusNode) throws InterruptedException {
-		
-		Model shapesModel = dataset.getNamedModel(shapesGraphURI.toString());
+		run = new ValidationRun(configuration, null);
+		targetIndex = new TargetIndex(shapesGraph, dataset);
 		
 		RDFNode focusRDFNode = dataset.getDefaultModel().asRDFNode(focusNode);
-		Set<Resource> shapes = getShapesForNode(focusRDFNode, dataset, shapesModel);
+		Set<Shape> shapes = getTargetIndex().getShapesForNode(focusRDFNode);
 		boolean nested = SHACLScriptEngineManager.begin();
 		try {
-			for(Resource shape : shapes) {
+			for(Shape shape : shapes) {
 				if(monitor != null && monitor.isCanceled()) {
 					throw new InterruptedException();
 				}
-				validateNodesAgainstShape(Collections.singletonList(focusRDFNode), shape.asNode());
+				validateNodesAgainstShape(Collections.singletonList(focusRDFNode), shape.getShapeResource().asNode());
 			}
 		}
 		finally {
@@ -337,9 +712,7 @@ public class ValidationEngine extends AbstractEngine implements ConfigurableEngi
 				ValidationEngine oldEngine = current.get();
 				current.set(this);
 				try {
-					for(Constraint constraint : vs.getConstraints()) {
-						validateNodesAgainstConstraint(focusNodes, constraint);
-					}
+					validateNodesAgainstShapeConstraints(focusNodes, vs);
 				}
 				finally {
 					current.set(oldEngine);
@@ -359,41 +732,185 @@ public class ValidationEngine extends AbstractEngine implements ConfigurableEngi
 	 * @return true if there were no validation results, false for violations
 	 */
 	public boolean nodesConformToShape(List<RDFNode> focusNodes, Node shape) {
-		if(!shapesGraph.isIgnored(shape)) {
-			Resource oldReport = report;
+		return Boolean.TRUE.equals(conformsToShape(focusNodes, shape));
+	}
+	
+	
+	/**
+	 * Checks whether a given list of focus nodes conforms to a given Shape.
+	 * This runs the engine in a conforms-only mode in which the first validation result (or failure)
+	 * aborts the validation, SPARQL-based validators only ask for a single solution, and no result
+	 * triples are materialized.  The engine's report and result sink are not touched.
+	 * @param focusNodes  the nodes to validate
+	 * @param shape  the sh:Shape to validate against
+	 * @return true if the nodes conform, false if there was a validation result, null if there was a failure
+	 */
+	public Boolean conformsToShape(List<RDFNode> focusNodes, Node shape) {
+		if(shapesGraph.isIgnored(shape)) {
+			return true;
+		}
+		Shape vs = shapesGraph.getShape(shape);
+		if(vs.getShapeResource().isDeactivated()) {
+			return true;
+		}
+		boolean oldConformsOnly = conformsOnly;
+		Resource oldReport = report;
+		ValidationResultSink oldResultSink = resultSink;
+		if(AbstractSPARQLExecutor.createSuccessResults) {
+			// Success results are still created, but not part of the actual report
 			report = JenaUtil.createMemoryModel().createResource();
+		}
+		resultSink = null;
+		conformsOnly = true;
+		boolean nested = SHACLScriptEngineManager.begin();
+		ValidationEngine oldEngine = current.get();
+		current.set(this);
+		try {
+			validateNodesAgainstShapeConstraints(focusNodes, vs);
+			return true;
+		}
+		catch(ConformanceShortCircuit ex) {
+			return ex.isFailure() ? null : false;
+		}
+		finally {
+			current.set(oldEngine);
+			SHACLScriptEngineManager.end(nested);
+			conformsOnly = oldConformsOnly;
+			report = oldReport;
+			resultSink = oldResultSink;
+		}
+	}
+	
+	
+	/**
+	 * Gets the ValidationRun that this engine takes part in, creating it if needed.
+	 * Each call to validateAll or validateNode starts a new run.
+	 * @return the current run
+	 */
+	public ValidationRun getRun() {
+		if(run == null) {
+			run = new ValidationRun(configuration, null);
+		}
+		return run;
+	}
+	
+	
+	/**
+	 * Installs the ValidationRun that this engine shall take part in, for example to share it
+	 * with the engine that has triggered the validation of a nested shape.
+	 * @param value  the new run
+	 */
+	public void setRun(ValidationRun value) {
+		this.run = value;
+	}
+	
+	
+	/**
+	 * Gets the version of a shared query that the current thread may execute, i.e. the query itself
+	 * unless other threads of a parallel validation run may execute it at the same time.
+	 * @param query  the shared query
+	 * @return query or a copy of it for the current thread
+	 */
+	public Query getLocalQuery(Query query) {
+		QueryCopies queryCopies = getRun().getQueryCopies();
+		return queryCopies != null ? queryCopies.get(query) : query;
+	}
+	
+	
+	/**
+	 * Checks whether this engine is currently running in conforms-only mode, see
+	 * {@link #conformsToShape(List, Node)}.  Executors may use this to skip work that only
+	 * matters for the details of the validation results.
+	 * @return true if the first result will abort the validation
+	 */
+	public boolean isConformsOnly() {
+		return conformsOnly;
+	}
+	
+	
+	// Validates focus nodes against all constraints of a shape, sharing the value nodes between the constraints if configured
+	private void validateNodesAgainstShapeConstraints(List<RDFNode> focusNodes, Shape shape) {
+		int chunkSize = configuration.getValueNodeChunkSize();
+		if(chunkSize > 0 && (shape.getPredicate() != null || shape.getJenaPath() != null)) {
+			List<RDFNode> nodes = focusNodes instanceof ArrayList ? focusNodes : new ArrayList<>(focusNodes);
+			Shape oldValueNodesShape = valueNodesShape;
+			Map<RDFNode,List<RDFNode>> oldValueNodes = valueNodes;
 			try {
-				Shape vs = shapesGraph.getShape(shape);
-				if(!vs.getShapeResource().isDeactivated()) {
-					boolean nested = SHACLScriptEngineManager.begin();
-					try {
-						for(Constraint constraint : vs.getConstraints()) {
-							validateNodesAgainstConstraint(focusNodes, constraint);
-							if(report.hasProperty(SH.result)) {
-								return false;
-							}
-						}
-					}
-					finally {
-						SHACLScriptEngineManager.end(nested);
+				for(int start = 0; start < nodes.size(); start += chunkSize) {
+					List<RDFNode> chunk = nodes.subList(start, Math.min(start + chunkSize, nodes.size()));
+					Map<RDFNode,List<RDFNode>> chunkValueNodes = new HashMap<>();
+					for(RDFNode focusNode : chunk) {
+						chunkValueNodes.put(focusNode, Collections.unmodifiableList(computeValueNodes(shape, focusNode)));
 					}
+					valueNodesShape = shape;
+					valueNodes = chunkValueNodes;
+					validateNodesAgainstConstraints(chunk, shape);
 				}
 			}
 			finally {
-				this.report = oldReport;
+				valueNodesShape = oldValueNodesShape;
+				valueNodes = oldValueNodes;
+			}
+		}
+		else {
+			validateNodesAgainstConstraints(focusNodes, shape);
+		}
+	}
+	
+	
+	// Validates focus nodes against all constraints of a shape, starting with the fused SPARQL validators if configured
+	private void validateNodesAgainstConstraints(List<RDFNode> focusNodes, Shape shape) {
+		SPARQLFusedExecutor fused = null;
+		if(configuration.getFuseSPARQLValidators()) {
+			fused = getRun().getFusedExecutors().get(shape, isDeclarative());
+			if(fused.canExecute(this)) {
+				fused.executeConstraints(this, focusNodes);
+			}
+			else {
+				fused = null;
+			}
+		}
+		for(Constraint constraint : getConstraints(shape)) {
+			if(fused == null || !fused.contains(constraint)) {
+				validateNodesAgainstConstraint(focusNodes, constraint);
 			}
 		}
-		return true;
 	}
 	
 	
 	protected void validateNodesAgainstConstraint(List<RDFNode> focusNodes, Constraint constraint) {
-		ConstraintExecutor executor = constraint.getExecutor();
+		ConstraintScheduler scheduler = configuration.getConstraintScheduler();
+		if(scheduler == null) {
+			executeConstraint(focusNodes, constraint);
+		}
+		else {
+			long startTime = System.nanoTime();
+			int oldResultCount = resultCount;
+			boolean completed = false;
+			try {
+				executeConstraint(focusNodes, constraint);
+				completed = true;
+			}
+			finally {
+				int failures = resultCount - oldResultCount;
+				// If the validation has stopped early then only count the focus nodes known to be done
+				int done = completed ? focusNodes.size() : Math.max(1, failures);
+				scheduler.getStatistics().record(constraint, done, System.nanoTime() - startTime, failures);
+			}
+		}
+	}
+	
+	
+	private void executeConstraint(List<RDFNode> focusNodes, Constraint constraint) {
+		ConstraintExecutor executor = getExecutor(constraint);
 		if(executor != null) {
 			if(SHACLPreferences.isProduceFailuresMode()) {
 				try {
 					executor.executeConstraint(constraint, this, focusNodes);
 				}
+				catch(ConformanceShortCircuit ex) {
+					throw ex;
+				}
 				catch(Exception ex) {
 					Resource result = createResult(DASH.FailureResult, constraint, null);
 					result.addProperty(SH.resultMessage, "Exception during validation: " + ExceptionUtil.getStackTrace(ex));
@@ -409,6 +926,18 @@ public class ValidationEngine extends AbstractEngine implements ConfigurableEngi
 	}
 
 
+	private ConstraintExecutor getExecutor(Constraint constraint) {
+		return isDeclarative() ? constraint.getDeclarativeExecutor() : constraint.getExecutor();
+	}
+	
+	
+	// Checks whether the declarative executors are used instead of the native ones
+	private boolean isDeclarative() {
+		// Success results are only produced by the SPARQL-based executors
+		return !configuration.getNativeExecutors() || AbstractSPARQLExecutor.createSuccessResults;
+	}
+
+
 	@Override
 	public ValidationEngineConfiguration getConfiguration() {
 		return configuration;
@@ -418,7 +947,9 @@ public class ValidationEngine extends AbstractEngine implements ConfigurableEngi
 	@Override
 	public void setConfiguration(ValidationEngineConfiguration configuration) {
 		this.configuration = configuration;
-		if(!configuration.getValidateShapes()) {
+		this.run = null;
+		// The filters of compiled shapes graphs are fixed when they are compiled
+		if(!configuration.getValidateShapes() && !(shapesGraph instanceof CompiledShapesGraph)) {
 			shapesGraph.setShapeFilter(new ExcludeMetaShapesFilter());
 		}
 	}
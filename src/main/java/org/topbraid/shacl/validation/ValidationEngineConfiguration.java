@@ -1,5 +1,7 @@
 package org.topbraid.shacl.validation;
 
+import java.util.concurrent.ExecutorService;
+
 /**
  * Configures the behavior of the validation engine.
  */
@@ -13,6 +15,42 @@ public class ValidationEngineConfiguration {
 
     // By default collect all possible errors
     private int validationErrorBatch = -1;
+
+    // By default use the SPARQL or JavaScript validators of the constraint components
+    private boolean nativeExecutors = false;
+
+    // By default validate on the calling thread only
+    private boolean parallelValidation = false;
+
+    // By default use the common ForkJoinPool for parallel validation
+    private ExecutorService executorService = null;
+
+    // By default split the focus nodes of each shape into chunks of 1000 for parallel validation
+    private int focusNodeChunkSize = 1000;
+
+    // By default execute SPARQL-based validators once per focus node
+    private int sparqlBatchSize = 1;
+
+    // By default evaluate the conformance of each (node, shape) pair every time
+    private int conformanceMemoSize = 0;
+
+    // By default evaluate static constraints for each value node every time
+    private int staticConstraintCacheSize = 0;
+
+    // By default evaluate the value nodes of qualified value shapes for each chunk of focus nodes
+    private int qualifiedConformanceTableSize = 0;
+
+    // By default look up the other owners of each value separately for dash:uniqueValueForClass
+    private int valueOwnersIndexSize = 0;
+
+    // By default compute the value nodes of each focus node separately for each constraint
+    private int valueNodeChunkSize = 0;
+
+    // By default execute the SPARQL-based validators of each constraint separately
+    private boolean fuseSPARQLValidators = false;
+
+    // By default validate shapes and constraints in the order of the shapes graph
+    private ConstraintScheduler constraintScheduler = null;
     
     
     /**
@@ -68,4 +106,253 @@ public class ValidationEngineConfiguration {
         this.validateShapes = validateShapes;
         return this;
     }
+
+    /**
+     * Checks whether native (Java) executors shall be used for the SHACL Core constraint components
+     * instead of their SPARQL or JavaScript validators.
+     * @return true to use native executors (false is default)
+     */
+    public boolean getNativeExecutors() {
+        return nativeExecutors;
+    }
+
+    /**
+     * Specifies whether native (Java) executors shall be used where available.
+     * Set this to false to use the declarative (SPARQL or JavaScript) validators only.
+     * @param nativeExecutors  true to use native executors, false for declarative ones
+     * @return current configuration after modification
+     */
+    public ValidationEngineConfiguration setNativeExecutors(boolean nativeExecutors) {
+        this.nativeExecutors = nativeExecutors;
+        return this;
+    }
+
+    /**
+     * Gets the ExecutorService used for parallel validation.
+     * @return the ExecutorService or null to use the common ForkJoinPool (default)
+     */
+    public ExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    /**
+     * Sets the ExecutorService that shall run the tasks of parallel validation.
+     * The engine does not shut down the ExecutorService.
+     * @param executorService  the ExecutorService or null to use the common ForkJoinPool
+     * @return current configuration after modification
+     */
+    public ValidationEngineConfiguration setExecutorService(ExecutorService executorService) {
+        this.executorService = executorService;
+        return this;
+    }
+
+    /**
+     * Gets the maximum number of focus nodes that a single task of parallel validation processes.
+     * @return the chunk size (1000 is default)
+     */
+    public int getFocusNodeChunkSize() {
+        return focusNodeChunkSize;
+    }
+
+    /**
+     * Sets the maximum number of focus nodes that a single task of parallel validation processes.
+     * @param focusNodeChunkSize  the new chunk size
+     * @return current configuration after modification
+     */
+    public ValidationEngineConfiguration setFocusNodeChunkSize(int focusNodeChunkSize) {
+        this.focusNodeChunkSize = focusNodeChunkSize;
+        return this;
+    }
+
+    /**
+     * Checks whether validateAll shall distribute the work over multiple threads.
+     * @return true for parallel validation (false is default)
+     */
+    public boolean getParallelValidation() {
+        return parallelValidation;
+    }
+
+    /**
+     * Specifies whether validateAll shall distribute the work over multiple threads.
+     * The work is split into one task per root shape and chunk of its focus nodes
+     * (see {@link #setFocusNodeChunkSize(int)}), each validating all constraints of the shape,
+     * and the results of each task are merged into the report in a deterministic order.
+     * If a maximum number of violations is set then it is still respected, but which violations
+     * are reported may differ from sequential validation.
+     * @param parallelValidation  true for parallel validation
+     * @return current configuration after modification
+     */
+    public ValidationEngineConfiguration setParallelValidation(boolean parallelValidation) {
+        this.parallelValidation = parallelValidation;
+        return this;
+    }
+
+    /**
+     * Gets the maximum number of focus nodes that a SPARQL-based validator processes in a single query.
+     * @return the batch size (1 is default)
+     */
+    public int getSPARQLBatchSize() {
+        return sparqlBatchSize;
+    }
+
+    /**
+     * Sets the maximum number of focus nodes that a SPARQL-based validator processes in a single query.
+     * For values greater than 1, batch-safe queries are executed with a VALUES block for $this
+     * and the solutions are mapped back to the individual focus nodes.
+     * Queries that are not batch-safe (such as those using sub-queries or UNION) are still executed
+     * once per focus node, and batching is not used if sh:detail results are requested.
+     * @param sparqlBatchSize  the new batch size or 1 to execute validators once per focus node
+     * @return current configuration after modification
+     */
+    public ValidationEngineConfiguration setSPARQLBatchSize(int sparqlBatchSize) {
+        this.sparqlBatchSize = sparqlBatchSize;
+        return this;
+    }
+
+    /**
+     * Gets the maximum number of (node, shape) pairs for which the conformance against nested
+     * shapes is remembered during a validation run.
+     * @return the maximum size (0 is default)
+     */
+    public int getConformanceMemoSize() {
+        return conformanceMemoSize;
+    }
+
+    /**
+     * Sets the maximum number of (node, shape) pairs for which the conformance against nested
+     * shapes (sh:node, sh:and etc) is remembered during a validation run, see {@link ConformanceMemo}.
+     * @param conformanceMemoSize  the new maximum size or 0 to evaluate each pair every time
+     * @return current configuration after modification
+     */
+    public ValidationEngineConfiguration setConformanceMemoSize(int conformanceMemoSize) {
+        this.conformanceMemoSize = conformanceMemoSize;
+        return this;
+    }
+
+    /**
+     * Gets the maximum number of outcomes of dash:staticConstraint components (such as sh:datatype)
+     * that are remembered for each combination of parameter values and value node during a validation run.
+     * @return the maximum size (0 is default)
+     */
+    public int getStaticConstraintCacheSize() {
+        return staticConstraintCacheSize;
+    }
+
+    /**
+     * Sets the maximum number of outcomes of dash:staticConstraint components that are remembered
+     * during a validation run, see {@link StaticConstraintCache}.
+     * @param staticConstraintCacheSize  the new maximum size or 0 to evaluate each value node every time
+     * @return current configuration after modification
+     */
+    public ValidationEngineConfiguration setStaticConstraintCacheSize(int staticConstraintCacheSize) {
+        this.staticConstraintCacheSize = staticConstraintCacheSize;
+        return this;
+    }
+
+    /**
+     * Gets the maximum number of value indices (one for each combination of class and path)
+     * that native dash:uniqueValueForClass executors keep during a validation run.
+     * @return the maximum size (0 is default)
+     */
+    public int getValueOwnersIndexSize() {
+        return valueOwnersIndexSize;
+    }
+
+    /**
+     * Sets the maximum number of value indices that native dash:uniqueValueForClass executors
+     * keep during a validation run, see {@link ValueOwnersIndex}.
+     * @param valueOwnersIndexSize  the new maximum size or 0 to use the SPARQL validator instead
+     * @return current configuration after modification
+     */
+    public ValidationEngineConfiguration setValueOwnersIndexSize(int valueOwnersIndexSize) {
+        this.valueOwnersIndexSize = valueOwnersIndexSize;
+        return this;
+    }
+
+    /**
+     * Gets the maximum number of value nodes for which native sh:qualifiedMinCount and sh:qualifiedMaxCount
+     * executors remember whether they are counted during a validation run.
+     * @return the maximum size (0 is default)
+     */
+    public int getQualifiedConformanceTableSize() {
+        return qualifiedConformanceTableSize;
+    }
+
+    /**
+     * Sets the maximum number of value nodes for which native sh:qualifiedMinCount and sh:qualifiedMaxCount
+     * executors remember whether they are counted during a validation run, see {@link QualifiedConformanceTable}.
+     * @param qualifiedConformanceTableSize  the new maximum size or 0 to evaluate the value nodes for each chunk of focus nodes
+     * @return current configuration after modification
+     */
+    public ValidationEngineConfiguration setQualifiedConformanceTableSize(int qualifiedConformanceTableSize) {
+        this.qualifiedConformanceTableSize = qualifiedConformanceTableSize;
+        return this;
+    }
+
+    /**
+     * Gets the ConstraintScheduler that determines the order of shapes and constraints.
+     * @return the scheduler or null to use the order of the shapes graph (default)
+     */
+    public ConstraintScheduler getConstraintScheduler() {
+        return constraintScheduler;
+    }
+
+    /**
+     * Installs a ConstraintScheduler that orders shapes and constraints by their estimated cost
+     * and failure rate, and records the observed statistics while validating.
+     * This is mainly useful together with a maximum number of violations, and the same scheduler
+     * can be reused across validation runs on the same data to benefit from earlier observations.
+     * @param constraintScheduler  the scheduler or null to use the order of the shapes graph
+     * @return current configuration after modification
+     */
+    public ValidationEngineConfiguration setConstraintScheduler(ConstraintScheduler constraintScheduler) {
+        this.constraintScheduler = constraintScheduler;
+        return this;
+    }
+
+    /**
+     * Gets the number of focus nodes for which the value nodes of a property shape are computed
+     * at once and shared by all constraints of the shape.
+     * @return the chunk size or 0 if each constraint computes the value nodes itself (default)
+     */
+    public int getValueNodeChunkSize() {
+        return valueNodeChunkSize;
+    }
+
+    /**
+     * Sets the number of focus nodes for which the value nodes of a property shape are computed at once.
+     * For values greater than 0, the constraints of a property shape are validated chunk by chunk,
+     * and the value nodes of the focus nodes in the current chunk are computed only once, so that
+     * complex paths are not traversed again for each constraint.
+     * Batch-safe SPARQL validators that start with $this $PATH ?value receive the value nodes
+     * as a VALUES block instead.  The results are the same, but grouped by chunk.
+     * @param valueNodeChunkSize  the new chunk size or 0 to disable the sharing of value nodes
+     * @return current configuration after modification
+     */
+    public ValidationEngineConfiguration setValueNodeChunkSize(int valueNodeChunkSize) {
+        this.valueNodeChunkSize = valueNodeChunkSize;
+        return this;
+    }
+
+    /**
+     * Checks whether the SPARQL-based validators of the constraints of a shape shall be combined into a single query.
+     * @return true to fuse the validators (false is default)
+     */
+    public boolean getFuseSPARQLValidators() {
+        return fuseSPARQLValidators;
+    }
+
+    /**
+     * Specifies whether the batch-safe SPARQL-based validators of the constraints of a shape shall be
+     * combined into a single query per batch of focus nodes (see {@link #setSPARQLBatchSize(int)}),
+     * with a variable that identifies the originating constraint of each solution.
+     * Validators that only filter the values of $this $PATH ?value share a single evaluation of the path.
+     * Fusion is not used if sh:detail results are requested.
+     * @param fuseSPARQLValidators  true to fuse the validators
+     * @return current configuration after modification
+     */
+    public ValidationEngineConfiguration setFuseSPARQLValidators(boolean fuseSPARQLValidators) {
+        this.fuseSPARQLValidators = fuseSPARQLValidators;
+        return this;
+    }
 }
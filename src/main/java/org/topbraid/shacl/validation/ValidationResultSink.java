@@ -0,0 +1,52 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation;
+
+import org.apache.jena.rdf.model.Resource;
+
+/**
+ * Interface for objects that receive the validation results produced by a ValidationEngine,
+ * as an alternative to collecting them in the report Model.
+ * 
+ * If no sink is installed then the engine collects all results in the Model of its report,
+ * which is the default.  Sinks are typically used to stream the results elsewhere, so that
+ * the whole report does not need to be held in memory.
+ */
+public interface ValidationResultSink {
+
+	/**
+	 * Adds a completed validation result.  The result's Model contains all triples of the result,
+	 * including those of blank nodes such as paths and sh:detail results.
+	 * The engine may reuse that Model after this method returns, so sinks must not keep the Resource.
+	 * @param result  the result to add
+	 */
+	void addResult(Resource result);
+	
+	
+	/**
+	 * Checks whether none of the results added so far was a sh:ValidationResult.
+	 * @return true if the data conforms so far
+	 */
+	boolean conforms();
+	
+	
+	/**
+	 * Called when validation is complete.
+	 * @param report  the sh:ValidationReport, including the sh:conforms flag
+	 */
+	void finish(Resource report);
+}
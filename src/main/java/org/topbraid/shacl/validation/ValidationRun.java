@@ -0,0 +1,115 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation;
+
+import org.topbraid.shacl.validation.sparql.QueryCopies;
+
+/**
+ * The state that is shared by all engines that take part in a single validation run:
+ * the engine that has started the run, its parallel workers and the nested engines
+ * that validate sh:node etc (see HasShapeFunction).
+ * A ValidationEngine starts each call to validateAll or validateNode with a new run,
+ * so that the caches are dropped together with the run.
+ * 
+ * The caches are created with the run, as enabled by the configuration, and the getters
+ * return null for the disabled ones.
+ */
+public class ValidationRun {
+	
+	private ConformanceMemo conformanceMemo;
+	
+	private FusedExecutors fusedExecutors;
+	
+	private QualifiedConformanceTable qualifiedConformanceTable;
+	
+	private QueryCopies queryCopies;
+	
+	private StaticConstraintCache staticConstraintCache;
+	
+	private ValueOwnersIndex valueOwnersIndex;
+	
+	
+	/**
+	 * Creates a new run.
+	 * @param configuration  the configuration that determines which caches are created
+	 * @param queryCopies  the QueryCopies if the run is executed by multiple threads, otherwise null
+	 */
+	public ValidationRun(ValidationEngineConfiguration configuration, QueryCopies queryCopies) {
+		this.queryCopies = queryCopies;
+		this.fusedExecutors = new FusedExecutors();
+		if(configuration.getConformanceMemoSize() > 0) {
+			conformanceMemo = new ConformanceMemo(configuration.getConformanceMemoSize());
+		}
+		if(configuration.getStaticConstraintCacheSize() > 0) {
+			staticConstraintCache = new StaticConstraintCache(configuration.getStaticConstraintCacheSize());
+		}
+		if(configuration.getQualifiedConformanceTableSize() > 0) {
+			qualifiedConformanceTable = new QualifiedConformanceTable(configuration.getQualifiedConformanceTableSize());
+		}
+		if(configuration.getValueOwnersIndexSize() > 0) {
+			valueOwnersIndex = new ValueOwnersIndex(configuration.getValueOwnersIndexSize());
+		}
+	}
+	
+	
+	/**
+	 * Creates a run for the validation of another data graph, as part of this run, e.g. for a partition
+	 * of the data (see PartitionedValidator).  The new run shares the state that does not depend on the data.
+	 * @param configuration  the configuration that determines which caches are created
+	 * @return a new ValidationRun
+	 */
+	public ValidationRun createRunForOtherData(ValidationEngineConfiguration configuration) {
+		ValidationRun run = new ValidationRun(configuration, queryCopies);
+		run.fusedExecutors = fusedExecutors;
+		run.staticConstraintCache = staticConstraintCache;
+		return run;
+	}
+	
+	
+	public ConformanceMemo getConformanceMemo() {
+		return conformanceMemo;
+	}
+	
+	
+	public FusedExecutors getFusedExecutors() {
+		return fusedExecutors;
+	}
+	
+	
+	public QualifiedConformanceTable getQualifiedConformanceTable() {
+		return qualifiedConformanceTable;
+	}
+	
+	
+	/**
+	 * Gets the QueryCopies that the engines need to use because other threads may execute the same queries.
+	 * @return the QueryCopies or null if the run is executed by a single thread
+	 */
+	public QueryCopies getQueryCopies() {
+		return queryCopies;
+	}
+	
+	
+	public StaticConstraintCache getStaticConstraintCache() {
+		return staticConstraintCache;
+	}
+	
+	
+	public ValueOwnersIndex getValueOwnersIndex() {
+		return valueOwnersIndex;
+	}
+}
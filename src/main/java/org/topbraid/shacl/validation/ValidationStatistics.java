@@ -0,0 +1,309 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.QuerySolutionMap;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.apache.jena.vocabulary.RDF;
+import org.topbraid.shacl.engine.Constraint;
+
+/**
+ * Collects statistics that can be used to estimate the cost and selectivity of constraints,
+ * see {@link ConstraintScheduler}.
+ * The data graph statistics (class sizes and predicate cardinalities) are computed on demand
+ * and assume that the data graph does not change.  The observed statistics (time per focus node
+ * and failure rate of each constraint) are recorded by the ValidationEngine.
+ * Both remain valid across validation runs on the same data, so that a single instance can be
+ * shared by several runs, or threads.  Call {@link #clearDataStatistics()} after the data has changed.
+ *
+ * Constraints are identified by their shape, component and the values of all parameters
+ * (including those of components with several parameters), so that the observations also
+ * apply to a new ShapesGraph with the same shapes.
+ */
+public class ValidationStatistics {
+
+	// Assumed time of a native executor per value node, before anything has been observed
+	private static final double NATIVE_COST = 1000;
+
+	// Assumed time of other (SPARQL or JavaScript) executors per focus node
+	private static final double DECLARATIVE_COST = 50000;
+
+	// Assumed failure rate per focus node, before anything has been observed
+	private static final double PRIOR_FAILURE_RATE = 0.1;
+
+	// The weight of the assumed values, as a number of focus nodes
+	private static final double PRIOR_WEIGHT = 10;
+
+
+	private Map<Node,Long> classSizes = new ConcurrentHashMap<>();
+
+	private Map<List<Object>,Entry> entries = new ConcurrentHashMap<>();
+
+	private Graph dataGraph;
+
+	private Map<Node,long[]> predicateCounts = new ConcurrentHashMap<>();
+
+	private AtomicLong updates = new AtomicLong();
+
+
+	/**
+	 * Constructs a new ValidationStatistics for a given data graph.
+	 * @param dataGraph  the data graph
+	 */
+	public ValidationStatistics(Graph dataGraph) {
+		this.dataGraph = dataGraph;
+	}
+
+
+	/**
+	 * Forgets the statistics about the data graph, e.g. after it has been modified.
+	 * The observed statistics of the constraints are kept.
+	 */
+	public void clearDataStatistics() {
+		classSizes.clear();
+		predicateCounts.clear();
+	}
+
+
+	/**
+	 * Forgets all statistics.
+	 */
+	public void clear() {
+		clearDataStatistics();
+		entries.clear();
+		updates.set(0);
+	}
+
+
+	/**
+	 * Gets the average number of values that the subjects of a given predicate have.
+	 * @param predicate  the predicate
+	 * @return the average number of values, or 0 if the predicate is not used
+	 */
+	public double getAverageValueCount(Node predicate) {
+		long[] counts = getPredicateCounts(predicate);
+		return counts[1] == 0 ? 0 : (double) counts[0] / counts[1];
+	}
+
+
+	/**
+	 * Gets the number of direct instances of a given class in the data graph.
+	 * @param cls  the class
+	 * @return the number of rdf:type triples pointing at the class
+	 */
+	public long getClassSize(Node cls) {
+		return classSizes.computeIfAbsent(cls, c -> count(dataGraph.find(Node.ANY, RDF.type.asNode(), c)));
+	}
+
+
+	/**
+	 * Estimates the average time that a constraint takes to validate a single focus node.
+	 * Until enough has been observed, this is based on the kind of executor that the engine will use
+	 * and the number of values that the focus nodes have for the path of the constraint's shape.
+	 * @param constraint  the Constraint
+	 * @param declarative  true if the engine uses the declarative executors, see {@link Constraint#getDeclarativeExecutor()}
+	 * @return the estimated time in nanoseconds
+	 */
+	public double getCost(Constraint constraint, boolean declarative) {
+		double prior = getPriorCost(constraint, declarative);
+		Entry entry = entries.get(getKey(constraint));
+		if(entry == null) {
+			return prior;
+		}
+		else {
+			return (entry.nanos.sum() + prior * PRIOR_WEIGHT) / (entry.focusNodes.sum() + PRIOR_WEIGHT);
+		}
+	}
+
+
+	public Graph getDataGraph() {
+		return dataGraph;
+	}
+
+
+	/**
+	 * Estimates the fraction of focus nodes for which a constraint produces a validation result.
+	 * @param constraint  the Constraint
+	 * @return the estimated failure rate between 0 and 1
+	 */
+	public double getFailureRate(Constraint constraint) {
+		Entry entry = entries.get(getKey(constraint));
+		if(entry == null) {
+			return PRIOR_FAILURE_RATE;
+		}
+		else {
+			double rate = (entry.failures.sum() + PRIOR_FAILURE_RATE * PRIOR_WEIGHT) / (entry.focusNodes.sum() + PRIOR_WEIGHT);
+			return Math.min(1, rate);
+		}
+	}
+
+
+	/**
+	 * Gets the number of focus nodes that have been recorded for a given constraint.
+	 * @param constraint  the Constraint
+	 * @return the number of focus nodes
+	 */
+	public long getFocusNodeCount(Constraint constraint) {
+		Entry entry = entries.get(getKey(constraint));
+		return entry != null ? entry.focusNodes.sum() : 0;
+	}
+
+
+	/**
+	 * Gets the number of triples in the data graph that have a given predicate.
+	 * @param predicate  the predicate
+	 * @return the number of triples
+	 */
+	public long getPredicateCount(Node predicate) {
+		return getPredicateCounts(predicate)[0];
+	}
+
+
+	/**
+	 * Gets the number of distinct subjects in the data graph that have values for a given predicate.
+	 * @param predicate  the predicate
+	 * @return the number of subjects
+	 */
+	public long getSubjectCount(Node predicate) {
+		return getPredicateCounts(predicate)[1];
+	}
+
+
+	/**
+	 * Gets the number of times that {@link #record(Constraint, int, long, int)} has been called,
+	 * which can be used to detect whether the estimates may have changed.
+	 * @return the number of updates
+	 */
+	public long getUpdateCount() {
+		return updates.get();
+	}
+
+
+	/**
+	 * Records an observed execution of a constraint.
+	 * @param constraint  the Constraint that has been executed
+	 * @param focusNodes  the number of focus nodes that have been validated
+	 * @param nanos  the time that it took
+	 * @param failures  the number of validation results that it has produced
+	 */
+	public void record(Constraint constraint, int focusNodes, long nanos, int failures) {
+		Entry entry = entries.computeIfAbsent(getKey(constraint), k -> new Entry());
+		entry.focusNodes.add(focusNodes);
+		entry.nanos.add(nanos);
+		entry.failures.add(failures);
+		updates.incrementAndGet();
+	}
+
+
+	@Override
+	public String toString() {
+		return "ValidationStatistics (" + entries.size() + " constraints, " + classSizes.size() + " classes, " + predicateCounts.size() + " predicates)";
+	}
+
+
+	private static long count(ExtendedIterator<Triple> it) {
+		long count = 0;
+		try {
+			while(it.hasNext()) {
+				it.next();
+				count++;
+			}
+		}
+		finally {
+			it.close();
+		}
+		return count;
+	}
+
+
+	// The shape, the component and the names and values of all parameters, sorted by name
+	private List<Object> getKey(Constraint constraint) {
+		QuerySolutionMap bindings = new QuerySolutionMap();
+		constraint.addBindings(bindings);
+		List<String> varNames = new ArrayList<>();
+		bindings.varNames().forEachRemaining(varNames::add);
+		Collections.sort(varNames);
+		List<Object> key = new ArrayList<>(2 + 2 * varNames.size());
+		key.add(constraint.getShapeResource().asNode());
+		key.add(constraint.getComponent().asNode());
+		for(String varName : varNames) {
+			key.add(varName);
+			key.add(bindings.get(varName).asNode());
+		}
+		return key;
+	}
+
+
+	// Returns the number of triples and the number of distinct subjects
+	private long[] getPredicateCounts(Node predicate) {
+		return predicateCounts.computeIfAbsent(predicate, p -> {
+			long triples = 0;
+			Set<Node> subjects = new HashSet<>();
+			ExtendedIterator<Triple> it = dataGraph.find(Node.ANY, p, Node.ANY);
+			try {
+				while(it.hasNext()) {
+					subjects.add(it.next().getSubject());
+					triples++;
+				}
+			}
+			finally {
+				it.close();
+			}
+			return new long[] { triples, subjects.size() };
+		});
+	}
+
+
+	private double getPriorCost(Constraint constraint, boolean declarative) {
+		ConstraintExecutor executor = declarative ? constraint.getDeclarativeExecutor() : constraint.getExecutor();
+		if(executor instanceof AbstractNativeConstraintExecutor) {
+			Node predicate = constraint.getShape().getPredicate();
+			if(predicate != null) {
+				return NATIVE_COST * (1 + getAverageValueCount(predicate));
+			}
+			else {
+				return NATIVE_COST;
+			}
+		}
+		else {
+			return DECLARATIVE_COST;
+		}
+	}
+
+
+	private static class Entry {
+
+		LongAdder failures = new LongAdder();
+
+		LongAdder focusNodes = new LongAdder();
+
+		LongAdder nanos = new LongAdder();
+	}
+}
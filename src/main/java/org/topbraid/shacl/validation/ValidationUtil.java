@@ -29,7 +29,9 @@ import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.vocabulary.RDF;
 import org.topbraid.jenax.util.ARQFactory;
 import org.topbraid.shacl.arq.SHACLFunctions;
+import org.topbraid.shacl.engine.CompiledShapesGraph;
 import org.topbraid.shacl.engine.ShapesGraph;
+import org.topbraid.shacl.engine.filters.ExcludeMetaShapesFilter;
 import org.topbraid.shacl.util.SHACLSystemModel;
 import org.topbraid.shacl.vocabulary.TOSH;
 
@@ -67,6 +69,38 @@ public class ValidationUtil {
 	}
 
 
+	/**
+	 * Compiles a shapes Model into a CompiledShapesGraph that can be reused for any number of
+	 * (concurrent) validations, see {@link #createValidationEngine(Model, CompiledShapesGraph, ValidationEngineConfiguration)}.
+	 * If the shapesModel does not include the system graph triples then these will be added.
+	 * @param shapesModel  the shapes Model
+	 * @param validateShapes  true to also validate any shapes in the data Model (false is faster)
+	 * @return the compiled shapes graph
+	 */
+	public static CompiledShapesGraph compileShapesGraph(Model shapesModel, boolean validateShapes) {
+		shapesModel = ensureToshTriplesExist(shapesModel);
+		SHACLFunctions.registerFunctions(shapesModel);
+		return new CompiledShapesGraph(shapesModel, validateShapes ? null : new ExcludeMetaShapesFilter(), null);
+	}
+
+
+	/**
+	 * Creates a ValidationEngine for a given data Model and a previously compiled shapes graph.
+	 * @param dataModel  the data Model
+	 * @param shapesGraph  the compiled shapes graph
+	 * @param configuration  configuration for the validation engine
+	 * @return a new ValidationEngine
+	 */
+	public static ValidationEngine createValidationEngine(Model dataModel, CompiledShapesGraph shapesGraph, ValidationEngineConfiguration configuration) {
+		URI shapesGraphURI = shapesGraph.getShapesGraphURI();
+		Dataset dataset = ARQFactory.get().getDataset(dataModel);
+		dataset.addNamedModel(shapesGraphURI.toString(), shapesGraph.getShapesModel());
+		ValidationEngine engine = ValidationEngineFactory.get().create(dataset, shapesGraphURI, shapesGraph, null);
+		engine.setConfiguration(configuration);
+		return engine;
+	}
+
+
 	public static Model ensureToshTriplesExist(Model shapesModel) {
 		// Ensure that the SHACL, DASH and TOSH graphs are present in the shapes Model
 		if(!shapesModel.contains(TOSH.hasShape, RDF.type, (RDFNode)null)) { // Heuristic
@@ -116,4 +150,24 @@ public class ValidationUtil {
 			return null;
 		}
 	}
+
+
+	/**
+	 * Validates a given data Model against a previously compiled shapes graph.
+	 * Entailment regimes are applied prior to validation.
+	 * @param dataModel  the data Model
+	 * @param shapesGraph  the compiled shapes graph
+	 * @param configuration  configuration for the validation engine
+	 * @return an instance of sh:ValidationReport in a results Model
+	 */
+	public static Resource validateModel(Model dataModel, CompiledShapesGraph shapesGraph, ValidationEngineConfiguration configuration) {
+		ValidationEngine engine = createValidationEngine(dataModel, shapesGraph, configuration);
+		try {
+			engine.applyEntailments();
+			return engine.validateAll();
+		}
+		catch(InterruptedException ex) {
+			return null;
+		}
+	}
 }
@@ -0,0 +1,150 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.impl.LiteralLabel;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Resource;
+import org.topbraid.jenax.util.JenaUtil;
+import org.topbraid.shacl.arq.SHACLPaths;
+import org.topbraid.shacl.engine.Shape;
+
+/**
+ * A bounded, thread-safe cache of indices from values to the instances of a class that have those values
+ * for a given path, as needed by dash:uniqueValueForClass.
+ * Each index is built with a single pass over the instances of the class (and its subclasses),
+ * and shared by all shapes with the same class and path.
+ * Like the in-memory graphs, typed literals are matched by value, so that "1"^^xsd:int and "01"^^xsd:int
+ * are regarded as the same value.
+ * Since the data graph may change between runs, a ValidationEngine starts each run with a
+ * fresh instance, which is shared with the nested and parallel worker engines of that run.
+ * Each index is built by the first thread that needs it, while lookups into indices that
+ * have already been built do not lock.
+ * When the maximum number of indices is reached, the oldest index is evicted.
+ */
+public class ValueOwnersIndex {
+	
+	private Map<List<Object>,Map<Object,Collection<Node>>> indices = new ConcurrentHashMap<>();
+	
+	private int maxSize;
+	
+	// The keys of the indices in the order in which they were built, for eviction
+	private Queue<List<Object>> order = new ConcurrentLinkedQueue<>();
+	
+	
+	public ValueOwnersIndex(int maxSize) {
+		this.maxSize = maxSize;
+	}
+	
+	
+	public void clear() {
+		indices.clear();
+		order.clear();
+	}
+	
+	
+	/**
+	 * Gets the instances of a given class that have a given value for the path of a given shape.
+	 * @param dataModel  the data Model
+	 * @param cls  the class
+	 * @param shape  the property shape defining the path
+	 * @param value  the value
+	 * @return the instances, without duplicates
+	 */
+	public Collection<Node> getOwners(Model dataModel, Node cls, Shape shape, Node value) {
+		Collection<Node> owners = getIndex(dataModel, cls, shape).get(getKey(value));
+		return owners != null ? owners : Collections.emptyList();
+	}
+	
+	
+	private Map<Object,Collection<Node>> getIndex(Model dataModel, Node cls, Shape shape) {
+		Object path = shape.getPredicate() != null ? shape.getPredicate() : shape.getJenaPath().toString();
+		Map<Object,Collection<Node>> index = indices.get(Arrays.asList(cls, path));
+		if(index == null) {
+			index = indices.computeIfAbsent(Arrays.asList(cls, path), key -> {
+				order.add(key);
+				return createIndex(dataModel, cls, shape);
+			});
+			while(indices.size() > maxSize) {
+				List<Object> eldest = order.poll();
+				if(eldest == null) {
+					break;
+				}
+				indices.remove(eldest);
+			}
+		}
+		return index;
+	}
+	
+	
+	private static Map<Object,Collection<Node>> createIndex(Model dataModel, Node cls, Shape shape) {
+		Graph graph = dataModel.getGraph();
+		Map<Object,Collection<Node>> index = new HashMap<>();
+		List<Node> values = new ArrayList<>();
+		for(Resource instance : JenaUtil.getAllInstances(dataModel.asRDFNode(cls).asResource())) {
+			values.clear();
+			if(shape.getPredicate() != null) {
+				SHACLPaths.addValueNodes(graph, instance.asNode(), shape.getPredicate(), values);
+			}
+			else {
+				SHACLPaths.addValueNodes(graph, instance.asNode(), shape.getJenaPath(), values);
+			}
+			// Complex paths and value-equal literals may produce the same owner more than once
+			for(Node value : values) {
+				index.computeIfAbsent(getKey(value), v -> new LinkedHashSet<>(2)).add(instance.asNode());
+			}
+		}
+		return index;
+	}
+	
+	
+	// Well-formed literals without language tag are compared by value, as in GraphMem
+	private static Object getKey(Node node) {
+		if(node.isLiteral()) {
+			LiteralLabel label = node.getLiteral();
+			if(label.isWellFormed() && label.language().isEmpty()) {
+				return label.getIndexingValue();
+			}
+		}
+		return node;
+	}
+	
+	
+	public int size() {
+		return indices.size();
+	}
+	
+	
+	@Override
+	public String toString() {
+		return "ValueOwnersIndex (" + size() + " indices)";
+	}
+}
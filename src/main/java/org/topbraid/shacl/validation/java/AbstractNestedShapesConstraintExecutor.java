@@ -0,0 +1,143 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.java;
+
+import java.net.URI;
+import java.util.List;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.QuerySolutionMap;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.topbraid.jenax.util.JenaUtil;
+import org.topbraid.shacl.arq.functions.HasShapeFunction;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.engine.ShapesGraph;
+import org.topbraid.shacl.validation.AbstractNativeConstraintExecutor;
+import org.topbraid.shacl.validation.ValidationEngine;
+import org.topbraid.shacl.validation.sparql.AbstractSPARQLExecutor;
+
+/**
+ * Base class for native executors that need to validate value nodes against nested shapes
+ * (sh:node, sh:not, sh:and, sh:or and sh:xone).
+ * Nested shapes are evaluated through HasShapeFunction.hasShape so that recursion, failures
+ * and sh:detail are handled exactly like by the SPARQL-based validators using tosh:hasShape.
+ */
+public abstract class AbstractNestedShapesConstraintExecutor extends AbstractNativeConstraintExecutor {
+
+	@Override
+	public void executeConstraint(Constraint constraint, ValidationEngine engine, List<RDFNode> focusNodes) {
+
+		URI oldShapesGraphURI = HasShapeFunction.getShapesGraphURI();
+		ShapesGraph oldShapesGraph = HasShapeFunction.getShapesGraph();
+		if(!engine.getShapesGraphURI().equals(oldShapesGraphURI)) {
+			HasShapeFunction.setShapesGraph(engine.getShapesGraph(), engine.getShapesGraphURI());
+		}
+		
+		Model oldNestedResults = HasShapeFunction.getResultsModel();
+		Model nestedResults = JenaUtil.createMemoryModel();
+		HasShapeFunction.setResultsModel(nestedResults);
+		
+		try {
+			long startTime = System.currentTimeMillis();
+			executeNested(constraint, engine, focusNodes, nestedResults);
+			addStatistics(constraint, startTime);
+		}
+		finally {
+			HasShapeFunction.setShapesGraph(oldShapesGraph, oldShapesGraphURI);
+			HasShapeFunction.setResultsModel(oldNestedResults);
+		}
+	}
+	
+	
+	/**
+	 * Validates the focus nodes once the context for nested shape validation has been set up.
+	 * The default implementation checks each value node separately using {@link #conforms(RDFNode, ValidationEngine, QuerySolutionMap)}.
+	 * @param constraint  the Constraint being validated
+	 * @param engine  the ValidationEngine
+	 * @param focusNodes  the focus nodes
+	 * @param nestedResults  the Model collecting the results of the nested validations
+	 */
+	protected void executeNested(Constraint constraint, ValidationEngine engine, List<RDFNode> focusNodes, Model nestedResults) {
+		QuerySolutionMap bindings = new QuerySolutionMap();
+		for(RDFNode focusNode : focusNodes) {
+			engine.checkCanceled();
+			for(RDFNode valueNode : engine.getValueNodes(constraint, focusNode)) {
+				bindings.clear();
+				Boolean conforms = conforms(valueNode, engine, bindings);
+				if(conforms == null || !conforms) {
+					Resource result;
+					if(conforms == null) {
+						result = createFailureResult(engine, constraint, focusNode, valueNode);
+					}
+					else {
+						result = createValidationResult(engine, constraint, focusNode, valueNode, getDefaultMessage(constraint), bindings);
+					}
+					if(engine.getConfiguration().getReportDetails()) {
+						AbstractSPARQLExecutor.addDetails(result, nestedResults);
+					}
+				}
+			}
+		}
+	}
+	
+	
+	/**
+	 * Checks whether a given value node conforms to the constraint.
+	 * @param valueNode  the value node
+	 * @param engine  the ValidationEngine
+	 * @param bindings  can be used to add bindings for the result message
+	 * @return true if the value node conforms, false if not, null in case of a failure
+	 */
+	protected abstract Boolean conforms(RDFNode valueNode, ValidationEngine engine, QuerySolutionMap bindings);
+	
+	
+	/**
+	 * Counts the number of shapes from a given list where the nested validation returns a given value,
+	 * like tosh:countShapesWithMatchResult.  All shapes are evaluated, and recursion is treated as failure.
+	 * @param valueNode  the value node
+	 * @param shapes  the rdf:List of shapes
+	 * @param expectedValue  the result to count
+	 * @param engine  the ValidationEngine
+	 * @return the number of matching shapes or null in case of a failure
+	 */
+	protected Integer countShapesWithMatchResult(RDFNode valueNode, RDFNode shapes, boolean expectedValue, ValidationEngine engine) {
+		int count = 0;
+		boolean failure = false;
+		for(RDFNode shape : getListMembers(shapes)) {
+			Boolean hasShape = hasShape(valueNode, shape.asNode(), true, engine);
+			if(hasShape == null) {
+				failure = true;
+			}
+			else if(hasShape == expectedValue) {
+				count++;
+			}
+		}
+		return failure ? null : count;
+	}
+	
+	
+	protected String getDefaultMessage(Constraint constraint) {
+		return null;
+	}
+	
+	
+	protected Boolean hasShape(RDFNode valueNode, Node shape, boolean recursionIsError, ValidationEngine engine) {
+		return HasShapeFunction.hasShape(valueNode, shape, recursionIsError, engine.getDataset());
+	}
+}
@@ -0,0 +1,68 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.java;
+
+import java.util.List;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.rdf.model.RDFNode;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.validation.AbstractNativeConstraintExecutor;
+import org.topbraid.shacl.validation.StaticConstraintCache;
+import org.topbraid.shacl.validation.ValidationEngine;
+
+/**
+ * Base class for native executors that test each value node individually,
+ * producing one result for each value node that does not conform.
+ * For components marked with dash:staticConstraint, the outcome for each value node
+ * is looked up in the engine's StaticConstraintCache.
+ */
+public abstract class AbstractValueNodesConstraintExecutor extends AbstractNativeConstraintExecutor {
+
+	@Override
+	public void executeConstraint(Constraint constraint, ValidationEngine engine, List<RDFNode> focusNodes) {
+		long startTime = System.currentTimeMillis();
+		StaticConstraintCache cache = engine.getRun().getStaticConstraintCache();
+		List<Node> constraintKey = cache != null ? cache.getConstraintKey(constraint) : null;
+		for(RDFNode focusNode : focusNodes) {
+			engine.checkCanceled();
+			for(RDFNode valueNode : engine.getValueNodes(constraint, focusNode)) {
+				// Static constraints only depend on the value node
+				boolean conforms = constraintKey != null ?
+						cache.getOrCompute(constraintKey, valueNode.asNode(), () -> conforms(focusNode, valueNode, engine)) :
+						conforms(focusNode, valueNode, engine);
+				if(!conforms) {
+					createValidationResult(engine, constraint, focusNode, valueNode, getDefaultMessage(constraint), null);
+				}
+			}
+		}
+		addStatistics(constraint, startTime);
+	}
+	
+	
+	protected abstract boolean conforms(RDFNode focusNode, RDFNode valueNode, ValidationEngine engine);
+	
+	
+	/**
+	 * Gets the message to use if neither the shape nor the constraint component declare sh:message.
+	 * @param constraint  the Constraint being validated
+	 * @return the default message or null
+	 */
+	protected String getDefaultMessage(Constraint constraint) {
+		return null;
+	}
+}
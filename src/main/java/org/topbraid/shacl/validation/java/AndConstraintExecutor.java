@@ -0,0 +1,42 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.java;
+
+import org.apache.jena.query.QuerySolutionMap;
+import org.apache.jena.rdf.model.RDFNode;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.validation.ValidationEngine;
+
+/**
+ * Validator for sh:and constraints.
+ */
+public class AndConstraintExecutor extends AbstractNestedShapesConstraintExecutor {
+	
+	private RDFNode shapes;
+	
+	
+	public AndConstraintExecutor(Constraint constraint) {
+		this.shapes = constraint.getParameterValue();
+	}
+
+	
+	@Override
+	protected Boolean conforms(RDFNode valueNode, ValidationEngine engine, QuerySolutionMap bindings) {
+		Integer count = countShapesWithMatchResult(valueNode, shapes, false, engine);
+		return count == null ? null : count == 0;
+	}
+}
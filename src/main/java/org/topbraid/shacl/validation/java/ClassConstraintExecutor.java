@@ -0,0 +1,80 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.java;
+
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Set;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.validation.ValidationEngine;
+
+/**
+ * Validator for sh:class constraints, walking rdf:type/rdfs:subClassOf* in the data graph.
+ */
+public class ClassConstraintExecutor extends AbstractValueNodesConstraintExecutor {
+	
+	private Node classNode;
+	
+	
+	public ClassConstraintExecutor(Constraint constraint) {
+		this.classNode = constraint.getParameterValue().asNode();
+	}
+
+	
+	@Override
+	protected boolean conforms(RDFNode focusNode, RDFNode valueNode, ValidationEngine engine) {
+		if(valueNode.isLiteral()) {
+			return false;
+		}
+		Graph graph = getDataGraph(engine);
+		Set<Node> visited = new HashSet<>();
+		LinkedList<Node> queue = new LinkedList<>();
+		addObjects(graph, valueNode.asNode(), RDF.type.asNode(), queue);
+		while(!queue.isEmpty()) {
+			Node type = queue.removeFirst();
+			if(classNode.equals(type)) {
+				return true;
+			}
+			if(visited.add(type)) {
+				addObjects(graph, type, RDFS.subClassOf.asNode(), queue);
+			}
+		}
+		return false;
+	}
+	
+	
+	@Override
+	protected String getDefaultMessage(Constraint constraint) {
+		return "Value does not have class {$class}";
+	}
+	
+	
+	private static void addObjects(Graph graph, Node subject, Node predicate, LinkedList<Node> queue) {
+		ExtendedIterator<Triple> it = graph.find(subject, predicate, Node.ANY);
+		while(it.hasNext()) {
+			queue.add(it.next().getObject());
+		}
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.java;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.QuerySolutionMap;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.validation.AbstractNativeConstraintExecutor;
+import org.topbraid.shacl.validation.ValidationEngine;
+import org.topbraid.shacl.vocabulary.SH;
+
+/**
+ * Validator for sh:closed constraints at node shapes.
+ */
+public class ClosedConstraintExecutor extends AbstractNativeConstraintExecutor {
+	
+	private Set<Node> allowedProperties = new HashSet<>();
+	
+	private boolean closed;
+	
+	
+	public ClosedConstraintExecutor(Constraint constraint) {
+		RDFNode closedNode = getParameterValue(constraint, SH.closed);
+		this.closed = closedNode != null && closedNode.isLiteral() && closedNode.asLiteral().getBoolean();
+		for(Statement s : constraint.getShapeResource().listProperties(SH.property).toList()) {
+			if(s.getObject().isResource()) {
+				for(Statement p : s.getResource().listProperties(SH.path).toList()) {
+					allowedProperties.add(p.getObject().asNode());
+				}
+			}
+		}
+		for(RDFNode member : getListMembers(constraint.getShapeResource().getPropertyResourceValue(SH.ignoredProperties))) {
+			allowedProperties.add(member.asNode());
+		}
+	}
+	
+
+	@Override
+	public void executeConstraint(Constraint constraint, ValidationEngine engine, List<RDFNode> focusNodes) {
+		if(!closed) {
+			return;
+		}
+		long startTime = System.currentTimeMillis();
+		for(RDFNode focusNode : focusNodes) {
+			engine.checkCanceled();
+			Model model = focusNode.getModel();
+			ExtendedIterator<Triple> it = getDataGraph(engine).find(focusNode.asNode(), Node.ANY, Node.ANY);
+			for(Triple triple : it.toList()) {
+				if(!allowedProperties.contains(triple.getPredicate())) {
+					RDFNode predicate = model.asRDFNode(triple.getPredicate());
+					QuerySolutionMap bindings = new QuerySolutionMap();
+					bindings.add(SH.pathVar.getVarName(), predicate);
+					Resource result = createValidationResult(engine, constraint, focusNode, model.asRDFNode(triple.getObject()), 
+							"Predicate {?path} is not allowed (closed shape)", bindings);
+					result.addProperty(SH.resultPath, predicate);
+				}
+			}
+		}
+		addStatistics(constraint, startTime);
+	}
+}
@@ -0,0 +1,55 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.java;
+
+import java.util.List;
+
+import org.apache.jena.rdf.model.RDFNode;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.validation.AbstractNativeConstraintExecutor;
+import org.topbraid.shacl.validation.ValidationEngine;
+import org.topbraid.shacl.vocabulary.SH;
+
+/**
+ * Validator for sh:minCount and sh:maxCount constraints at property shapes.
+ */
+public class CountConstraintExecutor extends AbstractNativeConstraintExecutor {
+	
+	private int count;
+	
+	private boolean min;
+	
+	
+	public CountConstraintExecutor(Constraint constraint) {
+		this.count = constraint.getParameterValue().asLiteral().getInt();
+		this.min = SH.MinCountConstraintComponent.equals(constraint.getComponent());
+	}
+	
+
+	@Override
+	public void executeConstraint(Constraint constraint, ValidationEngine engine, List<RDFNode> focusNodes) {
+		long startTime = System.currentTimeMillis();
+		for(RDFNode focusNode : focusNodes) {
+			engine.checkCanceled();
+			int size = engine.countValueNodes(constraint, focusNode);
+			if(min ? size < count : size > count) {
+				createValidationResult(engine, constraint, focusNode, null, null, null);
+			}
+		}
+		addStatistics(constraint, startTime);
+	}
+}
@@ -0,0 +1,53 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.java;
+
+import org.apache.jena.datatypes.RDFDatatype;
+import org.apache.jena.datatypes.TypeMapper;
+import org.apache.jena.rdf.model.RDFNode;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.validation.ValidationEngine;
+
+/**
+ * Validator for sh:datatype constraints, equivalent to tosh:hasDatatype.
+ */
+public class DatatypeConstraintExecutor extends AbstractValueNodesConstraintExecutor {
+	
+	private RDFDatatype datatype;
+	
+	private String datatypeURI;
+	
+	
+	public DatatypeConstraintExecutor(Constraint constraint) {
+		RDFNode param = constraint.getParameterValue();
+		if(param.isURIResource()) {
+			datatypeURI = param.asResource().getURI();
+			datatype = TypeMapper.getInstance().getTypeByName(datatypeURI);
+		}
+	}
+
+	
+	@Override
+	protected boolean conforms(RDFNode focusNode, RDFNode valueNode, ValidationEngine engine) {
+		if(valueNode.isLiteral() && datatypeURI != null && datatypeURI.equals(valueNode.asNode().getLiteralDatatypeURI())) {
+			return datatype == null || datatype.isValid(valueNode.asNode().getLiteralLexicalForm());
+		}
+		else {
+			return false;
+		}
+	}
+}
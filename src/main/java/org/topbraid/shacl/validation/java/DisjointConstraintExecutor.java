@@ -0,0 +1,53 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.java;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.rdf.model.RDFNode;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.validation.ConstraintExecutors;
+import org.topbraid.shacl.validation.ValidationEngine;
+
+/**
+ * Validator for sh:disjoint constraints.
+ */
+public class DisjointConstraintExecutor extends AbstractValueNodesConstraintExecutor {
+	
+	private Node predicate;
+	
+	public DisjointConstraintExecutor(Constraint constraint) {
+		this.predicate = constraint.getParameterValue().asNode();
+	}
+	
+	
+	@Override
+	protected boolean conforms(RDFNode focusNode, RDFNode valueNode, ValidationEngine engine) {
+		return !getDataGraph(engine).contains(focusNode.asNode(), predicate, valueNode.asNode());
+	}
+	
+	
+	@Override
+	protected String getDefaultMessage(Constraint constraint) {
+		// Same as the validator that the declarative executor would use, for property and node shapes alike
+		if(ConstraintExecutors.get().isJSPreferred()) {
+			return "Value node must not also be one of the values of {$disjoint}";
+		}
+		else {
+			return "Property must not share any values with {$disjoint}";
+		}
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.java;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.validation.AbstractNativeConstraintExecutor;
+import org.topbraid.shacl.validation.ValidationEngine;
+import org.topbraid.shacl.vocabulary.SH;
+
+/**
+ * Validator for sh:equals constraints, reporting each value that is only present on one side.
+ */
+public class EqualsConstraintExecutor extends AbstractNativeConstraintExecutor {
+
+	@Override
+	public void executeConstraint(Constraint constraint, ValidationEngine engine, List<RDFNode> focusNodes) {
+		long startTime = System.currentTimeMillis();
+		Graph graph = getDataGraph(engine);
+		Node predicate = constraint.getParameterValue().asNode();
+		boolean nodeShape = SH.NodeShape.equals(constraint.getContext());
+		for(RDFNode focusNode : focusNodes) {
+			engine.checkCanceled();
+			Set<RDFNode> invalidValues = new LinkedHashSet<>();
+			Node focus = focusNode.asNode();
+			Model model = focusNode.getModel();
+			if(nodeShape) {
+				if(!graph.contains(focus, predicate, focus)) {
+					invalidValues.add(focusNode);
+				}
+				ExtendedIterator<Node> it = graph.find(focus, predicate, Node.ANY).mapWith(t -> t.getObject());
+				while(it.hasNext()) {
+					Node value = it.next();
+					if(!value.equals(focus)) {
+						invalidValues.add(model.asRDFNode(value));
+					}
+				}
+			}
+			else {
+				List<RDFNode> valueNodes = engine.getValueNodes(constraint, focusNode);
+				for(RDFNode valueNode : valueNodes) {
+					if(!graph.contains(focus, predicate, valueNode.asNode())) {
+						invalidValues.add(valueNode);
+					}
+				}
+				ExtendedIterator<Node> it = graph.find(focus, predicate, Node.ANY).mapWith(t -> t.getObject());
+				while(it.hasNext()) {
+					RDFNode value = model.asRDFNode(it.next());
+					if(!valueNodes.contains(value)) {
+						invalidValues.add(value);
+					}
+				}
+			}
+			for(RDFNode value : invalidValues) {
+				createValidationResult(engine, constraint, focusNode, value, null, null);
+			}
+		}
+		addStatistics(constraint, startTime);
+	}
+}
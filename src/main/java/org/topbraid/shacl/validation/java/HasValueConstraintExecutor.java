@@ -0,0 +1,85 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.java;
+
+import java.util.List;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.sparql.expr.ExprEvalException;
+import org.apache.jena.sparql.expr.NodeValue;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.validation.AbstractNativeConstraintExecutor;
+import org.topbraid.shacl.validation.ValidationEngine;
+import org.topbraid.shacl.vocabulary.SH;
+
+/**
+ * Validator for sh:hasValue constraints.
+ */
+public class HasValueConstraintExecutor extends AbstractNativeConstraintExecutor {
+
+	@Override
+	public void executeConstraint(Constraint constraint, ValidationEngine engine, List<RDFNode> focusNodes) {
+		long startTime = System.currentTimeMillis();
+		RDFNode hasValue = constraint.getParameterValue();
+		if(SH.NodeShape.equals(constraint.getContext())) {
+			NodeValue expected = NodeValue.makeNode(hasValue.asNode());
+			for(RDFNode focusNode : focusNodes) {
+				engine.checkCanceled();
+				if(!sameValue(NodeValue.makeNode(focusNode.asNode()), expected)) {
+					createValidationResult(engine, constraint, focusNode, focusNode, "Value must be {$hasValue}", null);
+				}
+			}
+		}
+		else {
+			Resource path = constraint.getShapeResource().getPath();
+			for(RDFNode focusNode : focusNodes) {
+				engine.checkCanceled();
+				if(!hasValue(constraint, engine, focusNode, path, hasValue.asNode())) {
+					createValidationResult(engine, constraint, focusNode, null, "Missing expected value {$hasValue}", null);
+				}
+			}
+		}
+		addStatistics(constraint, startTime);
+	}
+	
+	
+	private boolean hasValue(Constraint constraint, ValidationEngine engine, RDFNode focusNode, Resource path, Node expected) {
+		if(path.isURIResource()) {
+			return getDataGraph(engine).contains(focusNode.asNode(), path.asNode(), expected);
+		}
+		else {
+			for(RDFNode valueNode : engine.getValueNodes(constraint, focusNode)) {
+				if(expected.matches(valueNode.asNode())) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+	
+	
+	private static boolean sameValue(NodeValue value, NodeValue expected) {
+		try {
+			return NodeValue.sameAs(value, expected);
+		}
+		catch(ExprEvalException ex) {
+			return false;
+		}
+	}
+}
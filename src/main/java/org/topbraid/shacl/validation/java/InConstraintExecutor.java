@@ -0,0 +1,58 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.java;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.rdf.model.RDFNode;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.validation.ValidationEngine;
+
+/**
+ * Validator for sh:in constraints.
+ */
+public class InConstraintExecutor extends AbstractValueNodesConstraintExecutor {
+	
+	private Set<Node> members = new HashSet<>();
+	
+	
+	public InConstraintExecutor(Constraint constraint) {
+		for(RDFNode member : getListMembers(constraint.getParameterValue())) {
+			members.add(member.asNode());
+		}
+	}
+
+	
+	@Override
+	protected boolean conforms(RDFNode focusNode, RDFNode valueNode, ValidationEngine engine) {
+		Node node = valueNode.asNode();
+		if(members.contains(node)) {
+			return true;
+		}
+		else if(node.isLiteral()) {
+			// Same matching semantics as a graph pattern in the shapes graph
+			for(Node member : members) {
+				if(member.isLiteral() && member.matches(node)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,56 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.java;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.sparql.expr.nodevalue.NodeFunctions;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.validation.ValidationEngine;
+
+/**
+ * Validator for sh:languageIn constraints, using SPARQL's langMatches semantics.
+ */
+public class LanguageInConstraintExecutor extends AbstractValueNodesConstraintExecutor {
+	
+	private List<String> ranges = new ArrayList<>();
+	
+	
+	public LanguageInConstraintExecutor(Constraint constraint) {
+		for(RDFNode member : getListMembers(constraint.getParameterValue())) {
+			if(member.isLiteral()) {
+				ranges.add(member.asLiteral().getLexicalForm());
+			}
+		}
+	}
+
+	
+	@Override
+	protected boolean conforms(RDFNode focusNode, RDFNode valueNode, ValidationEngine engine) {
+		if(valueNode.isLiteral()) {
+			String lang = valueNode.asLiteral().getLanguage();
+			for(String range : ranges) {
+				if(NodeFunctions.langMatches(lang, range)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+}
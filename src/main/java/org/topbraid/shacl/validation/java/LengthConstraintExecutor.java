@@ -0,0 +1,64 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.java;
+
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.sparql.expr.Expr;
+import org.apache.jena.sparql.expr.ExprEvalException;
+import org.apache.jena.sparql.expr.NodeValue;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.validation.ValidationEngine;
+import org.topbraid.shacl.vocabulary.SH;
+
+/**
+ * Validator for sh:minLength and sh:maxLength constraints, counting characters like SPARQL's STRLEN.
+ */
+public class LengthConstraintExecutor extends AbstractValueNodesConstraintExecutor {
+	
+	private NodeValue limit;
+	
+	private boolean min;
+	
+	
+	public LengthConstraintExecutor(Constraint constraint) {
+		this.limit = NodeValue.makeNode(constraint.getParameterValue().asNode());
+		this.min = SH.MinLengthConstraintComponent.equals(constraint.getComponent());
+	}
+
+	
+	@Override
+	protected boolean conforms(RDFNode focusNode, RDFNode valueNode, ValidationEngine engine) {
+		String str;
+		if(valueNode.isAnon()) {
+			return false;
+		}
+		else if(valueNode.isURIResource()) {
+			str = valueNode.asResource().getURI();
+		}
+		else {
+			str = valueNode.asLiteral().getLexicalForm();
+		}
+		NodeValue length = NodeValue.makeInteger(str.codePointCount(0, str.length()));
+		try {
+			int cmp = NodeValue.compare(length, limit);
+			return cmp == Expr.CMP_EQUAL || cmp == (min ? Expr.CMP_GREATER : Expr.CMP_LESS);
+		}
+		catch(ExprEvalException ex) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.java;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.sparql.expr.Expr;
+import org.apache.jena.sparql.expr.ExprEvalException;
+import org.apache.jena.sparql.expr.NodeValue;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.validation.AbstractNativeConstraintExecutor;
+import org.topbraid.shacl.validation.ValidationEngine;
+import org.topbraid.shacl.vocabulary.SH;
+
+/**
+ * Validator for sh:lessThan and sh:lessThanOrEquals constraints at property shapes.
+ * Like the SPARQL-based validators, sh:lessThan produces one result for each failing pair
+ * of values while sh:lessThanOrEquals produces one result per value node.
+ */
+public class LessThanConstraintExecutor extends AbstractNativeConstraintExecutor {
+	
+	private boolean orEquals;
+	
+	
+	public LessThanConstraintExecutor(Constraint constraint) {
+		this.orEquals = SH.LessThanOrEqualsConstraintComponent.equals(constraint.getComponent());
+	}
+	
+
+	@Override
+	public void executeConstraint(Constraint constraint, ValidationEngine engine, List<RDFNode> focusNodes) {
+		long startTime = System.currentTimeMillis();
+		Node predicate = constraint.getParameterValue().asNode();
+		for(RDFNode focusNode : focusNodes) {
+			engine.checkCanceled();
+			List<Node> others = getDataGraph(engine).find(focusNode.asNode(), predicate, Node.ANY).mapWith(t -> t.getObject()).toList();
+			if(!others.isEmpty()) {
+				Set<RDFNode> reported = new LinkedHashSet<>();
+				for(RDFNode valueNode : engine.getValueNodes(constraint, focusNode)) {
+					NodeValue value = NodeValue.makeNode(valueNode.asNode());
+					for(Node other : others) {
+						if(!isLess(value, NodeValue.makeNode(other))) {
+							if(!orEquals) {
+								createValidationResult(engine, constraint, focusNode, valueNode, null, null);
+							}
+							else if(reported.add(valueNode)) {
+								createValidationResult(engine, constraint, focusNode, valueNode, null, null);
+							}
+						}
+					}
+				}
+			}
+		}
+		addStatistics(constraint, startTime);
+	}
+	
+	
+	private boolean isLess(NodeValue value, NodeValue other) {
+		try {
+			int cmp = NodeValue.compare(value, other);
+			return cmp == Expr.CMP_LESS || (orEquals && cmp == Expr.CMP_EQUAL);
+		}
+		catch(ExprEvalException ex) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,58 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.java;
+
+import java.util.function.Function;
+
+import org.apache.jena.rdf.model.Resource;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.validation.ConstraintExecutor;
+import org.topbraid.shacl.validation.SpecialConstraintExecutorFactory;
+
+/**
+ * A SpecialConstraintExecutorFactory for the native executors of this package,
+ * optionally limited to constraints in a given context (sh:NodeShape or sh:PropertyShape).
+ */
+public class NativeConstraintExecutorFactory implements SpecialConstraintExecutorFactory {
+	
+	private Resource context;
+	
+	private Function<Constraint,ConstraintExecutor> creator;
+	
+	
+	public NativeConstraintExecutorFactory(Function<Constraint,ConstraintExecutor> creator) {
+		this(creator, null);
+	}
+	
+	
+	public NativeConstraintExecutorFactory(Function<Constraint,ConstraintExecutor> creator, Resource context) {
+		this.context = context;
+		this.creator = creator;
+	}
+
+
+	@Override
+	public boolean canExecute(Constraint constraint) {
+		return context == null || context.equals(constraint.getContext());
+	}
+
+
+	@Override
+	public ConstraintExecutor create(Constraint constraint) {
+		return creator.apply(constraint);
+	}
+}
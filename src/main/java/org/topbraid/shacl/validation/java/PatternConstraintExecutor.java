@@ -0,0 +1,62 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.java;
+
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.sparql.expr.ExprEvalException;
+import org.apache.jena.sparql.expr.RegexJava;
+import org.topbraid.jenax.util.JenaUtil;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.validation.ValidationEngine;
+import org.topbraid.shacl.vocabulary.SH;
+
+/**
+ * Validator for sh:pattern constraints, using the same regex engine as the SPARQL regex function.
+ * Invalid patterns cause all value nodes to be reported, like the SPARQL-based validator.
+ */
+public class PatternConstraintExecutor extends AbstractValueNodesConstraintExecutor {
+	
+	private RegexJava regex;
+	
+	
+	public PatternConstraintExecutor(Constraint constraint) {
+		RDFNode pattern = getParameterValue(constraint, SH.pattern);
+		String flags = JenaUtil.getStringProperty(constraint.getShapeResource(), SH.flags);
+		if(pattern != null && pattern.isLiteral()) {
+			try {
+				regex = new RegexJava(pattern.asLiteral().getLexicalForm(), flags);
+			}
+			catch(ExprEvalException ex) {
+				// Leave regex null so that all values are reported
+			}
+		}
+	}
+
+	
+	@Override
+	protected boolean conforms(RDFNode focusNode, RDFNode valueNode, ValidationEngine engine) {
+		if(valueNode.isAnon() || regex == null) {
+			return false;
+		}
+		else if(valueNode.isURIResource()) {
+			return regex.match(valueNode.asResource().getURI());
+		}
+		else {
+			return regex.match(valueNode.asLiteral().getLexicalForm());
+		}
+	}
+}
@@ -0,0 +1,144 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.java;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.QuerySolutionMap;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.Statement;
+import org.topbraid.jenax.util.JenaDatatypes;
+import org.topbraid.jenax.util.JenaUtil;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.util.RecursionGuard;
+import org.topbraid.shacl.validation.QualifiedConformanceTable;
+import org.topbraid.shacl.validation.ValidationEngine;
+import org.topbraid.shacl.vocabulary.SH;
+
+/**
+ * Validator for sh:qualifiedMinCount and sh:qualifiedMaxCount constraints at property shapes.
+ * 
+ * The sibling shapes (for sh:qualifiedValueShapesDisjoint true) are collected once from the
+ * shapes graph.  Whether a value node conforms to the qualified value shape but none of the
+ * siblings is computed once for each chunk of focus nodes.  If enabled by the configuration,
+ * the outcome is also looked up in the QualifiedConformanceTable of the validation run, so that
+ * value nodes shared by chunks of focus nodes, or by the qualifiedMinCount and qualifiedMaxCount
+ * constraints of the same property shape, are only validated once.
+ */
+public class QualifiedValueShapeConstraintExecutor extends AbstractNestedShapesConstraintExecutor {
+	
+	private int count;
+	
+	private boolean min;
+	
+	private Node qualifiedValueShape;
+	
+	private List<Node> siblingShapes = new ArrayList<>();
+	
+	
+	public QualifiedValueShapeConstraintExecutor(Constraint constraint) {
+		Resource shape = constraint.getShapeResource();
+		this.min = SH.QualifiedMinCountConstraintComponent.equals(constraint.getComponent());
+		this.count = JenaUtil.getProperty(shape, min ? SH.qualifiedMinCount : SH.qualifiedMaxCount).asLiteral().getInt();
+		this.qualifiedValueShape = JenaUtil.getProperty(shape, SH.qualifiedValueShape).asNode();
+		if(shape.hasProperty(SH.qualifiedValueShapesDisjoint, JenaDatatypes.TRUE)) {
+			for(Resource parentShape : shape.getModel().listSubjectsWithProperty(SH.property, shape).toList()) {
+				for(Statement s : parentShape.listProperties(SH.property).toList()) {
+					if(s.getObject().isResource()) {
+						for(Statement q : s.getResource().listProperties(SH.qualifiedValueShape).toList()) {
+							Node siblingShape = q.getObject().asNode();
+							if(!qualifiedValueShape.equals(siblingShape) && !siblingShapes.contains(siblingShape)) {
+								siblingShapes.add(siblingShape);
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+	
+	
+	@Override
+	protected Boolean conforms(RDFNode valueNode, ValidationEngine engine, QuerySolutionMap bindings) {
+		Boolean hasShape = hasShape(valueNode, qualifiedValueShape, false, engine);
+		if(hasShape == null || !hasShape) {
+			return hasShape;
+		}
+		for(Node siblingShape : siblingShapes) {
+			Boolean hasSibling = hasShape(valueNode, siblingShape, false, engine);
+			if(hasSibling == null || hasSibling) {
+				return hasSibling == null ? null : false;
+			}
+		}
+		return true;
+	}
+
+
+	@Override
+	protected void executeNested(Constraint constraint, ValidationEngine engine, List<RDFNode> focusNodes, Model nestedResults) {
+		
+		// Maps each value node to true if it is counted, false if not and null in case of a failure
+		QualifiedConformanceTable table = engine.getRun().getQualifiedConformanceTable();
+		Map<RDFNode,Boolean> qualified = new HashMap<>();
+		Map<RDFNode,List<RDFNode>> valueNodes = new HashMap<>();
+		for(RDFNode focusNode : focusNodes) {
+			engine.checkCanceled();
+			List<RDFNode> values = engine.getValueNodes(constraint, focusNode);
+			valueNodes.put(focusNode, values);
+			for(RDFNode valueNode : values) {
+				if(!qualified.containsKey(valueNode)) {
+					Boolean conforms = table != null ? table.get(qualifiedValueShape, siblingShapes, valueNode.asNode()) : null;
+					if(conforms == null) {
+						int recursions = RecursionGuard.getRecursionCount();
+						conforms = conforms(valueNode, engine, null);
+						if(table != null && conforms != null && recursions == RecursionGuard.getRecursionCount()) {
+							table.put(qualifiedValueShape, siblingShapes, valueNode.asNode(), conforms);
+						}
+					}
+					qualified.put(valueNode, conforms);
+				}
+			}
+		}
+		
+		for(RDFNode focusNode : focusNodes) {
+			int size = 0;
+			RDFNode failedValueNode = null;
+			for(RDFNode valueNode : valueNodes.get(focusNode)) {
+				Boolean conforms = qualified.get(valueNode);
+				if(conforms == null) {
+					failedValueNode = valueNode;
+					break;
+				}
+				else if(conforms) {
+					size++;
+				}
+			}
+			if(failedValueNode != null) {
+				createFailureResult(engine, constraint, focusNode, failedValueNode);
+			}
+			else if(min ? size < count : size > count) {
+				createValidationResult(engine, constraint, focusNode, null, null, null);
+			}
+		}
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.java;
+
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.sparql.expr.Expr;
+import org.apache.jena.sparql.expr.ExprEvalException;
+import org.apache.jena.sparql.expr.NodeValue;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.validation.ValidationEngine;
+import org.topbraid.shacl.vocabulary.SH;
+
+/**
+ * Validator for sh:minExclusive, sh:minInclusive, sh:maxExclusive and sh:maxInclusive constraints,
+ * using the comparison semantics of the SPARQL operators.
+ * Values that cannot be compared are reported as violations.
+ */
+public class RangeConstraintExecutor extends AbstractValueNodesConstraintExecutor {
+	
+	private NodeValue limit;
+	
+	private boolean max;
+	
+	private boolean inclusive;
+	
+	
+	public RangeConstraintExecutor(Constraint constraint) {
+		Resource component = constraint.getComponent();
+		this.limit = NodeValue.makeNode(constraint.getParameterValue().asNode());
+		this.max = SH.MaxExclusiveConstraintComponent.equals(component) || SH.MaxInclusiveConstraintComponent.equals(component);
+		this.inclusive = SH.MinInclusiveConstraintComponent.equals(component) || SH.MaxInclusiveConstraintComponent.equals(component);
+	}
+
+	
+	@Override
+	protected boolean conforms(RDFNode focusNode, RDFNode valueNode, ValidationEngine engine) {
+		try {
+			int cmp = NodeValue.compare(NodeValue.makeNode(valueNode.asNode()), limit);
+			if(cmp == Expr.CMP_EQUAL) {
+				return inclusive;
+			}
+			else {
+				return cmp == (max ? Expr.CMP_LESS : Expr.CMP_GREATER);
+			}
+		}
+		catch(ExprEvalException ex) {
+			return false;
+		}
+	}
+}
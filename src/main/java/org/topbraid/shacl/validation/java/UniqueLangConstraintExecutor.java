@@ -0,0 +1,64 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.java;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.jena.query.QuerySolutionMap;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.topbraid.jenax.util.JenaDatatypes;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.validation.AbstractNativeConstraintExecutor;
+import org.topbraid.shacl.validation.ValidationEngine;
+
+/**
+ * Validator for sh:uniqueLang constraints at property shapes, producing one result
+ * for each language tag that is used by more than one value.
+ */
+public class UniqueLangConstraintExecutor extends AbstractNativeConstraintExecutor {
+
+	@Override
+	public void executeConstraint(Constraint constraint, ValidationEngine engine, List<RDFNode> focusNodes) {
+		if(!JenaDatatypes.TRUE.equals(constraint.getParameterValue())) {
+			return;
+		}
+		long startTime = System.currentTimeMillis();
+		for(RDFNode focusNode : focusNodes) {
+			engine.checkCanceled();
+			Map<String,Integer> counts = new LinkedHashMap<>();
+			for(RDFNode valueNode : engine.getValueNodes(constraint, focusNode)) {
+				if(valueNode.isLiteral()) {
+					String lang = valueNode.asLiteral().getLanguage();
+					if(!lang.isEmpty()) {
+						counts.merge(lang, 1, Integer::sum);
+					}
+				}
+			}
+			for(Map.Entry<String,Integer> entry : counts.entrySet()) {
+				if(entry.getValue() > 1) {
+					QuerySolutionMap bindings = new QuerySolutionMap();
+					bindings.add("lang", ResourceFactory.createStringLiteral(entry.getKey()));
+					createValidationResult(engine, constraint, focusNode, null, null, bindings);
+				}
+			}
+		}
+		addStatistics(constraint, startTime);
+	}
+}
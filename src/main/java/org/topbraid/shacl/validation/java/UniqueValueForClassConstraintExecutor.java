@@ -0,0 +1,71 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.java;
+
+import java.util.List;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.QuerySolutionMap;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.RDFNode;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.validation.AbstractNativeConstraintExecutor;
+import org.topbraid.shacl.validation.ValidationEngine;
+import org.topbraid.shacl.validation.ValueOwnersIndex;
+
+/**
+ * Validator for dash:uniqueValueForClass constraints at property shapes.
+ * Instead of joining each value with all other subjects of the path, this looks up the
+ * other instances with the same value in the ValueOwnersIndex of the current run, which is
+ * built once for each combination of class and path.
+ * If the index is disabled by the configuration, the SPARQL validator of the component is used.
+ */
+public class UniqueValueForClassConstraintExecutor extends AbstractNativeConstraintExecutor {
+	
+	private Node cls;
+	
+	
+	public UniqueValueForClassConstraintExecutor(Constraint constraint) {
+		this.cls = constraint.getParameterValue().asNode();
+	}
+	
+
+	@Override
+	public void executeConstraint(Constraint constraint, ValidationEngine engine, List<RDFNode> focusNodes) {
+		ValueOwnersIndex index = engine.getRun().getValueOwnersIndex();
+		if(index == null) {
+			constraint.getDeclarativeExecutor().executeConstraint(constraint, engine, focusNodes);
+			return;
+		}
+		long startTime = System.currentTimeMillis();
+		Model dataModel = engine.getDataset().getDefaultModel();
+		QuerySolutionMap bindings = new QuerySolutionMap();
+		for(RDFNode focusNode : focusNodes) {
+			engine.checkCanceled();
+			for(RDFNode valueNode : engine.getValueNodes(constraint, focusNode)) {
+				for(Node other : index.getOwners(dataModel, cls, constraint.getShape(), valueNode.asNode())) {
+					if(!other.equals(focusNode.asNode())) {
+						bindings.clear();
+						bindings.add("other", dataModel.asRDFNode(other));
+						createValidationResult(engine, constraint, focusNode, valueNode, "Value {?value} must be unique but is also used by {?other}", bindings);
+					}
+				}
+			}
+		}
+		addStatistics(constraint, startTime);
+	}
+}
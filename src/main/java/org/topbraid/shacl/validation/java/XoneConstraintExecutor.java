@@ -0,0 +1,59 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.java;
+
+import org.apache.jena.query.QuerySolutionMap;
+import org.apache.jena.rdf.model.RDFNode;
+import org.topbraid.jenax.util.JenaDatatypes;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.validation.ValidationEngine;
+import org.topbraid.shacl.vocabulary.SH;
+
+/**
+ * Validator for sh:xone constraints.
+ */
+public class XoneConstraintExecutor extends AbstractNestedShapesConstraintExecutor {
+	
+	private RDFNode shapes;
+	
+	
+	public XoneConstraintExecutor(Constraint constraint) {
+		this.shapes = constraint.getParameterValue();
+	}
+
+	
+	@Override
+	protected Boolean conforms(RDFNode valueNode, ValidationEngine engine, QuerySolutionMap bindings) {
+		Integer count = countShapesWithMatchResult(valueNode, shapes, true, engine);
+		if(count == null) {
+			return null;
+		}
+		bindings.add("count", JenaDatatypes.createInteger(count));
+		return count == 1;
+	}
+
+
+	@Override
+	protected String getDefaultMessage(Constraint constraint) {
+		if(SH.NodeShape.equals(constraint.getContext())) {
+			return "Focus node has {?count} of the shapes from the 'exactly one' list";
+		}
+		else {
+			return "Value node has {?count} of the shapes from the 'exactly one' list";
+		}
+	}
+}
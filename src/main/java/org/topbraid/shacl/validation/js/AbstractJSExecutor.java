@@ -42,6 +42,7 @@ import org.topbraid.shacl.js.model.JSFactory;
 import org.topbraid.shacl.js.model.JSTerm;
 import org.topbraid.shacl.model.SHJSExecutable;
 import org.topbraid.shacl.util.FailureLog;
+import org.topbraid.shacl.validation.ConformanceShortCircuit;
 import org.topbraid.shacl.validation.ConstraintExecutor;
 import org.topbraid.shacl.validation.ValidationEngine;
 import org.topbraid.shacl.vocabulary.DASH;
@@ -100,6 +101,9 @@ public abstract class AbstractJSExecutor implements ConstraintExecutor {
 				ExecStatisticsManager.get().add(Collections.singletonList(stats));
 			}
 		}
+		catch(ConformanceShortCircuit ex) {
+			throw ex;
+		}
 		catch(Exception ex) {
 			ex.printStackTrace();
 			Resource result = validationEngine.createResult(DASH.FailureResult, constraint, null);
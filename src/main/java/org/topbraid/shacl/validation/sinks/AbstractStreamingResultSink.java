@@ -0,0 +1,126 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.sinks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.vocabulary.RDF;
+import org.topbraid.shacl.validation.ValidationResultSink;
+import org.topbraid.shacl.vocabulary.SH;
+
+/**
+ * Base class of ValidationResultSinks that write the results to an OutputStream as they arrive.
+ * Only the number of results is kept in memory.
+ */
+public abstract class AbstractStreamingResultSink implements ValidationResultSink {
+	
+	private OutputStream out;
+	
+	private int resultCount;
+	
+	private int validationResultCount;
+	
+	
+	protected AbstractStreamingResultSink(OutputStream out) {
+		this.out = out;
+	}
+	
+
+	@Override
+	public void addResult(Resource result) {
+		resultCount++;
+		if(result.hasProperty(RDF.type, SH.ValidationResult)) {
+			validationResultCount++;
+		}
+		writeResult(result);
+	}
+
+	
+	@Override
+	public boolean conforms() {
+		return validationResultCount == 0;
+	}
+	
+
+	@Override
+	public void finish(Resource report) {
+		writeReport(report);
+		try {
+			out.flush();
+		}
+		catch(IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+	
+	
+	protected OutputStream getOutputStream() {
+		return out;
+	}
+	
+	
+	/**
+	 * Gets the number of results that have been added so far.
+	 * @return the number of results
+	 */
+	public int getResultCount() {
+		return resultCount;
+	}
+	
+	
+	/**
+	 * Walks all statements of a given resource, recursively including those of blank node objects.
+	 * @param resource  the resource to start at
+	 * @param consumer  the consumer of the statements
+	 */
+	protected static void walkClosure(Resource resource, Consumer<Statement> consumer) {
+		walkClosure(resource, consumer, new HashSet<>());
+	}
+	
+	
+	private static void walkClosure(Resource resource, Consumer<Statement> consumer, Set<Resource> visited) {
+		if(visited.add(resource)) {
+			for(Statement s : resource.listProperties().toList()) {
+				consumer.accept(s);
+				if(s.getObject().isAnon()) {
+					walkClosure(s.getResource(), consumer, visited);
+				}
+			}
+		}
+	}
+	
+	
+	/**
+	 * Writes a single result to the output stream.
+	 * @param result  the result to write
+	 */
+	protected abstract void writeResult(Resource result);
+	
+	
+	/**
+	 * Writes any closing data once validation is complete.
+	 * @param report  the sh:ValidationReport
+	 */
+	protected abstract void writeReport(Resource report);
+}
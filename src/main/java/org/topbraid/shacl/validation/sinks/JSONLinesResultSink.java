@@ -0,0 +1,98 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.sinks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.jena.atlas.json.JSON;
+import org.apache.jena.atlas.json.JsonArray;
+import org.apache.jena.atlas.json.JsonObject;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.riot.out.NodeFmtLib;
+import org.topbraid.jenax.util.JenaUtil;
+import org.topbraid.shacl.arq.SHACLPaths;
+import org.topbraid.shacl.vocabulary.SH;
+
+/**
+ * A ValidationResultSink that writes one JSON object per line for each result.
+ * RDF nodes are represented as strings in N-Triples syntax and paths use SPARQL syntax.
+ * Nothing is written for the report itself, use {@link #conforms()} instead.
+ */
+public class JSONLinesResultSink extends AbstractStreamingResultSink {
+	
+	private static final byte[] NEWLINE = "\n".getBytes(StandardCharsets.UTF_8);
+	
+	
+	public JSONLinesResultSink(OutputStream out) {
+		super(out);
+	}
+
+
+	@Override
+	protected void writeResult(Resource result) {
+		JsonObject json = new JsonObject();
+		Resource type = JenaUtil.getType(result);
+		if(type != null && type.isURIResource()) {
+			json.put("type", type.getLocalName());
+		}
+		putNode(json, "focusNode", result, SH.focusNode);
+		Resource path = JenaUtil.getResourceProperty(result, SH.resultPath);
+		if(path != null) {
+			json.put("resultPath", SHACLPaths.getPathString(path));
+		}
+		putNode(json, "value", result, SH.value);
+		putNode(json, "resultSeverity", result, SH.resultSeverity);
+		putNode(json, "sourceShape", result, SH.sourceShape);
+		putNode(json, "sourceConstraintComponent", result, SH.sourceConstraintComponent);
+		putNode(json, "sourceConstraint", result, SH.sourceConstraint);
+		JsonArray messages = new JsonArray();
+		for(Statement s : result.listProperties(SH.resultMessage).toList()) {
+			if(s.getObject().isLiteral()) {
+				messages.add(s.getLiteral().getLexicalForm());
+			}
+		}
+		if(!messages.isEmpty()) {
+			json.put("resultMessage", messages);
+		}
+		try {
+			getOutputStream().write(JSON.toStringFlat(json).getBytes(StandardCharsets.UTF_8));
+			getOutputStream().write(NEWLINE);
+		}
+		catch(IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+	
+	
+	private void putNode(JsonObject json, String key, Resource result, Property predicate) {
+		RDFNode value = JenaUtil.getProperty(result, predicate);
+		if(value != null) {
+			json.put(key, NodeFmtLib.str(value.asNode()));
+		}
+	}
+
+
+	@Override
+	protected void writeReport(Resource report) {
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.sinks;
+
+import java.io.OutputStream;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFWriter;
+import org.apache.jena.shared.PrefixMapping;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.XSD;
+import org.topbraid.shacl.vocabulary.DASH;
+import org.topbraid.shacl.vocabulary.SH;
+
+/**
+ * A ValidationResultSink that streams the report as RDF, e.g. as N-Triples or Turtle blocks.
+ * The triples of each result are written as it arrives, and the sh:ValidationReport
+ * with its sh:conforms flag is written at the end.
+ */
+public class RDFStreamResultSink extends AbstractStreamingResultSink {
+	
+	private Node reportNode = NodeFactory.createBlankNode();
+	
+	private StreamRDF stream;
+	
+	
+	/**
+	 * Creates a new sink writing N-Triples.
+	 * @param out  the OutputStream to write to
+	 */
+	public RDFStreamResultSink(OutputStream out) {
+		this(out, RDFFormat.NTRIPLES, null);
+	}
+	
+	
+	/**
+	 * Creates a new sink.
+	 * @param out  the OutputStream to write to
+	 * @param format  the streaming format, e.g. RDFFormat.NTRIPLES or RDFFormat.TURTLE_BLOCKS
+	 * @param prefixes  additional prefixes for formats that support them, or null
+	 */
+	public RDFStreamResultSink(OutputStream out, RDFFormat format, PrefixMapping prefixes) {
+		super(out);
+		stream = StreamRDFWriter.getWriterStream(out, format);
+		stream.start();
+		stream.prefix("dash", DASH.NS);
+		stream.prefix("rdf", RDF.getURI());
+		stream.prefix("sh", SH.NS);
+		stream.prefix("xsd", XSD.NS);
+		if(prefixes != null) {
+			prefixes.getNsPrefixMap().forEach((prefix, ns) -> stream.prefix(prefix, ns));
+		}
+	}
+
+
+	@Override
+	protected void writeResult(Resource result) {
+		stream.triple(Triple.create(reportNode, SH.result.asNode(), result.asNode()));
+		walkClosure(result, s -> stream.triple(s.asTriple()));
+	}
+
+
+	@Override
+	protected void writeReport(Resource report) {
+		stream.triple(Triple.create(reportNode, RDF.type.asNode(), SH.ValidationReport.asNode()));
+		for(Statement s : report.listProperties(SH.conforms).toList()) {
+			stream.triple(Triple.create(reportNode, SH.conforms.asNode(), s.getObject().asNode()));
+		}
+		stream.finish();
+	}
+}
@@ -19,7 +19,12 @@ package org.topbraid.shacl.validation.sparql;
 import java.net.URI;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.jena.query.Query;
 import org.apache.jena.query.QueryExecution;
@@ -32,6 +37,7 @@ import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.rdf.model.ResourceFactory;
 import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.sparql.syntax.syntaxtransform.QueryTransformOps;
 import org.apache.jena.vocabulary.RDF;
 import org.topbraid.jenax.statistics.ExecStatistics;
 import org.topbraid.jenax.statistics.ExecStatisticsManager;
@@ -58,17 +64,34 @@ public abstract class AbstractSPARQLExecutor implements ConstraintExecutor {
 	
 	private Query query;
 	
+	// Variation of query that only asks for a single solution, for conforms-only mode
+	private Query conformsQuery;
+	
 	private String queryString;
 	
+	// True if the query can be executed for multiple focus nodes at once
+	private boolean batchSafe;
+	
+	// Variation of query without the leading $this $PATH ?value, for value nodes shared by the engine
+	private Query valuesQuery;
+	
 	
 	protected AbstractSPARQLExecutor(Constraint constraint) {
 		this.queryString = getSPARQL(constraint);
 		try {
 			this.query = ARQFactory.get().createQuery(queryString);
 			Resource path = constraint.getShapeResource().getPath();
+			// Complex paths may produce duplicate values, which the VALUES block would not have
+			if(path != null && (path.isURIResource() || query.isDistinct()) && 
+					SPARQLBatchQueries.isBatchSafe(query) && SPARQLBatchQueries.hasPathPattern(query)) {
+				valuesQuery = SPARQLBatchQueries.createQueryWithoutPathPattern(query);
+			}
 			if(path != null && path.isAnon()) {
 				String pathString = SHACLPaths.getPathString(JenaUtil.getResourceProperty(constraint.getShapeResource(), SH.path));
 				query = SPARQLSubstitutions.substitutePaths(query, pathString, constraint.getShapeResource().getModel());
+				if(valuesQuery != null) {
+					valuesQuery = SPARQLSubstitutions.substitutePaths(valuesQuery, pathString, constraint.getShapeResource().getModel());
+				}
 			}
 		}
 		catch(QueryParseException ex) {
@@ -78,21 +101,18 @@ public abstract class AbstractSPARQLExecutor implements ConstraintExecutor {
 		if(!query.isSelectType()) {
 			throw new IllegalArgumentException("SHACL constraints must be SELECT queries");
 		}
+		
+		this.batchSafe = SPARQLBatchQueries.isBatchSafe(query);
+		
+		this.conformsQuery = QueryTransformOps.shallowCopy(query);
+		conformsQuery.setLimit(1);
 	}
 
 	
 	@Override
 	public void executeConstraint(Constraint constraint, ValidationEngine engine, List<RDFNode> focusNodes) {
 		
-		QuerySolutionMap bindings = new QuerySolutionMap();
-		addBindings(constraint, bindings);
-		bindings.add(SH.currentShapeVar.getVarName(), constraint.getShapeResource());
-		bindings.add(SH.shapesGraphVar.getVarName(), ResourceFactory.createResource(engine.getShapesGraphURI().toString()));
-		
-		Resource path = constraint.getShapeResource().getPath();
-		if(path != null && path.isURIResource()) {
-			bindings.add(SH.PATHVar.getName(), path);
-		}
+		QuerySolutionMap bindings = createBindings(constraint, engine);
 		
 		URI oldShapesGraphURI = HasShapeFunction.getShapesGraphURI();
 		ShapesGraph oldShapesGraph = HasShapeFunction.getShapesGraph();
@@ -107,16 +127,51 @@ public abstract class AbstractSPARQLExecutor implements ConstraintExecutor {
 		try {
 			long startTime = System.currentTimeMillis();
 			Resource messageHolder = getSPARQLExecutable(constraint);
-			for(RDFNode focusNode : focusNodes) {
-				bindings.add(SH.thisVar.getVarName(), focusNode); // Overwrite any previous binding
-				QueryExecution qexec = SPARQLSubstitutions.createQueryExecution(query, engine.getDataset(), bindings);
-				executeSelectQuery(engine, constraint, messageHolder, nestedResults, focusNode, qexec, bindings);
-				engine.checkCanceled();
-			}			
+			int batchSize = engine.getConfiguration().getSPARQLBatchSize();
+			if(valuesQuery != null && isBatchable(engine) && engine.isSharingValueNodes(constraint.getShape())) {
+				// The engine has already computed the value nodes, so join with them instead of walking the path again
+				Map<RDFNode,List<RDFNode>> valueNodes = new LinkedHashMap<>();
+				boolean hasValues = false;
+				for(RDFNode focusNode : focusNodes) {
+					List<RDFNode> values = engine.getValueNodes(constraint, focusNode);
+					valueNodes.put(focusNode, values);
+					hasValues |= !values.isEmpty();
+				}
+				if(hasValues) {
+					Query batchQuery = SPARQLBatchQueries.createValuesQuery(engine.getLocalQuery(valuesQuery), valueNodes);
+					if(engine.isConformsOnly()) {
+						batchQuery.setLimit(1);
+					}
+					QueryExecution qexec = SPARQLSubstitutions.createQueryExecution(batchQuery, engine.getDataset(), bindings);
+					executeBatchSelectQuery(engine, constraint, messageHolder, nestedResults, valueNodes.keySet(), qexec, bindings);
+				}
+			}
+			else if(batchSize > 1 && focusNodes.size() > 1 && isBatchable(engine)) {
+				for(int i = 0; i < focusNodes.size(); i += batchSize) {
+					Set<RDFNode> batch = new LinkedHashSet<>(focusNodes.subList(i, Math.min(i + batchSize, focusNodes.size())));
+					Query batchQuery = SPARQLBatchQueries.createBatchQuery(engine.getLocalQuery(query), batch);
+					if(engine.isConformsOnly()) {
+						batchQuery.setLimit(1);
+					}
+					QueryExecution qexec = SPARQLSubstitutions.createQueryExecution(batchQuery, engine.getDataset(), bindings);
+					executeBatchSelectQuery(engine, constraint, messageHolder, nestedResults, batch, qexec, bindings);
+					engine.checkCanceled();
+				}
+			}
+			else {
+				for(RDFNode focusNode : focusNodes) {
+					bindings.add(SH.thisVar.getVarName(), focusNode); // Overwrite any previous binding
+					QueryExecution qexec = SPARQLSubstitutions.createQueryExecution(engine.getLocalQuery(engine.isConformsOnly() ? conformsQuery : query), engine.getDataset(), bindings);
+					executeSelectQuery(engine, constraint, messageHolder, nestedResults, focusNode, qexec, bindings);
+					engine.checkCanceled();
+				}
+			}
 			if(ExecStatisticsManager.get().isRecording()) {
 				long endTime = System.currentTimeMillis();
 				long duration = endTime - startTime;
 				String label = getLabel(constraint);
+				// Don't modify the field, executors may be shared between threads
+				String queryString = this.queryString;
 				Iterator<String> varNames = bindings.varNames();
 				if(varNames.hasNext()) {
 					queryString += "\nBindings:";
@@ -139,20 +194,94 @@ public abstract class AbstractSPARQLExecutor implements ConstraintExecutor {
 	protected abstract void addBindings(Constraint constraint, QuerySolutionMap bindings);
 	
 	
+	// Gets the pre-bound variables for a given constraint, other than $this
+	QuerySolutionMap createBindings(Constraint constraint, ValidationEngine engine) {
+		QuerySolutionMap bindings = new QuerySolutionMap();
+		addBindings(constraint, bindings);
+		bindings.add(SH.currentShapeVar.getVarName(), constraint.getShapeResource());
+		bindings.add(SH.shapesGraphVar.getVarName(), ResourceFactory.createResource(engine.getShapesGraphURI().toString()));
+		Resource path = constraint.getShapeResource().getPath();
+		if(path != null && path.isURIResource()) {
+			bindings.add(SH.PATHVar.getName(), path);
+		}
+		return bindings;
+	}
+	
+	
 	protected abstract Resource getSPARQLExecutable(Constraint constraint);
 	
 	
 	protected abstract String getLabel(Constraint constraint);
 	
 	
+	/**
+	 * Gets the query of this executor, which is shared by all threads.
+	 * Use ValidationEngine.getLocalQuery to get a version that can be executed.
+	 * @return the query
+	 */
 	protected Query getQuery() {
 		return query;
 	}
 	
 	
+	// The query without the leading $this $PATH ?value, or null.  Shared by all threads like getQuery()
+	Query getValuesQuery() {
+		return valuesQuery;
+	}
+	
+	
+	boolean isBatchSafe() {
+		return batchSafe;
+	}
+	
+	
 	protected abstract String getSPARQL(Constraint constraint);
 	
 
+	private boolean isBatchable(ValidationEngine engine) {
+		// Success results and details need to be produced for each focus node individually
+		return batchSafe && !createSuccessResults && !engine.getConfiguration().getReportDetails();
+	}
+	
+
+	private void executeBatchSelectQuery(ValidationEngine engine, Constraint constraint, Resource messageHolder, Model nestedResults,
+			Set<RDFNode> focusNodes, QueryExecution qexec, QuerySolution bindings) {
+		
+		try {
+			ResultSet rs = qexec.execSelect();
+			
+			if(!rs.getResultVars().contains("this")) {
+				throw new IllegalArgumentException("SELECT constraints must return $this");
+			}
+			
+			// Group the solutions by focus node so that results are created in the same order as without batching
+			Map<RDFNode,List<QuerySolution>> solutions = new LinkedHashMap<>();
+			while(rs.hasNext()) {
+				QuerySolution sol = rs.next();
+				RDFNode thisValue = sol.get(SH.thisVar.getVarName());
+				if(thisValue != null) {
+					solutions.computeIfAbsent(thisValue, k -> new LinkedList<>()).add(sol);
+				}
+			}
+			
+			for(RDFNode focusNode : focusNodes) {
+				List<QuerySolution> list = solutions.get(focusNode);
+				if(list != null) {
+					QuerySolutionMap focusBindings = new QuerySolutionMap();
+					focusBindings.addAll(bindings);
+					focusBindings.add(SH.thisVar.getVarName(), focusNode);
+					for(QuerySolution sol : list) {
+						createValidationResult(engine, constraint, messageHolder, nestedResults, focusNode, sol, focusBindings);
+					}
+				}
+			}
+		}
+		finally {
+			qexec.close();
+		}
+	}
+	
+
 	private void executeSelectQuery(ValidationEngine engine, Constraint constraint, Resource messageHolder, Model nestedResults,
 			RDFNode focusNode, QueryExecution qexec, QuerySolution bindings) {
 		
@@ -167,64 +296,8 @@ public abstract class AbstractSPARQLExecutor implements ConstraintExecutor {
 			if(rs.hasNext()) {
 				while(rs.hasNext()) {
 					QuerySolution sol = rs.next();
-					RDFNode thisValue = sol.get(SH.thisVar.getVarName());
-					if(thisValue != null) {
-						Resource resultType = SH.ValidationResult;
-						RDFNode selectMessage = sol.get(SH.message.getLocalName());
-						if(JenaDatatypes.TRUE.equals(sol.get(SH.failureVar.getName()))) {
-							resultType = DASH.FailureResult;
-							String message = getLabel(constraint);
-							message += " has produced ?" + SH.failureVar.getName();
-							if(focusNode != null) {
-								message += " for focus node ";
-								if(focusNode.isLiteral()) {
-									message += focusNode;
-								}
-								else {
-									message += RDFLabels.get().getLabel((Resource)focusNode);
-								}
-							}
-							FailureLog.get().logFailure(message);
-							selectMessage = ResourceFactory.createTypedLiteral("Validation Failure: Could not validate shape");
-						}
-						
-						Resource result = engine.createResult(resultType, constraint, thisValue);
-						if(SH.SPARQLConstraintComponent.equals(constraint.getComponent())) {
-							result.addProperty(SH.sourceConstraint, constraint.getParameterValue());
-						}
-						
-						if(selectMessage != null) {
-							result.addProperty(SH.resultMessage, selectMessage);
-						}
-						else if(constraint.getShapeResource().hasProperty(SH.message)) {
-							for(Statement s : constraint.getShapeResource().listProperties(SH.message).toList()) {
-								result.addProperty(SH.resultMessage, s.getObject());
-							}
-						}
-						else {
-							addDefaultMessages(engine, messageHolder, constraint.getComponent(), result, bindings, sol);
-						}
-						
-						RDFNode pathValue = sol.get(SH.pathVar.getVarName());
-						if(pathValue != null && pathValue.isURIResource()) {
-							result.addProperty(SH.resultPath, pathValue);
-						}
-						else if(constraint.getShapeResource().isPropertyShape()) {
-							Resource basePath = JenaUtil.getResourceProperty(constraint.getShapeResource(), SH.path);
-							result.addProperty(SH.resultPath, SHACLPaths.clonePath(basePath, result.getModel()));
-						}
-						
-						RDFNode selectValue = sol.get(SH.valueVar.getVarName());
-						if(selectValue != null) {
-							result.addProperty(SH.value, selectValue);
-						}
-						else if(SH.NodeShape.equals(constraint.getContext())) {
-							result.addProperty(SH.value, focusNode);
-						}
-						
-						if(engine.getConfiguration().getReportDetails()) {
-							addDetails(result, nestedResults);
-						}
+					if(sol.get(SH.thisVar.getVarName()) != null) {
+						createValidationResult(engine, constraint, messageHolder, nestedResults, focusNode, sol, bindings);
 					}
 				}
 			}
@@ -242,6 +315,68 @@ public abstract class AbstractSPARQLExecutor implements ConstraintExecutor {
 			qexec.close();
 		}
 	}
+	
+	
+	protected void createValidationResult(ValidationEngine engine, Constraint constraint, Resource messageHolder, Model nestedResults,
+			RDFNode focusNode, QuerySolution sol, QuerySolution bindings) {
+		RDFNode thisValue = sol.get(SH.thisVar.getVarName());
+		Resource resultType = SH.ValidationResult;
+		RDFNode selectMessage = sol.get(SH.message.getLocalName());
+		if(JenaDatatypes.TRUE.equals(sol.get(SH.failureVar.getName()))) {
+			resultType = DASH.FailureResult;
+			String message = getLabel(constraint);
+			message += " has produced ?" + SH.failureVar.getName();
+			if(focusNode != null) {
+				message += " for focus node ";
+				if(focusNode.isLiteral()) {
+					message += focusNode;
+				}
+				else {
+					message += RDFLabels.get().getLabel((Resource)focusNode);
+				}
+			}
+			FailureLog.get().logFailure(message);
+			selectMessage = ResourceFactory.createTypedLiteral("Validation Failure: Could not validate shape");
+		}
+		
+		Resource result = engine.createResult(resultType, constraint, thisValue);
+		if(SH.SPARQLConstraintComponent.equals(constraint.getComponent())) {
+			result.addProperty(SH.sourceConstraint, constraint.getParameterValue());
+		}
+		
+		if(selectMessage != null) {
+			result.addProperty(SH.resultMessage, selectMessage);
+		}
+		else if(constraint.getShapeResource().hasProperty(SH.message)) {
+			for(Statement s : constraint.getShapeResource().listProperties(SH.message).toList()) {
+				result.addProperty(SH.resultMessage, s.getObject());
+			}
+		}
+		else {
+			addDefaultMessages(engine, messageHolder, constraint.getComponent(), result, bindings, sol);
+		}
+		
+		RDFNode pathValue = sol.get(SH.pathVar.getVarName());
+		if(pathValue != null && pathValue.isURIResource()) {
+			result.addProperty(SH.resultPath, pathValue);
+		}
+		else if(constraint.getShapeResource().isPropertyShape()) {
+			Resource basePath = JenaUtil.getResourceProperty(constraint.getShapeResource(), SH.path);
+			result.addProperty(SH.resultPath, SHACLPaths.clonePath(basePath, result.getModel()));
+		}
+		
+		RDFNode selectValue = sol.get(SH.valueVar.getVarName());
+		if(selectValue != null) {
+			result.addProperty(SH.value, selectValue);
+		}
+		else if(SH.NodeShape.equals(constraint.getContext())) {
+			result.addProperty(SH.value, focusNode);
+		}
+		
+		if(engine.getConfiguration().getReportDetails()) {
+			addDetails(result, nestedResults);
+		}
+	}
 
 	
 	private void addDefaultMessages(ValidationEngine engine, Resource messageHolder, Resource fallback, Resource result, 
@@ -0,0 +1,60 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.sparql;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.jena.query.Query;
+import org.apache.jena.sparql.expr.ExprTransformCopy;
+import org.apache.jena.sparql.syntax.syntaxtransform.ElementTransformCopyBase;
+import org.apache.jena.sparql.syntax.syntaxtransform.QueryTransformOps;
+
+/**
+ * Deep copies of shared queries for each thread of a parallel run, because the ARQ syntax trees
+ * are not thread-safe, e.g. E_Function binds its function lazily.
+ * An engine creates a new instance for each parallel run (see ValidationRun) and shares it with
+ * its worker and nested engines, so that the copies are dropped together with the run.
+ */
+public class QueryCopies {
+
+	private Map<Thread,Map<Query,Query>> threadCopies = new ConcurrentHashMap<>();
+
+
+	/**
+	 * Gets the copy of a given query for the current thread, creating it on first use.
+	 * @param query  the shared query
+	 * @return a copy of query that is only used by the current thread
+	 */
+	public Query get(Query query) {
+		return threadCopies.computeIfAbsent(Thread.currentThread(), t -> new IdentityHashMap<>()).
+				computeIfAbsent(query, QueryCopies::deepCopy);
+	}
+	
+	
+	/**
+	 * Creates a deep copy of a given query that shares no expressions with it, so that
+	 * the copy can be used by another thread.  Unlike Query.cloneQuery() this does not
+	 * re-parse the query and therefore also works for queries with substituted constants.
+	 * @param query  the query to copy
+	 * @return a new Query
+	 */
+	public static Query deepCopy(Query query) {
+		return QueryTransformOps.transform(query, new ElementTransformCopyBase(), new ExprTransformCopy(true));
+	}
+}
@@ -0,0 +1,232 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.sparql;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.jena.query.Query;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.sparql.core.TriplePath;
+import org.apache.jena.sparql.core.VarExprList;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.expr.Expr;
+import org.apache.jena.sparql.expr.ExprFunctionOp;
+import org.apache.jena.sparql.syntax.Element;
+import org.apache.jena.sparql.syntax.ElementBind;
+import org.apache.jena.sparql.syntax.ElementData;
+import org.apache.jena.sparql.syntax.ElementFilter;
+import org.apache.jena.sparql.syntax.ElementGroup;
+import org.apache.jena.sparql.syntax.ElementOptional;
+import org.apache.jena.sparql.syntax.ElementPathBlock;
+import org.apache.jena.sparql.syntax.ElementTriplesBlock;
+import org.apache.jena.sparql.syntax.syntaxtransform.QueryTransformOps;
+import org.topbraid.shacl.vocabulary.SH;
+
+/**
+ * Helper to execute a SPARQL validator for multiple focus nodes at once, by injecting
+ * a VALUES ?this block in front of the WHERE clause.
+ * Validators of property shapes that start with the triple pattern $this $PATH ?value
+ * can also be executed with a VALUES (?this ?value) block of pre-computed value nodes
+ * that replaces the path pattern.
+ * 
+ * Only queries where joining with the VALUES block produces the same solutions as
+ * pre-binding $this for each focus node individually are considered batch-safe.
+ * This rules out sub-queries, UNION, MINUS, LIMIT/OFFSET and aggregations that are
+ * not grouped by $this alone.  Nested groups must not mention $this in FILTERs or BINDs,
+ * because those would be evaluated before the join.
+ */
+public class SPARQLBatchQueries {
+
+	/**
+	 * Creates a copy of a given (batch-safe) query that starts with a VALUES block
+	 * for the given focus nodes.
+	 * @param query  the query to copy
+	 * @param focusNodes  the focus nodes to use as values of $this
+	 * @return a new Query
+	 */
+	public static Query createBatchQuery(Query query, Collection<RDFNode> focusNodes) {
+		ElementData data = new ElementData();
+		data.add(SH.thisVar);
+		for(RDFNode focusNode : focusNodes) {
+			data.add(BindingFactory.binding(SH.thisVar, focusNode.asNode()));
+		}
+		ElementGroup group = new ElementGroup();
+		group.addElement(data);
+		for(Element element : ((ElementGroup)query.getQueryPattern()).getElements()) {
+			group.addElement(element);
+		}
+		Query batchQuery = QueryTransformOps.shallowCopy(query);
+		batchQuery.setQueryPattern(group);
+		return batchQuery;
+	}
+	
+	
+	/**
+	 * Creates a copy of a given query that starts with a VALUES block for given combinations
+	 * of focus nodes and value nodes.  The query is expected to be the result of
+	 * {@link #createQueryWithoutPathPattern(Query)}.
+	 * @param query  the query to copy
+	 * @param valueNodes  the value nodes of each focus node
+	 * @return a new Query
+	 */
+	public static Query createValuesQuery(Query query, Map<RDFNode,List<RDFNode>> valueNodes) {
+		ElementData data = new ElementData();
+		data.add(SH.thisVar);
+		data.add(SH.valueVar);
+		for(Map.Entry<RDFNode,List<RDFNode>> entry : valueNodes.entrySet()) {
+			for(RDFNode valueNode : entry.getValue()) {
+				data.add(BindingFactory.binding(BindingFactory.binding(SH.thisVar, entry.getKey().asNode()), SH.valueVar, valueNode.asNode()));
+			}
+		}
+		ElementGroup group = new ElementGroup();
+		group.addElement(data);
+		for(Element element : ((ElementGroup)query.getQueryPattern()).getElements()) {
+			group.addElement(element);
+		}
+		Query valuesQuery = QueryTransformOps.shallowCopy(query);
+		valuesQuery.setQueryPattern(group);
+		return valuesQuery;
+	}
+	
+	
+	/**
+	 * Creates a copy of a given query without its leading $this $PATH ?value triple pattern,
+	 * see {@link #hasPathPattern(Query)}.
+	 * @param query  the query to copy
+	 * @return a new Query
+	 */
+	public static Query createQueryWithoutPathPattern(Query query) {
+		List<Element> elements = ((ElementGroup)query.getQueryPattern()).getElements();
+		ElementGroup group = new ElementGroup();
+		for(Element element : elements.subList(1, elements.size())) {
+			group.addElement(element);
+		}
+		Query copy = QueryTransformOps.shallowCopy(query);
+		copy.setQueryPattern(group);
+		return copy;
+	}
+	
+	
+	/**
+	 * Checks whether a given (batch-safe) query starts with a block that consists of nothing but
+	 * the triple pattern $this $PATH ?value, so that the value nodes can be provided by a VALUES block.
+	 * @param query  the query to check, before any complex path has been substituted for $PATH
+	 * @return true if the query starts with the path pattern
+	 */
+	public static boolean hasPathPattern(Query query) {
+		if(!(query.getQueryPattern() instanceof ElementGroup)) {
+			return false;
+		}
+		List<Element> elements = ((ElementGroup)query.getQueryPattern()).getElements();
+		if(elements.isEmpty() || !(elements.get(0) instanceof ElementPathBlock)) {
+			return false;
+		}
+		List<TriplePath> triples = ((ElementPathBlock)elements.get(0)).getPattern().getList();
+		if(triples.size() != 1) {
+			return false;
+		}
+		TriplePath triple = triples.get(0);
+		return triple.isTriple() && 
+				SH.thisVar.equals(triple.getSubject()) && 
+				SH.PATHVar.equals(triple.getPredicate()) && 
+				SH.valueVar.equals(triple.getObject());
+	}
+	
+	
+	/**
+	 * Checks whether a given SELECT query can be executed for multiple focus nodes
+	 * using {@link #createBatchQuery(Query, Collection)}.
+	 * @param query  the query to check
+	 * @return true if the query is batch-safe
+	 */
+	public static boolean isBatchSafe(Query query) {
+		if(query.hasLimit() || query.hasOffset() || query.hasValues()) {
+			return false;
+		}
+		if(query.hasGroupBy() || query.hasAggregators()) {
+			// Aggregations are only safe if they produce one group per focus node
+			VarExprList groupBy = query.getGroupBy();
+			if(groupBy.size() != 1 || !groupBy.contains(SH.thisVar) || groupBy.getExpr(SH.thisVar) != null) {
+				return false;
+			}
+		}
+		if(!query.isQueryResultStar() && query.getProject().getExpr(SH.thisVar) != null) {
+			return false;
+		}
+		if(!(query.getQueryPattern() instanceof ElementGroup)) {
+			return false;
+		}
+		for(Element element : ((ElementGroup)query.getQueryPattern()).getElements()) {
+			if(element instanceof ElementFilter || element instanceof ElementBind) {
+				// Top-level FILTERs and BINDs see the joined $this
+				continue;
+			}
+			if(!isNestedBatchSafe(element)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	
+	private static boolean isNestedBatchSafe(Element element) {
+		if(element instanceof ElementPathBlock || element instanceof ElementTriplesBlock) {
+			return true;
+		}
+		else if(element instanceof ElementFilter) {
+			return !mentionsThis(((ElementFilter)element).getExpr());
+		}
+		else if(element instanceof ElementBind) {
+			return !mentionsThis(((ElementBind)element).getExpr());
+		}
+		else if(element instanceof ElementOptional) {
+			return isNestedBatchSafe(((ElementOptional)element).getOptionalElement());
+		}
+		else if(element instanceof ElementGroup) {
+			for(Element member : ((ElementGroup)element).getElements()) {
+				if(!isNestedBatchSafe(member)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		else {
+			return false;
+		}
+	}
+	
+	
+	// Conservatively treats EXISTS and NOT EXISTS as mentioning $this
+	private static boolean mentionsThis(Expr expr) {
+		if(expr instanceof ExprFunctionOp) {
+			return true;
+		}
+		else if(expr.isVariable()) {
+			return SH.thisVar.equals(expr.asVar());
+		}
+		else if(expr.isFunction()) {
+			for(Expr arg : expr.getFunction().getArgs()) {
+				if(mentionsThis(arg)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+}
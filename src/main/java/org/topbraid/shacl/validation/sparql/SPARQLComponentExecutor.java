@@ -16,25 +16,52 @@
  */
 package org.topbraid.shacl.validation.sparql;
 
+import java.net.URI;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryExecution;
 import org.apache.jena.query.QuerySolutionMap;
+import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.ResourceFactory;
 import org.apache.jena.rdf.model.Statement;
+import org.topbraid.jenax.util.ARQFactory;
+import org.topbraid.jenax.util.JenaDatatypes;
 import org.topbraid.jenax.util.JenaUtil;
+import org.topbraid.shacl.arq.functions.HasShapeFunction;
 import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.engine.ShapesGraph;
 import org.topbraid.shacl.model.SHParameter;
+import org.topbraid.shacl.validation.StaticConstraintCache;
+import org.topbraid.shacl.validation.ValidationEngine;
+import org.topbraid.shacl.vocabulary.DASH;
 import org.topbraid.shacl.vocabulary.SH;
 
 public class SPARQLComponentExecutor extends AbstractSPARQLExecutor {
 	
+	// The ASK query of the validator, if the outcome can be cached (for dash:staticConstraints).
+	// Shared by all threads like getQuery()
+	private Query askQuery;
+	
 	private boolean wasAsk;
 	
 	public SPARQLComponentExecutor(Constraint constraint) {
 		super(constraint);
 		
+		if(wasAsk && constraint.getComponent().hasProperty(DASH.staticConstraint, JenaDatatypes.TRUE) &&
+				!constraint.getComponent().getParametersMap().containsKey(SH.valueVar.getVarName())) {
+			Resource validator = getSPARQLExecutable(constraint);
+			String ask = JenaUtil.getStringProperty(validator, SH.ask);
+			String pathVarName = SH.PATHVar.getVarName();
+			if(!ask.contains("$" + pathVarName) && !ask.contains("?" + pathVarName)) {
+				askQuery = ARQFactory.get().createQuery(SPARQLSubstitutions.withPrefixes(ask, validator));
+			}
+		}
+		
 		if(!SH.NS.equals(constraint.getComponent().getNameSpace())) {
 			Set<String> preBoundVars = new HashSet<>();
 			for(SHParameter param : constraint.getComponent().getParameters()) {
@@ -60,6 +87,61 @@ public class SPARQLComponentExecutor extends AbstractSPARQLExecutor {
 		constraint.addBindings(bindings);
 	}
 
+
+	/**
+	 * For dash:staticConstraint components with a sh:SPARQLAskValidator, the ASK query is executed
+	 * once for each distinct value node and the outcome is looked up in the engine's StaticConstraintCache.
+	 * Otherwise (and if success results or details are requested) the SELECT query is used.
+	 */
+	@Override
+	public void executeConstraint(Constraint constraint, ValidationEngine engine, List<RDFNode> focusNodes) {
+		StaticConstraintCache cache = askQuery != null ? engine.getRun().getStaticConstraintCache() : null;
+		if(cache == null || createSuccessResults || engine.getConfiguration().getReportDetails()) {
+			super.executeConstraint(constraint, engine, focusNodes);
+			return;
+		}
+		
+		List<Node> constraintKey = cache.getConstraintKey(constraint);
+		QuerySolutionMap bindings = new QuerySolutionMap();
+		addBindings(constraint, bindings);
+		bindings.add(SH.currentShapeVar.getVarName(), constraint.getShapeResource());
+		bindings.add(SH.shapesGraphVar.getVarName(), ResourceFactory.createResource(engine.getShapesGraphURI().toString()));
+		Resource path = constraint.getShapeResource().getPath();
+		if(path != null && path.isURIResource()) {
+			bindings.add(SH.PATHVar.getName(), path);
+		}
+		
+		URI oldShapesGraphURI = HasShapeFunction.getShapesGraphURI();
+		ShapesGraph oldShapesGraph = HasShapeFunction.getShapesGraph();
+		if(!engine.getShapesGraphURI().equals(oldShapesGraphURI)) {
+			HasShapeFunction.setShapesGraph(engine.getShapesGraph(), engine.getShapesGraphURI());
+		}
+		try {
+			Resource messageHolder = getSPARQLExecutable(constraint);
+			for(RDFNode focusNode : focusNodes) {
+				bindings.add(SH.thisVar.getVarName(), focusNode);
+				for(RDFNode valueNode : engine.getValueNodes(constraint, focusNode)) {
+					bindings.add(SH.valueVar.getVarName(), valueNode);
+					boolean conforms = cache.getOrCompute(constraintKey, valueNode.asNode(), () -> {
+						try(QueryExecution qexec = SPARQLSubstitutions.createQueryExecution(engine.getLocalQuery(askQuery), engine.getDataset(), bindings)) {
+							return qexec.execAsk();
+						}
+					});
+					if(!conforms) {
+						QuerySolutionMap sol = new QuerySolutionMap();
+						sol.add(SH.thisVar.getVarName(), focusNode);
+						sol.add(SH.valueVar.getVarName(), valueNode);
+						createValidationResult(engine, constraint, messageHolder, null, focusNode, sol, bindings);
+					}
+				}
+				engine.checkCanceled();
+			}
+		}
+		finally {
+			HasShapeFunction.setShapesGraph(oldShapesGraph, oldShapesGraphURI);
+		}
+	}
+
 	
 	@Override
 	protected String getLabel(Constraint constraint) {
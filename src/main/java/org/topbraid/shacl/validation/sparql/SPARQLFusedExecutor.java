@@ -0,0 +1,348 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.sparql;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.query.QuerySolutionMap;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.expr.E_Equals;
+import org.apache.jena.sparql.expr.E_LogicalAnd;
+import org.apache.jena.sparql.expr.E_LogicalOr;
+import org.apache.jena.sparql.expr.Expr;
+import org.apache.jena.sparql.expr.ExprVar;
+import org.apache.jena.sparql.expr.NodeValue;
+import org.apache.jena.sparql.syntax.Element;
+import org.apache.jena.sparql.syntax.ElementBind;
+import org.apache.jena.sparql.syntax.ElementData;
+import org.apache.jena.sparql.syntax.ElementFilter;
+import org.apache.jena.sparql.syntax.ElementGroup;
+import org.apache.jena.sparql.syntax.ElementSubQuery;
+import org.apache.jena.sparql.syntax.ElementUnion;
+import org.topbraid.jenax.util.ARQFactory;
+import org.topbraid.jenax.util.JenaUtil;
+import org.topbraid.shacl.arq.functions.HasShapeFunction;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.engine.Shape;
+import org.topbraid.shacl.engine.ShapesGraph;
+import org.topbraid.shacl.validation.ConstraintExecutor;
+import org.topbraid.shacl.validation.ValidationEngine;
+import org.topbraid.shacl.vocabulary.SH;
+
+/**
+ * Executes the SPARQL-based validators of several constraints of the same shape with a single query,
+ * see ValidationEngineConfiguration.setFuseSPARQLValidators.
+ * 
+ * Validators that consist of the triple pattern $this $PATH ?value followed by FILTERs only,
+ * which includes those generated from sh:SPARQLAskValidators, share a single evaluation of the path:
+ * a VALUES block enumerates the indices of these constraints as values of a discriminator variable,
+ * and a single FILTER applies the conditions of the respective constraint.
+ * Other batch-safe validators become branches of a UNION that bind the discriminator to their index.
+ * The solutions are then dispatched to the originating constraints to produce the results.
+ * 
+ * Since the pre-bound variables are inserted into the query as constants, validators that mention
+ * $currentShape or $shapesGraph and constraints with blank node parameter values are not fused.
+ */
+public class SPARQLFusedExecutor {
+	
+	// Holds the index of the originating constraint in each solution
+	private static final Var CONSTRAINT_VAR = Var.alloc("_constraint");
+	
+	// The queries of the constraints that do not share the path, by index
+	private Map<Integer,Query> branchQueries = new TreeMap<>();
+	
+	private List<Constraint> constraints = new ArrayList<>();
+	
+	private List<AbstractSPARQLExecutor> executors = new ArrayList<>();
+	
+	// The queries consisting of the conditions of the constraints that share the path, by index
+	private Map<Integer,Query> filterQueries = new TreeMap<>();
+	
+	// A query that starts with the $this $PATH ?value pattern that is shared by the filters
+	private Query pathQuery;
+	
+	private Shape shape;
+	
+	
+	/**
+	 * Collects the constraints of a shape that can be fused.
+	 * @param shape  the Shape
+	 * @param declarative  true to consider the declarative executors of the constraints, false for the default ones
+	 */
+	public SPARQLFusedExecutor(Shape shape, boolean declarative) {
+		this.shape = shape;
+		for(Constraint constraint : shape.getConstraints()) {
+			ConstraintExecutor executor = declarative ? constraint.getDeclarativeExecutor() : constraint.getExecutor();
+			if(executor instanceof AbstractSPARQLExecutor) {
+				add(constraint, (AbstractSPARQLExecutor) executor);
+			}
+		}
+	}
+	
+	
+	/**
+	 * Checks whether this can be used for a given engine, i.e. whether at least two constraints
+	 * can be fused and the engine does not need to produce success results or details.
+	 * @param engine  the ValidationEngine
+	 * @return true if {@link #executeConstraints(ValidationEngine, List)} shall be used
+	 */
+	public boolean canExecute(ValidationEngine engine) {
+		return constraints.size() > 1 && !AbstractSPARQLExecutor.createSuccessResults && !engine.getConfiguration().getReportDetails();
+	}
+	
+	
+	/**
+	 * Checks whether a given constraint is validated by this.
+	 * @param constraint  the Constraint
+	 * @return true if the constraint is fused
+	 */
+	public boolean contains(Constraint constraint) {
+		return constraints.contains(constraint);
+	}
+	
+	
+	/**
+	 * Validates the given focus nodes against all fused constraints.
+	 * @param engine  the ValidationEngine
+	 * @param focusNodes  the focus nodes
+	 */
+	public void executeConstraints(ValidationEngine engine, List<RDFNode> focusNodes) {
+		URI oldShapesGraphURI = HasShapeFunction.getShapesGraphURI();
+		ShapesGraph oldShapesGraph = HasShapeFunction.getShapesGraph();
+		if(!engine.getShapesGraphURI().equals(oldShapesGraphURI)) {
+			HasShapeFunction.setShapesGraph(engine.getShapesGraph(), engine.getShapesGraphURI());
+		}
+		
+		Model oldNestedResults = HasShapeFunction.getResultsModel();
+		Model nestedResults = JenaUtil.createMemoryModel();
+		HasShapeFunction.setResultsModel(nestedResults);
+		
+		try {
+			// Value nodes shared by the engine are already limited to the current chunk
+			int batchSize = engine.isSharingValueNodes(shape) ? focusNodes.size() : Math.max(1, engine.getConfiguration().getSPARQLBatchSize());
+			for(int i = 0; i < focusNodes.size(); i += batchSize) {
+				Set<RDFNode> batch = new LinkedHashSet<>(focusNodes.subList(i, Math.min(i + batchSize, focusNodes.size())));
+				executeBatch(engine, batch, nestedResults);
+				engine.checkCanceled();
+			}
+		}
+		finally {
+			HasShapeFunction.setShapesGraph(oldShapesGraph, oldShapesGraphURI);
+			HasShapeFunction.setResultsModel(oldNestedResults);
+		}
+	}
+	
+	
+	public List<Constraint> getConstraints() {
+		return constraints;
+	}
+	
+	
+	private void add(Constraint constraint, AbstractSPARQLExecutor executor) {
+		if(!executor.isBatchSafe()) {
+			return;
+		}
+		String queryString = executor.getQuery().toString();
+		if(queryString.contains("?" + SH.currentShapeVar.getVarName()) || queryString.contains("?" + SH.shapesGraphVar.getVarName())) {
+			return;
+		}
+		QuerySolutionMap bindings = new QuerySolutionMap();
+		executor.addBindings(constraint, bindings);
+		Resource path = constraint.getShapeResource().getPath();
+		if(path != null && path.isURIResource()) {
+			bindings.add(SH.PATHVar.getName(), path);
+		}
+		Map<Var,Node> substitutions = new HashMap<>();
+		for(Map.Entry<String,RDFNode> entry : bindings.asMap().entrySet()) {
+			if(entry.getValue().isAnon()) {
+				return;
+			}
+			substitutions.put(Var.alloc(entry.getKey()), entry.getValue().asNode());
+		}
+		
+		int index = constraints.size();
+		Query query = JenaUtil.queryWithSubstitutions(executor.getQuery(), substitutions);
+		Query filterQuery = executor.getValuesQuery() != null ? JenaUtil.queryWithSubstitutions(executor.getValuesQuery(), substitutions) : null;
+		if(filterQuery != null && getFilter(filterQuery) != null) {
+			if(pathQuery == null) {
+				pathQuery = query;
+			}
+			filterQueries.put(index, filterQuery);
+		}
+		else {
+			branchQueries.put(index, query);
+		}
+		constraints.add(constraint);
+		executors.add(executor);
+	}
+	
+	
+	private Query createQuery(ValidationEngine engine, Collection<RDFNode> focusNodes) {
+		List<Element> branches = new ArrayList<>();
+		if(!filterQueries.isEmpty()) {
+			branches.add(new ElementSubQuery(createFiltersQuery(engine, focusNodes)));
+		}
+		for(Map.Entry<Integer,Query> entry : branchQueries.entrySet()) {
+			ElementGroup group = new ElementGroup();
+			group.addElement(new ElementSubQuery(SPARQLBatchQueries.createBatchQuery(engine.getLocalQuery(entry.getValue()), focusNodes)));
+			group.addElement(new ElementBind(CONSTRAINT_VAR, NodeValue.makeInteger(entry.getKey())));
+			branches.add(group);
+		}
+		ElementGroup where = new ElementGroup();
+		if(branches.size() == 1) {
+			where.addElement(branches.get(0));
+		}
+		else {
+			ElementUnion union = new ElementUnion();
+			for(Element branch : branches) {
+				union.addElement(branch);
+			}
+			where.addElement(union);
+		}
+		Query query = new Query();
+		query.setQuerySelectType();
+		query.setQueryResultStar(true);
+		query.setQueryPattern(where);
+		query.setResultVars();
+		return query;
+	}
+	
+	
+	// SELECT DISTINCT $this ?value ?_constraint WHERE { VALUES $this { ... } $this $PATH ?value . VALUES ?_constraint { ... } FILTER (...) }
+	private Query createFiltersQuery(ValidationEngine engine, Collection<RDFNode> focusNodes) {
+		ElementGroup group = new ElementGroup();
+		if(engine.isSharingValueNodes(shape)) {
+			Constraint constraint = constraints.get(filterQueries.keySet().iterator().next());
+			ElementData data = new ElementData();
+			data.add(SH.thisVar);
+			data.add(SH.valueVar);
+			for(RDFNode focusNode : focusNodes) {
+				for(RDFNode valueNode : engine.getValueNodes(constraint, focusNode)) {
+					data.add(BindingFactory.binding(BindingFactory.binding(SH.thisVar, focusNode.asNode()), SH.valueVar, valueNode.asNode()));
+				}
+			}
+			group.addElement(data);
+		}
+		else {
+			ElementData data = new ElementData();
+			data.add(SH.thisVar);
+			for(RDFNode focusNode : focusNodes) {
+				data.add(BindingFactory.binding(SH.thisVar, focusNode.asNode()));
+			}
+			group.addElement(data);
+			group.addElement(((ElementGroup)engine.getLocalQuery(pathQuery).getQueryPattern()).getElements().get(0));
+		}
+		ElementData indices = new ElementData();
+		indices.add(CONSTRAINT_VAR);
+		Expr condition = null;
+		for(Map.Entry<Integer,Query> entry : filterQueries.entrySet()) {
+			NodeValue index = NodeValue.makeInteger(entry.getKey());
+			indices.add(BindingFactory.binding(CONSTRAINT_VAR, index.asNode()));
+			Expr expr = new E_LogicalAnd(new E_Equals(new ExprVar(CONSTRAINT_VAR), index), getFilter(engine.getLocalQuery(entry.getValue())));
+			condition = condition == null ? expr : new E_LogicalOr(condition, expr);
+		}
+		group.addElement(indices);
+		group.addElement(new ElementFilter(condition));
+		Query query = new Query();
+		query.setQuerySelectType();
+		query.setDistinct(true);
+		query.addResultVar(SH.thisVar);
+		query.addResultVar(SH.valueVar);
+		query.addResultVar(CONSTRAINT_VAR);
+		query.setQueryPattern(group);
+		return query;
+	}
+	
+	
+	private void executeBatch(ValidationEngine engine, Set<RDFNode> focusNodes, Model nestedResults) {
+		Query query = createQuery(engine, focusNodes);
+		if(engine.isConformsOnly()) {
+			query.setLimit(1);
+		}
+		
+		// Group the solutions by constraint and focus node so that results are created in the same order as without fusion
+		Map<Integer,Map<RDFNode,List<QuerySolution>>> solutions = new HashMap<>();
+		try(QueryExecution qexec = ARQFactory.get().createQueryExecution(query, engine.getDataset())) {
+			ResultSet rs = qexec.execSelect();
+			while(rs.hasNext()) {
+				QuerySolution sol = rs.next();
+				RDFNode thisValue = sol.get(SH.thisVar.getVarName());
+				RDFNode index = sol.get(CONSTRAINT_VAR.getVarName());
+				if(thisValue != null && index != null && index.isLiteral()) {
+					solutions.computeIfAbsent(index.asLiteral().getInt(), k -> new HashMap<>()).
+							computeIfAbsent(thisValue, k -> new LinkedList<>()).add(sol);
+				}
+			}
+		}
+		
+		for(int i = 0; i < constraints.size(); i++) {
+			Map<RDFNode,List<QuerySolution>> map = solutions.get(i);
+			if(map != null) {
+				Constraint constraint = constraints.get(i);
+				AbstractSPARQLExecutor executor = executors.get(i);
+				QuerySolutionMap bindings = executor.createBindings(constraint, engine);
+				Resource messageHolder = executor.getSPARQLExecutable(constraint);
+				for(RDFNode focusNode : focusNodes) {
+					List<QuerySolution> list = map.get(focusNode);
+					if(list != null) {
+						QuerySolutionMap focusBindings = new QuerySolutionMap();
+						focusBindings.addAll(bindings);
+						focusBindings.add(SH.thisVar.getVarName(), focusNode);
+						for(QuerySolution sol : list) {
+							executor.createValidationResult(engine, constraint, messageHolder, nestedResults, focusNode, sol, focusBindings);
+						}
+					}
+				}
+			}
+		}
+	}
+	
+	
+	// Gets the conjunction of the FILTERs of a query that has nothing else, or null
+	private static Expr getFilter(Query query) {
+		if(query.hasGroupBy() || query.hasAggregators() || query.hasHaving() || !(query.getQueryPattern() instanceof ElementGroup)) {
+			return null;
+		}
+		Expr result = null;
+		for(Element element : ((ElementGroup)query.getQueryPattern()).getElements()) {
+			if(!(element instanceof ElementFilter)) {
+				return null;
+			}
+			Expr expr = ((ElementFilter)element).getExpr();
+			result = result == null ? expr : new E_LogicalAnd(result, expr);
+		}
+		return result;
+	}
+}
@@ -78,6 +78,8 @@ public class DASH {
 
     public final static Resource TestEnvironment = ResourceFactory.createResource(NS + "TestEnvironment");
 
+    public final static Resource UniqueValueForClassConstraintComponent = ResourceFactory.createResource(NS + "UniqueValueForClassConstraintComponent");
+
     public final static Resource ValidationTestCase = ResourceFactory.createResource(NS + "ValidationTestCase");
 
 
@@ -111,6 +113,8 @@ public class DASH {
 
     public final static Property includeSuggestions = ResourceFactory.createProperty(NS + "includeSuggestions");
     
+    public final static Property localConstraint = ResourceFactory.createProperty(NS + "localConstraint");
+    
     public final static Property node = ResourceFactory.createProperty(NS + "node");
     
     public final static Property private_ = ResourceFactory.createProperty(NS + "private");
@@ -123,6 +127,8 @@ public class DASH {
 
     public final static Property shape = ResourceFactory.createProperty(NS + "shape");
     
+    public final static Property staticConstraint = ResourceFactory.createProperty(NS + "staticConstraint");
+    
     public final static Property suggestion = ResourceFactory.createProperty(NS + "suggestion");
     
     public final static Property suggestionConfidence = ResourceFactory.createProperty(NS + "suggestionConfidence");
@@ -138,6 +144,8 @@ public class DASH {
     public final static Property testGraph = ResourceFactory.createProperty(NS + "testGraph");
     
     public final static Property testModifiesEnvironment = ResourceFactory.createProperty(NS + "testModifiesEnvironment");
+
+    public final static Property uniqueValueForClass = ResourceFactory.createProperty(NS + "uniqueValueForClass");
     
     public final static Property uri = ResourceFactory.createProperty(NS + "uri");
     
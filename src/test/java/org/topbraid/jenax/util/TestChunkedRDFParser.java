@@ -0,0 +1,64 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.jenax.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.util.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.topbraid.shacl.ValidationTestUtil;
+
+public class TestChunkedRDFParser {
+
+	@Test
+	public void testChunkedRDFParser() throws Exception {
+		Model model = JenaUtil.createMemoryModel();
+		for(File file : ValidationTestUtil.getTestFiles(ValidationTestUtil.CORE_TESTS)) {
+			model.read(file.toURI().toString(), FileUtils.langTurtle);
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		RDFDataMgr.write(out, model, Lang.NTRIPLES);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			// Small chunks so that blank nodes are shared across chunks
+			Graph graph = JenaUtil.createMemoryGraph();
+			long count = ChunkedRDFParser.parse(new ByteArrayInputStream(out.toByteArray()), Lang.NTRIPLES, graph, executor, 4, 7);
+			Assert.assertEquals(model.size(), count);
+			Assert.assertTrue(graph.isIsomorphicWith(model.getGraph()));
+
+			String nquads = "_:a <http://example.org/p> _:b <http://example.org/g> .\n_:b <http://example.org/p> _:a .\n";
+			graph = JenaUtil.createMemoryGraph();
+			ChunkedRDFParser.parse(new ByteArrayInputStream(nquads.getBytes(StandardCharsets.UTF_8)), Lang.NQUADS, graph, executor, 4, 1);
+			Assert.assertEquals(2, graph.size());
+			Assert.assertEquals(2, graph.find().mapWith(Triple::getSubject).toSet().size());
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+}
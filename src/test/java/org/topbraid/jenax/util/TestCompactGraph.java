@@ -0,0 +1,72 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.jenax.util;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.shared.AddDeniedException;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.Assert;
+import org.junit.Test;
+import org.topbraid.shacl.ValidationTestUtil;
+import org.topbraid.shacl.validation.ValidationEngineConfiguration;
+import org.topbraid.shacl.validation.ValidationUtil;
+
+public class TestCompactGraph {
+
+	@Test
+	public void testCompactGraph() throws Exception {
+		for(File file : ValidationTestUtil.getTestFiles(new ValidationEngineConfiguration(), ValidationTestUtil.CORE_TESTS)) {
+			Model dataModel = ValidationTestUtil.readModel(file);
+			Graph compact = CompactGraph.copyOf(dataModel.getGraph());
+			Assert.assertEquals(dataModel.size(), compact.size());
+			Assert.assertTrue(compact.isIsomorphicWith(dataModel.getGraph()));
+			for(Triple triple : dataModel.getGraph().find().toList()) {
+				for(int mask = 0; mask < 8; mask++) {
+					Node s = (mask & 1) != 0 ? triple.getSubject() : Node.ANY;
+					Node p = (mask & 2) != 0 ? triple.getPredicate() : Node.ANY;
+					Node o = (mask & 4) != 0 ? triple.getObject() : Node.ANY;
+					// GraphMem matches literals by value, CompactGraph by term
+					Set<Triple> expected = new HashSet<>(dataModel.getGraph().find(s, p, o).filterKeep(t -> t.getObject().equals(o) || !o.isConcrete()).toList());
+					Assert.assertEquals(expected, new HashSet<>(compact.find(s, p, o).toList()));
+				}
+				Assert.assertTrue(compact.contains(triple));
+			}
+			Model compactModel = ModelFactory.createModelForGraph(compact);
+			Model expected = ValidationUtil.validateModel(dataModel, dataModel, false).getModel();
+			Model actual = ValidationUtil.validateModel(compactModel, dataModel, false).getModel();
+			Assert.assertTrue("Different results for " + file, expected.isIsomorphicWith(actual));
+		}
+		Graph compact = CompactGraph.copyOf(JenaUtil.createMemoryModel().getGraph());
+		Assert.assertTrue(compact.isEmpty());
+		// Literals are not matched by value, so optimizations for GraphMem must not be applied
+		Assert.assertFalse(JenaUtil.isMemoryGraph(compact));
+		try {
+			compact.add(Triple.create(RDF.type.asNode(), RDF.type.asNode(), RDF.type.asNode()));
+			Assert.fail("CompactGraph must be read-only");
+		}
+		catch(AddDeniedException ex) {
+		}
+	}
+}
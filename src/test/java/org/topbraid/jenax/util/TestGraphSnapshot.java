@@ -0,0 +1,128 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.jenax.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.Assert;
+import org.junit.Test;
+import org.topbraid.shacl.ValidationTestUtil;
+import org.topbraid.shacl.validation.ValidationEngineConfiguration;
+import org.topbraid.shacl.validation.ValidationUtil;
+
+public class TestGraphSnapshot {
+
+	@Test
+	public void testGraphSnapshot() throws Exception {
+		File snapshotFile = File.createTempFile("shacl", ".snapshot");
+		snapshotFile.deleteOnExit();
+		for(File file : ValidationTestUtil.getTestFiles(new ValidationEngineConfiguration(), ValidationTestUtil.CORE_TESTS)) {
+			Model dataModel = ValidationTestUtil.readModel(file);
+			Assert.assertFalse(GraphSnapshot.isSnapshot(file));
+			GraphSnapshot.write(dataModel.getGraph(), snapshotFile);
+			Assert.assertTrue(GraphSnapshot.isSnapshot(snapshotFile));
+			Graph snapshot = GraphSnapshot.open(snapshotFile);
+			Graph compact = CompactGraph.copyOf(dataModel.getGraph());
+			Assert.assertTrue(snapshot.isIsomorphicWith(dataModel.getGraph()));
+			Assert.assertEquals(dataModel.getNsPrefixMap(), snapshot.getPrefixMapping().getNsPrefixMap());
+			for(Triple triple : dataModel.getGraph().find().toList()) {
+				Assert.assertTrue(snapshot.contains(triple));
+				Assert.assertEquals(compact.find(Node.ANY, triple.getPredicate(), triple.getObject()).toSet(), snapshot.find(Node.ANY, triple.getPredicate(), triple.getObject()).toSet());
+				Assert.assertEquals(compact.find(triple.getSubject(), Node.ANY, Node.ANY).toSet(), snapshot.find(triple.getSubject(), Node.ANY, Node.ANY).toSet());
+			}
+			Model expected = ValidationUtil.validateModel(dataModel, dataModel, false).getModel();
+			Model actual = ValidationUtil.validateModel(ModelFactory.createModelForGraph(snapshot), dataModel, false).getModel();
+			Assert.assertTrue("Different results for " + file, expected.isIsomorphicWith(actual));
+		}
+
+		// Blank nodes, language tags and non-ASCII characters
+		Model model = JenaUtil.createMemoryModel();
+		Resource blank = model.createResource();
+		blank.addProperty(RDF.value, model.createLiteral("Gr\u00fc\u00dfe \ud83d\ude00", "de"));
+		blank.addProperty(RDF.value, model.createTypedLiteral(42));
+		blank.addProperty(RDF.value, model.createResource("http://example.org/\u00e4"));
+		GraphSnapshot.write(model.getGraph(), snapshotFile);
+		Model snapshotModel = ModelFactory.createModelForGraph(GraphSnapshot.open(snapshotFile));
+		Assert.assertTrue(snapshotModel.isIsomorphicWith(model));
+		Assert.assertTrue(snapshotModel.contains(null, RDF.value, model.createLiteral("Gr\u00fc\u00dfe \ud83d\ude00", "de")));
+		Assert.assertTrue(snapshotModel.contains(null, RDF.value, model.createTypedLiteral(42)));
+	}
+
+
+	
+	@Test
+	public void testCorruptSnapshots() throws Exception {
+		Model model = JenaUtil.createMemoryModel();
+		model.setNsPrefix("ex", "http://example.org/");
+		for(int i = 0; i < 10; i++) {
+			model.createResource("http://example.org/r" + i).addProperty(RDF.value, "Value " + i);
+		}
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		GraphSnapshot.write(model.getGraph(), bos);
+		byte[] bytes = bos.toByteArray();
+		Assert.assertTrue(GraphSnapshot.read(new ByteArrayInputStream(bytes)).isIsomorphicWith(model.getGraph()));
+		
+		// Truncated at any position
+		for(int length : new int[] { 4, 32, 100, bytes.length / 2, bytes.length - 1 }) {
+			assertCorrupt(Arrays.copyOf(bytes, length));
+		}
+		
+		// Corrupt header fields
+		for(int field = 2; field < 7; field++) {
+			byte[] corrupt = bytes.clone();
+			ByteBuffer.wrap(corrupt).putInt(4 * field, -1);
+			assertCorrupt(corrupt);
+			ByteBuffer.wrap(corrupt).putInt(4 * field, Integer.MAX_VALUE);
+			assertCorrupt(corrupt);
+		}
+		
+		// Memory-mapped files are checked in the same way
+		File snapshotFile = File.createTempFile("shacl", ".snapshot");
+		snapshotFile.deleteOnExit();
+		Files.write(snapshotFile.toPath(), Arrays.copyOf(bytes, bytes.length - 1));
+		try {
+			GraphSnapshot.open(snapshotFile);
+			Assert.fail("Truncated snapshot file has been opened");
+		}
+		catch(IOException ex) {
+			Assert.assertTrue(ex.getMessage(), ex.getMessage().contains(snapshotFile.toString()));
+		}
+	}
+	
+	
+	private void assertCorrupt(byte[] bytes) {
+		try {
+			GraphSnapshot.read(new ByteArrayInputStream(bytes));
+			Assert.fail("Corrupt snapshot has been read");
+		}
+		catch(IOException ex) {
+		}
+	}
+}
@@ -0,0 +1,238 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.util.FileUtils;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.Assert;
+import org.topbraid.jenax.util.JenaDatatypes;
+import org.topbraid.jenax.util.JenaUtil;
+import org.topbraid.shacl.arq.SHACLPaths;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.engine.ShapesGraph;
+import org.topbraid.shacl.validation.ConstraintExecutor;
+import org.topbraid.shacl.validation.ValidationEngineConfiguration;
+import org.topbraid.shacl.validation.ValidationUtil;
+import org.topbraid.shacl.validation.js.AbstractJSExecutor;
+import org.topbraid.shacl.vocabulary.DASH;
+import org.topbraid.shacl.vocabulary.SH;
+
+/**
+ * Helpers for tests that run over the test cases of the SHACL test suite, or over the test fixtures
+ * under /sh/tests.
+ * The declarative executors of some core components are only implemented in JavaScript, which requires
+ * a script engine that is not available on all Java versions.  Therefore each configuration is only
+ * used for the test cases that it can validate without JavaScript, see
+ * {@link #needsJavaScript(Model, ValidationEngineConfiguration)}.
+ */
+public class ValidationTestUtil {
+	
+	public final static String CORE_TESTS = "/sh/tests/core";
+	
+	
+	/**
+	 * Asserts that validating each test case of the given folders with a given configuration produces
+	 * the dash:expectedResult of the test case.  The result messages are ignored.
+	 * @param configuration  the configuration to use (should use the native executors to cover all test cases)
+	 * @param folderNames  the resource folders of the test cases, e.g. {@link #CORE_TESTS}
+	 */
+	public static void assertExpectedResults(ValidationEngineConfiguration configuration, String... folderNames) throws URISyntaxException {
+		for(File file : getTestFiles(configuration, folderNames)) {
+			assertExpectedResults(readModel(file), configuration, file.toString());
+		}
+	}
+	
+	
+	/**
+	 * Asserts that validating a given test case Model with a given configuration produces the
+	 * dash:expectedResult of the test case.  The result messages are ignored.
+	 * @param testModel  the test case Model, which is both data and shapes graph
+	 * @param configuration  the configuration to use
+	 * @param label  a label for the failure message
+	 */
+	public static void assertExpectedResults(Model testModel, ValidationEngineConfiguration configuration, String label) {
+		Resource testCase = testModel.listSubjectsWithProperty(RDF.type, DASH.GraphValidationTestCase).next();
+		boolean validateShapes = configuration.getValidateShapes();
+		Model actualResults;
+		try {
+			configuration.setValidateShapes(testCase.hasProperty(DASH.validateShapes, JenaDatatypes.TRUE));
+			actualResults = withoutMessages(validate(testModel, configuration));
+		}
+		finally {
+			configuration.setValidateShapes(validateShapes);
+		}
+		Assert.assertTrue("Unexpected results for " + label, actualResults.isIsomorphicWith(getExpectedResults(testCase)));
+	}
+	
+	
+	/**
+	 * Asserts that two functions produce isomorphic results for each test case in the given folders.
+	 * @param expected  the function producing the expected results for a test case Model
+	 * @param actual  the function producing the actual results for a test case Model
+	 * @param files  the test case files, e.g. from {@link #getTestFiles(String...)}
+	 */
+	public static void assertSameResults(Function<Model,Model> expected, Function<Model,Model> actual, List<File> files) {
+		for(File file : files) {
+			Model dataModel = readModel(file);
+			Model expectedResults = expected.apply(dataModel);
+			Model actualResults = actual.apply(dataModel);
+			Assert.assertTrue("Different results for " + file, actualResults.isIsomorphicWith(expectedResults));
+		}
+	}
+	
+	
+	/**
+	 * Asserts that validating each test case of the given folders with two configurations
+	 * produces isomorphic results.
+	 * If any of the configurations uses the declarative executors, the test cases that need
+	 * JavaScript are skipped.
+	 * @param expected  the configuration producing the expected results
+	 * @param actual  the configuration producing the actual results
+	 * @param folderNames  the resource folders of the test cases, e.g. {@link #CORE_TESTS}
+	 */
+	public static void assertSameResults(ValidationEngineConfiguration expected, ValidationEngineConfiguration actual, String... folderNames) throws URISyntaxException {
+		List<File> files = expected.getNativeExecutors() ? getTestFiles(actual, folderNames) : getTestFiles(expected, folderNames);
+		assertSameResults(m -> validate(m, expected), m -> validate(m, actual), files);
+	}
+	
+	
+	/**
+	 * Gets the expected results of a dash:GraphValidationTestCase, without the result messages.
+	 * @param testCase  the test case
+	 * @return the expected results, in a new Model
+	 */
+	public static Model getExpectedResults(Resource testCase) {
+		Model expectedModel = JenaUtil.createDefaultModel();
+		Resource expectedReport = testCase.getPropertyResourceValue(DASH.expectedResult);
+		for(Statement s : expectedReport.listProperties().toList()) {
+			expectedModel.add(s);
+		}
+		for(Statement s : expectedReport.listProperties(SH.result).toList()) {
+			for(Statement t : s.getResource().listProperties().toList()) {
+				if(SH.resultPath.equals(t.getPredicate())) {
+					expectedModel.add(t.getSubject(), t.getPredicate(), SHACLPaths.clonePath(t.getResource(), expectedModel));
+				}
+				else {
+					expectedModel.add(t);
+				}
+			}
+		}
+		return withoutMessages(expectedModel);
+	}
+	
+	
+	/**
+	 * Gets the test case files in the given resource folders and their sub-folders.
+	 * @param folderNames  the resource folders, e.g. {@link #CORE_TESTS}
+	 * @return the test case files
+	 */
+	public static List<File> getTestFiles(String... folderNames) throws URISyntaxException {
+		List<File> results = new ArrayList<>();
+		for(String folderName : folderNames) {
+			File folder = new File(ValidationTestUtil.class.getResource(folderName).toURI());
+			for(File dir : folder.listFiles()) {
+				for(File file : dir.isDirectory() ? dir.listFiles() : new File[] { dir }) {
+					results.add(file);
+				}
+			}
+		}
+		return results;
+	}
+	
+	
+	/**
+	 * Gets the test case files in the given resource folders that can be validated with a given
+	 * configuration without JavaScript.
+	 * @param configuration  the configuration to use
+	 * @param folderNames  the resource folders, e.g. {@link #CORE_TESTS}
+	 * @return the test case files
+	 */
+	public static List<File> getTestFiles(ValidationEngineConfiguration configuration, String... folderNames) throws URISyntaxException {
+		List<File> results = getTestFiles(folderNames);
+		results.removeIf(file -> needsJavaScript(readModel(file), configuration));
+		return results;
+	}
+	
+	
+	/**
+	 * Checks whether the executors that a given configuration uses for any constraint in a given
+	 * shapes Model are implemented in JavaScript.
+	 * @param shapesModel  the shapes Model, e.g. a test case
+	 * @param configuration  the configuration, which determines whether the native executors are used
+	 * @return true if validating shapesModel with configuration needs JavaScript
+	 */
+	public static boolean needsJavaScript(Model shapesModel, ValidationEngineConfiguration configuration) {
+		ShapesGraph shapesGraph = ValidationUtil.createValidationEngine(shapesModel, shapesModel, new ValidationEngineConfiguration()).getShapesGraph();
+		for(Resource subject : shapesModel.listSubjects().toList()) {
+			for(Constraint constraint : shapesGraph.getShape(subject.asNode()).getConstraints()) {
+				ConstraintExecutor executor = configuration.getNativeExecutors() ? constraint.getExecutor() : constraint.getDeclarativeExecutor();
+				if(executor instanceof AbstractJSExecutor) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+	
+	
+	public static Model readModel(File file) {
+		Model model = JenaUtil.createMemoryModel();
+		model.read(file.toURI().toString(), FileUtils.langTurtle);
+		return model;
+	}
+	
+	
+	/**
+	 * Reads a test fixture from the class path.
+	 * @param resourceName  the name of the resource, e.g. /sh/tests/fixtures/qualified-001.test.ttl
+	 * @return a new Model
+	 */
+	public static Model readModel(String resourceName) throws URISyntaxException {
+		return readModel(new File(ValidationTestUtil.class.getResource(resourceName).toURI()));
+	}
+	
+	
+	/**
+	 * Validates a given test case Model, which is both data and shapes graph.
+	 * @param dataModel  the test case Model
+	 * @param configuration  the configuration to use
+	 * @return the results Model
+	 */
+	public static Model validate(Model dataModel, ValidationEngineConfiguration configuration) {
+		return ValidationUtil.validateModel(dataModel, dataModel, configuration).getModel();
+	}
+	
+	
+	/**
+	 * Removes the sh:resultMessages from a given results Model.
+	 * @param results  the results Model
+	 * @return results
+	 */
+	public static Model withoutMessages(Model results) {
+		results.removeAll(null, SH.resultMessage, null);
+		return results;
+	}
+}
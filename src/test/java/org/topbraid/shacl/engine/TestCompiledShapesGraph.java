@@ -0,0 +1,60 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.engine;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.jena.rdf.model.Model;
+import org.junit.Assert;
+import org.junit.Test;
+import org.topbraid.shacl.ValidationTestUtil;
+import org.topbraid.shacl.validation.ValidationEngineConfiguration;
+import org.topbraid.shacl.validation.ValidationUtil;
+
+public class TestCompiledShapesGraph {
+
+	@Test
+	public void testCompiledShapesGraph() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			for(File file : ValidationTestUtil.getTestFiles(new ValidationEngineConfiguration(), ValidationTestUtil.CORE_TESTS)) {
+				Model dataModel = ValidationTestUtil.readModel(file);
+
+				ValidationEngineConfiguration configuration = new ValidationEngineConfiguration();
+				Model expected = ValidationUtil.validateModel(dataModel, dataModel, configuration).getModel();
+
+				CompiledShapesGraph shapesGraph = ValidationUtil.compileShapesGraph(dataModel, true);
+				Assert.assertTrue(shapesGraph.getConstraintCount() > 0);
+				List<Future<Model>> futures = new ArrayList<>();
+				for(int i = 0; i < 4; i++) {
+					futures.add(executor.submit(() -> ValidationUtil.validateModel(dataModel, shapesGraph, configuration).getModel()));
+				}
+				for(Future<Model> future : futures) {
+					Assert.assertTrue("Different results for " + file, future.get().isIsomorphicWith(expected));
+				}
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+}
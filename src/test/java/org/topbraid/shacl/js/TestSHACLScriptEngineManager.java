@@ -0,0 +1,99 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.js;
+
+import java.io.File;
+
+import javax.script.ScriptEngineManager;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.topbraid.shacl.ValidationTestUtil;
+import org.topbraid.shacl.validation.ValidationEngineConfiguration;
+import org.topbraid.shacl.validation.ValidationUtil;
+import org.topbraid.shacl.vocabulary.SH;
+
+public class TestSHACLScriptEngineManager {
+
+	@Test
+	public void testScriptEnginePool() throws Exception {
+		Assume.assumeNotNull(new ScriptEngineManager().getEngineByName("nashorn"));
+		int oldPoolSize = SHACLScriptEngineManager.getPoolSize();
+		try {
+			SHACLScriptEngineManager.setPoolSize(4);
+			SHACLScriptEngineManager.clearPool();
+			boolean nested = SHACLScriptEngineManager.begin();
+			JSScriptEngine engine = SHACLScriptEngineManager.getCurrentEngine();
+			engine.put(SH.JS_DATA_VAR, "data");
+			engine.eval("var answer = 42;");
+			engine.executeScriptFromURL(NashornScriptEngine.RDFQUERY_JS);
+			SHACLScriptEngineManager.end(nested);
+
+			// The same engine is reused, without the variables of the previous request
+			nested = SHACLScriptEngineManager.begin();
+			Assert.assertSame(engine, SHACLScriptEngineManager.getCurrentEngine());
+			Assert.assertNull(engine.get(SH.JS_DATA_VAR));
+			Assert.assertNull(engine.get("answer"));
+			Assert.assertNotNull(engine.get("RDFQuery"));
+			SHACLScriptEngineManager.end(nested);
+
+			// Engines do not share their globals
+			engine.eval("var answer = 42;");
+			JSScriptEngine other = JSScriptEngineFactory.get().createScriptEngine();
+			Assert.assertNull(other.get("answer"));
+
+			// The JavaScript validators produce the same results with a reused engine
+			File file = new File(ValidationTestUtil.class.getResource("/sh/tests/core/property/qualifiedMinCountDisjoint-001.test.ttl").toURI());
+			Model dataModel = ValidationTestUtil.readModel(file);
+			ValidationEngineConfiguration configuration = new ValidationEngineConfiguration().setNativeExecutors(false);
+			Model firstResults = ValidationUtil.validateModel(dataModel, dataModel, configuration).getModel();
+			Model secondResults = ValidationUtil.validateModel(dataModel, dataModel, configuration).getModel();
+			Assert.assertTrue(firstResults.listSubjectsWithProperty(RDF.type, SH.ValidationResult).hasNext());
+			Assert.assertTrue(secondResults.isIsomorphicWith(firstResults));
+
+			// Without pool, each validation gets a new engine
+			SHACLScriptEngineManager.setPoolSize(0);
+			nested = SHACLScriptEngineManager.begin();
+			engine = SHACLScriptEngineManager.getCurrentEngine();
+			SHACLScriptEngineManager.end(nested);
+			nested = SHACLScriptEngineManager.begin();
+			Assert.assertNotSame(engine, SHACLScriptEngineManager.getCurrentEngine());
+			SHACLScriptEngineManager.end(nested);
+		}
+		finally {
+			SHACLScriptEngineManager.setPoolSize(oldPoolSize);
+		}
+	}
+	
+	
+	@Test
+	public void testPrewarmWithoutPool() throws Exception {
+		int oldPoolSize = SHACLScriptEngineManager.getPoolSize();
+		try {
+			SHACLScriptEngineManager.setPoolSize(0);
+			
+			// Without pool no engine is created, so not even the missing script is loaded
+			SHACLScriptEngineManager.prewarm(2, "urn:x-missing-script");
+		}
+		finally {
+			SHACLScriptEngineManager.setPoolSize(oldPoolSize);
+		}
+	}
+}
@@ -0,0 +1,211 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.rules;
+
+import java.io.File;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.compose.MultiUnion;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.junit.Assert;
+import org.junit.Test;
+import org.topbraid.jenax.progress.NullProgressMonitor;
+import org.topbraid.jenax.util.ARQFactory;
+import org.topbraid.jenax.util.JenaUtil;
+import org.topbraid.shacl.ValidationTestUtil;
+import org.topbraid.shacl.arq.SHACLFunctions;
+import org.topbraid.shacl.engine.ShapesGraph;
+import org.topbraid.shacl.validation.ValidationUtil;
+
+public class TestRuleEngine {
+
+	@Test
+	public void testFixpointRules() throws Exception {
+		String ns = "http://example.org/fixpoint#";
+		Model model = ValidationTestUtil.readModel("/sh/tests/fixtures/fixpointRules-001.ttl");
+		int length = 8;
+		for(int i = 0; i + 1 < length; i++) {
+			model.add(model.createResource(ns + "p" + i), model.createProperty(ns + "parent"), model.createResource(ns + "p" + (i + 1)));
+		}
+		int closure = length * (length - 1) / 2;
+		Assert.assertTrue(RuleUtil.executeRules(model, model, null, null).size() < closure);
+		Assert.assertEquals(closure, RuleUtil.executeRulesToFixpoint(model, model, null, null, 100).size());
+
+		Model shapesModel = ValidationUtil.ensureToshTriplesExist(model);
+		URI shapesGraphURI = URI.create("urn:x-shacl-shapes-graph:test");
+		Model inferences = JenaUtil.createMemoryModel();
+		Dataset dataset = ARQFactory.get().getDataset(ModelFactory.createModelForGraph(new MultiUnion(new Graph[] { model.getGraph(), inferences.getGraph() })));
+		dataset.addNamedModel(shapesGraphURI.toString(), shapesModel);
+		RuleEngine engine = new RuleEngine(dataset, shapesGraphURI, new ShapesGraph(shapesModel), inferences);
+		Assert.assertFalse(engine.executeAllToFixpoint(1));
+		Assert.assertTrue(engine.executeAllToFixpoint(100));
+		List<RuleRoundStatistics> rounds = engine.getRoundStatistics();
+		Assert.assertFalse(rounds.get(1).isFullRound());
+		RuleRoundStatistics last = rounds.get(rounds.size() - 1);
+		Assert.assertTrue(last.isFullRound());
+		Assert.assertEquals(0, last.getInferredTripleCount());
+		Assert.assertEquals(closure, inferences.size());
+		
+		// After the second round, the semi-naive rounds only revisit the chain, not the pairs that have reached their fixpoint
+		for(int i = 0; i < 10; i++) {
+			model.add(model.createResource(ns + "q" + i), model.createProperty(ns + "parent"), model.createResource(ns + "r" + i));
+		}
+		inferences.removeAll();
+		engine = new RuleEngine(dataset, shapesGraphURI, new ShapesGraph(shapesModel), inferences);
+		Assert.assertTrue(engine.executeAllToFixpoint(100));
+		rounds = engine.getRoundStatistics();
+		Assert.assertFalse(rounds.get(2).isFullRound());
+		Assert.assertTrue(rounds.get(2).getTouchedNodeCount() <= length);
+		Assert.assertEquals(closure + 10, inferences.size());
+
+		// Compare with naive re-execution on the rules test cases
+		for(File file : ValidationTestUtil.getTestFiles("/sh/tests/rules")) {
+			Model dataModel = ValidationTestUtil.readModel(file);
+			Model naive = JenaUtil.createMemoryModel();
+			Model union = ModelFactory.createModelForGraph(new MultiUnion(new Graph[] { dataModel.getGraph(), naive.getGraph() }));
+			long oldSize;
+			do {
+				oldSize = naive.size();
+				RuleUtil.executeRules(union, dataModel, naive, null);
+			}
+			while(naive.size() != oldSize);
+			Model fixpoint = RuleUtil.executeRulesToFixpoint(dataModel, dataModel, null, null, 100);
+			Assert.assertTrue("Different inferences for " + file, fixpoint.isIsomorphicWith(naive));
+		}
+	}
+
+	@Test
+	public void testCanceledParallelRules() throws Exception {
+		String ns = "http://example.org/cancel#";
+		Model model = ValidationTestUtil.readModel("/sh/tests/fixtures/parallelRules-001.ttl");
+		for(int i = 0; i < 8; i++) {
+			model.add(model.createResource(ns + "p" + i), model.createProperty(ns + "parent"), model.createResource(ns + "p" + (i + 1)));
+		}
+
+		Model shapesModel = ValidationUtil.ensureToshTriplesExist(model);
+		URI shapesGraphURI = URI.create("urn:x-shacl-shapes-graph:test");
+		Model inferences = JenaUtil.createMemoryModel();
+		Dataset dataset = ARQFactory.get().getDataset(ModelFactory.createModelForGraph(new MultiUnion(new Graph[] { model.getGraph(), inferences.getGraph() })));
+		dataset.addNamedModel(shapesGraphURI.toString(), shapesModel);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			RuleEngine engine = new RuleEngine(dataset, shapesGraphURI, new ShapesGraph(shapesModel), inferences);
+			engine.setParallel(true);
+			engine.setExecutorService(executor);
+			engine.setFocusNodeChunkSize(1);
+			
+			// Cancel once the first rule has inferred its triples, before they are added to the inferences
+			AtomicBoolean canceled = new AtomicBoolean();
+			engine.setProgressMonitor(new NullProgressMonitor() {
+				@Override
+				public boolean isCanceled() {
+					return canceled.get();
+				}
+				@Override
+				public void worked(int amount) {
+					canceled.set(true);
+				}
+			});
+			try {
+				engine.executeAll();
+				Assert.fail("Expected cancellation");
+			}
+			catch(InterruptedException ex) {
+			}
+			Assert.assertTrue(inferences.isEmpty());
+
+			// The next execution has no target nodes and must not receive the triples of the canceled one
+			engine.setProgressMonitor(null);
+			model.removeAll(null, model.createProperty(ns + "parent"), null);
+			engine.executeAll();
+			Assert.assertTrue(inferences.isEmpty());
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+	
+
+	@Test
+	public void testParallelRules() throws Exception {
+		AtomicInteger tasks = new AtomicInteger();
+		ExecutorService executor = new ThreadPoolExecutor(4, 4, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>()) {
+			@Override
+			protected void beforeExecute(Thread thread, Runnable task) {
+				tasks.incrementAndGet();
+			}
+		};
+		try {
+			for(File file : ValidationTestUtil.getTestFiles("/sh/tests/rules")) {
+				Model dataModel = ValidationTestUtil.readModel(file);
+				Model expected = JenaUtil.createMemoryModel();
+				int expectedWork = executeWithProgress(dataModel, expected, null);
+				Model inferences = JenaUtil.createMemoryModel();
+				tasks.set(0);
+				int work = executeWithProgress(dataModel, inferences, executor);
+				Assert.assertTrue("Different inferences for " + file, inferences.isIsomorphicWith(expected));
+				
+				// The rules have been executed by the tasks of the executor, one per focus node
+				if(!expected.isEmpty()) {
+					Assert.assertTrue("No tasks for " + file, tasks.get() > 0);
+				}
+				
+				// Each rule is reported as worked once, after all its tasks have finished
+				Assert.assertEquals("Different progress for " + file, expectedWork, work);
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+	
+	
+	// Executes all rules, in parallel if an executor is given, and returns the amount of reported work
+	private static int executeWithProgress(Model dataModel, Model inferences, ExecutorService executor) throws InterruptedException {
+		Model shapesModel = ValidationUtil.ensureToshTriplesExist(dataModel);
+		SHACLFunctions.registerFunctions(shapesModel);
+		URI shapesGraphURI = URI.create("urn:x-shacl-shapes-graph:test");
+		Dataset dataset = ARQFactory.get().getDataset(ModelFactory.createModelForGraph(new MultiUnion(new Graph[] { dataModel.getGraph(), inferences.getGraph() })));
+		dataset.addNamedModel(shapesGraphURI.toString(), shapesModel);
+		RuleEngine engine = new RuleEngine(dataset, shapesGraphURI, new ShapesGraph(shapesModel), inferences);
+		if(executor != null) {
+			engine.setParallel(true);
+			engine.setExecutorService(executor);
+			engine.setFocusNodeChunkSize(1);
+		}
+		AtomicInteger work = new AtomicInteger();
+		engine.setProgressMonitor(new NullProgressMonitor() {
+			@Override
+			public void worked(int amount) {
+				work.addAndGet(amount);
+			}
+		});
+		engine.executeAll();
+		return work.get();
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.sparql.function.FunctionFactory;
+import org.apache.jena.sparql.function.FunctionRegistry;
+import org.apache.jena.vocabulary.RDFS;
+import org.apache.jena.vocabulary.XSD;
+import org.junit.Assert;
+import org.junit.Test;
+import org.topbraid.jenax.functions.LazyFunctionFactory;
+import org.topbraid.jenax.util.JenaUtil;
+import org.topbraid.shacl.arq.SHACLFunctions;
+import org.topbraid.shacl.validation.ValidationUtil;
+import org.topbraid.shacl.vocabulary.DASH;
+import org.topbraid.shacl.vocabulary.SH;
+
+public class TestSHACLSystemModel {
+
+	@Test
+	public void testSystemModelSnapshot() throws Exception {
+		Model parsed = SHACLSystemModel.parseSHACLModel();
+		Model loaded = SHACLSystemModel.getSHACLModel();
+		Assert.assertTrue(loaded.isIsomorphicWith(parsed));
+		for(String uri : SHACLFunctions.getFunctionURIs(parsed)) {
+			Assert.assertNotNull(uri, FunctionRegistry.get().get(uri));
+			Assert.assertNotNull(uri, FunctionRegistry.get().get(uri).create(uri));
+		}
+		for(String uri : SHACLFunctions.getAskValidatorURIs(parsed).keySet()) {
+			Assert.assertTrue(uri, FunctionRegistry.get().isRegistered(uri));
+		}
+
+		// Validation registers the functions of the shapes graph, which must not replace the lazy system functions
+		Map<String,FunctionFactory> lazyFunctions = new HashMap<>();
+		for(String uri : SHACLFunctions.getFunctionURIs(parsed)) {
+			if(FunctionRegistry.get().get(uri) instanceof LazyFunctionFactory) {
+				lazyFunctions.put(uri, FunctionRegistry.get().get(uri));
+			}
+		}
+		Assert.assertFalse(lazyFunctions.isEmpty());
+		ValidationUtil.validateModel(JenaUtil.createMemoryModel(), JenaUtil.createMemoryModel(), false);
+		for(Map.Entry<String,FunctionFactory> entry : lazyFunctions.entrySet()) {
+			Assert.assertSame(entry.getKey(), entry.getValue(), FunctionRegistry.get().get(entry.getKey()));
+		}
+		
+		// A shapes graph that declares a system function differently replaces the lazy function
+		String uri = DASH.NS + "isNodeKindIRI";
+		FunctionFactory systemFunction = FunctionRegistry.get().get(uri);
+		Assert.assertTrue(systemFunction instanceof LazyFunctionFactory);
+		Model shapesModel = JenaUtil.createMemoryModel();
+		shapesModel.createResource(uri, SH.SPARQLFunction).
+				addProperty(SH.ask, "ASK { }").
+				addProperty(SH.returnType, XSD.xboolean);
+		try {
+			ValidationUtil.validateModel(JenaUtil.createMemoryModel(), shapesModel, false);
+			Assert.assertNotSame(systemFunction, FunctionRegistry.get().get(uri));
+		}
+		finally {
+			FunctionRegistry.get().put(uri, systemFunction);
+		}
+		
+		// The system Model remains modifiable
+		Statement s = loaded.createStatement(DASH.all, RDFS.comment, "Test");
+		loaded.add(s);
+		Assert.assertTrue(loaded.contains(s));
+		loaded.remove(s);
+		Assert.assertTrue(loaded.isIsomorphicWith(parsed));
+		
+		Model union = JenaUtil.createMemoryModel();
+		for(Model model : SHACLSystemModel.getDocumentModels().values()) {
+			union.add(model);
+		}
+		Assert.assertTrue(union.isIsomorphicWith(parsed));
+	}
+}
@@ -0,0 +1,58 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation;
+
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Resource;
+import org.junit.Assert;
+import org.junit.Test;
+import org.topbraid.shacl.ValidationTestUtil;
+import org.topbraid.shacl.vocabulary.SH;
+
+public class TestConformanceMemo {
+
+	@Test
+	public void testConformanceMemo() throws Exception {
+		ValidationTestUtil.assertSameResults(new ValidationEngineConfiguration(), 
+				new ValidationEngineConfiguration().setConformanceMemoSize(100000), ValidationTestUtil.CORE_TESTS);
+
+		// Many focus nodes sharing the same value node for sh:node
+		String ns = "http://example.org/memo#";
+		Model model = ValidationTestUtil.readModel("/sh/tests/fixtures/conformanceMemo-001.ttl");
+		int persons = 10;
+		for(int i = 0; i < persons; i++) {
+			Resource person = model.createResource(ns + "person" + i, model.createResource(ns + "Person"));
+			person.addProperty(model.createProperty(ns + "address"), model.createResource(ns + "address" + (i % 2)));
+		}
+		model.createResource(ns + "address0").addProperty(model.createProperty(ns + "city"), "Linz");
+		ValidationEngine engine = ValidationUtil.createValidationEngine(model, model, new ValidationEngineConfiguration().setConformanceMemoSize(100000));
+		Assert.assertNull(ValidationUtil.createValidationEngine(model, model, new ValidationEngineConfiguration()).getRun().getConformanceMemo());
+		Resource report = engine.validateAll();
+		Assert.assertEquals(persons / 2, report.listProperties(SH.result).toList().size());
+		ConformanceMemo memo = engine.getRun().getConformanceMemo();
+		Assert.assertEquals(2, memo.getMissCount());
+		Assert.assertEquals(persons - 2, memo.getHitCount());
+		
+		// The worker engines of a parallel validation share the memo of the run
+		engine = ValidationUtil.createValidationEngine(model, model, new ValidationEngineConfiguration().
+				setConformanceMemoSize(100000).setParallelValidation(true).setFocusNodeChunkSize(1));
+		Assert.assertEquals(persons / 2, engine.validateAll().listProperties(SH.result).toList().size());
+		memo = engine.getRun().getConformanceMemo();
+		Assert.assertEquals(persons, memo.getHitCount() + memo.getMissCount());
+	}
+}
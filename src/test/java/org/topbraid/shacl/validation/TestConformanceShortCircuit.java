@@ -0,0 +1,63 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.Assert;
+import org.junit.Test;
+import org.topbraid.shacl.ValidationTestUtil;
+import org.topbraid.shacl.engine.Shape;
+import org.topbraid.shacl.util.SHACLUtil;
+import org.topbraid.shacl.vocabulary.DASH;
+import org.topbraid.shacl.vocabulary.SH;
+
+public class TestConformanceShortCircuit {
+
+	@Test
+	public void testConformsToShape() throws Exception {
+		for(boolean nativeExecutors : new boolean[] { true, false }) {
+			ValidationEngineConfiguration configuration = new ValidationEngineConfiguration().setNativeExecutors(nativeExecutors);
+			for(File file : ValidationTestUtil.getTestFiles(configuration, ValidationTestUtil.CORE_TESTS)) {
+				Model dataModel = ValidationTestUtil.readModel(file);
+				ValidationEngine engine = ValidationUtil.createValidationEngine(dataModel, dataModel, configuration);
+				for(Shape shape : engine.getShapesGraph().getRootShapes()) {
+					for(RDFNode focusNode : SHACLUtil.getTargetNodes(shape.getShapeResource(), engine.getDataset())) {
+						List<RDFNode> focusNodes = Collections.singletonList(focusNode);
+						ValidationEngine full = ValidationEngineFactory.get().create(engine.getDataset(), engine.getShapesGraphURI(), engine.getShapesGraph(), null);
+						full.setConfiguration(configuration);
+						Model results = full.validateNodesAgainstShape(focusNodes, shape.getShapeResource().asNode()).getModel();
+						Boolean conforms = engine.conformsToShape(focusNodes, shape.getShapeResource().asNode());
+						String label = focusNode + " against " + shape + " in " + file;
+						if(results.contains(null, RDF.type, DASH.FailureResult)) {
+							Assert.assertNotEquals("Unexpected conformance of " + label, Boolean.TRUE, conforms);
+						}
+						else {
+							Assert.assertEquals("Different conformance of " + label, !results.contains(null, SH.result, (RDFNode)null), conforms);
+						}
+					}
+				}
+				Assert.assertFalse(engine.getReport().hasProperty(SH.result));
+			}
+		}
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation;
+
+import java.io.File;
+import java.util.List;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.Statement;
+import org.junit.Assert;
+import org.junit.Test;
+import org.topbraid.jenax.util.JenaUtil;
+import org.topbraid.shacl.ValidationTestUtil;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.engine.Shape;
+import org.topbraid.shacl.vocabulary.SH;
+
+public class TestConstraintScheduler {
+
+	@Test
+	public void testConstraintScheduler() throws Exception {
+		for(File file : ValidationTestUtil.getTestFiles(new ValidationEngineConfiguration(), ValidationTestUtil.CORE_TESTS)) {
+			Model dataModel = ValidationTestUtil.readModel(file);
+			Model plainResults = ValidationUtil.validateModel(dataModel, dataModel, new ValidationEngineConfiguration()).getModel();
+			ConstraintScheduler scheduler = new ConstraintScheduler(new ValidationStatistics(dataModel.getGraph()));
+			ValidationEngineConfiguration configuration = new ValidationEngineConfiguration().setConstraintScheduler(scheduler);
+			for(int run = 0; run < 2; run++) {
+				Model scheduledResults = ValidationUtil.validateModel(dataModel, dataModel, configuration).getModel();
+				Assert.assertTrue("Different results for " + file, scheduledResults.isIsomorphicWith(plainResults));
+			}
+		}
+
+		// Two native constraints with the same estimated cost, of which only sh:datatype fails
+		String ns = "http://example.org/schedule#";
+		Model model = ValidationTestUtil.readModel("/sh/tests/fixtures/constraintScheduler-001.ttl");
+		int items = 50;
+		for(int i = 0; i < items; i++) {
+			Resource item = model.createResource(ns + "item" + i, model.createResource(ns + "Item"));
+			item.addProperty(model.createProperty(ns + "code"), "C" + i);
+		}
+		ValidationStatistics statistics = new ValidationStatistics(model.getGraph());
+		Assert.assertEquals(items, statistics.getClassSize(model.createResource(ns + "Item").asNode()));
+		Assert.assertEquals(items, statistics.getPredicateCount(model.createProperty(ns + "code").asNode()));
+		Assert.assertEquals(1.0, statistics.getAverageValueCount(model.createProperty(ns + "code").asNode()), 0.0);
+
+		ConstraintScheduler scheduler = new ConstraintScheduler(statistics);
+		ValidationEngineConfiguration configuration = new ValidationEngineConfiguration().setNativeExecutors(true).setConstraintScheduler(scheduler);
+		// The order is only re-computed after the number of observations has doubled, i.e. in the second run
+		ValidationEngine engine = null;
+		for(int run = 0; run < 2; run++) {
+			engine = ValidationUtil.createValidationEngine(model, model, configuration);
+			Assert.assertEquals(items, engine.validateAll().listProperties(SH.result).toList().size());
+		}
+		Shape propertyShape = engine.getShapesGraph().getShape(model.createResource(ns + "ItemShape-code").asNode());
+		Assert.assertEquals(items, scheduler.getEstimatedFocusNodeCount(engine.getShapesGraph().getShape(model.createResource(ns + "ItemShape").asNode())));
+		for(Constraint constraint : propertyShape.getConstraints()) {
+			Assert.assertEquals(2 * items, statistics.getFocusNodeCount(constraint));
+		}
+		Constraint first = scheduler.getConstraints(propertyShape, false).get(0);
+		Assert.assertEquals(SH.DatatypeConstraintComponent, first.getComponent());
+		Assert.assertTrue(statistics.getFailureRate(first) > 0.8);
+
+		// The next run on the same data stops at the first violation, which is now the cheapest to find
+		engine = ValidationUtil.createValidationEngine(model, model, configuration.setValidationErrorBatch(1));
+		List<Statement> results = engine.validateAll().listProperties(SH.result).toList();
+		Assert.assertEquals(1, results.size());
+		Assert.assertTrue(results.get(0).getResource().hasProperty(SH.sourceConstraintComponent, SH.DatatypeConstraintComponent));
+
+		// sh:datatype is only cheaper than a SPARQL constraint if its native executor is used
+		model = ValidationTestUtil.readModel("/sh/tests/fixtures/constraintScheduler-002.ttl");
+		scheduler = new ConstraintScheduler(new ValidationStatistics(model.getGraph()));
+		engine = ValidationUtil.createValidationEngine(model, model, new ValidationEngineConfiguration());
+		Shape nodeShape = engine.getShapesGraph().getShape(model.createResource(ns + "ItemShape").asNode());
+		Constraint datatype = null;
+		Constraint sparql = null;
+		for(Constraint constraint : nodeShape.getConstraints()) {
+			if(SH.DatatypeConstraintComponent.equals(constraint.getComponent())) {
+				datatype = constraint;
+			}
+			else {
+				sparql = constraint;
+			}
+		}
+		Assert.assertTrue(scheduler.getRank(datatype, false) < scheduler.getRank(sparql, false));
+		Assert.assertEquals(scheduler.getRank(sparql, true), scheduler.getRank(datatype, true), 0.0);
+		Assert.assertSame(datatype, scheduler.getConstraints(nodeShape, false).get(0));
+		Assert.assertNotEquals(scheduler.getRank(datatype, false), scheduler.getRank(datatype, true), 0.0);
+	}
+
+
+	
+	@Test
+	public void testStatisticsOfComponentsWithSeveralParameters() throws Exception {
+		String ns = "http://example.org/schedule#";
+		ValidationStatistics statistics = new ValidationStatistics(JenaUtil.createMemoryModel().getGraph());
+		Constraint constraint = getQualifiedConstraint(ns, 1);
+		Assert.assertNull(constraint.getParameterValue());
+		statistics.record(constraint, 10, 1000, 2);
+		Assert.assertEquals(10, statistics.getFocusNodeCount(constraint));
+		
+		// The observations apply to the same constraint in a new ShapesGraph, but not if any parameter value is different
+		Assert.assertEquals(10, statistics.getFocusNodeCount(getQualifiedConstraint(ns, 1)));
+		Assert.assertEquals(0, statistics.getFocusNodeCount(getQualifiedConstraint(ns, 2)));
+	}
+	
+	
+	private Constraint getQualifiedConstraint(String ns, int minCount) {
+		Model model = JenaUtil.createMemoryModel();
+		Resource shape = model.createResource(ns + "ItemShape-code", SH.PropertyShape);
+		shape.addProperty(SH.path, model.createResource(ns + "code"));
+		shape.addProperty(SH.qualifiedValueShape, model.createResource(ns + "CodeShape"));
+		shape.addLiteral(SH.qualifiedMinCount, model.createTypedLiteral(minCount));
+		ValidationEngine engine = ValidationUtil.createValidationEngine(model, model, new ValidationEngineConfiguration());
+		for(Constraint constraint : engine.getShapesGraph().getShape(shape.asNode()).getConstraints()) {
+			if(SH.QualifiedMinCountConstraintComponent.equals(constraint.getComponent())) {
+				return constraint;
+			}
+		}
+		throw new AssertionError("Missing sh:qualifiedMinCount constraint");
+	}
+}
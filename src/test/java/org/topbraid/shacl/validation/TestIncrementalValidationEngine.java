@@ -0,0 +1,73 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation;
+
+import java.io.File;
+import java.net.URI;
+import java.util.List;
+
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.util.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.topbraid.jenax.util.ARQFactory;
+import org.topbraid.jenax.util.DiffGraph;
+import org.topbraid.jenax.util.JenaUtil;
+import org.topbraid.shacl.ValidationTestUtil;
+import org.topbraid.shacl.arq.SHACLFunctions;
+import org.topbraid.shacl.engine.ShapesGraph;
+
+public class TestIncrementalValidationEngine {
+
+	@Test
+	public void testIncrementalValidation() throws Exception {
+		for(File file : ValidationTestUtil.getTestFiles(new ValidationEngineConfiguration(), ValidationTestUtil.CORE_TESTS)) {
+			Model shapesModel = JenaUtil.createMemoryModel();
+			shapesModel.read(file.toURI().toString(), FileUtils.langTurtle);
+			shapesModel = ValidationUtil.ensureToshTriplesExist(shapesModel);
+			SHACLFunctions.registerFunctions(shapesModel);
+			ShapesGraph shapesGraph = new ShapesGraph(shapesModel);
+			URI shapesGraphURI = URI.create("urn:x-shacl-shapes-graph:test");
+
+			Model baseModel = JenaUtil.createMemoryModel();
+			baseModel.read(file.toURI().toString(), FileUtils.langTurtle);
+			List<Triple> triples = baseModel.getGraph().find(Triple.ANY).toList();
+			for(int round = 0; round < 3; round++) {
+				DiffGraph diff = new DiffGraph(baseModel.getGraph());
+				Model dataModel = ModelFactory.createModelForGraph(diff);
+				Dataset dataset = ARQFactory.get().getDataset(dataModel);
+				dataset.addNamedModel(shapesGraphURI.toString(), shapesModel);
+				IncrementalValidationEngine incremental = new IncrementalValidationEngine(dataset, shapesGraphURI, shapesGraph);
+				incremental.validateAll();
+
+				// Delete some triples and add others with swapped objects
+				for(int i = round; i < triples.size(); i += 3) {
+					diff.delete(triples.get(i));
+				}
+				for(int i = round; i + 1 < triples.size(); i += 4) {
+					diff.add(Triple.create(triples.get(i).getSubject(), triples.get(i).getPredicate(), triples.get(i + 1).getObject()));
+				}
+				Model incrementalResults = incremental.validateDelta(diff).getModel();
+				Model fullResults = ValidationEngineFactory.get().create(dataset, shapesGraphURI, shapesGraph, null).validateAll().getModel();
+				Assert.assertTrue("Different results for " + file + " in round " + round, incrementalResults.isIsomorphicWith(fullResults));
+			}
+		}
+	}
+}
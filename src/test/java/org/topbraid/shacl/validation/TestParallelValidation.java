@@ -0,0 +1,78 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.Assert;
+import org.junit.Test;
+import org.topbraid.shacl.ValidationTestUtil;
+import org.topbraid.shacl.vocabulary.SH;
+
+public class TestParallelValidation {
+
+	@Test
+	public void testParallelValidation() throws Exception {
+		AtomicInteger tasks = new AtomicInteger();
+		ExecutorService executor = new ThreadPoolExecutor(4, 4, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>()) {
+			@Override
+			protected void beforeExecute(Thread thread, Runnable task) {
+				tasks.incrementAndGet();
+			}
+		};
+		try {
+			ValidationEngineConfiguration parallel = new ValidationEngineConfiguration().setParallelValidation(true).setExecutorService(executor).setFocusNodeChunkSize(1);
+			ValidationTestUtil.assertSameResults(new ValidationEngineConfiguration(), parallel, ValidationTestUtil.CORE_TESTS);
+
+			// The workers share value nodes and fuse SPARQL validators like the sequential validation
+			parallel.setValueNodeChunkSize(10).setFuseSPARQLValidators(true).setNativeExecutors(false);
+			ValidationTestUtil.assertSameResults(new ValidationEngineConfiguration(), parallel, ValidationTestUtil.CORE_TESTS);
+
+			// The maximum number of violations applies to all workers together
+			String ns = "http://example.org/parallel#";
+			Model model = ValidationTestUtil.readModel("/sh/tests/fixtures/parallelValidation-001.ttl");
+			for(int i = 0; i < 1000; i++) {
+				model.createResource(ns + "item" + i, model.createResource(ns + "Item"));
+			}
+
+			// Each chunk of focus nodes is validated by a task, which uses its own copies of the SPARQL queries
+			tasks.set(0);
+			ValidationEngine engine = ValidationUtil.createValidationEngine(model, model, new ValidationEngineConfiguration().
+					setParallelValidation(true).setExecutorService(executor).setFocusNodeChunkSize(100).setNativeExecutors(false));
+			engine.setFocusNodeFilter(node -> node.isResource() && node.asResource().hasProperty(RDF.type, model.getResource(ns + "Item")));
+			Assert.assertEquals(1000, engine.validateAll().listProperties(SH.result).toList().size());
+			Assert.assertEquals(10, tasks.get());
+			Assert.assertNotNull(engine.getRun().getQueryCopies());
+			Assert.assertNull(ValidationUtil.createValidationEngine(model, model, new ValidationEngineConfiguration()).getRun().getQueryCopies());
+			
+			ValidationEngineConfiguration configuration = new ValidationEngineConfiguration().
+					setParallelValidation(true).setExecutorService(executor).setFocusNodeChunkSize(10).setValidationErrorBatch(5);
+			Resource report = ValidationUtil.validateModel(model, model, configuration);
+			Assert.assertEquals(5, report.listProperties(SH.result).toList().size());
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+}
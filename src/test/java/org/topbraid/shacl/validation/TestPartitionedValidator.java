@@ -0,0 +1,105 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.riot.system.StreamOps;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+import org.junit.Assert;
+import org.junit.Test;
+import org.topbraid.shacl.ValidationTestUtil;
+import org.topbraid.shacl.engine.CompiledShapesGraph;
+import org.topbraid.shacl.vocabulary.SH;
+
+public class TestPartitionedValidator {
+
+	@Test
+	public void testPartitionedValidation() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			int localConstraints = 0;
+			for(File file : ValidationTestUtil.getTestFiles(new ValidationEngineConfiguration(), ValidationTestUtil.CORE_TESTS)) {
+				Model dataModel = ValidationTestUtil.readModel(file);
+				Model expected = ValidationUtil.validateModel(dataModel, dataModel, false).getModel();
+				CompiledShapesGraph shapesGraph = ValidationUtil.compileShapesGraph(dataModel, false);
+				PartitionedValidator validator = new PartitionedValidator(shapesGraph, new ValidationEngineConfiguration(), 3);
+				Model actual = validator.validate(stream -> StreamOps.sendTriplesToStream(dataModel.getGraph(), stream)).getModel();
+				Assert.assertTrue("Different results for " + file, expected.isIsomorphicWith(actual));
+				localConstraints += validator.getLocalConstraintCount();
+				ValidationEngineConfiguration parallel = new ValidationEngineConfiguration().setParallelValidation(true).setExecutorService(executor);
+				actual = new PartitionedValidator(shapesGraph, parallel, 2).validate(stream -> StreamOps.sendTriplesToStream(dataModel.getGraph(), stream)).getModel();
+				Assert.assertTrue("Different parallel results for " + file, expected.isIsomorphicWith(actual));
+			}
+			Assert.assertTrue(localConstraints > 0);
+
+			// Only the triples needed by the non-local sh:class constraint are kept in memory
+			String ns = "http://example.org/partitioned#";
+			Model model = ValidationTestUtil.readModel("/sh/tests/fixtures/partitionedValidator-001.ttl");
+			for(int i = 0; i < 100; i++) {
+				Resource item = model.createResource(ns + "item" + i, model.createResource(ns + "Item"));
+				if(i % 10 != 0) {
+					item.addProperty(model.createProperty(ns + "name"), "Item " + i);
+				}
+				Resource owner = model.createResource(ns + "owner" + (i % 7), model.createResource(ns + (i % 7 == 0 ? "Robot" : "Employee")));
+				item.addProperty(model.createProperty(ns + "owner"), owner);
+			}
+			long global = 0;
+			for(Property predicate : new Property[] { RDF.type, RDFS.subClassOf, model.createProperty(ns + "owner") }) {
+				global += model.listStatements(null, predicate, (RDFNode)null).toList().size();
+			}
+			Model expected = ValidationUtil.validateModel(model, model, false).getModel();
+			PartitionedValidator validator = new PartitionedValidator(ValidationUtil.compileShapesGraph(model, false), new ValidationEngineConfiguration(), 4);
+			File spillDirectory = Files.createTempDirectory("test-partitions").toFile();
+			validator.setSpillDirectory(spillDirectory);
+			Model actual = validator.validate(stream -> StreamOps.sendTriplesToStream(model.getGraph(), stream)).getModel();
+			Assert.assertTrue(expected.isIsomorphicWith(actual));
+			Assert.assertEquals(25, actual.listStatements(null, SH.resultSeverity, SH.Violation).toList().size());
+			Assert.assertEquals(model.size(), validator.getTripleCount());
+			Assert.assertEquals(global, validator.getGlobalTripleCount());
+			Assert.assertTrue(validator.getLocalConstraintCount() > 0);
+			
+			// The other triples have been spilled into one file per partition, which is deleted once it has been validated
+			Assert.assertEquals(0, spillDirectory.list().length);
+			Assert.assertTrue(spillDirectory.delete());
+
+			// The maximum number of violations applies to all partitions together
+			Model itemsModel = ValidationTestUtil.readModel("/sh/tests/fixtures/partitionedValidator-002.ttl");
+			for(int i = 0; i < 100; i++) {
+				itemsModel.createResource(ns + "item" + i, itemsModel.createResource(ns + "Item"));
+			}
+			CompiledShapesGraph shapesGraph = ValidationUtil.compileShapesGraph(itemsModel, false);
+			ValidationEngineConfiguration limited = new ValidationEngineConfiguration().setValidationErrorBatch(5);
+			Model results = new PartitionedValidator(shapesGraph, limited, 4).validate(stream -> StreamOps.sendTriplesToStream(itemsModel.getGraph(), stream)).getModel();
+			Assert.assertEquals(5, results.listStatements(null, SH.resultSeverity, SH.Violation).toList().size());
+			limited.setParallelValidation(true).setExecutorService(executor);
+			results = new PartitionedValidator(shapesGraph, limited, 4).validate(stream -> StreamOps.sendTriplesToStream(itemsModel.getGraph(), stream)).getModel();
+			Assert.assertEquals(5, results.listStatements(null, SH.resultSeverity, SH.Violation).toList().size());
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,64 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation;
+
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.Assert;
+import org.junit.Test;
+import org.topbraid.jenax.util.ARQFactory;
+import org.topbraid.shacl.ValidationTestUtil;
+import org.topbraid.shacl.validation.sparql.SPARQLBatchQueries;
+import org.topbraid.shacl.vocabulary.SH;
+
+public class TestSharedValueNodes {
+
+	@Test
+	public void testSharedValueNodes() throws Exception {
+		for(boolean nativeExecutors : new boolean[] { true, false }) {
+			ValidationTestUtil.assertSameResults(new ValidationEngineConfiguration().setNativeExecutors(nativeExecutors), 
+					new ValidationEngineConfiguration().setNativeExecutors(nativeExecutors).setValueNodeChunkSize(2), ValidationTestUtil.CORE_TESTS);
+		}
+
+		Assert.assertTrue(SPARQLBatchQueries.hasPathPattern(ARQFactory.get().createQuery(
+				"SELECT DISTINCT $this ?value WHERE { $this $PATH ?value . FILTER (isIRI(?value)) }")));
+		Assert.assertFalse(SPARQLBatchQueries.hasPathPattern(ARQFactory.get().createQuery(
+				"SELECT $this ?value WHERE { $this $PATH ?value . ?value a ?type }")));
+
+		// A complex path with several constraints, validated in chunks of three focus nodes
+		String ns = "http://example.org/values#";
+		Model model = ValidationTestUtil.readModel("/sh/tests/fixtures/sharedValueNodes-001.ttl");
+		int items = 10;
+		for(int i = 0; i < items; i++) {
+			Resource item = model.createResource(ns + "item" + i, model.createResource(ns + "Item"));
+			for(int j = 0; j < i % 4; j++) {
+				Resource part = model.createResource();
+				item.addProperty(model.createProperty(ns + "part"), part);
+				part.addProperty(model.createProperty(ns + "code"), j == 0 ? "A" + i : "b");
+			}
+		}
+		for(boolean nativeExecutors : new boolean[] { true, false }) {
+			ValidationEngineConfiguration configuration = new ValidationEngineConfiguration().setNativeExecutors(nativeExecutors);
+			Model plainResults = ValidationUtil.validateModel(model, model, configuration).getModel();
+			Model sharedResults = ValidationUtil.validateModel(model, model, configuration.setValueNodeChunkSize(3)).getModel();
+			Assert.assertEquals(8, sharedResults.listSubjectsWithProperty(RDF.type, SH.ValidationResult).toList().size());
+			Assert.assertTrue(sharedResults.isIsomorphicWith(plainResults));
+		}
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation;
+
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Resource;
+import org.junit.Assert;
+import org.junit.Test;
+import org.topbraid.shacl.ValidationTestUtil;
+import org.topbraid.shacl.vocabulary.SH;
+
+public class TestStaticConstraintCache {
+
+	@Test
+	public void testStaticConstraintCache() throws Exception {
+		for(boolean nativeExecutors : new boolean[] { true, false }) {
+			ValidationTestUtil.assertSameResults(new ValidationEngineConfiguration().setNativeExecutors(nativeExecutors), 
+					new ValidationEngineConfiguration().setNativeExecutors(nativeExecutors).setStaticConstraintCacheSize(100000), ValidationTestUtil.CORE_TESTS);
+		}
+
+		// Many focus nodes sharing few values, including dash:stem which only has a SPARQL validator
+		String ns = "http://example.org/static#";
+		Model model = ValidationTestUtil.readModel("/sh/tests/fixtures/staticConstraintCache-001.ttl");
+		int items = 20;
+		for(int i = 0; i < items; i++) {
+			Resource item = model.createResource(ns + "item" + i, model.createResource(ns + "Item"));
+			item.addProperty(model.createProperty(ns + "date"), model.createTypedLiteral(i % 2 == 0 ? "2018-01-01" : "2018-13-01", XSDDatatype.XSDdate));
+			item.addProperty(model.createProperty(ns + "code"), i % 2 == 0 ? "ABC" : "abc");
+			item.addProperty(model.createProperty(ns + "link"), model.createResource(i % 2 == 0 ? ns + "x" : "http://other.org/x"));
+		}
+		Assert.assertNull(ValidationUtil.createValidationEngine(model, model, new ValidationEngineConfiguration()).getRun().getStaticConstraintCache());
+		for(boolean nativeExecutors : new boolean[] { true, false }) {
+			ValidationEngineConfiguration configuration = new ValidationEngineConfiguration().setNativeExecutors(nativeExecutors).setStaticConstraintCacheSize(100000);
+			ValidationEngine engine = ValidationUtil.createValidationEngine(model, model, configuration);
+			Resource report = engine.validateAll();
+			Assert.assertEquals(3 * items / 2, report.listProperties(SH.result).toList().size());
+			StaticConstraintCache cache = engine.getRun().getStaticConstraintCache();
+			Assert.assertEquals(6, cache.getMissCount());
+			Assert.assertEquals(3 * items - 6, cache.getHitCount());
+			Assert.assertEquals(6, cache.size());
+
+			// With eviction, the outcomes are recomputed
+			engine = ValidationUtil.createValidationEngine(model, model, configuration.setStaticConstraintCacheSize(1));
+			Model evictedResults = engine.validateAll().getModel();
+			Assert.assertTrue(engine.getRun().getStaticConstraintCache().getEvictionCount() > 0);
+			Assert.assertTrue(evictedResults.isIsomorphicWith(report.getModel()));
+		}
+	}
+}
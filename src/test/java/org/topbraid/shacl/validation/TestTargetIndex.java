@@ -0,0 +1,90 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.vocabulary.RDFS;
+import org.junit.Assert;
+import org.junit.Test;
+import org.topbraid.shacl.ValidationTestUtil;
+import org.topbraid.shacl.engine.Shape;
+import org.topbraid.shacl.util.SHACLUtil;
+import org.topbraid.shacl.vocabulary.SH;
+
+public class TestTargetIndex {
+
+	@Test
+	public void testTargetIndex() throws Exception {
+		for(File file : ValidationTestUtil.getTestFiles(ValidationTestUtil.CORE_TESTS, "/sh/tests/target")) {
+			Model dataModel = ValidationTestUtil.readModel(file);
+			ValidationEngine engine = ValidationUtil.createValidationEngine(dataModel, dataModel, new ValidationEngineConfiguration());
+			TargetIndex index = engine.getTargetIndex();
+
+			Set<RDFNode> nodes = new HashSet<>();
+			List<Shape> rootShapes = engine.getShapesGraph().getRootShapes();
+			for(Shape shape : rootShapes) {
+				List<RDFNode> expected = SHACLUtil.getTargetNodes(shape.getShapeResource(), engine.getDataset());
+				Assert.assertEquals("Different targets for " + shape + " in " + file, new HashSet<>(expected), new HashSet<>(index.getTargetNodes(shape)));
+				nodes.addAll(expected);
+			}
+			for(RDFNode node : nodes) {
+				Set<Shape> expected = new HashSet<>();
+				for(Shape shape : rootShapes) {
+					if(SHACLUtil.getTargetNodes(shape.getShapeResource(), engine.getDataset()).contains(node)) {
+						expected.add(shape);
+					}
+				}
+				Assert.assertEquals("Different shapes for " + node + " in " + file, expected, index.getShapesForNode(node));
+			}
+		}
+
+		// Each call to validateNode starts with a new index, which sees the changes of the data graph
+		String ns = "http://example.org/targets#";
+		Model model = ValidationTestUtil.readModel("/sh/tests/fixtures/targetIndex-001.ttl");
+		Resource child = model.createResource(ns + "child");
+		ValidationEngine engine = ValidationUtil.createValidationEngine(model, model, new ValidationEngineConfiguration());
+		Assert.assertFalse(engine.validateNode(child.asNode()).hasProperty(SH.result));
+		TargetIndex index = engine.getTargetIndex();
+		model.add(model.createResource(ns + "parent"), model.createProperty(ns + "child"), child);
+		Assert.assertTrue(engine.validateNode(child.asNode()).hasProperty(SH.result));
+		Assert.assertNotSame(index, engine.getTargetIndex());
+		
+		// The class hierarchy is walked once per class, and the focus nodes of class targets include the subclass instances
+		Resource a = model.createResource(ns + "A", RDFS.Class);
+		Resource b = model.createResource(ns + "B", RDFS.Class).addProperty(RDFS.subClassOf, a);
+		Resource c = model.createResource(ns + "C", RDFS.Class).addProperty(RDFS.subClassOf, b);
+		model.createResource(ns + "AShape", SH.NodeShape).addProperty(SH.targetClass, a);
+		Resource instance = model.createResource(ns + "instance", c);
+		engine = ValidationUtil.createValidationEngine(model, model, new ValidationEngineConfiguration());
+		index = engine.getTargetIndex();
+		Assert.assertEquals(new HashSet<>(Arrays.asList(a.asNode(), b.asNode(), c.asNode())), index.getSubClasses(a.asNode()));
+		Assert.assertEquals(new HashSet<>(Arrays.asList(a.asNode(), b.asNode(), c.asNode())), index.getSuperClasses(c.asNode()));
+		Assert.assertSame(index.getSubClasses(a.asNode()), index.getSubClasses(a.asNode()));
+		Shape aShape = engine.getShapesGraph().getShape(model.createResource(ns + "AShape").asNode());
+		Assert.assertEquals(Collections.singletonList(instance), index.getTargetNodes(aShape));
+		Assert.assertEquals(Collections.singleton(aShape), index.getShapesForNode(instance));
+	}
+}
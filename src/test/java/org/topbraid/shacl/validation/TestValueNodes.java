@@ -0,0 +1,71 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.junit.Assert;
+import org.junit.Test;
+import org.topbraid.shacl.ValidationTestUtil;
+import org.topbraid.shacl.arq.SHACLPaths;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.engine.Shape;
+import org.topbraid.shacl.vocabulary.SH;
+
+public class TestValueNodes {
+
+	@Test
+	public void testValueNodes() throws Exception {
+		String ns = "http://example.org/values#";
+		Model model = ValidationTestUtil.readModel("/sh/tests/fixtures/valueNodes-001.ttl");
+		Resource focus = model.createResource(ns + "focus");
+		for(int i = 0; i < 15; i++) {
+			Resource value = model.createResource(ns + "value" + i);
+			if(i < 12) {
+				focus.addProperty(model.createProperty(ns + "p"), value);
+			}
+			focus.addProperty(model.createProperty(ns + "q"), value);
+		}
+		ValidationEngine engine = ValidationUtil.createValidationEngine(model, model, new ValidationEngineConfiguration());
+		Shape simple = engine.getShapesGraph().getShape(model.createResource(ns + "SimpleShape-p").asNode());
+		Shape complex = engine.getShapesGraph().getShape(model.createResource(ns + "ComplexShape-pq").asNode());
+		Assert.assertNotNull(simple.getPredicate());
+		Assert.assertNull(complex.getPredicate());
+		for(Shape shape : new Shape[] { simple, complex }) {
+			int expected = shape == simple ? 12 : 15;
+			for(Constraint constraint : shape.getConstraints()) {
+				List<RDFNode> valueNodes = engine.getValueNodes(constraint, focus);
+				Assert.assertEquals(expected, valueNodes.size());
+				Assert.assertEquals(expected, new HashSet<>(valueNodes).size());
+				Assert.assertEquals(expected, engine.countValueNodes(constraint, focus));
+				Assert.assertEquals(0, engine.countValueNodes(constraint, model.createResource(ns + "value0")));
+			}
+		}
+		List<Node> nodes = new ArrayList<>();
+		nodes.add(focus.asNode());
+		SHACLPaths.addValueNodes(model.getGraph(), focus.asNode(), complex.getJenaPath(), nodes);
+		Assert.assertEquals(16, nodes.size());
+		Assert.assertEquals(16, new HashSet<>(nodes).size());
+		Assert.assertTrue(engine.validateAll().getModel().listStatements(null, SH.result, (RDFNode)null).toList().isEmpty());
+	}
+}
@@ -0,0 +1,146 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.java;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.Assert;
+import org.junit.Test;
+import org.topbraid.shacl.ValidationTestUtil;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.engine.Shape;
+import org.topbraid.shacl.validation.ValidationEngine;
+import org.topbraid.shacl.validation.ValidationEngineConfiguration;
+import org.topbraid.shacl.validation.ValidationUtil;
+import org.topbraid.shacl.vocabulary.SH;
+
+public class TestNativeExecutors {
+
+	@Test
+	public void testNativeExecutors() throws Exception {
+		ValidationEngineConfiguration nativeConfiguration = new ValidationEngineConfiguration().setNativeExecutors(true);
+		ValidationTestUtil.assertExpectedResults(nativeConfiguration, ValidationTestUtil.CORE_TESTS);
+		
+		// Including the messages, for the test cases that the declarative executors can run without JavaScript
+		ValidationEngineConfiguration declarativeConfiguration = new ValidationEngineConfiguration().setNativeExecutors(false);
+		List<File> files = ValidationTestUtil.getTestFiles(declarativeConfiguration, ValidationTestUtil.CORE_TESTS);
+		Assert.assertFalse(files.isEmpty());
+		ValidationTestUtil.assertSameResults(
+				m -> ValidationTestUtil.validate(m, declarativeConfiguration), 
+				m -> ValidationTestUtil.validate(m, nativeConfiguration), 
+				files);
+	}
+
+	@Test
+	public void testQualifiedValueShapes() throws Exception {
+		String ns = "http://example.org/qualified#";
+		Model model = ValidationTestUtil.readModel("/sh/tests/fixtures/qualifiedValueShape-001.ttl");
+
+		// A small pool of digits shared by all hands, including some that are both fingers and thumbs
+		Resource finger = model.createResource(ns + "Finger");
+		Resource thumb = model.createResource(ns + "Thumb");
+		List<Resource> digits = new ArrayList<>();
+		for(int i = 0; i < 6; i++) {
+			Resource digit = model.createResource(ns + "digit" + i);
+			if(i % 2 == 0) {
+				digit.addProperty(RDF.type, finger);
+			}
+			if(i % 3 == 0) {
+				digit.addProperty(RDF.type, thumb);
+			}
+			digits.add(digit);
+		}
+		for(int i = 0; i < 30; i++) {
+			Resource hand = model.createResource(ns + "hand" + i, model.createResource(ns + "Hand"));
+			for(int j = 0; j < 6; j++) {
+				if(((i >> j) & 1) == 1) {
+					hand.addProperty(model.createProperty(ns + "digit"), digits.get(j));
+				}
+			}
+		}
+
+		ValidationEngine engine = ValidationUtil.createValidationEngine(model, model, new ValidationEngineConfiguration().setNativeExecutors(true).setQualifiedConformanceTableSize(100));
+		Shape thumbShape = engine.getShapesGraph().getShape(model.createResource(ns + "HandShape-thumb").asNode());
+		int qualifiedConstraints = 0;
+		for(Constraint constraint : thumbShape.getConstraints()) {
+			Assert.assertTrue(constraint.getExecutor() instanceof QualifiedValueShapeConstraintExecutor);
+			qualifiedConstraints++;
+		}
+		Assert.assertEquals(2, qualifiedConstraints);
+		Model nativeResults = engine.validateAll().getModel();
+		// digit3 is the only thumb that is not also a finger, and only 14 of the 30 hands have it
+		Assert.assertEquals(16, nativeResults.listSubjectsWithProperty(RDF.type, SH.ValidationResult).toList().size());
+		Assert.assertEquals(16, nativeResults.listSubjectsWithProperty(SH.sourceConstraintComponent, SH.QualifiedMinCountConstraintComponent).toList().size());
+
+		// One entry per used digit for each qualified value shape, shared by qualifiedMinCount and qualifiedMaxCount
+		Assert.assertEquals(10, engine.getRun().getQualifiedConformanceTable().size());
+		Assert.assertEquals(10, engine.getRun().getQualifiedConformanceTable().getMissCount());
+		Assert.assertNull(ValidationUtil.createValidationEngine(model, model, new ValidationEngineConfiguration()).getRun().getQualifiedConformanceTable());
+
+		// Without table, the value nodes are evaluated for each constraint
+		engine = ValidationUtil.createValidationEngine(model, model, new ValidationEngineConfiguration().setNativeExecutors(true));
+		Assert.assertTrue(engine.validateAll().getModel().isIsomorphicWith(nativeResults));
+
+		// The parallel workers share the table of the run
+		ValidationEngineConfiguration parallel = new ValidationEngineConfiguration().setNativeExecutors(true).setQualifiedConformanceTableSize(100).setParallelValidation(true).setFocusNodeChunkSize(4);
+		engine = ValidationUtil.createValidationEngine(model, model, parallel);
+		Assert.assertTrue(engine.validateAll().getModel().isIsomorphicWith(nativeResults));
+		Assert.assertEquals(10, engine.getRun().getQualifiedConformanceTable().size());
+	}
+
+	@Test
+	public void testUniqueValueForClass() throws Exception {
+		String ns = "http://example.org/unique#";
+		Model model = ValidationTestUtil.readModel("/sh/tests/fixtures/uniqueValueForClass-001.ttl");
+		for(int i = 0; i < 40; i++) {
+			Resource person = model.createResource(ns + "person" + i, model.createResource(ns + (i % 2 == 0 ? "Person" : "Employee")));
+			person.addProperty(model.createProperty(ns + "id"), "id" + (i % 30));
+		}
+		// Has a duplicate id but is not an instance, so it does not count as owner
+		model.createResource(ns + "other").addProperty(model.createProperty(ns + "id"), "id0");
+
+		ValidationEngine engine = ValidationUtil.createValidationEngine(model, model, new ValidationEngineConfiguration().setNativeExecutors(true).setValueOwnersIndexSize(10));
+		Model nativeResults = engine.validateAll().getModel();
+		Assert.assertEquals(1, engine.getRun().getValueOwnersIndex().size());
+		Model declarativeResults = ValidationUtil.validateModel(model, model, new ValidationEngineConfiguration().setNativeExecutors(false)).getModel();
+		Assert.assertEquals(30, nativeResults.listSubjectsWithProperty(RDF.type, SH.ValidationResult).toList().size());
+		Assert.assertTrue(nativeResults.isIsomorphicWith(declarativeResults));
+
+		// Without index, the native executor falls back to the SPARQL validator
+		engine = ValidationUtil.createValidationEngine(model, model, new ValidationEngineConfiguration().setNativeExecutors(true));
+		Assert.assertTrue(engine.validateAll().getModel().isIsomorphicWith(declarativeResults));
+		Assert.assertNull(engine.getRun().getValueOwnersIndex());
+	}
+
+	@Test
+	public void testUniqueValueForClassComplexPaths() throws Exception {
+		String ns = "http://example.org/unique#";
+		Model model = ValidationTestUtil.readModel("/sh/tests/fixtures/uniqueValueForClass-002.ttl");
+		ValidationEngine engine = ValidationUtil.createValidationEngine(model, model, new ValidationEngineConfiguration().setNativeExecutors(true).setValueOwnersIndexSize(10));
+		Model nativeResults = engine.validateAll().getModel();
+		Assert.assertEquals(3, engine.getRun().getValueOwnersIndex().size());
+		Model declarativeResults = ValidationUtil.validateModel(model, model, new ValidationEngineConfiguration().setNativeExecutors(false)).getModel();
+		// p1 and p2 share the zip, the phone number and the (value-equal) id
+		Assert.assertEquals(6, nativeResults.listSubjectsWithProperty(RDF.type, SH.ValidationResult).toList().size());
+		Assert.assertTrue(nativeResults.isIsomorphicWith(declarativeResults));
+	}
+}
@@ -0,0 +1,66 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.sinks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.util.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.topbraid.jenax.util.JenaUtil;
+import org.topbraid.shacl.ValidationTestUtil;
+import org.topbraid.shacl.validation.ValidationEngine;
+import org.topbraid.shacl.validation.ValidationEngineConfiguration;
+import org.topbraid.shacl.validation.ValidationUtil;
+import org.topbraid.shacl.vocabulary.SH;
+
+public class TestResultSinks {
+
+	@Test
+	public void testResultSinks() throws Exception {
+		for(File file : ValidationTestUtil.getTestFiles(new ValidationEngineConfiguration(), ValidationTestUtil.CORE_TESTS)) {
+			Model dataModel = ValidationTestUtil.readModel(file);
+			Resource report = ValidationUtil.validateModel(dataModel, dataModel, new ValidationEngineConfiguration());
+			int resultCount = report.listProperties(SH.result).toList().size();
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			ValidationEngine engine = ValidationUtil.createValidationEngine(dataModel, dataModel, new ValidationEngineConfiguration());
+			RDFStreamResultSink rdfSink = new RDFStreamResultSink(out);
+			engine.setResultSink(rdfSink);
+			Resource streamedReport = engine.validateAll();
+			Assert.assertFalse(streamedReport.hasProperty(SH.result));
+			Assert.assertEquals(resultCount, rdfSink.getResultCount());
+			Model streamedModel = JenaUtil.createMemoryModel();
+			streamedModel.read(new ByteArrayInputStream(out.toByteArray()), "urn:dummy", FileUtils.langNTriple);
+			Assert.assertTrue("Different results for " + file, streamedModel.isIsomorphicWith(report.getModel()));
+
+			out = new ByteArrayOutputStream();
+			engine = ValidationUtil.createValidationEngine(dataModel, dataModel, new ValidationEngineConfiguration());
+			JSONLinesResultSink jsonSink = new JSONLinesResultSink(out);
+			engine.setResultSink(jsonSink);
+			engine.validateAll();
+			String json = new String(out.toByteArray(), StandardCharsets.UTF_8);
+			Assert.assertEquals(resultCount, json.isEmpty() ? 0 : json.split("\n").length);
+			Assert.assertEquals(report.hasLiteral(SH.conforms, true), jsonSink.conforms());
+		}
+	}
+}
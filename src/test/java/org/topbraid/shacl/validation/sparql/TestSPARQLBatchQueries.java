@@ -0,0 +1,36 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.sparql;
+
+import org.junit.Test;
+import org.topbraid.shacl.ValidationTestUtil;
+import org.topbraid.shacl.validation.ValidationEngineConfiguration;
+
+public class TestSPARQLBatchQueries {
+
+	@Test
+	public void testSPARQLBatches() throws Exception {
+		// Batch size 1 is the unbatched path, and none of the test files has 1000 focus nodes for a shape
+		ValidationEngineConfiguration unbatched = new ValidationEngineConfiguration().setNativeExecutors(false);
+		for(int batchSize : new int[] { 2, 3, 1000 }) {
+			ValidationTestUtil.assertSameResults(
+					unbatched, 
+					new ValidationEngineConfiguration().setNativeExecutors(false).setSPARQLBatchSize(batchSize), 
+					ValidationTestUtil.CORE_TESTS, "/sh/tests/sparql");
+		}
+	}
+}
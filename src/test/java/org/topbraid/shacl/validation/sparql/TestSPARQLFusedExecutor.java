@@ -0,0 +1,67 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.sparql;
+
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.Assert;
+import org.junit.Test;
+import org.topbraid.shacl.ValidationTestUtil;
+import org.topbraid.shacl.engine.Shape;
+import org.topbraid.shacl.validation.ValidationEngine;
+import org.topbraid.shacl.validation.ValidationEngineConfiguration;
+import org.topbraid.shacl.validation.ValidationUtil;
+import org.topbraid.shacl.vocabulary.SH;
+
+public class TestSPARQLFusedExecutor {
+
+	@Test
+	public void testFusedSPARQLValidators() throws Exception {
+		for(boolean nativeExecutors : new boolean[] { true, false }) {
+			ValidationEngineConfiguration plain = new ValidationEngineConfiguration().setNativeExecutors(nativeExecutors);
+			ValidationEngineConfiguration fused = new ValidationEngineConfiguration().setNativeExecutors(nativeExecutors).setFuseSPARQLValidators(true);
+			ValidationTestUtil.assertSameResults(plain, fused, ValidationTestUtil.CORE_TESTS);
+			ValidationTestUtil.assertSameResults(plain, fused.setValueNodeChunkSize(2), ValidationTestUtil.CORE_TESTS);
+		}
+
+		// Validators from ASK queries share the path, sh:maxCount and the custom sh:sparql constraint become UNION branches
+		String ns = "http://example.org/fused#";
+		Model model = ValidationTestUtil.readModel("/sh/tests/fixtures/fusedSPARQLValidators-001.ttl");
+		int items = 12;
+		for(int i = 0; i < items; i++) {
+			Resource item = model.createResource(ns + "item" + i, model.createResource(ns + "Item"));
+			item.addProperty(model.createProperty(ns + "code"), i % 3 == 0 ? "XY" : "a" + i);
+			if(i % 4 == 0) {
+				item.addProperty(model.createProperty(ns + "code"), model.createTypedLiteral(i));
+			}
+		}
+		ValidationEngineConfiguration configuration = new ValidationEngineConfiguration().setNativeExecutors(false);
+		ValidationEngine engine = ValidationUtil.createValidationEngine(model, model, configuration);
+		Shape propertyShape = engine.getShapesGraph().getShape(model.createResource(ns + "ItemShape-code").asNode());
+		Assert.assertEquals(5, engine.getRun().getFusedExecutors().get(propertyShape, true).getConstraints().size());
+		Model plainResults = engine.validateAll().getModel();
+		for(int batchSize : new int[] { 1, 5 }) {
+			configuration.setFuseSPARQLValidators(true).setSPARQLBatchSize(batchSize);
+			Model fusedResults = ValidationUtil.validateModel(model, model, configuration).getModel();
+			Assert.assertEquals(plainResults.listSubjectsWithProperty(RDF.type, SH.ValidationResult).toList().size(), 
+					fusedResults.listSubjectsWithProperty(RDF.type, SH.ValidationResult).toList().size());
+			Assert.assertTrue(fusedResults.isIsomorphicWith(plainResults));
+		}
+	}
+}